@@ -16,17 +16,19 @@
 
 package com.gwtplatform.crawler.server;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStreamReader;
-import java.io.PrintWriter;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.HttpURLConnection;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLDecoder;
 import java.net.URLEncoder;
+import java.nio.charset.Charset;
+import java.util.Locale;
 import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
 
 import javax.inject.Inject;
 import javax.inject.Singleton;
@@ -41,10 +43,33 @@ import javax.servlet.http.HttpServletResponse;
 
 /**
  * Servlet that makes this application crawlable.
+ * <p/>
+ * Pages are rendered by the crawl service with a single long-polling request: the service waits for the page being
+ * rendered, even by another request, instead of answering {@code FETCH_IN_PROGRESS} right away. If the page is still
+ * not rendered once the service stops waiting, the crawler gets a {@code 503} response and retries later. The same goes
+ * when the service itself answers {@code 503} because too many pages are being rendered, its {@code Retry-After}
+ * header is passed on to the crawler. Other errors of the service are answered with {@code 502}.
+ * <p/>
+ * The rendered page is streamed to the crawler as bytes, through a fixed buffer and in the charset sent by the service.
+ * Compressed pages are passed through as they are to crawlers accepting gzip. The whole exchange with the service is
+ * bounded by {@link ServiceDeadlineMillis}, one minute by default.
  */
 @Singleton
 public final class CrawlFilter implements Filter {
     private static final String CHAR_ENCODING = "UTF-8";
+    private static final byte[] FETCH_IN_PROGRESS = "FETCH_IN_PROGRESS".getBytes(Charset.forName("US-ASCII"));
+    private static final String GZIP = "gzip";
+    private static final long DEFAULT_DEADLINE_MILLIS = 60000;
+    private static final int CONNECT_TIMEOUT_MILLIS = 10000;
+    private static final int RETRY_AFTER_SECONDS = 30;
+    private static final int BUFFER_SIZE = 8192;
+
+    private static final ThreadLocal<byte[]> BUFFER = new ThreadLocal<byte[]>() {
+        @Override
+        protected byte[] initialValue() {
+            return new byte[BUFFER_SIZE];
+        }
+    };
 
     /**
      * Special URL token that gets passed from the crawler to the servlet filter.
@@ -63,6 +88,7 @@ public final class CrawlFilter implements Filter {
     private final String serviceUrl;
     private final String key;
     private final Logger log;
+    private long deadlineMillis = DEFAULT_DEADLINE_MILLIS;
 
     @Inject
     CrawlFilter(@ServiceUrl String serviceUrl,
@@ -73,6 +99,11 @@ public final class CrawlFilter implements Filter {
         this.log = log;
     }
 
+    @com.google.inject.Inject(optional = true)
+    void setDeadlineMillis(@ServiceDeadlineMillis long deadlineMillis) {
+        this.deadlineMillis = deadlineMillis;
+    }
+
     /**
      * Maps from the query string that contains _escaped_fragment_ to one that
      * doesn't, but is instead followed by a hash fragment. It also unescapes any
@@ -134,9 +165,7 @@ public final class CrawlFilter implements Filter {
         // Does this request contain an _escaped_fragment_?
         if ((queryString != null)
             && (queryString.contains(ESCAPED_FRAGMENT_FORMAT1))) {
-            res.setHeader("Content-Type", "text/html; charset=" + CHAR_ENCODING);
-
-            PrintWriter writer = res.getWriter();
+            OutputStream out = null;
             try {
                 StringBuilder pageNameSb = new StringBuilder(req.getScheme() + "://");
                 pageNameSb.append(req.getServerName());
@@ -151,45 +180,26 @@ public final class CrawlFilter implements Filter {
 
                 log.info("Crawl filter encountered escaped fragment, will open: " + pageName);
 
+                long deadline = System.currentTimeMillis() + deadlineMillis;
                 String serviceRequest = serviceUrl + "?key=" + URLEncoder.encode(key, CHAR_ENCODING)
-                                        + "&url=" + URLEncoder.encode(pageName, CHAR_ENCODING);
+                                        + "&url=" + URLEncoder.encode(pageName, CHAR_ENCODING)
+                                        + "&wait=" + Math.max(0, deadlineMillis - CONNECT_TIMEOUT_MILLIS);
 
                 log.info("Full service request: " + serviceRequest);
 
-                // Retry until we're cut off
-                while (true) {
-                    BufferedReader reader = null;
-                    try {
-                        URL url = new URL(serviceRequest);
-                        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-                        connection.setConnectTimeout(10000);
-                        connection.setReadTimeout(10000);
-                        reader = new BufferedReader(new InputStreamReader(connection.getInputStream()));
-                        String line;
-                        line = reader.readLine();
-                        if (!"FETCH_IN_PROGRESS".equals(line)) {
-                            writer.println(line);
-                            while ((line = reader.readLine()) != null) {
-                                writer.println(line);
-                            }
-                            break;
-                        }
-                    } catch (IOException exception) {
-                        if (!exception.getMessage().contains("Timeout")) {
-                            throw exception;
-                        }
-                    } finally {
-                        if (reader != null) {
-                            reader.close();
-                        }
-                    }
-                }
+                out = streamServiceResponse(serviceRequest, req, res, deadline);
             } catch (MalformedURLException e) {
                 e.printStackTrace();
             } catch (IOException e) {
                 e.printStackTrace();
+
+                if (!res.isCommitted()) {
+                    res.setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+                }
             } finally {
-                writer.close();
+                if (out != null) {
+                    out.close();
+                }
             }
 
             log.info("Crawl filter exiting, no chaining.");
@@ -201,4 +211,159 @@ public final class CrawlFilter implements Filter {
     @Override
     public void init(FilterConfig filterConfig) throws ServletException {
     }
+
+    /**
+     * Requests the page from the crawl service and copies its response to {@code res}.
+     *
+     * @return The output stream of {@code res} if the page was written, {@code null} otherwise.
+     */
+    private OutputStream streamServiceResponse(String serviceRequest, HttpServletRequest req, HttpServletResponse res,
+            long deadline) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(serviceRequest).openConnection();
+        connection.setConnectTimeout(Math.min(CONNECT_TIMEOUT_MILLIS, getRemainingMillis(deadline)));
+        connection.setReadTimeout(getRemainingMillis(deadline));
+        connection.setRequestProperty("Accept-Encoding", GZIP);
+
+        if (connection.getResponseCode() == HttpURLConnection.HTTP_UNAVAILABLE) {
+            String retryAfter = connection.getHeaderField("Retry-After");
+            log.info("Crawl service overloaded, asking the crawler to retry later.");
+            res.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            res.setHeader("Retry-After", retryAfter == null ? String.valueOf(RETRY_AFTER_SECONDS) : retryAfter);
+            closeErrorStream(connection);
+            return null;
+        }
+
+        InputStream in = connection.getInputStream();
+        try {
+            boolean compressed = GZIP.equalsIgnoreCase(connection.getContentEncoding());
+            if (compressed && !acceptsGzip(req)) {
+                in = new GZIPInputStream(in);
+                compressed = false;
+            }
+
+            byte[] buffer = BUFFER.get();
+            int length = 0;
+            // Uncompressed responses may be the FETCH_IN_PROGRESS marker, compressed ones are always pages
+            if (!compressed) {
+                length = read(in, buffer, FETCH_IN_PROGRESS.length);
+                if (startsWith(buffer, length, FETCH_IN_PROGRESS)) {
+                    log.info("Page still rendering, asking the crawler to retry later.");
+                    res.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+                    res.setHeader("Retry-After", String.valueOf(RETRY_AFTER_SECONDS));
+                    return null;
+                }
+            }
+
+            res.setHeader("Content-Type", "text/html; charset=" + getCharset(connection.getContentType()));
+            if (compressed) {
+                res.setHeader("Content-Encoding", GZIP);
+                res.setHeader("Vary", "Accept-Encoding");
+            }
+
+            OutputStream out = res.getOutputStream();
+            out.write(buffer, 0, length);
+            while ((length = in.read(buffer)) != -1) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw new IOException("Crawl service deadline exceeded while streaming " + serviceRequest);
+                }
+                out.write(buffer, 0, length);
+            }
+            return out;
+        } finally {
+            in.close();
+        }
+    }
+
+    private void closeErrorStream(HttpURLConnection connection) throws IOException {
+        InputStream error = connection.getErrorStream();
+        if (error != null) {
+            error.close();
+        }
+    }
+
+    private int getRemainingMillis(long deadline) throws IOException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0) {
+            throw new IOException("Crawl service deadline exceeded");
+        }
+        return (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+
+    /**
+     * @return {@code true} if the crawler accepts gzip with a non-zero quality value, either explicitly or through
+     *         {@code *}. An explicit {@code gzip} entry takes precedence over {@code *}.
+     */
+    private boolean acceptsGzip(HttpServletRequest req) {
+        String acceptEncoding = req.getHeader("Accept-Encoding");
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        double gzipQuality = -1;
+        double anyQuality = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ENGLISH);
+            if (GZIP.equals(name) || "x-gzip".equals(name)) {
+                gzipQuality = Math.max(gzipQuality, parseQuality(parameters));
+            } else if ("*".equals(name)) {
+                anyQuality = parseQuality(parameters);
+            }
+        }
+
+        return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+    }
+
+    private double parseQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    private String getCharset(String contentType) {
+        if (contentType != null) {
+            int index = contentType.toLowerCase().indexOf("charset=");
+            if (index != -1) {
+                String charset = contentType.substring(index + "charset=".length()).trim();
+                int end = charset.indexOf(';');
+                return end == -1 ? charset : charset.substring(0, end).trim();
+            }
+        }
+        return CHAR_ENCODING;
+    }
+
+    /**
+     * Reads up to {@code length} bytes, fewer only if the stream ends.
+     */
+    private int read(InputStream in, byte[] buffer, int length) throws IOException {
+        int count = 0;
+        while (count < length) {
+            int read = in.read(buffer, count, length - count);
+            if (read == -1) {
+                break;
+            }
+            count += read;
+        }
+        return count;
+    }
+
+    private boolean startsWith(byte[] buffer, int length, byte[] prefix) {
+        if (length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
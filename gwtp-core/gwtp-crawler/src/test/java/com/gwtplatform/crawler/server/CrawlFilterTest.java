@@ -0,0 +1,287 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawler.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+public class CrawlFilterTest {
+    /**
+     * Answers the requests of the filter in place of the crawl service.
+     */
+    private abstract static class ServiceHandler implements HttpHandler {
+        private volatile String query;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            query = URLDecoder.decode(exchange.getRequestURI().getRawQuery(), "UTF-8");
+            try {
+                respond(exchange);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                exchange.close();
+            }
+        }
+
+        abstract void respond(HttpExchange exchange) throws IOException, InterruptedException;
+    }
+
+    private static class BufferOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) {
+            buffer.write(b);
+        }
+    }
+
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private CrawlFilter crawlFilter;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private BufferOutputStream responseBody;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        serverExecutor = Executors.newCachedThreadPool();
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        String serviceUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/crawl";
+        crawlFilter = new CrawlFilter(serviceUrl, "secret", Logger.getAnonymousLogger());
+
+        request = mock(HttpServletRequest.class);
+        when(request.getQueryString()).thenReturn("_escaped_fragment_=home");
+        when(request.getScheme()).thenReturn("http");
+        when(request.getServerName()).thenReturn("example.com");
+        when(request.getServerPort()).thenReturn(8080);
+        when(request.getRequestURI()).thenReturn("/index.html");
+
+        responseBody = new BufferOutputStream();
+        response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(responseBody);
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Test
+    public void requestsWithoutEscapedFragmentAreChained() throws Exception {
+        when(request.getQueryString()).thenReturn("page=1");
+        FilterChain chain = mock(FilterChain.class);
+
+        crawlFilter.doFilter(request, response, chain);
+
+        verify(chain).doFilter(request, response);
+        verifyZeroInteractions(response);
+    }
+
+    @Test
+    public void serviceIsAskedToWaitForThePageUntilTheDeadline() throws Exception {
+        ServiceHandler handler = serve(200, "text/plain; charset=UTF-8", bytes("<html/>"));
+
+        crawlFilter.doFilter(request, response, null);
+
+        assertTrue(handler.query, handler.query.contains("key=secret"));
+        assertTrue(handler.query, handler.query.contains("url=http://example.com:8080/index.html#!home"));
+        // The default one minute deadline, minus the time allowed to connect
+        assertTrue(handler.query, handler.query.endsWith("wait=50000"));
+    }
+
+    @Test
+    public void crawlerRetriesPagesStillRendering() throws Exception {
+        serve(200, "text/plain; charset=UTF-8", bytes("FETCH_IN_PROGRESS\n"));
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).setHeader("Retry-After", "30");
+        assertEquals(0, responseBody.buffer.size());
+    }
+
+    @Test
+    public void crawlerRetriesWhenTheServiceIsOverloaded() throws Exception {
+        serve(503, "text/plain; charset=UTF-8", new byte[0], "Retry-After", "12");
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).setHeader("Retry-After", "12");
+        assertEquals(0, responseBody.buffer.size());
+    }
+
+    @Test
+    public void crawlerRetriesLaterWhenTheOverloadedServiceGivesNoDelay() throws Exception {
+        serve(503, "text/plain; charset=UTF-8", new byte[0]);
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response).setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        verify(response).setHeader("Retry-After", "30");
+    }
+
+    @Test
+    public void serviceErrorsAreABadGateway() throws Exception {
+        serve(500, "text/plain; charset=UTF-8", bytes("Internal error"));
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response).setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+        assertEquals(0, responseBody.buffer.size());
+    }
+
+    @Test
+    public void serviceSlowerThanTheDeadlineIsABadGateway() throws Exception {
+        crawlFilter.setDeadlineMillis(200);
+        server.createContext("/crawl", new ServiceHandler() {
+            @Override
+            void respond(HttpExchange exchange) throws InterruptedException {
+                Thread.sleep(2000);
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        crawlFilter.doFilter(request, response, null);
+
+        assertTrue(System.currentTimeMillis() - start < 2000);
+        verify(response).setStatus(HttpServletResponse.SC_BAD_GATEWAY);
+    }
+
+    @Test
+    public void pageIsStreamedInTheCharsetOfTheService() throws Exception {
+        byte[] page = "<html>d\u00e9j\u00e0 vu</html>".getBytes("ISO-8859-1");
+        serve(200, "text/plain; charset=ISO-8859-1", page);
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response).setHeader("Content-Type", "text/html; charset=ISO-8859-1");
+        assertArrayEquals(page, responseBody.buffer.toByteArray());
+    }
+
+    @Test
+    public void compressedPageIsPassedThroughToCrawlersAcceptingGzip() throws Exception {
+        byte[] page = gzip(bytes("<html>compressed</html>"));
+        serve(200, "text/plain; charset=UTF-8", page, "Content-Encoding", "gzip");
+        when(request.getHeader("Accept-Encoding")).thenReturn("gzip, deflate");
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertArrayEquals(page, responseBody.buffer.toByteArray());
+    }
+
+    @Test
+    public void compressedPageIsDecompressedForOtherCrawlers() throws Exception {
+        serve(200, "text/plain; charset=UTF-8", gzip(bytes("<html>compressed</html>")), "Content-Encoding", "gzip");
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertArrayEquals(bytes("<html>compressed</html>"), responseBody.buffer.toByteArray());
+    }
+
+    @Test
+    public void compressedPageIsDecompressedForCrawlersRefusingGzip() throws Exception {
+        serve(200, "text/plain; charset=UTF-8", gzip(bytes("<html>compressed</html>")), "Content-Encoding", "gzip");
+        when(request.getHeader("Accept-Encoding")).thenReturn("deflate, gzip;q=0, x-gzip; q=0");
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertArrayEquals(bytes("<html>compressed</html>"), responseBody.buffer.toByteArray());
+    }
+
+    @Test
+    public void compressedPageIsPassedThroughToCrawlersAcceptingAnyEncoding() throws Exception {
+        byte[] page = gzip(bytes("<html>compressed</html>"));
+        serve(200, "text/plain; charset=UTF-8", page, "Content-Encoding", "gzip");
+        when(request.getHeader("Accept-Encoding")).thenReturn("identity, *;q=0.5");
+
+        crawlFilter.doFilter(request, response, null);
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertArrayEquals(page, responseBody.buffer.toByteArray());
+    }
+
+    private ServiceHandler serve(final int status, final String contentType, final byte[] body,
+            final String... headers) {
+        ServiceHandler handler = new ServiceHandler() {
+            @Override
+            void respond(HttpExchange exchange) throws IOException {
+                exchange.getResponseHeaders().set("Content-Type", contentType);
+                for (int i = 0; i < headers.length; i += 2) {
+                    exchange.getResponseHeaders().set(headers[i], headers[i + 1]);
+                }
+                exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+                OutputStream out = exchange.getResponseBody();
+                out.write(body);
+                out.close();
+            }
+        };
+        server.createContext("/crawl", handler);
+        return handler;
+    }
+
+    private byte[] gzip(byte[] value) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        GZIPOutputStream out = new GZIPOutputStream(buffer);
+        out.write(value);
+        out.close();
+        return buffer.toByteArray();
+    }
+
+    private byte[] bytes(String value) throws IOException {
+        return value.getBytes("UTF-8");
+    }
+}
@@ -0,0 +1,143 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.server;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+
+/**
+ * Presents one of the requests of a batch to the resource it is dispatched to. The method, headers and body are the
+ * ones of the part, everything else is the one of the batch request.
+ */
+class BatchPartRequest extends HttpServletRequestWrapper {
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String CHARSET_PARAMETER = "charset=";
+    private static final String HTTP_DATE_FORMAT = "EEE, dd MMM yyyy HH:mm:ss zzz";
+
+    private final BatchPart part;
+    private final byte[] body;
+
+    BatchPartRequest(HttpServletRequest request, BatchPart part) {
+        super(request);
+
+        this.part = part;
+        this.body = part.getBody().getBytes(MultipartBatch.UTF_8);
+    }
+
+    @Override
+    public String getMethod() {
+        return part.getMethod();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return part.getHeader(name);
+    }
+
+    @Override
+    public Enumeration getHeaders(String name) {
+        List<String> values = part.getHeaders().get(name);
+        return Collections.enumeration(values == null ? Collections.<String>emptyList() : values);
+    }
+
+    @Override
+    public Enumeration getHeaderNames() {
+        return Collections.enumeration(part.getHeaders().keySet());
+    }
+
+    @Override
+    public int getIntHeader(String name) {
+        String value = getHeader(name);
+        return value == null ? -1 : Integer.parseInt(value);
+    }
+
+    @Override
+    public long getDateHeader(String name) {
+        String value = getHeader(name);
+        if (value == null) {
+            return -1;
+        }
+
+        SimpleDateFormat dateFormat = new SimpleDateFormat(HTTP_DATE_FORMAT, Locale.US);
+        dateFormat.setTimeZone(TimeZone.getTimeZone("GMT"));
+        try {
+            return dateFormat.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date header " + name + ": " + value, e);
+        }
+    }
+
+    @Override
+    public String getContentType() {
+        return getHeader(CONTENT_TYPE);
+    }
+
+    @Override
+    public int getContentLength() {
+        return body.length;
+    }
+
+    @Override
+    public String getCharacterEncoding() {
+        String contentType = getContentType();
+        int charsetIndex = contentType == null ? -1 : contentType.indexOf(CHARSET_PARAMETER);
+        if (charsetIndex < 0) {
+            return null;
+        }
+
+        String charset = contentType.substring(charsetIndex + CHARSET_PARAMETER.length());
+        int parameterEnd = charset.indexOf(';');
+        return (parameterEnd < 0 ? charset : charset.substring(0, parameterEnd)).replace("\"", "").trim();
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        final ByteArrayInputStream input = new ByteArrayInputStream(body);
+
+        return new ServletInputStream() {
+            @Override
+            public int read() {
+                return input.read();
+            }
+
+            @Override
+            public int read(byte[] bytes, int offset, int length) {
+                return input.read(bytes, offset, length);
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() throws IOException {
+        String charset = getCharacterEncoding();
+        return new BufferedReader(new InputStreamReader(getInputStream(),
+                charset == null ? MultipartBatch.UTF_8.name() : charset));
+    }
+}
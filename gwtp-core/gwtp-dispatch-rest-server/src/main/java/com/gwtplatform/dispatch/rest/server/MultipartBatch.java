@@ -0,0 +1,161 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.core.Response.Status;
+
+/**
+ * Reads and writes the {@code multipart/mixed} messages exchanged with
+ * {@code com.gwtplatform.dispatch.rest.client.RestRequestBatcher}. Each part is an {@code application/http} message
+ * holding one request, or one response.
+ */
+final class MultipartBatch {
+    static final String MULTIPART_MIXED = "multipart/mixed";
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private static final String CRLF = "\r\n";
+    private static final String BOUNDARY_PARAMETER = "boundary=";
+    private static final String PART_HEADERS = "Content-Type: application/http" + CRLF + CRLF;
+    private static final String HTTP_VERSION = "HTTP/1.1";
+
+    private MultipartBatch() {
+    }
+
+    /**
+     * @return the boundary declared by a {@code multipart/mixed} content type, or {@code null}.
+     */
+    static String getBoundary(String contentType) {
+        if (contentType == null || !contentType.startsWith(MULTIPART_MIXED)) {
+            return null;
+        }
+
+        int boundaryIndex = contentType.indexOf(BOUNDARY_PARAMETER);
+        if (boundaryIndex < 0) {
+            return null;
+        }
+
+        String boundary = contentType.substring(boundaryIndex + BOUNDARY_PARAMETER.length());
+        int parameterEnd = boundary.indexOf(';');
+        if (parameterEnd >= 0) {
+            boundary = boundary.substring(0, parameterEnd);
+        }
+
+        boundary = boundary.replace("\"", "").trim();
+        return boundary.isEmpty() ? null : boundary;
+    }
+
+    /**
+     * @return the requests of the batch, or {@code null} if the batch is malformed.
+     */
+    static List<BatchPart> readRequests(String text, String boundary) {
+        List<BatchPart> parts = new ArrayList<BatchPart>();
+        String delimiter = "--" + boundary;
+        int index = text.indexOf(delimiter);
+
+        while (index >= 0 && !text.startsWith("--", index + delimiter.length())) {
+            int partStart = text.indexOf(CRLF, index);
+            int partEnd = partStart < 0 ? -1 : text.indexOf(CRLF + delimiter, partStart);
+            BatchPart part = partEnd < 0 ? null : readRequest(text.substring(partStart + CRLF.length(), partEnd));
+
+            if (part == null) {
+                return null;
+            }
+
+            parts.add(part);
+            index = partEnd + CRLF.length();
+        }
+
+        return index < 0 ? null : parts;
+    }
+
+    static void writeResponse(OutputStream output, String boundary, BatchPartResponse response) throws IOException {
+        byte[] body = response.getBody();
+
+        StringBuilder head = new StringBuilder();
+        head.append("--").append(boundary).append(CRLF).append(PART_HEADERS)
+                .append(HTTP_VERSION).append(' ').append(response.getStatus()).append(' ')
+                .append(getReasonPhrase(response)).append(CRLF);
+
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            for (String value : header.getValue()) {
+                head.append(header.getKey()).append(": ").append(value).append(CRLF);
+            }
+        }
+        head.append("Content-Length: ").append(body.length).append(CRLF).append(CRLF);
+
+        output.write(head.toString().getBytes(UTF_8));
+        output.write(body);
+        output.write(CRLF.getBytes(UTF_8));
+    }
+
+    static void writeEnd(OutputStream output, String boundary) throws IOException {
+        output.write(("--" + boundary + "--" + CRLF).getBytes(UTF_8));
+    }
+
+    private static BatchPart readRequest(String text) {
+        int messageStart = skipHeaders(text, 0);
+        int requestLineEnd = messageStart < 0 ? -1 : text.indexOf(CRLF, messageStart);
+        if (requestLineEnd < 0) {
+            return null;
+        }
+
+        String[] requestLine = text.substring(messageStart, requestLineEnd).split(" ");
+        int bodyStart = skipHeaders(text, requestLineEnd + CRLF.length());
+        if (requestLine.length < 2 || !requestLine[1].startsWith("/") || bodyStart < 0) {
+            return null;
+        }
+
+        BatchPart part = new BatchPart(requestLine[0], requestLine[1]);
+        for (String line : text.substring(requestLineEnd + CRLF.length(), bodyStart).split(CRLF)) {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                part.addHeader(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+            }
+        }
+        part.setBody(text.substring(bodyStart));
+
+        return part;
+    }
+
+    /**
+     * @return the index following the blank line ending the headers starting at {@code from}, or {@code -1}.
+     */
+    private static int skipHeaders(String text, int from) {
+        if (text.startsWith(CRLF, from)) {
+            return from + CRLF.length();
+        }
+
+        int headersEnd = text.indexOf(CRLF + CRLF, from);
+        return headersEnd < 0 ? -1 : headersEnd + 2 * CRLF.length();
+    }
+
+    private static String getReasonPhrase(BatchPartResponse response) {
+        if (response.getStatusMessage() != null) {
+            return response.getStatusMessage().replace('\r', ' ').replace('\n', ' ');
+        }
+
+        Status status = Status.fromStatusCode(response.getStatus());
+        return status == null ? "" : status.getReasonPhrase();
+    }
+}
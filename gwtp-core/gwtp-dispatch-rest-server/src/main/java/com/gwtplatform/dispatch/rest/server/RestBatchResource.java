@@ -0,0 +1,207 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.HeaderParam;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.HttpHeaders;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import javax.ws.rs.core.UriInfo;
+
+/**
+ * The end point receiving the requests batched by {@code com.gwtplatform.dispatch.rest.client.RestRequestBatcher}.
+ * Each request of the batch is forwarded to the resource serving its path, relative to the application path, and the
+ * responses are written back as the parts of a {@code multipart/mixed} response, in the order of the requests.
+ * <p/>
+ * <b>Batched requests don't go through the filters of the application.</b> They are forwarded with a
+ * {@link RequestDispatcher}: containers only apply the filters mapped to {@code FORWARD} dispatches, which filters are
+ * not by default, and {@code GuiceFilter} doesn't apply its filters again to forwarded requests. Authentication, XSRF
+ * protection or rate limiting filters only see the batch request itself. For this reason, only the requests to an
+ * explicit list of paths are forwarded, the others are answered with {@code 403 Forbidden}. Only allow the resources
+ * that are protected by the filters applied to the batch end point, or that don't need any filter.
+ * <p/>
+ * To serve the batch end point, extend this class, pass the paths of the resources that can be batched to
+ * {@link #RestBatchResource(String...)}, annotate the subclass with {@link Path}, usually {@link #PATH}, and register
+ * it with your JAX-RS application.
+ * <p/>
+ * The requests are forwarded before the batch response is written, because containers reset the response buffer
+ * when a request is forwarded. The responses are then streamed back one after the other.
+ */
+@Path(RestBatchResource.PATH)
+public class RestBatchResource {
+    public static final String PATH = "/batch";
+
+    private static final Logger logger = Logger.getLogger(RestBatchResource.class.getName());
+
+    private final List<String> forwardedPaths = new ArrayList<String>();
+
+    /**
+     * Creates a batch end point forwarding no request.
+     */
+    public RestBatchResource() {
+    }
+
+    /**
+     * Creates a batch end point forwarding the requests to {@code forwardedPaths}.
+     *
+     * @param forwardedPaths the paths of the resources that can be batched, relative to the application path. The paths
+     *                       below them are allowed too: {@code "/cars"} allows {@code "/cars/3"}, but not
+     *                       {@code "/carsAdmin"}. {@code "/"} allows every resource.
+     */
+    protected RestBatchResource(String... forwardedPaths) {
+        for (String forwardedPath : forwardedPaths) {
+            String path = forwardedPath.startsWith("/") ? forwardedPath : "/" + forwardedPath;
+            this.forwardedPaths.add(path.endsWith("/") ? path.substring(0, path.length() - 1) : path);
+        }
+    }
+
+    @POST
+    @Consumes(MultipartBatch.MULTIPART_MIXED)
+    public Response execute(@HeaderParam(HttpHeaders.CONTENT_TYPE) String contentType,
+                            @Context HttpServletRequest request,
+                            @Context HttpServletResponse response,
+                            @Context UriInfo uriInfo,
+                            String body) {
+        String boundary = MultipartBatch.getBoundary(contentType);
+        List<BatchPart> parts = boundary == null ? null : MultipartBatch.readRequests(body, boundary);
+
+        if (parts == null) {
+            return Response.status(Response.Status.BAD_REQUEST).build();
+        }
+
+        String applicationPath = getApplicationPath(request, uriInfo);
+        final List<BatchPartResponse> partResponses = new ArrayList<BatchPartResponse>();
+        for (BatchPart part : parts) {
+            partResponses.add(forward(request, response, applicationPath, part));
+        }
+
+        final String responseBoundary = "gwtp-batch-" + UUID.randomUUID();
+        StreamingOutput output = new StreamingOutput() {
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+                for (BatchPartResponse partResponse : partResponses) {
+                    MultipartBatch.writeResponse(outputStream, responseBoundary, partResponse);
+                    outputStream.flush();
+                }
+
+                MultipartBatch.writeEnd(outputStream, responseBoundary);
+            }
+        };
+
+        return Response.ok(output, MultipartBatch.MULTIPART_MIXED + "; boundary=" + responseBoundary).build();
+    }
+
+    BatchPartResponse forward(HttpServletRequest request, HttpServletResponse response, String applicationPath,
+            BatchPart part) {
+        BatchPartResponse partResponse = new BatchPartResponse(response);
+        if (!isForwarded(part.getPath())) {
+            logger.warning("The batched request " + part.getMethod() + " " + part.getPath() + " is not allowed");
+
+            partResponse.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return partResponse;
+        }
+
+        RequestDispatcher dispatcher = request.getRequestDispatcher(applicationPath + part.getPath());
+        try {
+            if (dispatcher == null) {
+                partResponse.sendError(HttpServletResponse.SC_NOT_FOUND);
+            } else {
+                dispatcher.forward(new BatchPartRequest(request, part), partResponse);
+            }
+        } catch (ServletException e) {
+            onForwardFailure(partResponse, part, e);
+        } catch (IOException e) {
+            onForwardFailure(partResponse, part, e);
+        } catch (RuntimeException e) {
+            onForwardFailure(partResponse, part, e);
+        }
+
+        return partResponse;
+    }
+
+    private void onForwardFailure(BatchPartResponse partResponse, BatchPart part, Exception e) {
+        logger.log(Level.WARNING, "Unable to execute the batched request " + part.getMethod() + " " + part.getPath(),
+                e);
+
+        partResponse.reset();
+        partResponse.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
+    }
+
+    /**
+     * @return {@code true} if {@code path} is one of the forwarded paths or below one of them. Paths with dot
+     *         segments, path parameters or encoded separators are never forwarded, as they could reach other resources
+     *         once normalized.
+     */
+    private boolean isForwarded(String path) {
+        int queryIndex = path.indexOf('?');
+        String resourcePath = queryIndex == -1 ? path : path.substring(0, queryIndex);
+
+        String lowerCasePath = resourcePath.toLowerCase(Locale.ENGLISH);
+        // Containers strip path parameters before normalizing the path, so "/cars/..;/admin" reaches "/admin"
+        if (!resourcePath.startsWith("/") || resourcePath.indexOf('\\') != -1 || resourcePath.indexOf(';') != -1
+                || lowerCasePath.contains("%2e") || lowerCasePath.contains("%2f") || lowerCasePath.contains("%3b")
+                || lowerCasePath.contains("%5c")) {
+            return false;
+        }
+        for (String segment : resourcePath.split("/")) {
+            if (".".equals(segment) || "..".equals(segment)) {
+                return false;
+            }
+        }
+
+        for (String forwardedPath : forwardedPaths) {
+            if (resourcePath.equals(forwardedPath) || resourcePath.startsWith(forwardedPath + "/")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the path of the JAX-RS application, relative to the servlet context and without a trailing slash.
+     */
+    private String getApplicationPath(HttpServletRequest request, UriInfo uriInfo) {
+        String path = uriInfo.getBaseUri().getRawPath();
+        String contextPath = request.getContextPath();
+
+        if (contextPath != null && path.startsWith(contextPath)) {
+            path = path.substring(contextPath.length());
+        }
+        if (path.endsWith("/")) {
+            path = path.substring(0, path.length() - 1);
+        }
+
+        return path;
+    }
+}
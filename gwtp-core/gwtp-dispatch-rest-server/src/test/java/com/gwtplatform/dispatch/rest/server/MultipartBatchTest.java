@@ -0,0 +1,90 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.mockito.Mockito.mock;
+
+public class MultipartBatchTest {
+    private static final String CRLF = "\r\n";
+
+    @Test
+    public void boundaryIsReadFromContentType() {
+        assertEquals("abc", MultipartBatch.getBoundary("multipart/mixed; boundary=\"abc\"; charset=UTF-8"));
+        assertNull(MultipartBatch.getBoundary("application/json"));
+    }
+
+    @Test
+    public void requestsAreRead() {
+        // given
+        String text = "--b" + CRLF + "Content-Type: application/http" + CRLF + CRLF
+                + "GET /cars?page=2 HTTP/1.1" + CRLF + "Accept: application/json" + CRLF + CRLF
+                + CRLF
+                + "--b" + CRLF + "Content-Type: application/http" + CRLF + CRLF
+                + "POST /ratings HTTP/1.1" + CRLF + "Content-Type: application/json" + CRLF + CRLF
+                + "{\"stars\":5}" + CRLF
+                + "--b--" + CRLF;
+
+        // when
+        List<BatchPart> parts = MultipartBatch.readRequests(text, "b");
+
+        // then
+        assertEquals(2, parts.size());
+        assertEquals("GET", parts.get(0).getMethod());
+        assertEquals("/cars?page=2", parts.get(0).getPath());
+        assertEquals("application/json", parts.get(0).getHeader("accept"));
+        assertEquals("", parts.get(0).getBody());
+        assertEquals("POST", parts.get(1).getMethod());
+        assertEquals("{\"stars\":5}", parts.get(1).getBody());
+    }
+
+    @Test
+    public void unterminatedBatchIsRejected() {
+        String text = "--b" + CRLF + "Content-Type: application/http" + CRLF + CRLF
+                + "GET /cars HTTP/1.1" + CRLF + CRLF;
+
+        assertNull(MultipartBatch.readRequests(text, "b"));
+    }
+
+    @Test
+    public void responseIsWrittenAsPart() throws IOException {
+        // given
+        BatchPartResponse response = new BatchPartResponse(mock(HttpServletResponse.class));
+        response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+        response.setContentType("text/plain");
+        response.getWriter().print("missing");
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+
+        // when
+        MultipartBatch.writeResponse(output, "b", response);
+        MultipartBatch.writeEnd(output, "b");
+
+        // then
+        assertEquals("--b" + CRLF + "Content-Type: application/http" + CRLF + CRLF
+                + "HTTP/1.1 404 Not Found" + CRLF + "Content-Type: text/plain" + CRLF + "Content-Length: 7" + CRLF
+                + CRLF + "missing" + CRLF + "--b--" + CRLF, output.toString("UTF-8"));
+    }
+}
@@ -0,0 +1,125 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.server;
+
+import javax.servlet.RequestDispatcher;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class RestBatchResourceTest {
+    private static final String APPLICATION_PATH = "/api";
+
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private RequestDispatcher dispatcher;
+
+    @Before
+    public void setUp() {
+        request = mock(HttpServletRequest.class);
+        response = mock(HttpServletResponse.class);
+        dispatcher = mock(RequestDispatcher.class);
+    }
+
+    @Test
+    public void requestsToForwardedPathsAreForwarded() throws Exception {
+        // given
+        RestBatchResource resource = new RestBatchResource("/cars", "ratings/");
+        when(request.getRequestDispatcher("/api/cars/3?details=true")).thenReturn(dispatcher);
+
+        // when
+        BatchPartResponse partResponse = forward(resource, "/cars/3?details=true");
+
+        // then
+        verify(dispatcher).forward(any(BatchPartRequest.class), same(partResponse));
+        assertEquals(HttpServletResponse.SC_OK, partResponse.getStatus());
+        assertForwarded(resource, "/cars");
+        assertForwarded(resource, "/ratings");
+        assertForwarded(resource, "/ratings/5");
+    }
+
+    @Test
+    public void requestsToOtherPathsAreForbidden() {
+        RestBatchResource resource = new RestBatchResource("/cars");
+
+        assertForbidden(resource, "/carsAdmin");
+        assertForbidden(resource, "/admin/cars");
+        assertForbidden(resource, "cars");
+        assertForbidden(resource, "/");
+        verify(request, never()).getRequestDispatcher(anyString());
+    }
+
+    @Test
+    public void pathsLeavingTheForwardedPathsAreForbidden() {
+        RestBatchResource resource = new RestBatchResource("/cars");
+
+        assertForbidden(resource, "/cars/../admin");
+        assertForbidden(resource, "/cars/./../admin");
+        assertForbidden(resource, "/cars/%2E%2E/admin");
+        assertForbidden(resource, "/cars/..%2Fadmin");
+        assertForbidden(resource, "/cars/..\\admin");
+        assertForbidden(resource, "/cars/..;/admin");
+        assertForbidden(resource, "/cars;jsessionid=1/../admin");
+        assertForbidden(resource, "/cars/..%3B/admin");
+        verify(request, never()).getRequestDispatcher(anyString());
+    }
+
+    @Test
+    public void defaultResourceForwardsNoRequest() {
+        assertForbidden(new RestBatchResource(), "/cars");
+    }
+
+    @Test
+    public void rootPathForwardsEveryRequest() {
+        RestBatchResource resource = new RestBatchResource("/");
+
+        assertForwarded(resource, "/cars/3");
+        assertForwarded(resource, "/ratings");
+    }
+
+    @Test
+    public void requestsWithoutResourceAreNotFound() {
+        BatchPartResponse partResponse = forward(new RestBatchResource("/"), "/unknown");
+
+        assertEquals(HttpServletResponse.SC_NOT_FOUND, partResponse.getStatus());
+    }
+
+    private void assertForwarded(RestBatchResource resource, String path) {
+        when(request.getRequestDispatcher(APPLICATION_PATH + path)).thenReturn(dispatcher);
+
+        assertEquals(path, HttpServletResponse.SC_OK, forward(resource, path).getStatus());
+    }
+
+    private void assertForbidden(RestBatchResource resource, String path) {
+        assertEquals(path, HttpServletResponse.SC_FORBIDDEN, forward(resource, path).getStatus());
+    }
+
+    private BatchPartResponse forward(RestBatchResource resource, String path) {
+        return resource.forward(request, response, APPLICATION_PATH, new BatchPart("GET", path));
+    }
+}
@@ -24,17 +24,37 @@ import com.gwtplatform.dispatch.rest.shared.RestAction;
 
 /**
  * This class offers helper methods to help the generated implementation of {@link ActionMetadataProvider} register
- * metadata in an {@link java.util.HashMap}.
+ * metadata.
+ * <p/>
+ * The metadata of generated actions is read from their {@link RestRequestTemplate}, which is shared by all the
+ * instances of an action class, so no lookup is needed. Metadata registered with {@link #register(Class,
+ * MetadataType, Object)} is kept per action class, indexed by the ordinal of its {@link MetadataType}.
  */
 public abstract class AbstractActionMetadataProvider implements ActionMetadataProvider {
-    private final Map<MetadataKey, Object> metadata = Maps.newHashMap();
+    private static final int METADATA_TYPE_COUNT = MetadataType.values().length;
+
+    private final Map<Class<?>, Object[]> metadata = Maps.newHashMap();
 
     @Override
     public Object getValue(RestAction<?> action, MetadataType metadataType) {
-        return metadata.get(MetadataKey.create(action.getClass(), metadataType));
+        if (action instanceof AbstractRestAction) {
+            RestRequestTemplate template = ((AbstractRestAction<?>) action).getRequestTemplate();
+            if (template != null) {
+                return template.getMetadata(metadataType);
+            }
+        }
+
+        Object[] values = metadata.get(action.getClass());
+        return values == null ? null : values[metadataType.ordinal()];
     }
 
     protected void register(Class<? extends RestAction> actionClass, MetadataType metadataType, Object value) {
-        metadata.put(MetadataKey.create(actionClass, metadataType), value);
+        Object[] values = metadata.get(actionClass);
+        if (values == null) {
+            values = new Object[METADATA_TYPE_COUNT];
+            metadata.put(actionClass, values);
+        }
+
+        values[metadataType.ordinal()] = value;
     }
 }
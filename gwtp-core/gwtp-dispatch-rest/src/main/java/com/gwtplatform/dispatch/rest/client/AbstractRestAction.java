@@ -100,6 +100,14 @@ public abstract class AbstractRestAction<R> implements RestAction<R> {
         return bodyParam != null;
     }
 
+    /**
+     * @return the parts of the request computed when the action was generated, or {@code null} if the request must be
+     *         built from {@link #getPath()} and the metadata of the action.
+     */
+    public RestRequestTemplate getRequestTemplate() {
+        return null;
+    }
+
     protected void addPathParam(String name, Object value) {
         pathParams.add(new RestParameter(name, value));
     }
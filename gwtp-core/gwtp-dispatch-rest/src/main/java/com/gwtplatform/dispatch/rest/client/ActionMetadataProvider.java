@@ -16,7 +16,6 @@
 
 package com.gwtplatform.dispatch.rest.client;
 
-import com.google.common.base.Objects;
 import com.gwtplatform.dispatch.rest.shared.MetadataType;
 import com.gwtplatform.dispatch.rest.shared.RestAction;
 
@@ -25,43 +24,6 @@ import com.gwtplatform.dispatch.rest.shared.RestAction;
  * {@link RestAction}s. Possible metadata is enumerated in {@link MetadataType}.
  */
 public interface ActionMetadataProvider {
-    /**
-     * A key composed of {@link RestAction} and a {@link MetadataType}.
-     */
-    class MetadataKey {
-        private final Class<? extends RestAction> actionClass;
-        private final MetadataType metadataType;
-
-        MetadataKey(Class<? extends RestAction> actionClass,
-                    MetadataType metadataType) {
-            this.actionClass = actionClass;
-            this.metadataType = metadataType;
-        }
-
-        public static MetadataKey create(Class<? extends RestAction> actionClass, MetadataType metadataType) {
-            return new MetadataKey(actionClass, metadataType);
-        }
-
-        @Override
-        public int hashCode() {
-            return Objects.hashCode(actionClass, metadataType);
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) {
-                return true;
-            }
-
-            if (o == null || !(o instanceof MetadataKey)) {
-                return false;
-            }
-
-            MetadataKey other = (MetadataKey) o;
-            return Objects.equal(actionClass, other.actionClass) && Objects.equal(metadataType, other.metadataType);
-        }
-    }
-
     /**
      * Retrieve metadata for the given action and {@link MetadataType} pair.
      *
@@ -0,0 +1,89 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+
+/**
+ * A {@link Request} waiting to be sent by a {@link RestRequestBatcher}, alone or as part of a batch.
+ */
+class BatchedRequest extends Request {
+    private final RestRequestBatcher batcher;
+    private final BatchedRequestBuilder requestBuilder;
+
+    private Request directRequest;
+    private boolean cancelled;
+    private boolean completed;
+
+    BatchedRequest(RestRequestBatcher batcher, BatchedRequestBuilder requestBuilder) {
+        this.batcher = batcher;
+        this.requestBuilder = requestBuilder;
+    }
+
+    @Override
+    public void cancel() {
+        cancelled = true;
+
+        if (directRequest != null) {
+            directRequest.cancel();
+        } else {
+            batcher.remove(this);
+        }
+    }
+
+    @Override
+    public boolean isPending() {
+        if (directRequest != null) {
+            return directRequest.isPending();
+        }
+
+        return !cancelled && !completed;
+    }
+
+    BatchedRequestBuilder getRequestBuilder() {
+        return requestBuilder;
+    }
+
+    void sendDirectly() {
+        try {
+            directRequest = requestBuilder.sendDirectly();
+        } catch (RequestException e) {
+            onError(e);
+        }
+    }
+
+    void onResponseReceived(Response response) {
+        if (!cancelled && !completed) {
+            completed = true;
+            getCallback().onResponseReceived(this, response);
+        }
+    }
+
+    void onError(Throwable exception) {
+        if (!cancelled && !completed) {
+            completed = true;
+            getCallback().onError(this, exception);
+        }
+    }
+
+    private RequestCallback getCallback() {
+        return requestBuilder.getCallback();
+    }
+}
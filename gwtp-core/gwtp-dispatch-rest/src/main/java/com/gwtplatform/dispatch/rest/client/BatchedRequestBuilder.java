@@ -0,0 +1,74 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+
+/**
+ * A {@link RequestBuilder} that keeps track of its headers and is sent by a {@link RestRequestBatcher}.
+ */
+class BatchedRequestBuilder extends RequestBuilder {
+    private final RestRequestBatcher batcher;
+    private final Map<String, String> headers = new LinkedHashMap<String, String>();
+
+    BatchedRequestBuilder(Method httpMethod, String url, RestRequestBatcher batcher) {
+        super(httpMethod, url);
+
+        this.batcher = batcher;
+    }
+
+    @Override
+    public void setHeader(String header, String value) {
+        super.setHeader(header, value);
+
+        headers.put(header, value);
+    }
+
+    @Override
+    public Request send() throws RequestException {
+        if (getCallback() == null) {
+            throw new NullPointerException("callback cannot be null");
+        }
+
+        return batcher.add(this);
+    }
+
+    @Override
+    public Request sendRequest(String requestData, RequestCallback callback) throws RequestException {
+        setRequestData(requestData);
+        setCallback(callback);
+
+        return send();
+    }
+
+    Map<String, String> getHeaders() {
+        return headers;
+    }
+
+    /**
+     * Sends the request on its own, bypassing the batcher.
+     */
+    Request sendDirectly() throws RequestException {
+        return super.send();
+    }
+}
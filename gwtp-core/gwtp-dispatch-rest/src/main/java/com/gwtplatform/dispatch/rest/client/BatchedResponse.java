@@ -0,0 +1,80 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import java.util.List;
+
+import com.google.gwt.http.client.Header;
+import com.google.gwt.http.client.Response;
+
+/**
+ * The response to one of the requests of a batch, as read by {@link RestRequestBatcher}.
+ */
+class BatchedResponse extends Response {
+    private final int statusCode;
+    private final String statusText;
+    private final Header[] headers;
+    private final String text;
+
+    BatchedResponse(int statusCode, String statusText, List<Header> headers, String text) {
+        this.statusCode = statusCode;
+        this.statusText = statusText;
+        this.headers = headers.toArray(new Header[headers.size()]);
+        this.text = text;
+    }
+
+    @Override
+    public String getHeader(String header) {
+        for (Header candidate : headers) {
+            if (candidate.getName().equalsIgnoreCase(header)) {
+                return candidate.getValue();
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public Header[] getHeaders() {
+        return headers;
+    }
+
+    @Override
+    public String getHeadersAsString() {
+        StringBuilder headersString = new StringBuilder();
+        for (Header header : headers) {
+            headersString.append(header.getName()).append(": ").append(header.getValue()).append("\r\n");
+        }
+
+        return headersString.toString();
+    }
+
+    @Override
+    public int getStatusCode() {
+        return statusCode;
+    }
+
+    @Override
+    public String getStatusText() {
+        return statusText;
+    }
+
+    @Override
+    public String getText() {
+        return text;
+    }
+}
@@ -0,0 +1,40 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import javax.inject.Inject;
+
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestBuilder.Method;
+
+/**
+ * A {@link HttpRequestBuilderFactory} creating {@link RequestBuilder}s that hand their request to a
+ * {@link RestRequestBatcher} when they are sent, instead of sending it right away.
+ */
+public class BatchingHttpRequestBuilderFactory extends HttpRequestBuilderFactory {
+    private final RestRequestBatcher batcher;
+
+    @Inject
+    BatchingHttpRequestBuilderFactory(RestRequestBatcher batcher) {
+        this.batcher = batcher;
+    }
+
+    @Override
+    public RequestBuilder create(Method httpMethod, String url) {
+        return new BatchedRequestBuilder(httpMethod, url, batcher);
+    }
+}
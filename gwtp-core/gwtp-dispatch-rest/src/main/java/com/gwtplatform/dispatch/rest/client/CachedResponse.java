@@ -0,0 +1,59 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+/**
+ * A deserialized result stored by {@link RestResponseCache} with the validators received from the server.
+ * <p/>
+ * The same result instance is returned every time the server confirms it is still valid, so it should not be modified
+ * by the callbacks receiving it.
+ */
+public class CachedResponse {
+    private final Object result;
+    private final String entityTag;
+    private final String lastModified;
+    private final int size;
+
+    /**
+     * @param result       the deserialized result.
+     * @param entityTag    the value of the {@code ETag} header, or {@code null}.
+     * @param lastModified the value of the {@code Last-Modified} header, or {@code null}.
+     * @param size         the estimated size of the result, in characters of the response body.
+     */
+    public CachedResponse(Object result, String entityTag, String lastModified, int size) {
+        this.result = result;
+        this.entityTag = entityTag;
+        this.lastModified = lastModified;
+        this.size = size;
+    }
+
+    public Object getResult() {
+        return result;
+    }
+
+    public String getEntityTag() {
+        return entityTag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+
+    public int getSize() {
+        return size;
+    }
+}
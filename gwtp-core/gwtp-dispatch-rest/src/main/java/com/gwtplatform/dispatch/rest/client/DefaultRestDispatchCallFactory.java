@@ -25,7 +25,9 @@ import com.gwtplatform.dispatch.rest.shared.RestAction;
 import com.gwtplatform.dispatch.shared.SecurityCookieAccessor;
 
 /**
- * The default implementation for {@link RestDispatchCallFactory}.
+ * The default implementation for {@link RestDispatchCallFactory}. Calls are created without a
+ * {@link RestResponseCache} when {@link ResponseCacheMaxEntries} or {@link ResponseCacheMaxSize} is {@code 0}, and
+ * without {@link InFlightRestRequests} when {@link RequestDeduplication} is disabled.
  */
 public class DefaultRestDispatchCallFactory implements RestDispatchCallFactory {
     private final ExceptionHandler exceptionHandler;
@@ -33,23 +35,32 @@ public class DefaultRestDispatchCallFactory implements RestDispatchCallFactory {
     private final SecurityCookieAccessor securityCookieAccessor;
     private final RestRequestBuilderFactory requestBuilderFactory;
     private final RestResponseDeserializer restResponseDeserializer;
+    private final RestResponseCache responseCache;
+    private final InFlightRestRequests inFlightRequests;
 
     @Inject
     DefaultRestDispatchCallFactory(ExceptionHandler exceptionHandler,
                                    ClientActionHandlerRegistry clientActionHandlerRegistry,
                                    SecurityCookieAccessor securityCookieAccessor,
                                    RestRequestBuilderFactory requestBuilderFactory,
-                                   RestResponseDeserializer restResponseDeserializer) {
+                                   RestResponseDeserializer restResponseDeserializer,
+                                   RestResponseCache responseCache,
+                                   InFlightRestRequests inFlightRequests,
+                                   @ResponseCacheMaxEntries int responseCacheMaxEntries,
+                                   @ResponseCacheMaxSize int responseCacheMaxSize,
+                                   @RequestDeduplication Boolean requestDeduplication) {
         this.exceptionHandler = exceptionHandler;
         this.clientActionHandlerRegistry = clientActionHandlerRegistry;
         this.securityCookieAccessor = securityCookieAccessor;
         this.requestBuilderFactory = requestBuilderFactory;
         this.restResponseDeserializer = restResponseDeserializer;
+        this.responseCache = responseCacheMaxEntries > 0 && responseCacheMaxSize > 0 ? responseCache : null;
+        this.inFlightRequests = requestDeduplication ? inFlightRequests : null;
     }
 
     @Override
     public <A extends RestAction<R>, R> RestDispatchCall<A, R> create(A action, AsyncCallback<R> callback) {
         return new RestDispatchCall<A, R>(exceptionHandler, clientActionHandlerRegistry, securityCookieAccessor,
-                requestBuilderFactory, restResponseDeserializer, action, callback);
+                requestBuilderFactory, restResponseDeserializer, responseCache, inFlightRequests, action, callback);
     }
 }
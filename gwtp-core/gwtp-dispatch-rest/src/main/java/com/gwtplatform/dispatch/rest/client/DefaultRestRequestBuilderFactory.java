@@ -26,7 +26,6 @@ import javax.ws.rs.core.MediaType;
 
 import com.github.nmorel.gwtjackson.client.exception.JsonMappingException;
 import com.google.common.base.Strings;
-import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Multimap;
 import com.google.gwt.http.client.RequestBuilder;
@@ -43,6 +42,9 @@ import static com.google.gwt.user.client.rpc.RpcRequestBuilder.MODULE_BASE_HEADE
 
 /**
  * Default implementation for {@link RestRequestBuilderFactory}.
+ * <p/>
+ * The URL is built in a single pass. When the action provides a {@link RestRequestTemplate}, its path parameters are
+ * inserted between the precompiled path segments.
  */
 public class DefaultRestRequestBuilderFactory implements RestRequestBuilderFactory {
     private static final Map<HttpMethod, Method> HTTP_METHODS = Maps.newEnumMap(HttpMethod.class);
@@ -90,13 +92,15 @@ public class DefaultRestRequestBuilderFactory implements RestRequestBuilderFacto
     @Override
     public <A extends RestAction<?>> RequestBuilder build(A action, String securityToken) throws ActionException {
         Method httpMethod = HTTP_METHODS.get(action.getHttpMethod());
-        String url = buildUrl(action);
+        RestRequestTemplate template = getRequestTemplate(action);
+        boolean absoluteUrl = template == null ? isAbsoluteUrl(action.getPath()) : template.isAbsoluteUrl();
+        String url = buildUrl(action, template, absoluteUrl);
         String xsrfToken = action.isSecured() ? securityToken : "";
 
         RequestBuilder requestBuilder = httpRequestBuilderFactory.create(httpMethod, url);
         requestBuilder.setTimeoutMillis(requestTimeoutMs);
 
-        buildHeaders(requestBuilder, xsrfToken, action);
+        buildHeaders(requestBuilder, xsrfToken, action, absoluteUrl);
         buildBody(requestBuilder, action);
 
         return requestBuilder;
@@ -150,9 +154,15 @@ public class DefaultRestRequestBuilderFactory implements RestRequestBuilderFacto
         return serialization.serialize(object, bodyType);
     }
 
-    private void buildHeaders(RequestBuilder requestBuilder, String xsrfToken, RestAction<?> action)
-            throws ActionException {
-        String path = action.getPath();
+    private RestRequestTemplate getRequestTemplate(RestAction<?> action) {
+        if (action instanceof AbstractRestAction) {
+            return ((AbstractRestAction<?>) action).getRequestTemplate();
+        }
+        return null;
+    }
+
+    private void buildHeaders(RequestBuilder requestBuilder, String xsrfToken, RestAction<?> action,
+            boolean absoluteUrl) throws ActionException {
         List<RestParameter> actionParams = action.getHeaderParams();
         Collection<RestParameter> applicableGlobalParams = globalHeaderParams.get(action.getHttpMethod());
 
@@ -160,7 +170,7 @@ public class DefaultRestRequestBuilderFactory implements RestRequestBuilderFacto
         requestBuilder.setHeader(HttpHeaders.ACCEPT, MediaType.APPLICATION_JSON);
         requestBuilder.setHeader(HttpHeaders.CONTENT_TYPE, JSON_UTF8);
 
-        if (!isAbsoluteUrl(path)) {
+        if (!absoluteUrl) {
             requestBuilder.setHeader(MODULE_BASE_HEADER, baseUrl);
         }
 
@@ -183,43 +193,44 @@ public class DefaultRestRequestBuilderFactory implements RestRequestBuilderFacto
 
     private <A extends RestAction<?>> void buildBody(RequestBuilder requestBuilder, A action) throws ActionException {
         if (action.hasFormParams()) {
-            requestBuilder.setRequestData(buildQueryString(action.getFormParams()));
+            StringBuilder requestData = new StringBuilder();
+            appendParams(requestData, action.getFormParams(), '&');
+            if (requestData.length() != 0) {
+                requestData.deleteCharAt(0);
+            }
+
+            requestBuilder.setRequestData(requestData.toString());
         } else if (action.hasBodyParam()) {
-            requestBuilder.setRequestData(getSerializedValue(action, action.getBodyParam()));
+            String bodyType = (String) metadataProvider.getValue(action, MetadataType.BODY_TYPE);
+            requestBuilder.setRequestData(getSerializedValue(action.getBodyParam(), bodyType));
         }
     }
 
-    private String buildUrl(RestAction<?> action) throws ActionException {
-        List<RestParameter> queryParams = getGlobalQueryParamsForAction(action);
-        queryParams.addAll(action.getQueryParams());
-
-        String queryString = buildQueryString(queryParams);
-        if (!queryString.isEmpty()) {
-            queryString = "?" + queryString;
+    private String buildUrl(RestAction<?> action, RestRequestTemplate template, boolean absoluteUrl)
+            throws ActionException {
+        StringBuilder url = new StringBuilder();
+        if (!absoluteUrl) {
+            url.append(baseUrl);
         }
 
-        String path = buildPath(action.getPath(), action.getPathParams());
-
-        String prefix = "";
-        if (!isAbsoluteUrl(path)) {
-            prefix = baseUrl;
+        if (template == null) {
+            url.append(buildPath(action.getPath(), action.getPathParams()));
+        } else {
+            appendPath(url, template, action.getPathParams());
         }
 
-        return prefix + path + queryString;
-    }
-
-    private List<RestParameter> getGlobalQueryParamsForAction(RestAction<?> action) {
-        List<RestParameter> queryParams = Lists.newArrayList();
-
+        char separator = '?';
         for (RestParameter parameter : globalQueryParams.get(action.getHttpMethod())) {
             String value = parameter.getStringValue();
 
             if (value != null) {
-                queryParams.add(new RestParameter(parameter.getName(), value));
+                appendParam(url, separator, parameter.getName(), value);
+                separator = '&';
             }
         }
+        appendParams(url, action.getQueryParams(), separator);
 
-        return queryParams;
+        return url.toString();
     }
 
     private boolean isAbsoluteUrl(String path) {
@@ -237,26 +248,41 @@ public class DefaultRestRequestBuilderFactory implements RestRequestBuilderFacto
         return path;
     }
 
-    private String buildQueryString(List<RestParameter> params) throws ActionException {
-        StringBuilder queryString = new StringBuilder();
+    private void appendPath(StringBuilder url, RestRequestTemplate template, List<RestParameter> params)
+            throws ActionException {
+        String[] segments = template.getPathSegments();
+        int[] paramIndexes = template.getPathParamIndexes();
 
-        for (RestParameter param : params) {
-            queryString.append("&")
-                       .append(param.getName())
-                       .append("=")
-                       .append(encodeQueryParam(param.getStringValue()));
+        url.append(segments[0]);
+        for (int i = 0; i < paramIndexes.length; i++) {
+            url.append(encodePathParam(params.get(paramIndexes[i]).getStringValue()))
+               .append(segments[i + 1]);
         }
+    }
 
-        if (queryString.length() != 0) {
-            queryString.deleteCharAt(0);
-        }
+    /**
+     * Appends encoded parameters to {@code builder}. The first one is prefixed by {@code separator}, the next ones by
+     * {@code '&'}.
+     */
+    private void appendParams(StringBuilder builder, List<RestParameter> params, char separator)
+            throws ActionException {
+        char nextSeparator = separator;
 
-        return queryString.toString();
+        for (RestParameter param : params) {
+            appendParam(builder, nextSeparator, param.getName(), param.getStringValue());
+            nextSeparator = '&';
+        }
     }
 
-    private String getSerializedValue(RestAction<?> action, Object object) throws ActionException {
-        String bodyType = (String) metadataProvider.getValue(action, MetadataType.BODY_TYPE);
+    private void appendParam(StringBuilder builder, char separator, String name, String value)
+            throws ActionException {
+        builder.append(separator)
+               .append(name)
+               .append('=')
+               .append(encodeQueryParam(value));
+    }
 
+    private String getSerializedValue(Object object, String bodyType) throws ActionException {
         if (bodyType != null && canSerialize(bodyType)) {
             try {
                 return serialize(object, bodyType);
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.inject.Inject;
+
+/**
+ * Default implementation for {@link RestResponseCache}. Responses are evicted in least recently used order once the
+ * cache holds more than {@link ResponseCacheMaxEntries} responses or more than {@link ResponseCacheMaxSize}
+ * characters. Responses larger than the maximum size are not cached.
+ * <p/>
+ * The cache is disabled when either limit is {@code 0}, which is the default. It is cleared when the security cookie
+ * changes.
+ */
+public class DefaultRestResponseCache implements RestResponseCache {
+    private final int maxEntries;
+    private final int maxSize;
+    private final LinkedHashMap<String, CachedResponse> responses;
+
+    private int size;
+    private String securityCookie;
+
+    @Inject
+    DefaultRestResponseCache(@ResponseCacheMaxEntries int maxEntries, @ResponseCacheMaxSize int maxSize) {
+        this.maxEntries = maxEntries;
+        this.maxSize = maxSize;
+        this.responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true);
+    }
+
+    @Override
+    public CachedResponse get(String key) {
+        return responses.get(key);
+    }
+
+    @Override
+    public void put(String key, CachedResponse response) {
+        remove(key);
+
+        if (maxEntries > 0 && maxSize > 0 && response.getSize() <= maxSize) {
+            responses.put(key, response);
+            size += response.getSize();
+
+            evict();
+        }
+    }
+
+    @Override
+    public void remove(String key) {
+        CachedResponse response = responses.remove(key);
+
+        if (response != null) {
+            size -= response.getSize();
+        }
+    }
+
+    @Override
+    public void setSecurityCookie(String securityCookie) {
+        boolean changed = securityCookie == null ? this.securityCookie != null
+                : !securityCookie.equals(this.securityCookie);
+
+        if (changed) {
+            clear();
+            this.securityCookie = securityCookie;
+        }
+    }
+
+    @Override
+    public void clear() {
+        responses.clear();
+        size = 0;
+    }
+
+    /**
+     * @return the number of cached responses.
+     */
+    public int getEntryCount() {
+        return responses.size();
+    }
+
+    /**
+     * @return the sum of the sizes of the cached responses.
+     */
+    public int getSize() {
+        return size;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, CachedResponse>> iterator = responses.entrySet().iterator();
+
+        while ((responses.size() > maxEntries || size > maxSize) && iterator.hasNext()) {
+            size -= iterator.next().getValue().getSize();
+            iterator.remove();
+        }
+    }
+}
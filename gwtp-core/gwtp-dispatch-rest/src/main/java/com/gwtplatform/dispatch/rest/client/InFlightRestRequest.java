@@ -0,0 +1,111 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gwtplatform.dispatch.shared.DispatchRequest;
+
+/**
+ * A request waiting for a response, shared by all the {@link RestDispatchCall}s that built the same request. The HTTP
+ * request is only cancelled once every call attached to it has been cancelled.
+ */
+class InFlightRestRequest {
+    private class Subscription implements DispatchRequest {
+        private final RestDispatchCall<?, ?> call;
+        private boolean cancelled;
+
+        Subscription(RestDispatchCall<?, ?> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void cancel() {
+            if (isPending()) {
+                cancelled = true;
+                onSubscriptionCancelled();
+            }
+        }
+
+        @Override
+        public boolean isPending() {
+            return !cancelled && !completed;
+        }
+    }
+
+    private final InFlightRestRequests table;
+    private final String key;
+    private final List<Subscription> subscriptions = new ArrayList<Subscription>();
+
+    private DispatchRequest httpRequest;
+    private boolean completed;
+
+    InFlightRestRequest(InFlightRestRequests table, String key) {
+        this.table = table;
+        this.key = key;
+    }
+
+    String getKey() {
+        return key;
+    }
+
+    void setHttpRequest(DispatchRequest httpRequest) {
+        this.httpRequest = httpRequest;
+    }
+
+    DispatchRequest subscribe(RestDispatchCall<?, ?> call) {
+        Subscription subscription = new Subscription(call);
+        subscriptions.add(subscription);
+
+        return subscription;
+    }
+
+    /**
+     * Removes this request from the table of in-flight requests.
+     *
+     * @return the calls that were not cancelled.
+     */
+    List<RestDispatchCall<?, ?>> complete() {
+        completed = true;
+        table.remove(this);
+
+        List<RestDispatchCall<?, ?>> calls = new ArrayList<RestDispatchCall<?, ?>>();
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.cancelled) {
+                calls.add(subscription.call);
+            }
+        }
+
+        return calls;
+    }
+
+    private void onSubscriptionCancelled() {
+        for (Subscription subscription : subscriptions) {
+            if (!subscription.cancelled) {
+                return;
+            }
+        }
+
+        completed = true;
+        table.remove(this);
+
+        if (httpRequest != null) {
+            httpRequest.cancel();
+        }
+    }
+}
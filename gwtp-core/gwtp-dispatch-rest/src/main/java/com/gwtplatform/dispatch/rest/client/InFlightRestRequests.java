@@ -0,0 +1,56 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import java.util.Map;
+
+import com.google.common.collect.Maps;
+
+/**
+ * The table of the {@link com.gwtplatform.dispatch.rest.shared.HttpMethod#GET GET} requests waiting for a response.
+ * When an action builds the same request as one of them, {@link RestDispatchCall} attaches the action to the pending
+ * request instead of sending a new one, and every action receives the same result.
+ * <p/>
+ * Requests are identified by the action class, the HTTP method, the URL and the header parameters of the action.
+ */
+public class InFlightRestRequests {
+    private final Map<String, InFlightRestRequest> requests = Maps.newHashMap();
+
+    /**
+     * @return the number of requests waiting for a response.
+     */
+    public int getInFlightCount() {
+        return requests.size();
+    }
+
+    InFlightRestRequest get(String key) {
+        return requests.get(key);
+    }
+
+    InFlightRestRequest start(String key) {
+        InFlightRestRequest request = new InFlightRestRequest(this, key);
+        requests.put(key, request);
+
+        return request;
+    }
+
+    void remove(InFlightRestRequest request) {
+        if (requests.get(request.getKey()) == request) {
+            requests.remove(request.getKey());
+        }
+    }
+}
@@ -16,6 +16,9 @@
 
 package com.gwtplatform.dispatch.rest.client;
 
+import java.util.Collections;
+import java.util.List;
+
 import com.google.gwt.http.client.Request;
 import com.google.gwt.http.client.RequestBuilder;
 import com.google.gwt.http.client.RequestCallback;
@@ -27,21 +30,45 @@ import com.gwtplatform.dispatch.client.DispatchCall;
 import com.gwtplatform.dispatch.client.ExceptionHandler;
 import com.gwtplatform.dispatch.client.GwtHttpDispatchRequest;
 import com.gwtplatform.dispatch.client.actionhandler.ClientActionHandlerRegistry;
+import com.gwtplatform.dispatch.rest.shared.HttpMethod;
 import com.gwtplatform.dispatch.rest.shared.RestAction;
 import com.gwtplatform.dispatch.rest.shared.RestCallback;
+import com.gwtplatform.dispatch.rest.shared.RestParameter;
 import com.gwtplatform.dispatch.shared.ActionException;
 import com.gwtplatform.dispatch.shared.DispatchRequest;
 import com.gwtplatform.dispatch.shared.SecurityCookieAccessor;
 
 /**
  * A class representing an execute call to be sent to the server over HTTP.
+ * <p/>
+ * When a {@link RestResponseCache} is provided, {@link HttpMethod#GET GET} requests for which a result is cached are
+ * sent with {@code If-None-Match} and {@code If-Modified-Since} headers. If the server answers
+ * {@code 304 Not Modified}, the cached result is returned without deserializing the response. Results are cached
+ * for the current security cookie only: the cache is cleared when it changes, for instance when the user signs in or
+ * out.
+ * <p/>
+ * When {@link InFlightRestRequests} are provided, a {@link HttpMethod#GET GET} request identical to a request still
+ * waiting for its response is not sent. The call is attached to the pending request and receives the same result.
  *
  * @param <A> the {@link RestAction} type.
  * @param <R> the result type for this action.
  */
 public class RestDispatchCall<A extends RestAction<R>, R> extends DispatchCall<A, R> {
+    private static final String ETAG = "ETag";
+    private static final String LAST_MODIFIED = "Last-Modified";
+    private static final String IF_NONE_MATCH = "If-None-Match";
+    private static final String IF_MODIFIED_SINCE = "If-Modified-Since";
+    private static final String CACHE_CONTROL = "Cache-Control";
+    private static final String NO_STORE = "no-store";
+
     private final RestRequestBuilderFactory requestBuilderFactory;
     private final RestResponseDeserializer restResponseDeserializer;
+    private final RestResponseCache responseCache;
+    private final InFlightRestRequests inFlightRequests;
+
+    private String cacheKey;
+    private CachedResponse cachedResponse;
+    private InFlightRestRequest inFlightRequest;
 
     public RestDispatchCall(ExceptionHandler exceptionHandler,
                             ClientActionHandlerRegistry clientActionHandlerRegistry,
@@ -50,20 +77,49 @@ public class RestDispatchCall<A extends RestAction<R>, R> extends DispatchCall<A
                             RestResponseDeserializer restResponseDeserializer,
                             A action,
                             AsyncCallback<R> callback) {
+        this(exceptionHandler, clientActionHandlerRegistry, securityCookieAccessor, requestBuilderFactory,
+                restResponseDeserializer, null, null, action, callback);
+    }
+
+    public RestDispatchCall(ExceptionHandler exceptionHandler,
+                            ClientActionHandlerRegistry clientActionHandlerRegistry,
+                            SecurityCookieAccessor securityCookieAccessor,
+                            RestRequestBuilderFactory requestBuilderFactory,
+                            RestResponseDeserializer restResponseDeserializer,
+                            RestResponseCache responseCache,
+                            InFlightRestRequests inFlightRequests,
+                            A action,
+                            AsyncCallback<R> callback) {
         super(exceptionHandler, clientActionHandlerRegistry, securityCookieAccessor, action, callback);
 
         this.requestBuilderFactory = requestBuilderFactory;
         this.restResponseDeserializer = restResponseDeserializer;
+        this.responseCache = responseCache;
+        this.inFlightRequests = inFlightRequests;
     }
 
     @Override
     protected DispatchRequest doExecute() {
         try {
             RequestBuilder requestBuilder = buildRequest();
+            String requestKey = getInFlightRequestKey(requestBuilder);
 
-            return new GwtHttpDispatchRequest(requestBuilder.send());
+            if (requestKey == null) {
+                return new GwtHttpDispatchRequest(requestBuilder.send());
+            }
+
+            InFlightRestRequest pendingRequest = inFlightRequests.get(requestKey);
+            if (pendingRequest != null) {
+                return pendingRequest.subscribe(this);
+            }
+
+            inFlightRequest = inFlightRequests.start(requestKey);
+            DispatchRequest dispatchRequest = inFlightRequest.subscribe(this);
+            inFlightRequest.setHttpRequest(new GwtHttpDispatchRequest(requestBuilder.send()));
+
+            return dispatchRequest;
         } catch (RequestException e) {
-            onExecuteFailure(e);
+            dispatchFailure(e, null);
         } catch (ActionException e) {
             onExecuteFailure(e);
         }
@@ -100,7 +156,7 @@ public class RestDispatchCall<A extends RestAction<R>, R> extends DispatchCall<A
 
             @Override
             public void onError(Request request, Throwable exception) {
-                onExecuteFailure(exception);
+                dispatchFailure(exception, null);
             }
         };
     }
@@ -109,18 +165,132 @@ public class RestDispatchCall<A extends RestAction<R>, R> extends DispatchCall<A
         Response wrappedResponse = new ResponseWrapper(response);
 
         try {
-            R result = restResponseDeserializer.deserialize(getAction(), wrappedResponse);
+            R result;
+            if (cachedResponse != null && wrappedResponse.getStatusCode() == Response.SC_NOT_MODIFIED) {
+                result = getCachedResult();
+            } else {
+                result = restResponseDeserializer.deserialize(getAction(), wrappedResponse);
+                cacheResult(result, wrappedResponse);
+            }
 
-            onExecuteSuccess(result, wrappedResponse);
+            dispatchSuccess(result, wrappedResponse);
         } catch (ActionException e) {
-            onExecuteFailure(e, wrappedResponse);
+            dispatchFailure(e, wrappedResponse);
         }
     }
 
     private RequestBuilder buildRequest() throws ActionException {
         RequestBuilder requestBuilder = requestBuilderFactory.build(getAction(), getSecurityCookie());
         requestBuilder.setCallback(createRequestCallback());
+        addConditionalHeaders(requestBuilder);
 
         return requestBuilder;
     }
+
+    /**
+     * @return the key identifying the request in the table of in-flight requests, or {@code null} if the request can't
+     *         be shared with other calls.
+     */
+    private String getInFlightRequestKey(RequestBuilder requestBuilder) {
+        if (inFlightRequests == null || getAction().getHttpMethod() != HttpMethod.GET) {
+            return null;
+        }
+
+        return getRequestKey(requestBuilder);
+    }
+
+    /**
+     * @return a key identifying the request by its action, its URL and the values of the action's header parameters.
+     */
+    private String getRequestKey(RequestBuilder requestBuilder) {
+        StringBuilder key = new StringBuilder(getAction().getClass().getName())
+                .append(' ').append(requestBuilder.getHTTPMethod())
+                .append(' ').append(requestBuilder.getUrl());
+
+        for (RestParameter headerParam : getAction().getHeaderParams()) {
+            String name = headerParam.getName();
+            key.append('\n').append(name).append(": ").append(requestBuilder.getHeader(name));
+        }
+
+        return key.toString();
+    }
+
+    /**
+     * Completes the in-flight request sent by this call, if any.
+     *
+     * @return the calls waiting for the response of this call's request.
+     */
+    @SuppressWarnings("unchecked")
+    private List<RestDispatchCall<A, R>> completeInFlightRequest() {
+        if (inFlightRequest == null) {
+            return Collections.singletonList(this);
+        }
+
+        return (List<RestDispatchCall<A, R>>) (List<?>) inFlightRequest.complete();
+    }
+
+    private void dispatchSuccess(R result, Response response) {
+        for (RestDispatchCall<A, R> call : completeInFlightRequest()) {
+            call.onExecuteSuccess(result, response);
+        }
+    }
+
+    private void dispatchFailure(Throwable caught, Response response) {
+        for (RestDispatchCall<A, R> call : completeInFlightRequest()) {
+            if (response == null) {
+                call.onExecuteFailure(caught);
+            } else {
+                call.onExecuteFailure(caught, response);
+            }
+        }
+    }
+
+    private void addConditionalHeaders(RequestBuilder requestBuilder) {
+        if (responseCache == null || getAction().getHttpMethod() != HttpMethod.GET) {
+            return;
+        }
+
+        responseCache.setSecurityCookie(getSecurityCookie());
+        cacheKey = getRequestKey(requestBuilder);
+        cachedResponse = responseCache.get(cacheKey);
+
+        if (cachedResponse != null) {
+            if (cachedResponse.getEntityTag() != null) {
+                requestBuilder.setHeader(IF_NONE_MATCH, cachedResponse.getEntityTag());
+            }
+            if (cachedResponse.getLastModified() != null) {
+                requestBuilder.setHeader(IF_MODIFIED_SINCE, cachedResponse.getLastModified());
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private R getCachedResult() {
+        return (R) cachedResponse.getResult();
+    }
+
+    private void cacheResult(R result, Response response) {
+        // Responses received after the security cookie changed belong to the previous session
+        if (cacheKey == null || !isSameSecurityCookie(getSecurityCookieAccessor().getCookieContent())) {
+            return;
+        }
+
+        String entityTag = response.getHeader(ETAG);
+        String lastModified = response.getHeader(LAST_MODIFIED);
+        String cacheControl = response.getHeader(CACHE_CONTROL);
+
+        if (response.getStatusCode() == Response.SC_OK && (entityTag != null || lastModified != null)
+                && (cacheControl == null || !cacheControl.contains(NO_STORE))) {
+            String text = response.getText();
+            int size = text == null ? 0 : text.length();
+
+            responseCache.put(cacheKey, new CachedResponse(result, entityTag, lastModified, size));
+        } else {
+            responseCache.remove(cacheKey);
+        }
+    }
+
+    private boolean isSameSecurityCookie(String securityCookie) {
+        return securityCookie == null ? getSecurityCookie() == null : securityCookie.equals(getSecurityCookie());
+    }
 }
@@ -0,0 +1,356 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.inject.Inject;
+
+import com.google.gwt.core.client.Scheduler;
+import com.google.gwt.core.client.Scheduler.ScheduledCommand;
+import com.google.gwt.event.shared.UmbrellaException;
+import com.google.gwt.http.client.Header;
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+
+/**
+ * Combines the requests sent during the same event loop into a single {@code multipart/mixed} request to the
+ * {@link RestBatchPath batch end point}.
+ * <p/>
+ * Each part of the batch is an {@code application/http} message holding a request line with the path of the request
+ * relative to {@link RestApplicationPath}, its headers and its body. The end point answers with a
+ * {@code multipart/mixed} response holding an {@code application/http} response for each request, in the same order.
+ * The server side is implemented by {@code com.gwtplatform.dispatch.rest.server.RestBatchResource}, in the
+ * {@code gwtp-dispatch-rest-server} artifact.
+ * <p/>
+ * The callback of each request is called with its own response, so a failed request doesn't fail the others. Requests
+ * sent alone and requests to URLs outside of the application path are sent as usual.
+ */
+public class RestRequestBatcher {
+    private static final String CRLF = "\r\n";
+    private static final String HEADER_SEPARATOR = ": ";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String MULTIPART_MIXED = "multipart/mixed";
+    private static final String APPLICATION_HTTP = "application/http";
+    private static final String BOUNDARY_PARAMETER = "boundary=";
+    private static final String HTTP_VERSION = "HTTP/1.1";
+
+    private final HttpRequestBuilderFactory httpRequestBuilderFactory;
+    private final String baseUrl;
+    private final String batchUrl;
+
+    private List<BatchedRequest> pendingRequests = new ArrayList<BatchedRequest>();
+    private boolean flushScheduled;
+
+    @Inject
+    RestRequestBatcher(@RestApplicationPath String baseUrl,
+                       @RestBatchPath String batchPath) {
+        this(new HttpRequestBuilderFactory(), baseUrl, batchPath);
+    }
+
+    RestRequestBatcher(HttpRequestBuilderFactory httpRequestBuilderFactory,
+                       String baseUrl,
+                       String batchPath) {
+        this.httpRequestBuilderFactory = httpRequestBuilderFactory;
+        this.baseUrl = baseUrl;
+        this.batchUrl = baseUrl + batchPath;
+    }
+
+    /**
+     * Schedules the batch containing the pending requests to be sent at the end of the current event loop.
+     */
+    protected void scheduleFlush() {
+        Scheduler.get().scheduleFinally(new ScheduledCommand() {
+            @Override
+            public void execute() {
+                flush();
+            }
+        });
+    }
+
+    Request add(BatchedRequestBuilder requestBuilder) throws RequestException {
+        if (getRelativePath(requestBuilder.getUrl()) == null) {
+            return requestBuilder.sendDirectly();
+        }
+
+        BatchedRequest request = new BatchedRequest(this, requestBuilder);
+        pendingRequests.add(request);
+
+        if (!flushScheduled) {
+            flushScheduled = true;
+            scheduleFlush();
+        }
+
+        return request;
+    }
+
+    void remove(BatchedRequest request) {
+        pendingRequests.remove(request);
+    }
+
+    void flush() {
+        List<BatchedRequest> requests = pendingRequests;
+        pendingRequests = new ArrayList<BatchedRequest>();
+        flushScheduled = false;
+
+        if (requests.size() == 1) {
+            requests.get(0).sendDirectly();
+        } else if (!requests.isEmpty()) {
+            sendBatch(requests);
+        }
+    }
+
+    private void sendBatch(final List<BatchedRequest> requests) {
+        String boundary = createBoundary();
+
+        RequestBuilder requestBuilder = httpRequestBuilderFactory.create(RequestBuilder.POST, batchUrl);
+        requestBuilder.setHeader(CONTENT_TYPE, MULTIPART_MIXED + "; " + BOUNDARY_PARAMETER + boundary);
+        requestBuilder.setTimeoutMillis(getTimeoutMillis(requests));
+        requestBuilder.setRequestData(encodeRequests(requests, boundary));
+        requestBuilder.setCallback(new RequestCallback() {
+            @Override
+            public void onResponseReceived(Request request, Response response) {
+                dispatchResponses(requests, response);
+            }
+
+            @Override
+            public void onError(Request request, Throwable exception) {
+                dispatchError(requests, exception);
+            }
+        });
+
+        try {
+            requestBuilder.send();
+        } catch (RequestException e) {
+            dispatchError(requests, e);
+        }
+    }
+
+    private String encodeRequests(List<BatchedRequest> requests, String boundary) {
+        StringBuilder body = new StringBuilder();
+
+        for (BatchedRequest request : requests) {
+            BatchedRequestBuilder requestBuilder = request.getRequestBuilder();
+
+            body.append("--").append(boundary).append(CRLF)
+                    .append(CONTENT_TYPE).append(HEADER_SEPARATOR).append(APPLICATION_HTTP).append(CRLF)
+                    .append(CRLF)
+                    .append(requestBuilder.getHTTPMethod()).append(' ')
+                    .append(getRelativePath(requestBuilder.getUrl())).append(' ')
+                    .append(HTTP_VERSION).append(CRLF);
+
+            for (Map.Entry<String, String> header : requestBuilder.getHeaders().entrySet()) {
+                body.append(header.getKey()).append(HEADER_SEPARATOR).append(header.getValue()).append(CRLF);
+            }
+            body.append(CRLF);
+
+            if (requestBuilder.getRequestData() != null) {
+                body.append(requestBuilder.getRequestData());
+            }
+            body.append(CRLF);
+        }
+
+        body.append("--").append(boundary).append("--").append(CRLF);
+
+        return body.toString();
+    }
+
+    private void dispatchResponses(List<BatchedRequest> requests, Response response) {
+        List<Response> responses = null;
+        String boundary = getBoundary(response.getHeader(CONTENT_TYPE));
+
+        if (response.getStatusCode() == Response.SC_OK && boundary != null) {
+            responses = decodeResponses(response.getText(), boundary);
+        }
+
+        if (responses == null || responses.size() != requests.size()) {
+            dispatchError(requests, new RequestException("Unexpected response to the batch request: "
+                    + response.getStatusCode() + " " + response.getStatusText()));
+            return;
+        }
+
+        Set<Throwable> caught = new HashSet<Throwable>();
+        for (int i = 0; i < requests.size(); ++i) {
+            try {
+                requests.get(i).onResponseReceived(responses.get(i));
+            } catch (RuntimeException e) {
+                caught.add(e);
+            }
+        }
+
+        if (!caught.isEmpty()) {
+            throw new UmbrellaException(caught);
+        }
+    }
+
+    private void dispatchError(List<BatchedRequest> requests, Throwable exception) {
+        Set<Throwable> caught = new HashSet<Throwable>();
+        for (BatchedRequest request : requests) {
+            try {
+                request.onError(exception);
+            } catch (RuntimeException e) {
+                caught.add(e);
+            }
+        }
+
+        if (!caught.isEmpty()) {
+            throw new UmbrellaException(caught);
+        }
+    }
+
+    private List<Response> decodeResponses(String text, String boundary) {
+        List<Response> responses = new ArrayList<Response>();
+        String delimiter = "--" + boundary;
+        int index = text.indexOf(delimiter);
+
+        while (index >= 0 && !text.startsWith("--", index + delimiter.length())) {
+            int partStart = text.indexOf(CRLF, index);
+            int partEnd = partStart < 0 ? -1 : text.indexOf(CRLF + delimiter, partStart);
+            Response response = partEnd < 0 ? null
+                    : decodeResponse(text.substring(partStart + CRLF.length(), partEnd));
+
+            if (response == null) {
+                return null;
+            }
+
+            responses.add(response);
+            index = partEnd + CRLF.length();
+        }
+
+        return responses;
+    }
+
+    private Response decodeResponse(String part) {
+        int messageStart = skipHeaders(part, 0);
+        int statusLineEnd = messageStart < 0 ? -1 : part.indexOf(CRLF, messageStart);
+        if (statusLineEnd < 0) {
+            return null;
+        }
+
+        String[] statusLine = part.substring(messageStart, statusLineEnd).split(" ", 3);
+        int bodyStart = skipHeaders(part, statusLineEnd + CRLF.length());
+        if (statusLine.length < 2 || bodyStart < 0) {
+            return null;
+        }
+
+        List<Header> headers = new ArrayList<Header>();
+        for (String line : part.substring(statusLineEnd + CRLF.length(), bodyStart).split(CRLF)) {
+            int separator = line.indexOf(':');
+            if (separator > 0) {
+                headers.add(createHeader(line.substring(0, separator).trim(), line.substring(separator + 1).trim()));
+            }
+        }
+
+        try {
+            return new BatchedResponse(Integer.parseInt(statusLine[1]), statusLine.length > 2 ? statusLine[2] : "",
+                    headers, part.substring(bodyStart));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the index following the blank line ending the headers starting at {@code from}, or {@code -1}.
+     */
+    private int skipHeaders(String text, int from) {
+        if (text.startsWith(CRLF, from)) {
+            return from + CRLF.length();
+        }
+
+        int headersEnd = text.indexOf(CRLF + CRLF, from);
+        return headersEnd < 0 ? -1 : headersEnd + 2 * CRLF.length();
+    }
+
+    private Header createHeader(final String name, final String value) {
+        return new Header() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public String getValue() {
+                return value;
+            }
+        };
+    }
+
+    private String getBoundary(String contentType) {
+        if (contentType == null || !contentType.startsWith(MULTIPART_MIXED)) {
+            return null;
+        }
+
+        int boundaryIndex = contentType.indexOf(BOUNDARY_PARAMETER);
+        if (boundaryIndex < 0) {
+            return null;
+        }
+
+        String boundary = contentType.substring(boundaryIndex + BOUNDARY_PARAMETER.length());
+        int parameterEnd = boundary.indexOf(';');
+        if (parameterEnd >= 0) {
+            boundary = boundary.substring(0, parameterEnd);
+        }
+
+        return boundary.replace("\"", "").trim();
+    }
+
+    /**
+     * @return the path of {@code url} relative to the application path, or {@code null} if {@code url} is not under
+     *         the application path.
+     */
+    private String getRelativePath(String url) {
+        if (!url.startsWith(baseUrl)) {
+            return null;
+        }
+
+        String path = url.substring(baseUrl.length());
+        if (path.startsWith("/")) {
+            return path;
+        } else if (baseUrl.endsWith("/") || path.isEmpty() || path.startsWith("?")) {
+            return "/" + path;
+        }
+
+        return null;
+    }
+
+    private int getTimeoutMillis(List<BatchedRequest> requests) {
+        int timeoutMillis = 0;
+
+        for (BatchedRequest request : requests) {
+            int requestTimeoutMillis = request.getRequestBuilder().getTimeoutMillis();
+            if (requestTimeoutMillis == 0) {
+                return 0;
+            }
+
+            timeoutMillis = Math.max(timeoutMillis, requestTimeoutMillis);
+        }
+
+        return timeoutMillis;
+    }
+
+    private String createBoundary() {
+        return "gwtp-batch-" + Integer.toHexString((int) (Math.random() * Integer.MAX_VALUE))
+                + Integer.toHexString((int) (Math.random() * Integer.MAX_VALUE));
+    }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import com.gwtplatform.dispatch.rest.shared.MetadataType;
+
+/**
+ * The parts of the request of a {@link com.gwtplatform.dispatch.rest.shared.RestAction RestAction} that don't depend on
+ * the action's arguments, and the metadata of the action. GWTP computes the template of generated actions at compile
+ * time, so the request can be built in a single pass and the metadata read without a lookup. A single template is
+ * shared by all the instances of an action class.
+ * <p/>
+ * The path is split around its path parameters: the URL is the first path segment followed, for every path parameter,
+ * by the parameter's value and the next segment. A path starting with a path parameter is considered relative.
+ */
+public class RestRequestTemplate {
+    private final String[] pathSegments;
+    private final int[] pathParamIndexes;
+    private final String bodyType;
+    private final String responseType;
+    private final boolean absoluteUrl;
+
+    /**
+     * @param pathSegments     the literal parts of the path. Holds one more element than {@code pathParamIndexes}.
+     * @param pathParamIndexes the index, in {@link com.gwtplatform.dispatch.rest.shared.RestAction#getPathParams()}, of
+     *                         the path parameter following each segment.
+     * @param bodyType         the parameterized type of the body, or {@code null} if the action has no body.
+     * @param responseType     the parameterized type of the result.
+     */
+    public RestRequestTemplate(String[] pathSegments, int[] pathParamIndexes, String bodyType, String responseType) {
+        this.pathSegments = pathSegments;
+        this.pathParamIndexes = pathParamIndexes;
+        this.bodyType = bodyType;
+        this.responseType = responseType;
+
+        String start = pathSegments[0];
+        absoluteUrl = start.startsWith("http://") || start.startsWith("https://");
+    }
+
+    public String[] getPathSegments() {
+        return pathSegments;
+    }
+
+    public int[] getPathParamIndexes() {
+        return pathParamIndexes;
+    }
+
+    /**
+     * @return the parameterized type of the body, as registered for
+     *         {@link com.gwtplatform.dispatch.rest.shared.MetadataType#BODY_TYPE}, or {@code null}.
+     */
+    public String getBodyType() {
+        return bodyType;
+    }
+
+    /**
+     * @return the parameterized type of the result, as registered for
+     *         {@link com.gwtplatform.dispatch.rest.shared.MetadataType#RESPONSE_TYPE}.
+     */
+    public String getResponseType() {
+        return responseType;
+    }
+
+    /**
+     * @param metadataType the kind of metadata to retrieve.
+     * @return the metadata of the action.
+     */
+    public Object getMetadata(MetadataType metadataType) {
+        switch (metadataType) {
+            case BODY_TYPE:
+                return bodyType;
+            case RESPONSE_TYPE:
+                return responseType;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @return {@code true} if the path is an absolute URL and must not be prefixed with the
+     *         {@link RestApplicationPath}.
+     */
+    public boolean isAbsoluteUrl() {
+        return absoluteUrl;
+    }
+}
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+/**
+ * Stores the results of {@link com.gwtplatform.dispatch.rest.shared.HttpMethod#GET GET} actions along with their
+ * validators, so they can be revalidated with a conditional request. When the server answers
+ * {@code 304 Not Modified}, the cached result is returned without reading the response body.
+ * <p/>
+ * Results are keyed by the action class, the URL of the request, including its query string, and the values of the
+ * action's header parameters. The cache belongs to a single session: it is cleared when the security cookie changes.
+ */
+public interface RestResponseCache {
+    /**
+     * @param key the key of the request.
+     * @return the cached response, or {@code null} if none is cached for {@code key}.
+     */
+    CachedResponse get(String key);
+
+    /**
+     * Caches a response, replacing any response already cached for {@code key}.
+     *
+     * @param key      the key of the request.
+     * @param response the response to cache.
+     */
+    void put(String key, CachedResponse response);
+
+    /**
+     * Removes the response cached for {@code key}, if any.
+     *
+     * @param key the key of the request.
+     */
+    void remove(String key);
+
+    /**
+     * Removes all the cached responses if {@code securityCookie} differs from the one of the previous call, as the
+     * responses may belong to another session or user.
+     *
+     * @param securityCookie the current security cookie, or {@code null}.
+     */
+    void setSecurityCookie(String securityCookie);
+
+    /**
+     * Removes all the cached responses.
+     */
+    void clear();
+}
@@ -26,16 +26,26 @@ import com.google.gwt.json.client.JSONParser;
 import com.google.inject.Provides;
 import com.gwtplatform.common.client.CommonGinModule;
 import com.gwtplatform.dispatch.client.gin.AbstractDispatchAsyncModule;
+import com.gwtplatform.dispatch.rest.client.BatchingHttpRequestBuilderFactory;
 import com.gwtplatform.dispatch.rest.client.DefaultDateFormat;
 import com.gwtplatform.dispatch.rest.client.DefaultRestDispatchCallFactory;
 import com.gwtplatform.dispatch.rest.client.DefaultRestRequestBuilderFactory;
+import com.gwtplatform.dispatch.rest.client.DefaultRestResponseCache;
 import com.gwtplatform.dispatch.rest.client.DefaultRestResponseDeserializer;
 import com.gwtplatform.dispatch.rest.client.GlobalHeaderParams;
 import com.gwtplatform.dispatch.rest.client.GlobalQueryParams;
+import com.gwtplatform.dispatch.rest.client.HttpRequestBuilderFactory;
+import com.gwtplatform.dispatch.rest.client.InFlightRestRequests;
+import com.gwtplatform.dispatch.rest.client.RequestDeduplication;
 import com.gwtplatform.dispatch.rest.client.RequestTimeout;
+import com.gwtplatform.dispatch.rest.client.ResponseCacheMaxEntries;
+import com.gwtplatform.dispatch.rest.client.ResponseCacheMaxSize;
+import com.gwtplatform.dispatch.rest.client.RestBatchPath;
 import com.gwtplatform.dispatch.rest.client.RestDispatchAsync;
 import com.gwtplatform.dispatch.rest.client.RestDispatchCallFactory;
+import com.gwtplatform.dispatch.rest.client.RestRequestBatcher;
 import com.gwtplatform.dispatch.rest.client.RestRequestBuilderFactory;
+import com.gwtplatform.dispatch.rest.client.RestResponseCache;
 import com.gwtplatform.dispatch.rest.client.RestResponseDeserializer;
 import com.gwtplatform.dispatch.rest.client.XsrfHeaderName;
 import com.gwtplatform.dispatch.rest.client.serialization.MultimapJsonSerializer;
@@ -88,6 +98,9 @@ public class RestDispatchAsyncModule extends AbstractDispatchAsyncModule {
         // at runtime (ie: Global Parameters)
         bindConstant().annotatedWith(XsrfHeaderName.class).to(builder.getXsrfTokenHeaderName());
         bindConstant().annotatedWith(RequestTimeout.class).to(builder.getRequestTimeoutMs());
+        bindConstant().annotatedWith(ResponseCacheMaxEntries.class).to(builder.getResponseCacheMaxEntries());
+        bindConstant().annotatedWith(ResponseCacheMaxSize.class).to(builder.getResponseCacheMaxSize());
+        bindConstant().annotatedWith(RequestDeduplication.class).to(builder.isRequestDeduplication());
         bindConstant().annotatedWith(DefaultDateFormat.class).to(builder.getDefaultDateFormat());
         bindConstant().annotatedWith(GlobalHeaderParams.class)
                 .to(multimapJsonSerializer.serialize(builder.getGlobalHeaderParams()));
@@ -98,6 +111,15 @@ public class RestDispatchAsyncModule extends AbstractDispatchAsyncModule {
         bind(RestDispatchCallFactory.class).to(DefaultRestDispatchCallFactory.class).in(Singleton.class);
         bind(RestRequestBuilderFactory.class).to(DefaultRestRequestBuilderFactory.class).in(Singleton.class);
         bind(RestResponseDeserializer.class).to(DefaultRestResponseDeserializer.class).in(Singleton.class);
+        bind(RestResponseCache.class).to(DefaultRestResponseCache.class).in(Singleton.class);
+        bind(InFlightRestRequests.class).in(Singleton.class);
+
+        // Batching
+        if (builder.getBatchPath() != null) {
+            bindConstant().annotatedWith(RestBatchPath.class).to(builder.getBatchPath());
+            bind(RestRequestBatcher.class).in(Singleton.class);
+            bind(HttpRequestBuilderFactory.class).to(BatchingHttpRequestBuilderFactory.class).in(Singleton.class);
+        }
 
         // Serialization
         bind(Serialization.class).to(builder.getSerializationClass()).in(Singleton.class);
@@ -38,12 +38,23 @@ import com.gwtplatform.dispatch.rest.shared.RestParameter;
  * The default is {@link JsonSerialization}.</li>
  * <li>{@link #requestTimeout(int) Request timeout}: The number of milliseconds to wait for a request to complete.
  * The default value is 0 (no timeout).</li>
+ * <li>{@link #responseCache(int, int) Response cache}: The number of results of
+ * {@link HttpMethod#GET GET} actions, and their total size, kept to be revalidated with conditional requests.
+ * The default is to not cache results.</li>
+ * <li>{@link #batchPath(String) Batch path}: The path of the end point receiving the requests combined in a batch.
+ * The default is to send each request on its own.</li>
+ * <li>{@link #requestDeduplication(boolean) Request deduplication}: Whether a {@link HttpMethod#GET GET} request
+ * identical to a request waiting for its response shares that request. The default value is <code>true</code>.</li>
  * </ul>
  */
 public class RestDispatchAsyncModuleBuilder extends AbstractDispatchAsyncModule.Builder {
     private String xsrfTokenHeaderName = RestDispatchAsyncModule.DEFAULT_XSRF_NAME;
     private Class<? extends Serialization> serializationClass = JsonSerialization.class;
     private int requestTimeoutMs;
+    private int responseCacheMaxEntries;
+    private int responseCacheMaxSize;
+    private String batchPath;
+    private boolean requestDeduplication = true;
     private String defaultDateFormat = DateFormat.DEFAULT;
     private Multimap<HttpMethod, RestParameter> globalHeaderParams = LinkedHashMultimap.create();
     private Multimap<HttpMethod, RestParameter> globalQueryParams = LinkedHashMultimap.create();
@@ -101,6 +112,61 @@ public class RestDispatchAsyncModuleBuilder extends AbstractDispatchAsyncModule.
         return this;
     }
 
+    /**
+     * Enable the cache of the results of {@link HttpMethod#GET GET} actions. Results received with an {@code ETag} or a
+     * {@code Last-Modified} header are kept, and requests for the same URL are sent with {@code If-None-Match} and
+     * {@code If-Modified-Since} headers. When the server answers {@code 304 Not Modified}, the cached result is passed
+     * to the callback without parsing the response again.
+     * <p/>
+     * The least recently used results are evicted once either limit is exceeded. Default is <code>0</code>: no cache.
+     *
+     * @param maxEntries The maximum number of results to keep.
+     * @param maxSize    The maximum total size, in characters of response bodies, of the results to keep.
+     * @return this {@link RestDispatchAsyncModuleBuilder builder} object.
+     */
+    public RestDispatchAsyncModuleBuilder responseCache(int maxEntries, int maxSize) {
+        this.responseCacheMaxEntries = maxEntries;
+        this.responseCacheMaxSize = maxSize;
+        return this;
+    }
+
+    /**
+     * Enable the batching of requests. The requests sent during the same event loop, for example when a presenter
+     * reveal executes several actions, are combined into a single request to the batch end point. Each action's
+     * callback is still called with the action's own result.
+     * <p/>
+     * The end point must be served by a subclass of {@code com.gwtplatform.dispatch.rest.server.RestBatchResource},
+     * from the {@code gwtp-dispatch-rest-server} artifact, usually on {@code /batch}, listing the resources that can be
+     * batched. Batched requests don't go through the servlet filters of the application, see its documentation.
+     * Default is <code>null</code>: no batching.
+     *
+     * @param batchPath The path of the batch end point, relative to
+     *                  {@link com.gwtplatform.dispatch.rest.client.RestApplicationPath RestApplicationPath}.
+     * @return this {@link RestDispatchAsyncModuleBuilder builder} object.
+     * @see com.gwtplatform.dispatch.rest.client.RestRequestBatcher
+     */
+    public RestDispatchAsyncModuleBuilder batchPath(String batchPath) {
+        this.batchPath = batchPath;
+        return this;
+    }
+
+    /**
+     * Specify whether a {@link HttpMethod#GET GET} action building the same request as an action still waiting for its
+     * response shares the pending request instead of sending its own. Requests are identical when they come from the
+     * same action class and have the same URL and header parameters. All the callbacks receive the same result
+     * instance, and the request is only cancelled once all of them have cancelled it.
+     * <p/>
+     * Default is <code>true</code>.
+     *
+     * @param requestDeduplication {@code false} to always send a request for each action.
+     * @return this {@link RestDispatchAsyncModuleBuilder builder} object.
+     * @see com.gwtplatform.dispatch.rest.client.InFlightRestRequests
+     */
+    public RestDispatchAsyncModuleBuilder requestDeduplication(boolean requestDeduplication) {
+        this.requestDeduplication = requestDeduplication;
+        return this;
+    }
+
     /**
      * Specify the pattern to use to format dates before they are sent to the end-point. The pattern must follow the
      * rules defined by {@link com.google.gwt.i18n.shared.DateTimeFormat DateTimeFormat}.
@@ -147,6 +213,22 @@ public class RestDispatchAsyncModuleBuilder extends AbstractDispatchAsyncModule.
         return requestTimeoutMs;
     }
 
+    public int getResponseCacheMaxEntries() {
+        return responseCacheMaxEntries;
+    }
+
+    public int getResponseCacheMaxSize() {
+        return responseCacheMaxSize;
+    }
+
+    public String getBatchPath() {
+        return batchPath;
+    }
+
+    public boolean isRequestDeduplication() {
+        return requestDeduplication;
+    }
+
     public String getDefaultDateFormat() {
         return defaultDateFormat;
     }
@@ -54,7 +54,6 @@ import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.google.inject.assistedinject.Assisted;
 import com.gwtplatform.dispatch.rest.client.DateFormat;
 import com.gwtplatform.dispatch.rest.client.NoXsrfHeader;
-import com.gwtplatform.dispatch.rest.rebind.event.RegisterMetadataEvent;
 import com.gwtplatform.dispatch.rest.rebind.event.RegisterSerializableTypeEvent;
 import com.gwtplatform.dispatch.rest.rebind.type.ActionBinding;
 import com.gwtplatform.dispatch.rest.rebind.type.MethodCall;
@@ -66,12 +65,8 @@ import com.gwtplatform.dispatch.rest.rebind.util.HeaderParamValueResolver;
 import com.gwtplatform.dispatch.rest.rebind.util.PathParamValueResolver;
 import com.gwtplatform.dispatch.rest.rebind.util.QueryParamValueResolver;
 import com.gwtplatform.dispatch.rest.shared.HttpMethod;
-import com.gwtplatform.dispatch.rest.shared.MetadataType;
 import com.gwtplatform.dispatch.rest.shared.RestAction;
 
-import static com.gwtplatform.dispatch.rest.shared.MetadataType.BODY_TYPE;
-import static com.gwtplatform.dispatch.rest.shared.MetadataType.RESPONSE_TYPE;
-
 public class ActionGenerator extends AbstractVelocityGenerator {
     private static class AnnotatedMethodParameter {
         private JParameter parameter;
@@ -115,6 +110,8 @@ public class ActionGenerator extends AbstractVelocityGenerator {
     private final List<AnnotatedMethodParameter> queryParams = new ArrayList<AnnotatedMethodParameter>();
     private final List<AnnotatedMethodParameter> formParams = new ArrayList<AnnotatedMethodParameter>();
     private final List<JParameter> potentialBodyParams = new ArrayList<JParameter>();
+    private final List<String> pathSegments = new ArrayList<String>();
+    private final List<Integer> pathParamIndexes = new ArrayList<Integer>();
 
     private HttpMethod httpMethod;
     private JParameter bodyParam;
@@ -147,7 +144,7 @@ public class ActionGenerator extends AbstractVelocityGenerator {
         if (printWriter != null) {
             doGenerate(implName, printWriter);
 
-            registerMetadata();
+            registerSerializableTypes();
         } else {
             getLogger().debug("Action already generated. Returning.");
         }
@@ -163,6 +160,11 @@ public class ActionGenerator extends AbstractVelocityGenerator {
         velocityContext.put("restPath", path);
         velocityContext.put("ctorParams", parameters);
         velocityContext.put("secured", secured);
+        velocityContext.put("pathSegments", pathSegments);
+        velocityContext.put("pathParamIndexes", pathParamIndexes);
+        velocityContext.put("bodyType", bodyParam == null ? "null"
+                : toStringLiteral(bodyParam.getType().getParameterizedQualifiedSourceName()));
+        velocityContext.put("responseType", toStringLiteral(getResultType().getParameterizedQualifiedSourceName()));
     }
 
     @Override
@@ -170,10 +172,6 @@ public class ActionGenerator extends AbstractVelocityGenerator {
         return parent.getImplPackage().replace(SHARED_PACKAGE, CLIENT_PACKAGE);
     }
 
-    private String getQualifiedImplName() {
-        return getPackage() + "." + getSuperTypeName() + SUFFIX;
-    }
-
     private String getSuperTypeName() {
         // The service may define overloads, in which case the method name is not unique.
         // The method index will ensure the generated class uniqueness.
@@ -238,23 +236,24 @@ public class ActionGenerator extends AbstractVelocityGenerator {
         retrieveHttpMethod();
         retrieveParameterConfig();
         retrieveBodyConfig();
+        compilePath();
 
         mergeTemplate(printWriter, TEMPLATE, implName);
     }
 
-    private void registerMetadata() throws UnableToCompleteException {
+    /**
+     * The body and response types are written in the request template of the generated action. They only need to be
+     * registered for serialization.
+     */
+    private void registerSerializableTypes() throws UnableToCompleteException {
         if (bodyParam != null) {
-            registerMetadatum(BODY_TYPE, bodyParam.getType());
+            registerSerializableType(bodyParam.getType());
         }
 
-        registerMetadatum(RESPONSE_TYPE, getResultType());
+        registerSerializableType(getResultType());
     }
 
-    private void registerMetadatum(MetadataType metadataType, JType type) {
-        String typeLiteral = "\"" + type.getParameterizedQualifiedSourceName() + "\"";
-
-        eventBus.post(new RegisterMetadataEvent(getQualifiedImplName(), metadataType, typeLiteral));
-
+    private void registerSerializableType(JType type) {
         if (!Void.class.getCanonicalName().equals(type.getQualifiedSourceName()) && type.isPrimitive() == null) {
             eventBus.post(new RegisterSerializableTypeEvent(type));
         }
@@ -395,6 +394,73 @@ public class ActionGenerator extends AbstractVelocityGenerator {
         bodyParam = potentialBodyParams.get(0);
     }
 
+    /**
+     * Splits the path around the path parameters, so the generated action can build its URL without searching for
+     * the parameters in the path. Placeholders that don't match a path parameter are kept as is.
+     */
+    private void compilePath() {
+        StringBuilder segment = new StringBuilder();
+        int position = 0;
+
+        while (position < path.length()) {
+            int start = path.indexOf('{', position);
+            int end = start < 0 ? -1 : findPlaceholderEnd(start);
+            if (end < 0) {
+                segment.append(path.substring(position));
+                break;
+            }
+
+            segment.append(path.substring(position, start));
+
+            String placeholder = path.substring(start + 1, end);
+            int regexStart = placeholder.indexOf(':');
+            String name = (regexStart < 0 ? placeholder : placeholder.substring(0, regexStart)).trim();
+            int paramIndex = findPathParamIndex(name);
+
+            if (paramIndex < 0) {
+                segment.append(path.substring(start, end + 1));
+            } else {
+                pathSegments.add(toStringLiteral(segment.toString()));
+                pathParamIndexes.add(paramIndex);
+                segment.setLength(0);
+            }
+
+            position = end + 1;
+        }
+
+        pathSegments.add(toStringLiteral(segment.toString()));
+    }
+
+    /**
+     * @return the position of the brace closing the placeholder opened at {@code start}, or -1. Regular expressions
+     *         in placeholders may contain braces.
+     */
+    private int findPlaceholderEnd(int start) {
+        int depth = 0;
+        for (int i = start; i < path.length(); i++) {
+            char c = path.charAt(i);
+            if (c == '{') {
+                depth++;
+            } else if (c == '}' && --depth == 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int findPathParamIndex(String name) {
+        for (int i = 0; i < pathParams.size(); i++) {
+            if (pathParams.get(i).fieldName.equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String toStringLiteral(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
     private ActionBinding createActionBinding(String implName) throws UnableToCompleteException {
         String resultClass = getResultType().getParameterizedQualifiedSourceName();
 
@@ -17,8 +17,6 @@
 package com.gwtplatform.dispatch.rest.rebind;
 
 import java.io.PrintWriter;
-import java.util.HashSet;
-import java.util.Set;
 
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -26,31 +24,21 @@ import javax.inject.Provider;
 import org.apache.velocity.VelocityContext;
 import org.apache.velocity.app.VelocityEngine;
 
-import com.google.common.eventbus.EventBus;
-import com.google.common.eventbus.Subscribe;
 import com.google.gwt.core.ext.UnableToCompleteException;
 import com.google.gwt.core.ext.typeinfo.TypeOracle;
 import com.gwtplatform.dispatch.rest.client.ActionMetadataProvider;
-import com.gwtplatform.dispatch.rest.rebind.event.RegisterMetadataEvent;
-import com.gwtplatform.dispatch.rest.rebind.type.RegisterMetadataHolder;
 import com.gwtplatform.dispatch.rest.rebind.util.GeneratorUtil;
-import com.gwtplatform.dispatch.rest.shared.MetadataType;
 
 public class ActionMetadataProviderGenerator extends AbstractVelocityGenerator {
     private static final String TEMPLATE = "com/gwtplatform/dispatch/rest/rebind/ActionMetadataProvider.vm";
 
-    private final Set<RegisterMetadataHolder> registeredMetadata = new HashSet<RegisterMetadataHolder>();
-
     @Inject
     ActionMetadataProviderGenerator(TypeOracle typeOracle,
                                     Logger logger,
                                     Provider<VelocityContext> velocityContextProvider,
                                     VelocityEngine velocityEngine,
-                                    GeneratorUtil generatorUtil,
-                                    EventBus eventBus) {
+                                    GeneratorUtil generatorUtil) {
         super(typeOracle, logger, velocityContextProvider, velocityEngine, generatorUtil);
-
-        eventBus.register(this);
     }
 
     public void generate() throws UnableToCompleteException {
@@ -67,18 +55,6 @@ public class ActionMetadataProviderGenerator extends AbstractVelocityGenerator {
         }
     }
 
-    @Subscribe
-    public void handleRegisterMetadata(RegisterMetadataEvent event) {
-        String metadata = event.getMetadata();
-        MetadataType metadataType = event.getMetadataType();
-        String actionClass = event.getActionClass();
-
-        RegisterMetadataHolder metadataHolder = new RegisterMetadataHolder(actionClass, metadataType, metadata);
-        getLogger().debug("Metadata " + metadata + " registered.");
-
-        registeredMetadata.add(metadataHolder);
-    }
-
     @Override
     protected String getPackage() {
         return ActionMetadataProvider.class.getPackage().getName();
@@ -86,6 +62,6 @@ public class ActionMetadataProviderGenerator extends AbstractVelocityGenerator {
 
     @Override
     protected void populateVelocityContext(VelocityContext velocityContext) throws UnableToCompleteException {
-        velocityContext.put("metadata", registeredMetadata);
+        // Generated actions carry their metadata in their RestRequestTemplate, nothing is registered
     }
 }
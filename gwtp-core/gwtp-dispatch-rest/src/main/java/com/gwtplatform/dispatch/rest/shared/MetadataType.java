@@ -19,7 +19,7 @@ package com.gwtplatform.dispatch.rest.shared;
 /**
  * Used to associate some metadata to generated classes without cluttering the generated classes.
  *
- * @see com.gwtplatform.dispatch.rest.client.ActionMetadataProvider.MetadataKey
+ * @see com.gwtplatform.dispatch.rest.client.ActionMetadataProvider
  */
 public enum MetadataType {
     BODY_TYPE, RESPONSE_TYPE
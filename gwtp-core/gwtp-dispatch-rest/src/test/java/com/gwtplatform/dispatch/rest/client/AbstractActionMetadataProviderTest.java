@@ -0,0 +1,82 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rest.shared.MetadataType;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import static com.gwtplatform.dispatch.rest.shared.HttpMethod.GET;
+import static com.gwtplatform.dispatch.rest.shared.HttpMethod.POST;
+
+public class AbstractActionMetadataProviderTest {
+    private static final String BODY_TYPE = "java.util.List<java.lang.String>";
+    private static final String RESPONSE_TYPE = "java.lang.Integer";
+
+    private static class TestActionMetadataProvider extends AbstractActionMetadataProvider {
+        TestActionMetadataProvider() {
+            register(SecuredRestAction.class, MetadataType.BODY_TYPE, BODY_TYPE);
+        }
+    }
+
+    private final AbstractActionMetadataProvider provider = new TestActionMetadataProvider();
+
+    @Test
+    public void metadataShouldBeReadFromTemplate() {
+        // given
+        RestRequestTemplate template = new RestRequestTemplate(new String[]{"/path"}, new int[0], BODY_TYPE,
+                RESPONSE_TYPE);
+        TemplatedRestAction action = new TemplatedRestAction(POST, "/path", template);
+
+        // when
+        Object bodyType = provider.getValue(action, MetadataType.BODY_TYPE);
+        Object responseType = provider.getValue(action, MetadataType.RESPONSE_TYPE);
+
+        // then
+        assertEquals(BODY_TYPE, bodyType);
+        assertEquals(RESPONSE_TYPE, responseType);
+    }
+
+    @Test
+    public void registeredMetadataShouldBeReadWithoutTemplate() {
+        // given
+        SecuredRestAction action = new SecuredRestAction(GET, "/path");
+
+        // when
+        Object bodyType = provider.getValue(action, MetadataType.BODY_TYPE);
+        Object responseType = provider.getValue(action, MetadataType.RESPONSE_TYPE);
+
+        // then
+        assertEquals(BODY_TYPE, bodyType);
+        assertNull(responseType);
+    }
+
+    @Test
+    public void unregisteredActionShouldHaveNoMetadata() {
+        // given
+        UnsecuredRestAction action = new UnsecuredRestAction(GET, "/path");
+
+        // when
+        Object bodyType = provider.getValue(action, MetadataType.BODY_TYPE);
+
+        // then
+        assertNull(bodyType);
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.gwtplatform.dispatch.client.actionhandler.ClientActionHandlerRegistry;
+import com.gwtplatform.dispatch.shared.ActionException;
+import com.gwtplatform.dispatch.shared.SecurityCookieAccessor;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+
+import static com.gwtplatform.dispatch.rest.shared.HttpMethod.GET;
+
+public class DefaultRestDispatchCallFactoryTest {
+    private static class ObjectRestAction extends ExposedRestAction<Object> {
+        ObjectRestAction() {
+            super(GET, "/cars");
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+    }
+
+    private RestRequestBuilderFactory requestBuilderFactory;
+    private RestResponseDeserializer responseDeserializer;
+    private RequestBuilder requestBuilder;
+    private RestResponseCache responseCache;
+
+    @Before
+    public void setUp() throws ActionException, RequestException {
+        requestBuilderFactory = mock(RestRequestBuilderFactory.class);
+        responseDeserializer = mock(RestResponseDeserializer.class);
+        requestBuilder = mock(RequestBuilder.class);
+        responseCache = mock(RestResponseCache.class);
+
+        given(requestBuilderFactory.build(any(ObjectRestAction.class), anyString())).willReturn(requestBuilder);
+        given(requestBuilder.getUrl()).willReturn("http://localhost/api/cars");
+        given(requestBuilder.getHTTPMethod()).willReturn("GET");
+        given(requestBuilder.send()).willReturn(mock(Request.class));
+    }
+
+    @Test
+    public void disabledCacheIsNotUsed() {
+        // given
+        DefaultRestDispatchCallFactory factory = createFactory(0, 0);
+        Response response = mock(Response.class);
+        given(response.getStatusCode()).willReturn(Response.SC_OK);
+        given(response.getHeader("ETag")).willReturn("\"v1\"");
+
+        // when
+        factory.create(new ObjectRestAction(), createCallback()).execute();
+        getRequestCallback().onResponseReceived(null, response);
+
+        // then
+        verifyZeroInteractions(responseCache);
+    }
+
+    @Test
+    public void cacheWithoutEntriesIsNotUsed() {
+        // given
+        DefaultRestDispatchCallFactory factory = createFactory(0, 1000);
+
+        // when
+        factory.create(new ObjectRestAction(), createCallback()).execute();
+
+        // then
+        verifyZeroInteractions(responseCache);
+    }
+
+    @Test
+    public void enabledCacheIsUsed() {
+        // given
+        DefaultRestDispatchCallFactory factory = createFactory(10, 1000);
+
+        // when
+        factory.create(new ObjectRestAction(), createCallback()).execute();
+
+        // then
+        verify(responseCache).get(anyString());
+    }
+
+    private DefaultRestDispatchCallFactory createFactory(int responseCacheMaxEntries, int responseCacheMaxSize) {
+        return new DefaultRestDispatchCallFactory(null, mock(ClientActionHandlerRegistry.class),
+                mock(SecurityCookieAccessor.class), requestBuilderFactory, responseDeserializer, responseCache,
+                new InFlightRestRequests(), responseCacheMaxEntries, responseCacheMaxSize, false);
+    }
+
+    @SuppressWarnings("unchecked")
+    private AsyncCallback<Object> createCallback() {
+        return mock(AsyncCallback.class);
+    }
+
+    private RequestCallback getRequestCallback() {
+        ArgumentCaptor<RequestCallback> requestCallback = ArgumentCaptor.forClass(RequestCallback.class);
+        verify(requestBuilder).setCallback(requestCallback.capture());
+
+        return requestCallback.getValue();
+    }
+}
@@ -318,6 +318,27 @@ public class DefaultRestRequestBuilderFactoryTest {
         verify(httpRequestBuilderFactory).create(eq(RequestBuilder.GET), endsWith(expectedUrl));
     }
 
+    @Test
+    public void pathParamsShouldBeInsertedBetweenTemplateSegments(UrlUtils urlUtils) throws ActionException {
+        // Given
+        given(urlUtils.encodePathSegment(DECODED_VALUE_1)).willReturn(ENCODED_VALUE_1);
+        given(urlUtils.encodePathSegment(DECODED_VALUE_2)).willReturn(ENCODED_VALUE_2);
+
+        RestRequestTemplate template = new RestRequestTemplate(new String[]{"/users/", "/items/", ""},
+                new int[]{1, 0}, null, "java.lang.Void");
+        ExposedRestAction<Void> action = new TemplatedRestAction(POST, "/users/{item}/items/{user}", template);
+        action.addPathParam("item", DECODED_VALUE_1);
+        action.addPathParam("user", DECODED_VALUE_2);
+
+        // When
+        factory.build(action, SECURITY_TOKEN);
+
+        // Then
+        String expectedUrl = APPLICATION_PATH + "/users/" + ENCODED_VALUE_2 + "/items/" + ENCODED_VALUE_1 + "?"
+                + KEY_3 + "=" + ENCODED_VALUE_3;
+        verify(httpRequestBuilderFactory).create(eq(RequestBuilder.POST), eq(expectedUrl));
+    }
+
     private RestAction<Void> createActionWithHeaderParams() {
         ExposedRestAction<Void> action = new SecuredRestAction(GET, RELATIVE_PATH);
         action.addHeaderParam(ACTION_KEY_1, DECODED_VALUE_1);
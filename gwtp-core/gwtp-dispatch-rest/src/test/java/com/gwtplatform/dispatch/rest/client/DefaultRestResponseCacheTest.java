@@ -0,0 +1,114 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class DefaultRestResponseCacheTest {
+    private static final String URL_1 = "/cars";
+    private static final String URL_2 = "/cars?page=2";
+    private static final String URL_3 = "/ratings";
+
+    @Test
+    public void leastRecentlyUsedResponseIsEvictedWhenFull() {
+        // given
+        DefaultRestResponseCache cache = new DefaultRestResponseCache(2, 100);
+        cache.put(URL_1, createResponse(10));
+        cache.put(URL_2, createResponse(10));
+        cache.get(URL_1);
+
+        // when
+        cache.put(URL_3, createResponse(10));
+
+        // then
+        assertNotNull(cache.get(URL_1));
+        assertNull(cache.get(URL_2));
+        assertNotNull(cache.get(URL_3));
+        assertEquals(20, cache.getSize());
+    }
+
+    @Test
+    public void responsesAreEvictedWhenSizeIsExceeded() {
+        // given
+        DefaultRestResponseCache cache = new DefaultRestResponseCache(10, 25);
+        cache.put(URL_1, createResponse(10));
+        cache.put(URL_2, createResponse(10));
+
+        // when
+        cache.put(URL_3, createResponse(10));
+
+        // then
+        assertNull(cache.get(URL_1));
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(20, cache.getSize());
+    }
+
+    @Test
+    public void responseLargerThanMaxSizeIsNotCached() {
+        // given
+        DefaultRestResponseCache cache = new DefaultRestResponseCache(10, 25);
+        cache.put(URL_1, createResponse(10));
+
+        // when
+        cache.put(URL_1, createResponse(30));
+
+        // then
+        assertNull(cache.get(URL_1));
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void nothingIsCachedByDefault() {
+        // given
+        DefaultRestResponseCache cache = new DefaultRestResponseCache(0, 0);
+
+        // when
+        cache.put(URL_1, createResponse(0));
+
+        // then
+        assertNull(cache.get(URL_1));
+    }
+
+    @Test
+    public void responsesAreClearedWhenTheSecurityCookieChanges() {
+        // given
+        DefaultRestResponseCache cache = new DefaultRestResponseCache(10, 100);
+        cache.setSecurityCookie("session-1");
+        cache.put(URL_1, createResponse(10));
+
+        // when
+        cache.setSecurityCookie("session-1");
+
+        // then
+        assertNotNull(cache.get(URL_1));
+
+        // when
+        cache.setSecurityCookie(null);
+
+        // then
+        assertNull(cache.get(URL_1));
+        assertEquals(0, cache.getSize());
+    }
+
+    private CachedResponse createResponse(int size) {
+        return new CachedResponse(new Object(), "\"tag\"", null, size);
+    }
+}
@@ -0,0 +1,334 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+import com.google.gwt.user.client.rpc.AsyncCallback;
+import com.gwtplatform.dispatch.client.actionhandler.ClientActionHandlerRegistry;
+import com.gwtplatform.dispatch.rest.shared.HttpMethod;
+import com.gwtplatform.dispatch.shared.ActionException;
+import com.gwtplatform.dispatch.shared.DispatchRequest;
+import com.gwtplatform.dispatch.shared.SecurityCookieAccessor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+import static com.gwtplatform.dispatch.rest.shared.HttpMethod.GET;
+import static com.gwtplatform.dispatch.rest.shared.HttpMethod.POST;
+
+public class RestDispatchCallTest {
+    private static class ObjectRestAction extends ExposedRestAction<Object> {
+        ObjectRestAction(HttpMethod httpMethod) {
+            super(httpMethod, "/cars");
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+    }
+
+    private static final String URL = "http://localhost/api/cars";
+    private static final String CACHE_KEY = ObjectRestAction.class.getName() + " GET " + URL;
+    private static final String SECURITY_COOKIE = "session-1";
+    private static final String ETAG_VALUE = "\"v1\"";
+    private static final String LAST_MODIFIED_VALUE = "Tue, 15 Nov 1994 12:45:26 GMT";
+
+    private RestRequestBuilderFactory requestBuilderFactory;
+    private RestResponseDeserializer responseDeserializer;
+    private RequestBuilder requestBuilder;
+    private Request httpRequest;
+    private DefaultRestResponseCache responseCache;
+    private InFlightRestRequests inFlightRequests;
+    private SecurityCookieAccessor securityCookieAccessor;
+    private Object deserializedResult;
+
+    @Before
+    public void setUp() throws ActionException, RequestException {
+        requestBuilderFactory = mock(RestRequestBuilderFactory.class);
+        responseDeserializer = mock(RestResponseDeserializer.class);
+        requestBuilder = mock(RequestBuilder.class);
+        httpRequest = mock(Request.class);
+        responseCache = new DefaultRestResponseCache(10, 1000);
+        inFlightRequests = new InFlightRestRequests();
+        securityCookieAccessor = mock(SecurityCookieAccessor.class);
+
+        given(securityCookieAccessor.getCookieContent()).willReturn(SECURITY_COOKIE);
+        responseCache.setSecurityCookie(SECURITY_COOKIE);
+
+        given(requestBuilderFactory.build(any(ObjectRestAction.class), anyString())).willReturn(requestBuilder);
+        given(requestBuilder.getUrl()).willReturn(URL);
+        given(requestBuilder.getHTTPMethod()).willReturn("GET");
+        given(requestBuilder.send()).willReturn(httpRequest);
+
+        deserializedResult = new Object();
+        given(responseDeserializer.deserialize(any(ObjectRestAction.class), any(Response.class)))
+                .willReturn(deserializedResult);
+    }
+
+    @Test
+    public void resultIsCachedWithItsValidators() throws ActionException {
+        // given
+        ObjectRestAction action = new ObjectRestAction(GET);
+        Response response = createResponse(Response.SC_OK, ETAG_VALUE, LAST_MODIFIED_VALUE);
+
+        // when
+        Object result = execute(action, response);
+
+        // then
+        CachedResponse cachedResponse = responseCache.get(CACHE_KEY);
+        assertNotNull(cachedResponse);
+        assertSame(deserializedResult, result);
+        assertSame(result, cachedResponse.getResult());
+        verify(requestBuilder, never()).setHeader(eq("If-None-Match"), anyString());
+    }
+
+    @Test
+    public void cachedResultIsReturnedOnNotModified() throws ActionException {
+        // given
+        ObjectRestAction action = new ObjectRestAction(GET);
+        Object cachedResult = new Object();
+        responseCache.put(CACHE_KEY, new CachedResponse(cachedResult, ETAG_VALUE, LAST_MODIFIED_VALUE, 2));
+        Response response = createResponse(Response.SC_NOT_MODIFIED, null, null);
+
+        // when
+        Object result = execute(action, response);
+
+        // then
+        assertSame(cachedResult, result);
+        verify(requestBuilder).setHeader("If-None-Match", ETAG_VALUE);
+        verify(requestBuilder).setHeader("If-Modified-Since", LAST_MODIFIED_VALUE);
+        verify(responseDeserializer, never()).deserialize(any(ObjectRestAction.class), any(Response.class));
+    }
+
+    @Test
+    public void resultWithoutValidatorsIsNotCached() throws ActionException {
+        // given
+        ObjectRestAction action = new ObjectRestAction(GET);
+        responseCache.put(CACHE_KEY, new CachedResponse(new Object(), ETAG_VALUE, null, 2));
+        Response response = createResponse(Response.SC_OK, null, null);
+
+        // when
+        execute(action, response);
+
+        // then
+        assertNull(responseCache.get(CACHE_KEY));
+    }
+
+    @Test
+    public void postResultIsNotCached() throws ActionException {
+        // given
+        ObjectRestAction action = new ObjectRestAction(POST);
+        Response response = createResponse(Response.SC_OK, ETAG_VALUE, null);
+
+        // when
+        execute(action, response);
+
+        // then
+        assertNull(responseCache.get(CACHE_KEY));
+    }
+
+    @Test
+    public void resultsAreCachedPerHeaderParameterValue() throws ActionException {
+        // given
+        ObjectRestAction action = new ObjectRestAction(GET);
+        action.addHeaderParam("Accept-Language", "fr");
+        given(requestBuilder.getHeader("Accept-Language")).willReturn("fr");
+        execute(action, createResponse(Response.SC_OK, ETAG_VALUE, null));
+
+        ObjectRestAction otherAction = new ObjectRestAction(GET);
+        otherAction.addHeaderParam("Accept-Language", "en");
+        given(requestBuilder.getHeader("Accept-Language")).willReturn("en");
+
+        // when
+        execute(otherAction, createResponse(Response.SC_OK, ETAG_VALUE, null));
+
+        // then
+        verify(requestBuilder, never()).setHeader(eq("If-None-Match"), anyString());
+        assertEquals(2, responseCache.getEntryCount());
+    }
+
+    @Test
+    public void cacheIsClearedWhenTheSecurityCookieChanges() throws ActionException {
+        // given
+        execute(new ObjectRestAction(GET), createResponse(Response.SC_OK, ETAG_VALUE, null));
+        given(securityCookieAccessor.getCookieContent()).willReturn("session-2");
+
+        // when
+        execute(new ObjectRestAction(GET), createResponse(Response.SC_OK, null, null));
+
+        // then
+        verify(requestBuilder, never()).setHeader(eq("If-None-Match"), anyString());
+        assertEquals(0, responseCache.getEntryCount());
+    }
+
+    @Test
+    public void resultReceivedAfterTheSecurityCookieChangedIsNotCached() {
+        // given
+        AsyncCallback<Object> callback = createCallback();
+        createCall(new ObjectRestAction(GET), callback).execute();
+        given(securityCookieAccessor.getCookieContent()).willReturn("session-2");
+
+        // when
+        getRequestCallback().onResponseReceived(null, createResponse(Response.SC_OK, ETAG_VALUE, null));
+
+        // then
+        verify(callback).onSuccess(deserializedResult);
+        assertNull(responseCache.get(CACHE_KEY));
+    }
+
+    @Test
+    public void identicalGetSharesTheRequestInFlight() throws RequestException {
+        // given
+        AsyncCallback<Object> firstCallback = createCallback();
+        AsyncCallback<Object> secondCallback = createCallback();
+
+        // when
+        createCall(new ObjectRestAction(GET), firstCallback).execute();
+        createCall(new ObjectRestAction(GET), secondCallback).execute();
+        getRequestCallback().onResponseReceived(null, createResponse(Response.SC_OK, null, null));
+
+        // then
+        verify(requestBuilder, times(1)).send();
+        verify(firstCallback).onSuccess(deserializedResult);
+        verify(secondCallback).onSuccess(deserializedResult);
+        assertEquals(0, inFlightRequests.getInFlightCount());
+    }
+
+    @Test
+    public void requestIsCancelledWhenTheLastCallIsCancelled() {
+        // given
+        AsyncCallback<Object> firstCallback = createCallback();
+        AsyncCallback<Object> secondCallback = createCallback();
+        DispatchRequest firstRequest = createCall(new ObjectRestAction(GET), firstCallback).execute();
+        DispatchRequest secondRequest = createCall(new ObjectRestAction(GET), secondCallback).execute();
+
+        // when
+        firstRequest.cancel();
+
+        // then
+        verify(httpRequest, never()).cancel();
+        assertFalse(firstRequest.isPending());
+
+        // when
+        secondRequest.cancel();
+
+        // then
+        verify(httpRequest).cancel();
+        assertEquals(0, inFlightRequests.getInFlightCount());
+    }
+
+    @Test
+    public void cancelledCallIsNotNotified() {
+        // given
+        AsyncCallback<Object> firstCallback = createCallback();
+        AsyncCallback<Object> secondCallback = createCallback();
+        DispatchRequest firstRequest = createCall(new ObjectRestAction(GET), firstCallback).execute();
+        createCall(new ObjectRestAction(GET), secondCallback).execute();
+
+        // when
+        firstRequest.cancel();
+        getRequestCallback().onResponseReceived(null, createResponse(Response.SC_OK, null, null));
+
+        // then
+        verify(firstCallback, never()).onSuccess(any());
+        verify(secondCallback).onSuccess(deserializedResult);
+    }
+
+    @Test
+    public void postIsNotShared() throws RequestException {
+        // when
+        createCall(new ObjectRestAction(POST), createCallback()).execute();
+        createCall(new ObjectRestAction(POST), createCallback()).execute();
+
+        // then
+        verify(requestBuilder, times(2)).send();
+    }
+
+    private Object execute(ObjectRestAction action, Response response) {
+        AsyncCallback<Object> callback = createCallback();
+        createCall(action, callback).execute();
+        getLastRequestCallback().onResponseReceived(null, response);
+
+        ArgumentCaptor<Object> result = ArgumentCaptor.forClass(Object.class);
+        verify(callback).onSuccess(result.capture());
+
+        return result.getValue();
+    }
+
+    private RestDispatchCall<ObjectRestAction, Object> createCall(ObjectRestAction action,
+            AsyncCallback<Object> callback) {
+        return new RestDispatchCall<ObjectRestAction, Object>(null, mock(ClientActionHandlerRegistry.class),
+                securityCookieAccessor, requestBuilderFactory, responseDeserializer, responseCache,
+                inFlightRequests, action, callback);
+    }
+
+    @SuppressWarnings("unchecked")
+    private AsyncCallback<Object> createCallback() {
+        return mock(AsyncCallback.class);
+    }
+
+    /**
+     * @return the callback of the first request sent.
+     */
+    private RequestCallback getRequestCallback() {
+        ArgumentCaptor<RequestCallback> requestCallback = ArgumentCaptor.forClass(RequestCallback.class);
+        verify(requestBuilder, atLeastOnce()).setCallback(requestCallback.capture());
+
+        return requestCallback.getAllValues().get(0);
+    }
+
+    /**
+     * @return the callback of the last request sent.
+     */
+    private RequestCallback getLastRequestCallback() {
+        ArgumentCaptor<RequestCallback> requestCallback = ArgumentCaptor.forClass(RequestCallback.class);
+        verify(requestBuilder, atLeastOnce()).setCallback(requestCallback.capture());
+
+        return requestCallback.getValue();
+    }
+
+    private Response createResponse(int statusCode, String entityTag, String lastModified) {
+        Response response = mock(Response.class);
+        given(response.getStatusCode()).willReturn(statusCode);
+        given(response.getHeader("ETag")).willReturn(entityTag);
+        given(response.getHeader("Last-Modified")).willReturn(lastModified);
+        given(response.getText()).willReturn("{}");
+
+        return response;
+    }
+}
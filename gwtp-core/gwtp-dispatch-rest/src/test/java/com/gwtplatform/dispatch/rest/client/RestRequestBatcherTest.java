@@ -0,0 +1,185 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+
+import com.google.gwt.http.client.Request;
+import com.google.gwt.http.client.RequestBuilder;
+import com.google.gwt.http.client.RequestCallback;
+import com.google.gwt.http.client.RequestException;
+import com.google.gwt.http.client.Response;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class RestRequestBatcherTest {
+    private static final String CRLF = "\r\n";
+    private static final String BASE_URL = "http://localhost/api";
+    private static final String BATCH_PATH = "/batch";
+
+    private HttpRequestBuilderFactory httpRequestBuilderFactory;
+    private RequestBuilder batchRequestBuilder;
+    private RestRequestBatcher batcher;
+
+    @Before
+    public void setUp() {
+        httpRequestBuilderFactory = mock(HttpRequestBuilderFactory.class);
+        batchRequestBuilder = mock(RequestBuilder.class);
+        batcher = new RestRequestBatcher(httpRequestBuilderFactory, BASE_URL, BATCH_PATH) {
+            @Override
+            protected void scheduleFlush() {
+            }
+        };
+
+        given(httpRequestBuilderFactory.create(RequestBuilder.POST, BASE_URL + BATCH_PATH))
+                .willReturn(batchRequestBuilder);
+    }
+
+    @Test
+    public void requestsAreSentInOneBatch() throws RequestException {
+        // given
+        BatchedRequestBuilder carsRequest = createRequest(RequestBuilder.GET, "/cars?page=2", null);
+        carsRequest.setHeader("Accept", "application/json");
+        BatchedRequestBuilder ratingRequest = createRequest(RequestBuilder.POST, "/ratings", "{\"stars\":5}");
+
+        // when
+        carsRequest.send();
+        ratingRequest.send();
+        batcher.flush();
+
+        // then
+        ArgumentCaptor<String> requestData = ArgumentCaptor.forClass(String.class);
+        verify(batchRequestBuilder).setRequestData(requestData.capture());
+        verify(batchRequestBuilder).send();
+
+        String body = requestData.getValue();
+        assertTrue(body.contains("GET /cars?page=2 HTTP/1.1" + CRLF + "Accept: application/json" + CRLF + CRLF));
+        assertTrue(body.contains("POST /ratings HTTP/1.1" + CRLF + CRLF + "{\"stars\":5}" + CRLF + "--"));
+    }
+
+    @Test
+    public void responsesAreDispatchedToTheirOwnCallback() throws RequestException {
+        // given
+        BatchedRequestBuilder carsRequest = createRequest(RequestBuilder.GET, "/cars", null);
+        BatchedRequestBuilder ratingRequest = createRequest(RequestBuilder.GET, "/ratings", null);
+        carsRequest.send();
+        ratingRequest.send();
+        batcher.flush();
+
+        Response batchResponse = createBatchResponse("b",
+                "--b" + CRLF + "Content-Type: application/http" + CRLF + CRLF
+                        + "HTTP/1.1 200 OK" + CRLF + "ETag: \"v1\"" + CRLF + CRLF
+                        + "[1,2]" + CRLF
+                        + "--b" + CRLF + "Content-Type: application/http" + CRLF + CRLF
+                        + "HTTP/1.1 404 Not Found" + CRLF + CRLF
+                        + CRLF
+                        + "--b--" + CRLF);
+
+        // when
+        getBatchCallback().onResponseReceived(null, batchResponse);
+
+        // then
+        Response carsResponse = getResponse(carsRequest);
+        assertEquals(200, carsResponse.getStatusCode());
+        assertEquals("[1,2]", carsResponse.getText());
+        assertEquals("\"v1\"", carsResponse.getHeader("etag"));
+
+        Response ratingResponse = getResponse(ratingRequest);
+        assertEquals(404, ratingResponse.getStatusCode());
+        assertEquals("Not Found", ratingResponse.getStatusText());
+        assertEquals("", ratingResponse.getText());
+    }
+
+    @Test
+    public void cancelledRequestIsNotSent() throws RequestException {
+        // given
+        createRequest(RequestBuilder.GET, "/cars", null).send();
+        createRequest(RequestBuilder.GET, "/ratings", null).send();
+        Request cancelledRequest = createRequest(RequestBuilder.GET, "/owners", null).send();
+
+        // when
+        cancelledRequest.cancel();
+        batcher.flush();
+
+        // then
+        ArgumentCaptor<String> requestData = ArgumentCaptor.forClass(String.class);
+        verify(batchRequestBuilder).setRequestData(requestData.capture());
+        assertFalse(requestData.getValue().contains("/owners"));
+        assertFalse(cancelledRequest.isPending());
+    }
+
+    @Test
+    public void failedBatchFailsEveryRequest() throws RequestException {
+        // given
+        BatchedRequestBuilder carsRequest = createRequest(RequestBuilder.GET, "/cars", null);
+        BatchedRequestBuilder ratingRequest = createRequest(RequestBuilder.GET, "/ratings", null);
+        carsRequest.send();
+        ratingRequest.send();
+        batcher.flush();
+
+        Response batchResponse = mock(Response.class);
+        given(batchResponse.getStatusCode()).willReturn(404);
+
+        // when
+        getBatchCallback().onResponseReceived(null, batchResponse);
+
+        // then
+        verify(carsRequest.getCallback()).onError(any(Request.class), any(RequestException.class));
+        verify(ratingRequest.getCallback()).onError(any(Request.class), any(RequestException.class));
+        verify(carsRequest.getCallback(), never()).onResponseReceived(any(Request.class), any(Response.class));
+    }
+
+    private BatchedRequestBuilder createRequest(RequestBuilder.Method httpMethod, String path, String requestData) {
+        BatchedRequestBuilder requestBuilder = new BatchedRequestBuilder(httpMethod, BASE_URL + path, batcher);
+        requestBuilder.setRequestData(requestData);
+        requestBuilder.setCallback(mock(RequestCallback.class));
+
+        return requestBuilder;
+    }
+
+    private Response createBatchResponse(String boundary, String text) {
+        Response response = mock(Response.class);
+        given(response.getStatusCode()).willReturn(200);
+        given(response.getHeader("Content-Type")).willReturn("multipart/mixed; boundary=" + boundary);
+        given(response.getText()).willReturn(text);
+
+        return response;
+    }
+
+    private RequestCallback getBatchCallback() {
+        ArgumentCaptor<RequestCallback> callback = ArgumentCaptor.forClass(RequestCallback.class);
+        verify(batchRequestBuilder).setCallback(callback.capture());
+
+        return callback.getValue();
+    }
+
+    private Response getResponse(BatchedRequestBuilder requestBuilder) {
+        ArgumentCaptor<Response> response = ArgumentCaptor.forClass(Response.class);
+        verify(requestBuilder.getCallback()).onResponseReceived(any(Request.class), response.capture());
+
+        return response.getValue();
+    }
+}
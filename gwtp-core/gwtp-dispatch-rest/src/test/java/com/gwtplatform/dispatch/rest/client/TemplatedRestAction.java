@@ -0,0 +1,38 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rest.client;
+
+import com.gwtplatform.dispatch.rest.shared.HttpMethod;
+
+/**
+ * Used by test code to create a {@link com.gwtplatform.dispatch.rest.shared.RestAction} with a
+ * {@link RestRequestTemplate}, like generated actions.
+ */
+public class TemplatedRestAction extends SecuredRestAction {
+    private final RestRequestTemplate requestTemplate;
+
+    public TemplatedRestAction(HttpMethod httpMethod, String rawServicePath, RestRequestTemplate requestTemplate) {
+        super(httpMethod, rawServicePath);
+
+        this.requestTemplate = requestTemplate;
+    }
+
+    @Override
+    public RestRequestTemplate getRequestTemplate() {
+        return requestTemplate;
+    }
+}
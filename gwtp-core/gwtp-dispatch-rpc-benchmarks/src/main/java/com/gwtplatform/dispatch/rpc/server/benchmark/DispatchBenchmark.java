@@ -0,0 +1,88 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.Dispatch;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.TestActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractEagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.AbstractDefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.action.TestAction;
+import com.gwtplatform.dispatch.rpc.shared.action.TestResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Compares the throughput of {@link AbstractDispatchImpl}, which resolves each action class to a cached execution plan,
+ * with {@link TwoLookupsDispatch}, which queries the registry twice per execution.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class DispatchBenchmark {
+    private static class BenchmarkRegistry extends AbstractEagerActionHandlerValidatorRegistryImpl {
+    }
+
+    private static class BenchmarkDispatch extends AbstractDispatchImpl {
+        BenchmarkDispatch(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
+            super(actionHandlerValidatorRegistry);
+        }
+    }
+
+    private TestAction action;
+    private Dispatch executionPlanDispatch;
+    private Dispatch twoLookupsDispatch;
+
+    @Setup
+    public void setUp() {
+        BenchmarkRegistry registry = new BenchmarkRegistry();
+        registry.addActionHandlerValidator(TestAction.class,
+                new ActionHandlerValidatorInstance(new AbstractDefaultActionValidator(), new TestActionHandler()));
+
+        action = new TestAction(TestActionHandler.MESSAGE);
+        executionPlanDispatch = new BenchmarkDispatch(registry);
+        twoLookupsDispatch = new TwoLookupsDispatch(registry);
+    }
+
+    @Benchmark
+    public TestResult executionPlan() throws ActionException, ServiceException {
+        return executionPlanDispatch.execute(action);
+    }
+
+    @Benchmark
+    public TestResult twoLookups() throws ActionException, ServiceException {
+        return twoLookupsDispatch.execute(action);
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.Dispatch;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.TestActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractEagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.action.TestAction;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Measures the throughput of actions rejected by their {@link ActionValidator}, comparing the stack-less rejections
+ * of {@link AbstractDispatchImpl} with {@link TwoLookupsDispatch}, which captures the stack trace of a new
+ * {@link ServiceException} and wraps it on every rejection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class RejectedActionBenchmark {
+    private static class BenchmarkRegistry extends AbstractEagerActionHandlerValidatorRegistryImpl {
+    }
+
+    private static class BenchmarkDispatch extends AbstractDispatchImpl {
+        BenchmarkDispatch(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
+            super(actionHandlerValidatorRegistry);
+        }
+    }
+
+    private static class RejectingActionValidator implements ActionValidator {
+        @Override
+        public boolean isValid(Action<? extends Result> action) {
+            return false;
+        }
+    }
+
+    private TestAction action;
+    private Dispatch lightweightDispatch;
+    private Dispatch legacyDispatch;
+
+    @Setup
+    public void setUp() {
+        BenchmarkRegistry registry = new BenchmarkRegistry();
+        registry.addActionHandlerValidator(TestAction.class,
+                new ActionHandlerValidatorInstance(new RejectingActionValidator(), new TestActionHandler()));
+
+        action = new TestAction(TestActionHandler.MESSAGE);
+        lightweightDispatch = new BenchmarkDispatch(registry);
+        legacyDispatch = new TwoLookupsDispatch(registry);
+    }
+
+    @Benchmark
+    public Object lightweightRejection() throws ActionException {
+        return reject(lightweightDispatch);
+    }
+
+    @Benchmark
+    public Object legacyRejection() throws ActionException {
+        return reject(legacyDispatch);
+    }
+
+    private Object reject(Dispatch dispatch) throws ActionException {
+        try {
+            return dispatch.execute(action);
+        } catch (ServiceException e) {
+            return e;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.gwtplatform.dispatch.rpc.server.Dispatch;
+import com.gwtplatform.dispatch.rpc.server.ExecutionContext;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionResult;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.UnsupportedActionException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Reproduces the action resolution done by {@link com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl} before
+ * execution plans were introduced: the registry is queried once for the handler and once for the validator on every
+ * execution, and failures are reported with newly allocated exceptions and messages. Used as the baseline of
+ * {@link DispatchBenchmark} and {@link RejectedActionBenchmark}.
+ */
+public class TwoLookupsDispatch implements Dispatch {
+    private static class SimpleExecutionContext implements ExecutionContext {
+        private final TwoLookupsDispatch dispatch;
+        private final List<ActionResult<?, ?>> actionResults = new ArrayList<ActionResult<?, ?>>();
+
+        SimpleExecutionContext(TwoLookupsDispatch dispatch) {
+            this.dispatch = dispatch;
+        }
+
+        @Override
+        public <A extends Action<R>, R extends Result> R execute(A action) throws ActionException, ServiceException {
+            R result = dispatch.doExecute(action, this);
+            actionResults.add(new ActionResult<A, R>(action, result, true));
+            return result;
+        }
+
+        @Override
+        public <A extends Action<R>, R extends Result> void undo(A action, R result) throws ActionException,
+                ServiceException {
+            dispatch.doExecute(action, this);
+            actionResults.add(new ActionResult<A, R>(action, result, false));
+        }
+    }
+
+    private static final String ACTION_VALIDATOR_MESSAGE = " couldn't allow access to action : ";
+
+    private final ActionHandlerValidatorRegistry actionHandlerValidatorRegistry;
+
+    public TwoLookupsDispatch(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
+        this.actionHandlerValidatorRegistry = actionHandlerValidatorRegistry;
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> R execute(A action) throws ActionException, ServiceException {
+        return doExecute(action, new SimpleExecutionContext(this));
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> void undo(A action, R result) throws ActionException,
+            ServiceException {
+        doUndo(action, result, new SimpleExecutionContext(this));
+    }
+
+    private <A extends Action<R>, R extends Result> R doExecute(A action, ExecutionContext ctx)
+            throws ActionException, ServiceException {
+        ActionHandler<A, R> handler = findHandler(action);
+        ActionValidator actionValidator = findActionValidator(action);
+
+        try {
+            if (actionValidator.isValid(action)) {
+                return handler.execute(action, ctx);
+            } else {
+                throw new ServiceException(actionValidator.getClass().getName() + ACTION_VALIDATOR_MESSAGE
+                        + action.getClass().getName());
+            }
+        } catch (ActionException e) {
+            throw e;
+        } catch (Exception e) {
+            String newMessage = "Service exception executing action \"" + action.getClass().getSimpleName() + "\", "
+                    + e.toString();
+            ServiceException rethrown = new ServiceException(newMessage);
+            rethrown.initCause(e);
+            throw rethrown;
+        }
+    }
+
+    private <A extends Action<R>, R extends Result> void doUndo(A action, R result, ExecutionContext ctx)
+            throws ActionException, ServiceException {
+        ActionValidator actionValidator = findActionValidator(action);
+        ActionHandler<A, R> handler = findHandler(action);
+
+        try {
+            if (actionValidator.isValid(action)) {
+                handler.undo(action, result, ctx);
+            } else {
+                throw new ServiceException(actionValidator.getClass().getName() + ACTION_VALIDATOR_MESSAGE
+                        + action.getClass().getName());
+            }
+        } catch (ActionException e) {
+            throw e;
+        } catch (Exception cause) {
+            throw new ServiceException(cause);
+        }
+    }
+
+    private <A extends Action<R>, R extends Result> ActionValidator findActionValidator(A action)
+            throws UnsupportedActionException {
+        ActionHandlerValidatorInstance handlerValidator =
+                actionHandlerValidatorRegistry.findActionHandlerValidator(action);
+        if (handlerValidator == null) {
+            throw new UnsupportedActionException(action);
+        }
+
+        return handlerValidator.getActionValidator();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <A extends Action<R>, R extends Result> ActionHandler<A, R> findHandler(A action)
+            throws UnsupportedActionException {
+        ActionHandlerValidatorInstance handlerValidator =
+                actionHandlerValidatorRegistry.findActionHandlerValidator(action);
+        if (handlerValidator == null) {
+            throw new UnsupportedActionException(action);
+        }
+
+        return (ActionHandler<A, R>) handlerValidator.getActionHandler();
+    }
+}
@@ -21,6 +21,8 @@ import javax.inject.Singleton;
 
 import com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.cache.AbstractActionResultCache;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
 
 @Singleton
 public class DispatchImpl extends AbstractDispatchImpl {
@@ -29,4 +31,16 @@ public class DispatchImpl extends AbstractDispatchImpl {
     public DispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
         super(actionHandlerValidatorRegistry);
     }
+
+    @com.google.inject.Inject(optional = true)
+    @Override
+    public void setDispatchMetrics(DispatchMetrics dispatchMetrics) {
+        super.setDispatchMetrics(dispatchMetrics);
+    }
+
+    @com.google.inject.Inject(optional = true)
+    @Override
+    public void setActionResultCache(AbstractActionResultCache actionResultCache) {
+        super.setActionResultCache(actionResultCache);
+    }
 }
@@ -18,13 +18,17 @@ package com.gwtplatform.dispatch.rpc.server.guice;
 
 import com.google.inject.AbstractModule;
 import com.google.inject.Singleton;
+import com.gwtplatform.dispatch.rpc.server.ActionConcurrencyLimiter;
 import com.gwtplatform.dispatch.rpc.server.Dispatch;
 import com.gwtplatform.dispatch.rpc.server.RequestProvider;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.LazyActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.cache.AbstractActionResultCache;
 import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.ActionHandlerValidatorLinker;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.ActionHandlerValidatorWarmUp;
 import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.LazyActionHandlerValidatorRegistryImpl;
 import com.gwtplatform.dispatch.rpc.server.guice.request.DefaultRequestProvider;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
 
 /**
  * This module will configure the implementation for the {@link Dispatch} and {@link ActionHandlerValidatorRegistry}
@@ -35,11 +39,29 @@ import com.gwtplatform.dispatch.rpc.server.guice.request.DefaultRequestProvider;
  * If you want to override the defaults ({@link DispatchImpl}, {@link LazyActionHandlerValidatorRegistryImpl} pass
  * the override values into the constructor for this module and ensure it is installed <b>before</b> any
  * {@link HandlerModule} instances.
+ * <p/>
+ * Use {@link Builder#warmUpLazyRegistry(boolean)} to instantiate the lazy handlers and validators in the background
+ * once the injector is created, instead of on the first requests.
+ * <p/>
+ * Use {@link Builder#dispatchMetrics(Class)} to record per-action metrics, for example with
+ * {@link com.gwtplatform.dispatch.rpc.server.metrics.DefaultDispatchMetrics DefaultDispatchMetrics} which can then be
+ * served by {@link DispatchMetricsServlet}.
+ * <p/>
+ * Use {@link Builder#actionConcurrencyLimiter(ActionConcurrencyLimiter)} to limit the number of actions each client
+ * can have in progress in {@link DispatchServiceImpl}.
+ * <p/>
+ * Use {@link Builder#actionResultCache(Class)}, for example with {@link ActionResultCacheImpl}, to cache the results of
+ * actions annotated with {@link com.gwtplatform.dispatch.rpc.shared.ServerCached ServerCached}. Write handlers can
+ * inject {@link AbstractActionResultCache} to invalidate cached results.
  */
 public class DispatchModule extends AbstractModule {
     private Class<? extends Dispatch> dispatchClass;
     private Class<? extends ActionHandlerValidatorRegistry> actionHandlerValidatorRegistryClass;
     private Class<? extends RequestProvider> requestProviderClass;
+    private boolean warmUpLazyRegistry;
+    private Class<? extends DispatchMetrics> dispatchMetricsClass;
+    private ActionConcurrencyLimiter actionConcurrencyLimiter;
+    private Class<? extends AbstractActionResultCache> actionResultCacheClass;
 
     /**
      * A DispatchModule builder.
@@ -49,6 +71,10 @@ public class DispatchModule extends AbstractModule {
         private Class<? extends ActionHandlerValidatorRegistry> actionHandlerValidatorRegistryClass =
                 LazyActionHandlerValidatorRegistryImpl.class;
         private Class<? extends RequestProvider> requestProviderClass = DefaultRequestProvider.class;
+        private boolean warmUpLazyRegistry;
+        private Class<? extends DispatchMetrics> dispatchMetricsClass;
+        private ActionConcurrencyLimiter actionConcurrencyLimiter;
+        private Class<? extends AbstractActionResultCache> actionResultCacheClass;
 
         public Builder() {
         }
@@ -70,6 +96,26 @@ public class DispatchModule extends AbstractModule {
             return this;
         }
 
+        public Builder warmUpLazyRegistry(boolean warmUpLazyRegistry) {
+            this.warmUpLazyRegistry = warmUpLazyRegistry;
+            return this;
+        }
+
+        public Builder dispatchMetrics(Class<? extends DispatchMetrics> dispatchMetricsClass) {
+            this.dispatchMetricsClass = dispatchMetricsClass;
+            return this;
+        }
+
+        public Builder actionConcurrencyLimiter(ActionConcurrencyLimiter actionConcurrencyLimiter) {
+            this.actionConcurrencyLimiter = actionConcurrencyLimiter;
+            return this;
+        }
+
+        public Builder actionResultCache(Class<? extends AbstractActionResultCache> actionResultCacheClass) {
+            this.actionResultCacheClass = actionResultCacheClass;
+            return this;
+        }
+
         public DispatchModule build() {
             return new DispatchModule(this);
         }
@@ -83,6 +129,10 @@ public class DispatchModule extends AbstractModule {
         this.dispatchClass = builder.dispatchClass;
         this.actionHandlerValidatorRegistryClass = builder.actionHandlerValidatorRegistryClass;
         this.requestProviderClass = builder.requestProviderClass;
+        this.warmUpLazyRegistry = builder.warmUpLazyRegistry;
+        this.dispatchMetricsClass = builder.dispatchMetricsClass;
+        this.actionConcurrencyLimiter = builder.actionConcurrencyLimiter;
+        this.actionResultCacheClass = builder.actionResultCacheClass;
     }
 
     /**
@@ -108,9 +158,27 @@ public class DispatchModule extends AbstractModule {
         bind(Dispatch.class).to(dispatchClass).in(Singleton.class);
         bind(RequestProvider.class).to(requestProviderClass).in(Singleton.class);
 
+        if (dispatchMetricsClass != null) {
+            bind(dispatchMetricsClass).in(Singleton.class);
+            bind(DispatchMetrics.class).to(dispatchMetricsClass);
+        }
+
+        if (actionConcurrencyLimiter != null) {
+            bind(ActionConcurrencyLimiter.class).toInstance(actionConcurrencyLimiter);
+        }
+
+        if (actionResultCacheClass != null) {
+            bind(actionResultCacheClass).in(Singleton.class);
+            bind(AbstractActionResultCache.class).to(actionResultCacheClass);
+        }
+
         // This will bind registered validators and handlers to the registry lazily.
         if (LazyActionHandlerValidatorRegistry.class.isAssignableFrom(actionHandlerValidatorRegistryClass)) {
             requestStaticInjection(ActionHandlerValidatorLinker.class);
+
+            if (warmUpLazyRegistry) {
+                bind(ActionHandlerValidatorWarmUp.class).asEagerSingleton();
+            }
         }
     }
 
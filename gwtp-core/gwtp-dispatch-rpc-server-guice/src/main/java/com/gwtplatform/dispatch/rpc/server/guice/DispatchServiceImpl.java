@@ -22,6 +22,7 @@ import javax.inject.Singleton;
 
 import com.google.inject.Inject;
 import com.gwtplatform.dispatch.rpc.server.AbstractDispatchServiceImpl;
+import com.gwtplatform.dispatch.rpc.server.ActionConcurrencyLimiter;
 import com.gwtplatform.dispatch.rpc.server.Dispatch;
 import com.gwtplatform.dispatch.rpc.server.RequestProvider;
 import com.gwtplatform.dispatch.shared.SecurityCookie;
@@ -58,4 +59,10 @@ public class DispatchServiceImpl extends AbstractDispatchServiceImpl {
     public String getSecurityCookieName() {
         return securityCookieName;
     }
+
+    @Inject(optional = true)
+    @Override
+    public void setActionConcurrencyLimiter(ActionConcurrencyLimiter actionConcurrencyLimiter) {
+        super.setActionConcurrencyLimiter(actionConcurrencyLimiter);
+    }
 }
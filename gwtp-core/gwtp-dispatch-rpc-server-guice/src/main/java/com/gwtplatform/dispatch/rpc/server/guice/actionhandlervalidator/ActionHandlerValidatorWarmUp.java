@@ -0,0 +1,36 @@
+/**
+ * Copyright 2011 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator;
+
+import javax.inject.Inject;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractLazyActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+
+/**
+ * Bound as an eager singleton by {@link com.gwtplatform.dispatch.rpc.server.guice.DispatchModule DispatchModule} when
+ * the lazy registry should be warmed up. Eager singletons are created after {@link ActionHandlerValidatorLinker} ran,
+ * so every action class is registered by the time the warm-up starts.
+ */
+public class ActionHandlerValidatorWarmUp {
+    @Inject
+    ActionHandlerValidatorWarmUp(ActionHandlerValidatorRegistry registry) {
+        if (registry instanceof AbstractLazyActionHandlerValidatorRegistryImpl) {
+            ((AbstractLazyActionHandlerValidatorRegistryImpl) registry).warmUpInBackground();
+        }
+    }
+}
@@ -16,141 +16,29 @@
 
 package com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator;
 
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-
 import javax.inject.Inject;
 import javax.inject.Singleton;
 
 import com.google.inject.Injector;
-import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorClass;
-import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
-import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.LazyActionHandlerValidatorRegistry;
-import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
-import com.gwtplatform.dispatch.rpc.shared.Action;
-import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractLazyActionHandlerValidatorRegistryImpl;
 
 /**
  * This is a lazy-loading implementation of the registry. It will only create action handlers and validators when they
  * are first used. All {@link com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler} and
- * {@link ActionValidator} implementations <b>must</b> have a public, default constructor.
+ * {@link com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator} implementations <b>must</b> have a
+ * public, default constructor.
  */
 @Singleton
-public class LazyActionHandlerValidatorRegistryImpl implements
-        LazyActionHandlerValidatorRegistry {
-    private final Map<Class<? extends Action<?>>, ActionHandlerValidatorClass<? extends Action<?>,
-                ? extends Result>> actionHandlerValidatorClasses;
-    private final Map<Class<? extends Action<?>>, ActionHandlerValidatorInstance> actionHandlerValidatorInstances;
+public class LazyActionHandlerValidatorRegistryImpl extends AbstractLazyActionHandlerValidatorRegistryImpl {
     private final Injector injector;
-    private final Map<Class<? extends ActionValidator>, ActionValidator> validators;
 
     @Inject
     LazyActionHandlerValidatorRegistryImpl(Injector injector) {
         this.injector = injector;
-        actionHandlerValidatorClasses = new ConcurrentHashMap<Class<? extends Action<?>>,
-                ActionHandlerValidatorClass<? extends Action<?>, ? extends Result>>();
-        actionHandlerValidatorInstances = new ConcurrentHashMap<Class<? extends Action<?>>,
-                ActionHandlerValidatorInstance>();
-        validators = new ConcurrentHashMap<Class<? extends ActionValidator>, ActionValidator>();
-    }
-
-    @Override
-    public <A extends Action<R>, R extends Result> void addActionHandlerValidatorClass(
-            Class<A> actionClass,
-            ActionHandlerValidatorClass<A, R> actionHandlerValidatorClass) {
-        actionHandlerValidatorClasses.put(actionClass, actionHandlerValidatorClass);
-    }
-
-    @Override
-    public void clearActionHandlerValidators() {
-        actionHandlerValidatorInstances.clear();
-        validators.clear();
-    }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public <A extends Action<R>, R extends Result> ActionHandlerValidatorInstance findActionHandlerValidator(
-            A action) {
-
-        ActionHandlerValidatorInstance actionHandlerValidatorInstance = actionHandlerValidatorInstances.get(action
-                .getClass());
-
-        if (actionHandlerValidatorInstance == null) {
-            ActionHandlerValidatorClass<? extends Action<?>, ? extends Result> actionHandlerValidatorClass =
-                    actionHandlerValidatorClasses.get(action.getClass());
-            if (actionHandlerValidatorClass != null) {
-                actionHandlerValidatorInstance = createInstance(actionHandlerValidatorClass);
-                if (actionHandlerValidatorInstance != null) {
-                    actionHandlerValidatorInstances.put(
-                            (Class<? extends Action<?>>) action.getClass(),
-                            actionHandlerValidatorInstance);
-                }
-            }
-        }
-
-        return (ActionHandlerValidatorInstance) actionHandlerValidatorInstance;
-    }
-
-    @Override
-    public ActionValidator findActionValidator(
-            Class<? extends ActionValidator> actionValidatorClass) {
-        return validators.get(actionValidatorClass);
     }
 
     @Override
-    public <A extends Action<R>, R extends Result> void removeActionHandlerValidatorClass(
-            Class<A> actionClass,
-            ActionHandlerValidatorClass<A, R> actionHandlerValidatorClass) {
-
-        ActionHandlerValidatorClass<?, ?> oldActionHandlerValidatorClass = actionHandlerValidatorClasses.get(
-                actionClass);
-
-        if (oldActionHandlerValidatorClass == actionHandlerValidatorClass) {
-            actionHandlerValidatorClasses.remove(actionClass);
-            ActionHandlerValidatorInstance instance = actionHandlerValidatorInstances.remove(actionClass);
-
-            if (!containValidator(instance.getActionValidator())) {
-                validators.remove(instance.getActionValidator().getClass());
-            }
-        }
-    }
-
-    private boolean containValidator(ActionValidator actionValidator) {
-        for (ActionHandlerValidatorInstance validator : actionHandlerValidatorInstances.values()) {
-            if (validator.getActionValidator().getClass().equals(
-                    actionValidator.getClass())) {
-                return true;
-            }
-        }
-
-        return false;
-    }
-
-    private ActionHandlerValidatorInstance createInstance(
-            ActionHandlerValidatorClass<? extends Action<?>, ? extends Result> actionHandlerValidatorClass) {
-
-        ActionHandlerValidatorInstance actionHandlerValidatorInstance = null;
-        ActionValidator actionValidator = findActionValidator(actionHandlerValidatorClass.getActionValidatorClass());
-
-        if (actionValidator == null) {
-            actionValidator = injector.getInstance(actionHandlerValidatorClass.getActionValidatorClass());
-
-            actionHandlerValidatorInstance = new ActionHandlerValidatorInstance(
-                    actionValidator,
-                    injector.getInstance(actionHandlerValidatorClass.getActionHandlerClass()));
-
-            validators.put(actionValidator.getClass(), actionValidator);
-        } else {
-            actionHandlerValidatorInstance = new ActionHandlerValidatorInstance(
-                    actionValidator,
-                    injector.getInstance(actionHandlerValidatorClass.getActionHandlerClass()));
-        }
-
-        if (actionHandlerValidatorInstance.getActionHandler() == null
-                || actionHandlerValidatorInstance.getActionValidator() == null) {
-            return null;
-        }
-
-        return actionHandlerValidatorInstance;
+    protected <B> B getInstance(Class<B> clazz) {
+        return injector.getInstance(clazz);
     }
 }
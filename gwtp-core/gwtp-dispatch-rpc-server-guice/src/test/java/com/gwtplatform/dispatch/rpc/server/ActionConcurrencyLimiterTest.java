@@ -0,0 +1,72 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.server.AsyncActionHandlerTest.RemoteAction;
+import com.gwtplatform.dispatch.rpc.server.ParallelBatchActionHandlerTest.DelayedAction;
+import com.gwtplatform.dispatch.rpc.shared.ActionThrottledException;
+
+import static org.junit.Assert.fail;
+
+public class ActionConcurrencyLimiterTest {
+    @Test
+    public void clientIsLimitedAcrossActionClasses() throws ActionThrottledException {
+        ActionConcurrencyLimiter limiter = new ActionConcurrencyLimiter(1, 0, 10);
+
+        limiter.acquire("session", DelayedAction.class);
+        try {
+            limiter.acquire("session", RemoteAction.class);
+            fail();
+        } catch (ActionThrottledException e) {
+            // expected
+        }
+
+        limiter.release("session", DelayedAction.class);
+        limiter.acquire("session", RemoteAction.class);
+    }
+
+    @Test
+    public void actionClassIsLimitedAcrossClients() throws ActionThrottledException {
+        ActionConcurrencyLimiter limiter = new ActionConcurrencyLimiter(0, 1, 10);
+
+        limiter.acquire("first", DelayedAction.class);
+        limiter.acquire("second", RemoteAction.class);
+        try {
+            limiter.acquire("second", DelayedAction.class);
+            fail();
+        } catch (ActionThrottledException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void rejectedActionClassReleasesTheClientPermit() throws ActionThrottledException {
+        ActionConcurrencyLimiter limiter = new ActionConcurrencyLimiter(1, 1, 10);
+
+        limiter.acquire("first", DelayedAction.class);
+        try {
+            limiter.acquire("second", DelayedAction.class);
+            fail();
+        } catch (ActionThrottledException e) {
+            // expected
+        }
+
+        limiter.acquire("second", RemoteAction.class);
+    }
+}
@@ -0,0 +1,212 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.guice.ActionResultCacheImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.EagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.metrics.ActionStatistics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DefaultDispatchMetrics;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServerCached;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+public class ActionResultCacheTest {
+    @ServerCached(maxEntries = 2)
+    public static class ReadAction implements Action<SimpleResult<Integer>> {
+        private final int value;
+
+        ReadAction(int value) {
+            this.value = value;
+        }
+
+        @Override
+        public String getServiceName() {
+            return null;
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof ReadAction && ((ReadAction) obj).value == value;
+        }
+
+        @Override
+        public int hashCode() {
+            return value;
+        }
+    }
+
+    public static class ReadActionHandler extends AbstractActionHandler<ReadAction, SimpleResult<Integer>> {
+        private final AtomicInteger executions = new AtomicInteger();
+        private volatile CountDownLatch latch = new CountDownLatch(0);
+
+        ReadActionHandler() {
+            super(ReadAction.class);
+        }
+
+        @Override
+        public SimpleResult<Integer> execute(ReadAction action, ExecutionContext context) throws ActionException {
+            executions.incrementAndGet();
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                throw new ActionException(e);
+            }
+
+            return new SimpleResult<Integer>(action.value);
+        }
+
+        @Override
+        public void undo(ReadAction action, SimpleResult<Integer> result, ExecutionContext context) {
+        }
+    }
+
+    private static class TogglingValidator implements ActionValidator {
+        private volatile boolean valid = true;
+
+        @Override
+        public boolean isValid(Action<? extends Result> action) {
+            return valid;
+        }
+    }
+
+    private ExecutorService executorService;
+    private TogglingValidator validator;
+    private ReadActionHandler handler;
+    private ActionResultCacheImpl cache;
+    private DispatchImpl dispatch;
+
+    @Before
+    public void setUp() {
+        executorService = Executors.newFixedThreadPool(4);
+        validator = new TogglingValidator();
+        handler = new ReadActionHandler();
+
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(ReadAction.class, new ActionHandlerValidatorInstance(validator, handler));
+
+        cache = new ActionResultCacheImpl(null);
+        dispatch = new DispatchImpl(registry);
+        dispatch.setActionResultCache(cache);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void identicalActionsAreExecutedOnce() throws ActionException, ServiceException {
+        SimpleResult<Integer> first = dispatch.execute(new ReadAction(1));
+        SimpleResult<Integer> second = dispatch.execute(new ReadAction(1));
+        dispatch.execute(new ReadAction(2));
+
+        assertSame(first, second);
+        assertEquals(2, handler.executions.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void concurrentIdenticalActionsAreCoalesced() throws Exception {
+        handler.latch = new CountDownLatch(1);
+        List<Future<SimpleResult<Integer>>> futures = new ArrayList<Future<SimpleResult<Integer>>>();
+        for (int i = 0; i < 4; i++) {
+            futures.add(executorService.submit(new Callable<SimpleResult<Integer>>() {
+                @Override
+                public SimpleResult<Integer> call() throws Exception {
+                    return dispatch.execute(new ReadAction(1));
+                }
+            }));
+        }
+
+        while (cache.getCoalescedCount() + cache.getHitCount() < 3 && handler.executions.get() < 4) {
+            Thread.sleep(10);
+        }
+        handler.latch.countDown();
+
+        for (Future<SimpleResult<Integer>> future : futures) {
+            assertEquals(Integer.valueOf(1), future.get().get());
+        }
+        assertEquals(1, handler.executions.get());
+    }
+
+    @Test
+    public void invalidatedAndEvictedResultsAreExecutedAgain() throws ActionException, ServiceException {
+        dispatch.execute(new ReadAction(1));
+        cache.invalidate(new ReadAction(1));
+        dispatch.execute(new ReadAction(1));
+        assertEquals(2, handler.executions.get());
+
+        dispatch.execute(new ReadAction(2));
+        dispatch.execute(new ReadAction(3));
+        assertEquals(2, cache.size(ReadAction.class));
+    }
+
+    @Test
+    public void rejectedActionsDoNotReadTheCache() throws ActionException, ServiceException {
+        dispatch.execute(new ReadAction(1));
+
+        validator.valid = false;
+        try {
+            dispatch.execute(new ReadAction(1));
+            fail();
+        } catch (ServiceException e) {
+            assertEquals(0, cache.getHitCount());
+        }
+    }
+
+    @Test
+    public void cacheHitsAreReportedToMetrics() throws ActionException, ServiceException {
+        DefaultDispatchMetrics dispatchMetrics = new DefaultDispatchMetrics();
+        dispatch.setDispatchMetrics(dispatchMetrics);
+
+        dispatch.execute(new ReadAction(1));
+        dispatch.execute(new ReadAction(1));
+
+        ActionStatistics statistics = dispatchMetrics.getActionStatistics().get(0);
+        assertEquals(1, handler.executions.get());
+        assertEquals(2, statistics.getSuccessCount());
+    }
+}
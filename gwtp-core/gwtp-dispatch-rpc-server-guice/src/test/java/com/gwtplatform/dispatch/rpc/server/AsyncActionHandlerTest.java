@@ -0,0 +1,227 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractAsyncActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncResult;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.guice.ActionResultCacheImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.EagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionvalidator.DefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServerCached;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class AsyncActionHandlerTest {
+    public static class RemoteAction implements Action<SimpleResult<String>> {
+        private final boolean failing;
+
+        RemoteAction(boolean failing) {
+            this.failing = failing;
+        }
+
+        @Override
+        public String getServiceName() {
+            return null;
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+    }
+
+    public static class RemoteActionHandler extends AbstractAsyncActionHandler<RemoteAction, SimpleResult<String>> {
+        private final CountDownLatch release = new CountDownLatch(1);
+
+        RemoteActionHandler() {
+            super(RemoteAction.class);
+        }
+
+        @Override
+        public AsyncResult<SimpleResult<String>> executeAsync(final RemoteAction action, ExecutionContext context) {
+            final AsyncResult<SimpleResult<String>> result = new AsyncResult<SimpleResult<String>>();
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        result.fail(e);
+                        return;
+                    }
+
+                    if (action.failing) {
+                        result.fail(new IllegalStateException("Remote failure"));
+                    } else {
+                        result.complete(new SimpleResult<String>("remote"));
+                    }
+                }
+            }).start();
+            return result;
+        }
+
+        @Override
+        public void undo(RemoteAction action, SimpleResult<String> result, ExecutionContext context) {
+        }
+    }
+
+    @ServerCached
+    public static class CachedRemoteAction implements Action<SimpleResult<String>> {
+        @Override
+        public String getServiceName() {
+            return null;
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof CachedRemoteAction;
+        }
+
+        @Override
+        public int hashCode() {
+            return 0;
+        }
+    }
+
+    public static class CachedRemoteActionHandler
+            extends AbstractAsyncActionHandler<CachedRemoteAction, SimpleResult<String>> {
+        private final AtomicInteger executions = new AtomicInteger();
+
+        CachedRemoteActionHandler() {
+            super(CachedRemoteAction.class);
+        }
+
+        @Override
+        public AsyncResult<SimpleResult<String>> executeAsync(CachedRemoteAction action, ExecutionContext context) {
+            executions.incrementAndGet();
+            return AsyncResult.completed(new SimpleResult<String>("cached"));
+        }
+
+        @Override
+        public void undo(CachedRemoteAction action, SimpleResult<String> result, ExecutionContext context) {
+        }
+    }
+
+    private static class RejectingValidator implements ActionValidator {
+        @Override
+        public boolean isValid(Action<? extends Result> action) {
+            return false;
+        }
+    }
+
+    private RemoteActionHandler handler;
+    private DispatchImpl dispatch;
+
+    @Before
+    public void setUp() {
+        handler = new RemoteActionHandler();
+
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(RemoteAction.class,
+                new ActionHandlerValidatorInstance(new DefaultActionValidator(), handler));
+
+        dispatch = new DispatchImpl(registry);
+    }
+
+    @Test
+    public void executeAsyncDoesNotWaitForTheHandler() throws Exception {
+        AsyncResult<SimpleResult<String>> result = dispatch.executeAsync(new RemoteAction(false));
+
+        assertFalse(result.isDone());
+
+        handler.release.countDown();
+        assertEquals("remote", result.get(5, TimeUnit.SECONDS).get());
+    }
+
+    @Test
+    public void executeWaitsForTheHandler() throws ActionException, ServiceException {
+        handler.release.countDown();
+
+        assertEquals("remote", dispatch.execute(new RemoteAction(false)).get());
+    }
+
+    @Test
+    public void unexpectedFailureIsReportedAsServiceException() throws Exception {
+        handler.release.countDown();
+
+        try {
+            dispatch.executeAsync(new RemoteAction(true)).get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServiceException);
+            assertTrue(e.getCause().getMessage().contains("Remote failure"));
+        }
+    }
+
+    @Test
+    public void executeAsyncValidatesTheAction() throws Exception {
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(RemoteAction.class,
+                new ActionHandlerValidatorInstance(new RejectingValidator(), handler));
+        DispatchImpl rejectingDispatch = new DispatchImpl(registry);
+
+        AsyncResult<SimpleResult<String>> result = rejectingDispatch.executeAsync(new RemoteAction(false));
+
+        assertTrue(result.isDone());
+        try {
+            result.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof ServiceException);
+        }
+    }
+
+    @Test
+    public void executeAsyncReadsTheResultCache() throws Exception {
+        CachedRemoteActionHandler cachedHandler = new CachedRemoteActionHandler();
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(CachedRemoteAction.class,
+                new ActionHandlerValidatorInstance(new DefaultActionValidator(), cachedHandler));
+        DispatchImpl cachingDispatch = new DispatchImpl(registry);
+        cachingDispatch.setActionResultCache(new ActionResultCacheImpl(null));
+
+        cachingDispatch.executeAsync(new CachedRemoteAction()).get();
+        SimpleResult<String> result = cachingDispatch.executeAsync(new CachedRemoteAction()).get();
+
+        assertEquals("cached", result.get());
+        assertEquals(1, cachedHandler.executions.get());
+    }
+}
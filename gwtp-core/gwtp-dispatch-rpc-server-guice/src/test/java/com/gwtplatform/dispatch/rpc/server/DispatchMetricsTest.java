@@ -0,0 +1,130 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.server.ParallelBatchActionHandlerTest.DelayedAction;
+import com.gwtplatform.dispatch.rpc.server.ParallelBatchActionHandlerTest.DelayedActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.EagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.metrics.ActionStatistics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DefaultDispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics.Outcome;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class DispatchMetricsTest {
+    private static class TogglingValidator implements ActionValidator {
+        private boolean valid = true;
+
+        @Override
+        public boolean isValid(Action<? extends Result> action) {
+            return valid;
+        }
+    }
+
+    private TogglingValidator validator;
+    private DefaultDispatchMetrics dispatchMetrics;
+    private DispatchImpl dispatch;
+
+    @Before
+    public void setUp() {
+        validator = new TogglingValidator();
+        dispatchMetrics = new DefaultDispatchMetrics();
+
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(DelayedAction.class,
+                new ActionHandlerValidatorInstance(validator, new DelayedActionHandler()));
+
+        dispatch = new DispatchImpl(registry);
+        dispatch.setDispatchMetrics(dispatchMetrics);
+    }
+
+    @Test
+    public void outcomesAreCountedPerActionClass() throws ActionException, ServiceException {
+        dispatch.execute(new DelayedAction(1, 5, false));
+        dispatch.execute(new DelayedAction(2, 0, false));
+        try {
+            dispatch.execute(new DelayedAction(3, 0, true));
+            fail();
+        } catch (ActionException e) {
+            // expected
+        }
+        validator.valid = false;
+        try {
+            dispatch.execute(new DelayedAction(4, 0, false));
+            fail();
+        } catch (ServiceException e) {
+            // expected
+        }
+
+        List<ActionStatistics> statistics = dispatchMetrics.getActionStatistics();
+        assertEquals(1, statistics.size());
+
+        ActionStatistics delayedAction = statistics.get(0);
+        assertEquals(DelayedAction.class.getName(), delayedAction.getActionClass());
+        assertEquals(2, delayedAction.getSuccessCount());
+        assertEquals(1, delayedAction.getFailureCount());
+        assertEquals(1, delayedAction.getRejectedCount());
+        assertTrue(delayedAction.getMaxMicros() >= 5000);
+        assertTrue(delayedAction.getP99Micros() <= delayedAction.getMaxMicros());
+    }
+
+    @Test
+    public void undoOutcomesAreCounted() {
+        dispatchMetrics.onUndo(DelayedAction.class, Outcome.SUCCESS, 1000);
+        dispatchMetrics.onUndo(DelayedAction.class, Outcome.FAILURE, 1000);
+
+        ActionStatistics delayedAction = dispatchMetrics.getActionStatistics().get(0);
+        assertEquals(2, delayedAction.getUndoCount());
+        assertEquals(1, delayedAction.getUndoFailureCount());
+    }
+
+    @Test
+    public void statisticsAreExportedToJmx() throws Exception {
+        dispatch.execute(new DelayedAction(1, 0, false));
+
+        dispatchMetrics.registerMBean();
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            CompositeData[] statistics = (CompositeData[]) server.getAttribute(
+                    new ObjectName(DefaultDispatchMetrics.OBJECT_NAME), "ActionStatistics");
+
+            assertEquals(1, statistics.length);
+            assertEquals(1L, statistics[0].get("successCount"));
+        } finally {
+            dispatchMetrics.unregisterMBean();
+        }
+    }
+}
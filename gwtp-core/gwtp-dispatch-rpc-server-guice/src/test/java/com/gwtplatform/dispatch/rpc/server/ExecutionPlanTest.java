@@ -0,0 +1,182 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import org.junit.Test;
+
+import com.google.inject.Guice;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorClass;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.EagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.LazyActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionvalidator.DefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.rpc.shared.UnsupportedActionException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that the handlers resolved by {@link AbstractDispatchImpl} follow changes made to the registry after the first
+ * execution.
+ */
+public class ExecutionPlanTest {
+    public static class NameAction implements Action<SimpleResult<String>> {
+        @Override
+        public String getServiceName() {
+            return null;
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+    }
+
+    public static class OtherAction extends NameAction {
+    }
+
+    public static class FirstHandler extends AbstractActionHandler<NameAction, SimpleResult<String>> {
+        public FirstHandler() {
+            super(NameAction.class);
+        }
+
+        @Override
+        public SimpleResult<String> execute(NameAction action, ExecutionContext context) {
+            return new SimpleResult<String>(getName());
+        }
+
+        @Override
+        public void undo(NameAction action, SimpleResult<String> result, ExecutionContext context) {
+        }
+
+        String getName() {
+            return "first";
+        }
+    }
+
+    public static class SecondHandler extends FirstHandler {
+        @Override
+        String getName() {
+            return "second";
+        }
+    }
+
+    private static class SwitchableRegistry implements ActionHandlerValidatorRegistry {
+        private volatile ActionHandlerValidatorInstance instance;
+
+        @Override
+        public void clearActionHandlerValidators() {
+            instance = null;
+        }
+
+        @Override
+        public <A extends Action<R>, R extends Result> ActionHandlerValidatorInstance findActionHandlerValidator(
+                A action) {
+            return instance;
+        }
+
+        @Override
+        public ActionValidator findActionValidator(Class<? extends ActionValidator> actionValidatorClass) {
+            return null;
+        }
+    }
+
+    @Test
+    public void replacedHandlerIsExecuted() throws ActionException, ServiceException {
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(NameAction.class, createInstance(new FirstHandler()));
+        DispatchImpl dispatch = new DispatchImpl(registry);
+        assertEquals("first", dispatch.execute(new NameAction()).get());
+
+        registry.addActionHandlerValidator(NameAction.class, createInstance(new SecondHandler()));
+
+        assertEquals("second", dispatch.execute(new NameAction()).get());
+    }
+
+    @Test
+    public void removedHandlerIsNotExecuted() throws ActionException, ServiceException {
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(NameAction.class, createInstance(new FirstHandler()));
+        DispatchImpl dispatch = new DispatchImpl(registry);
+        dispatch.execute(new NameAction());
+
+        registry.removeActionHandlerValidator(NameAction.class);
+
+        assertUnsupported(dispatch);
+    }
+
+    @Test
+    public void removingAnUnknownActionKeepsTheVersion() {
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        registry.addActionHandlerValidator(NameAction.class, createInstance(new FirstHandler()));
+        int version = registry.getVersion();
+
+        registry.removeActionHandlerValidator(OtherAction.class);
+
+        assertEquals(version, registry.getVersion());
+    }
+
+    @Test
+    public void removedLazyHandlerIsNotExecuted() throws ActionException, ServiceException {
+        ActionHandlerValidatorClass<NameAction, SimpleResult<String>> handlerClass =
+                new ActionHandlerValidatorClass<NameAction, SimpleResult<String>>(FirstHandler.class,
+                        DefaultActionValidator.class);
+        LazyActionHandlerValidatorRegistryImpl registry =
+                Guice.createInjector().getInstance(LazyActionHandlerValidatorRegistryImpl.class);
+        registry.addActionHandlerValidatorClass(NameAction.class, handlerClass);
+        DispatchImpl dispatch = new DispatchImpl(registry);
+        dispatch.execute(new NameAction());
+
+        registry.removeActionHandlerValidatorClass(NameAction.class, handlerClass);
+
+        assertUnsupported(dispatch);
+    }
+
+    @Test
+    public void unversionedRegistryIsQueriedOnEveryExecution() throws ActionException, ServiceException {
+        SwitchableRegistry registry = new SwitchableRegistry();
+        registry.instance = createInstance(new FirstHandler());
+        DispatchImpl dispatch = new DispatchImpl(registry);
+        assertEquals("first", dispatch.execute(new NameAction()).get());
+
+        registry.instance = createInstance(new SecondHandler());
+
+        assertEquals("second", dispatch.execute(new NameAction()).get());
+    }
+
+    private ActionHandlerValidatorInstance createInstance(FirstHandler handler) {
+        return new ActionHandlerValidatorInstance(new DefaultActionValidator(), handler);
+    }
+
+    private void assertUnsupported(DispatchImpl dispatch) throws ActionException, ServiceException {
+        try {
+            dispatch.execute(new NameAction());
+            fail();
+        } catch (UnsupportedActionException e) {
+            // expected
+        }
+    }
+}
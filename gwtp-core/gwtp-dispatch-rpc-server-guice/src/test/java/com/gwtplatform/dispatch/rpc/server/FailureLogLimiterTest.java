@@ -0,0 +1,52 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.shared.NoResult;
+
+import static org.junit.Assert.assertEquals;
+
+public class FailureLogLimiterTest {
+    @Test
+    public void failuresAreSuppressedAfterTheLimitPerActionClass() {
+        FailureLogLimiter limiter = new FailureLogLimiter(2, 60000);
+
+        assertEquals(0, limiter.tryAcquire(SomeAction.class));
+        assertEquals(0, limiter.tryAcquire(SomeAction.class));
+        assertEquals(-1, limiter.tryAcquire(SomeAction.class));
+        assertEquals(-1, limiter.tryAcquire(SomeAction.class));
+
+        // Other action classes have their own limit
+        assertEquals(0, limiter.tryAcquire(NoResult.class));
+    }
+
+    @Test
+    public void suppressedFailuresAreReportedOnceTheWindowIsOver() throws InterruptedException {
+        FailureLogLimiter limiter = new FailureLogLimiter(1, 50);
+
+        assertEquals(0, limiter.tryAcquire(SomeAction.class));
+        assertEquals(-1, limiter.tryAcquire(SomeAction.class));
+        assertEquals(-1, limiter.tryAcquire(SomeAction.class));
+
+        Thread.sleep(100);
+
+        assertEquals(2, limiter.tryAcquire(SomeAction.class));
+        assertEquals(-1, limiter.tryAcquire(SomeAction.class));
+    }
+}
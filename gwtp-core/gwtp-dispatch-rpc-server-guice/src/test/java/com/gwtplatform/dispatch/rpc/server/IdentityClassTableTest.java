@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class IdentityClassTableTest {
+    private static final Class<?>[] KEYS = {String.class, Integer.class, Long.class, Double.class, Float.class,
+            Short.class, Byte.class, Character.class, Boolean.class, Object.class};
+
+    @Test
+    public void everyEntryIsFound() {
+        Map<Class<?>, Integer> entries = new HashMap<Class<?>, Integer>();
+        for (int i = 0; i < KEYS.length; i++) {
+            entries.put(KEYS[i], i);
+        }
+
+        IdentityClassTable<Integer> table = new IdentityClassTable<Integer>(entries);
+
+        for (int i = 0; i < KEYS.length; i++) {
+            assertEquals(Integer.valueOf(i), table.get(KEYS[i]));
+        }
+        assertNull(table.get(Number.class));
+    }
+
+    @Test
+    public void copiesAddReplaceAndRemoveEntries() {
+        Map<Class<?>, String> entries = new HashMap<Class<?>, String>();
+        entries.put(String.class, "string");
+        IdentityClassTable<String> table = new IdentityClassTable<String>(entries);
+
+        IdentityClassTable<String> added = table.with(Integer.class, "integer");
+        IdentityClassTable<String> replaced = added.with(String.class, "text");
+        IdentityClassTable<String> removed = replaced.with(Integer.class, null);
+
+        assertNull(table.get(Integer.class));
+        assertEquals("integer", added.get(Integer.class));
+        assertEquals("text", replaced.get(String.class));
+        assertEquals("integer", replaced.get(Integer.class));
+        assertNull(removed.get(Integer.class));
+        assertEquals("text", removed.get(String.class));
+    }
+}
@@ -0,0 +1,237 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractLazyActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorClass;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchModule;
+import com.gwtplatform.dispatch.rpc.server.guice.HandlerModule;
+import com.gwtplatform.dispatch.rpc.server.guice.actionvalidator.DefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.NoResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+
+public class LazyActionHandlerValidatorRegistryTest {
+    public static class OtherAction extends SomeAction {
+    }
+
+    public static class OtherActionHandler extends AbstractActionHandler<OtherAction, NoResult> {
+        @Inject
+        OtherActionHandler() {
+            super(OtherAction.class);
+        }
+
+        @Override
+        public NoResult execute(OtherAction action, ExecutionContext context) throws ActionException {
+            return new NoResult();
+        }
+
+        @Override
+        public void undo(OtherAction action, NoResult result, ExecutionContext context) throws ActionException {
+        }
+    }
+
+    /**
+     * Creates its instances through a plain injector and counts the instantiations of each class. Every instantiation
+     * is slowed down so that concurrent lookups overlap.
+     */
+    public static class CountingRegistry extends AbstractLazyActionHandlerValidatorRegistryImpl {
+        private final Injector injector = Guice.createInjector();
+        private final ConcurrentMap<Class<?>, AtomicInteger> instantiations =
+                new ConcurrentHashMap<Class<?>, AtomicInteger>();
+
+        @Override
+        protected <B> B getInstance(Class<B> clazz) {
+            AtomicInteger count = new AtomicInteger();
+            AtomicInteger previousCount = instantiations.putIfAbsent(clazz, count);
+            (previousCount == null ? count : previousCount).incrementAndGet();
+
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+
+            return injector.getInstance(clazz);
+        }
+
+        int getInstantiations(Class<?> clazz) {
+            AtomicInteger count = instantiations.get(clazz);
+            return count == null ? 0 : count.get();
+        }
+    }
+
+    private static final int THREADS = 8;
+
+    private CountingRegistry registry;
+    private ActionHandlerValidatorClass<SomeAction, NoResult> someActionHandlerClass;
+    private ExecutorService executorService;
+
+    @Before
+    public void setUp() {
+        registry = new CountingRegistry();
+        someActionHandlerClass = new ActionHandlerValidatorClass<SomeAction, NoResult>(
+                HandlerThatThrowsActionException.class, DefaultActionValidator.class);
+        registry.addActionHandlerValidatorClass(SomeAction.class, someActionHandlerClass);
+        registry.addActionHandlerValidatorClass(OtherAction.class,
+                new ActionHandlerValidatorClass<OtherAction, NoResult>(OtherActionHandler.class,
+                        DefaultActionValidator.class));
+
+        executorService = Executors.newFixedThreadPool(THREADS);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void concurrentLookupsInstantiateTheHandlerOnce() throws Exception {
+        final CountDownLatch start = new CountDownLatch(1);
+        List<Future<ActionHandlerValidatorInstance>> futures = new ArrayList<Future<ActionHandlerValidatorInstance>>();
+        for (int i = 0; i < THREADS; i++) {
+            futures.add(executorService.submit(new Callable<ActionHandlerValidatorInstance>() {
+                @Override
+                public ActionHandlerValidatorInstance call() throws InterruptedException {
+                    start.await();
+                    return registry.findActionHandlerValidator(new SomeAction());
+                }
+            }));
+        }
+        start.countDown();
+
+        ActionHandlerValidatorInstance first = futures.get(0).get();
+        for (Future<ActionHandlerValidatorInstance> future : futures) {
+            assertSame(first, future.get());
+        }
+        assertEquals(1, registry.getInstantiations(HandlerThatThrowsActionException.class));
+        assertEquals(1, registry.getInstantiations(DefaultActionValidator.class));
+        assertEquals(2, registry.getInstantiationCount());
+        assertTrue(registry.getCollisionCount() > 0);
+        assertTrue(registry.getCollisionCount() < THREADS);
+    }
+
+    @Test
+    public void countersTrackInstantiationsAndCachedLookups() {
+        registry.findActionHandlerValidator(new SomeAction());
+        registry.findActionHandlerValidator(new SomeAction());
+        registry.findActionHandlerValidator(new OtherAction());
+
+        // The validator is shared by both action classes, the second lookup of SomeAction is served from the cache
+        assertEquals(3, registry.getInstantiationCount());
+        assertEquals(1, registry.getInstantiations(DefaultActionValidator.class));
+        assertEquals(0, registry.getCollisionCount());
+    }
+
+    @Test
+    public void handlerRemovedWhileInstantiatedIsNotPublished() throws Exception {
+        Future<ActionHandlerValidatorInstance> lookup = executorService.submit(
+                new Callable<ActionHandlerValidatorInstance>() {
+                    @Override
+                    public ActionHandlerValidatorInstance call() {
+                        return registry.findActionHandlerValidator(new SomeAction());
+                    }
+                });
+        while (registry.getInstantiationCount() == 0) {
+            Thread.sleep(5);
+        }
+
+        registry.removeActionHandlerValidatorClass(SomeAction.class, someActionHandlerClass);
+        lookup.get();
+
+        assertNull(registry.findActionHandlerValidator(new SomeAction()));
+    }
+
+    @Test
+    public void warmUpInstantiatesEveryRegisteredHandler() {
+        registry.warmUp();
+
+        assertEquals(3, registry.getInstantiationCount());
+
+        registry.findActionHandlerValidator(new SomeAction());
+        registry.findActionHandlerValidator(new OtherAction());
+
+        assertEquals(3, registry.getInstantiationCount());
+    }
+
+    @Test
+    public void guiceWarmUpRunsOnceTheInjectorIsCreated() throws InterruptedException {
+        Injector injector = Guice.createInjector(
+                new HandlerModule(new DispatchModule.Builder().warmUpLazyRegistry(true).build()) {
+                    @Override
+                    protected void configureHandlers() {
+                        bindHandler(SomeAction.class, HandlerThatThrowsActionException.class);
+                    }
+                },
+                new AbstractModule() {
+                    @Override
+                    protected void configure() {
+                        bind(HttpServletRequest.class).toInstance(mock(HttpServletRequest.class));
+                    }
+                });
+
+        AbstractLazyActionHandlerValidatorRegistryImpl lazyRegistry =
+                (AbstractLazyActionHandlerValidatorRegistryImpl) injector.getInstance(
+                        ActionHandlerValidatorRegistry.class);
+
+        awaitInstantiations(lazyRegistry, 2);
+        lazyRegistry.findActionHandlerValidator(new SomeAction());
+
+        assertEquals(2, lazyRegistry.getInstantiationCount());
+    }
+
+    /**
+     * Waits for a background warm-up to instantiate {@code expected} handlers and validators.
+     */
+    static void awaitInstantiations(AbstractLazyActionHandlerValidatorRegistryImpl lazyRegistry, long expected)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lazyRegistry.getInstantiationCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, lazyRegistry.getInstantiationCount());
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AbstractActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ParallelBatchActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionhandlervalidator.EagerActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.guice.actionvalidator.DefaultActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.BatchAction;
+import com.gwtplatform.dispatch.rpc.shared.BatchResult;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.rpc.shared.SimpleResult;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParallelBatchActionHandlerTest {
+    public static class DelayedAction implements Action<SimpleResult<Integer>> {
+        private final int value;
+        private final long delayMillis;
+        private final boolean failing;
+
+        DelayedAction(int value, long delayMillis, boolean failing) {
+            this.value = value;
+            this.delayMillis = delayMillis;
+            this.failing = failing;
+        }
+
+        @Override
+        public String getServiceName() {
+            return null;
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+    }
+
+    public static class TestBatchAction extends BatchAction {
+        TestBatchAction(OnException onException, Action<?>... actions) {
+            super(onException, actions);
+        }
+
+        @Override
+        public String getServiceName() {
+            return null;
+        }
+
+        @Override
+        public boolean isSecured() {
+            return false;
+        }
+    }
+
+    public static class DelayedActionHandler extends AbstractActionHandler<DelayedAction, SimpleResult<Integer>> {
+        private final List<Integer> executed = Collections.synchronizedList(new ArrayList<Integer>());
+        private final List<Integer> undone = Collections.synchronizedList(new ArrayList<Integer>());
+
+        DelayedActionHandler() {
+            super(DelayedAction.class);
+        }
+
+        @Override
+        public SimpleResult<Integer> execute(DelayedAction action, ExecutionContext context) throws ActionException {
+            executed.add(action.value);
+            try {
+                Thread.sleep(action.delayMillis);
+            } catch (InterruptedException e) {
+                throw new ActionException(e);
+            }
+
+            if (action.failing) {
+                throw new ActionException("Failing action " + action.value);
+            }
+
+            return new SimpleResult<Integer>(action.value);
+        }
+
+        @Override
+        public void undo(DelayedAction action, SimpleResult<Integer> result, ExecutionContext context) {
+            undone.add(result.get());
+        }
+    }
+
+    private ExecutorService executorService;
+    private DelayedActionHandler delayedActionHandler;
+    private Dispatch dispatch;
+
+    @Before
+    public void setUp() {
+        // Two threads so that a batch of three actions has to queue one of them
+        executorService = Executors.newFixedThreadPool(2);
+        delayedActionHandler = new DelayedActionHandler();
+
+        EagerActionHandlerValidatorRegistryImpl registry = new EagerActionHandlerValidatorRegistryImpl();
+        DefaultActionValidator validator = new DefaultActionValidator();
+        registry.addActionHandlerValidator(DelayedAction.class,
+                new ActionHandlerValidatorInstance(validator, delayedActionHandler));
+        registry.addActionHandlerValidator(TestBatchAction.class,
+                new ActionHandlerValidatorInstance(validator, new ParallelBatchActionHandler(executorService)));
+
+        dispatch = new DispatchImpl(registry);
+    }
+
+    @After
+    public void tearDown() {
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void resultsAreInActionOrder() throws ActionException, ServiceException {
+        BatchResult result = dispatch.execute(new TestBatchAction(BatchAction.OnException.CONTINUE,
+                new DelayedAction(1, 200, false),
+                new DelayedAction(2, 0, false),
+                new DelayedAction(3, 100, false)));
+
+        List<Result> results = result.getResults();
+        assertEquals(3, results.size());
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(Integer.valueOf(i + 1), ((SimpleResult<?>) results.get(i)).get());
+        }
+    }
+
+    @Test
+    public void failedActionHasNullResultOnContinue() throws ActionException, ServiceException {
+        BatchResult result = dispatch.execute(new TestBatchAction(BatchAction.OnException.CONTINUE,
+                new DelayedAction(1, 0, true),
+                new DelayedAction(2, 0, false)));
+
+        assertNull(result.getResults().get(0));
+        assertEquals(Integer.valueOf(2), ((SimpleResult<?>) result.getResults().get(1)).get());
+    }
+
+    @Test
+    public void completedActionsAreUndoneInReverseCompletionOrderOnRollback() throws ServiceException {
+        try {
+            dispatch.execute(new TestBatchAction(BatchAction.OnException.ROLLBACK,
+                    new DelayedAction(1, 150, false),
+                    new DelayedAction(2, 0, false),
+                    new DelayedAction(3, 300, true)));
+            fail();
+        } catch (ActionException e) {
+            assertTrue(e.getMessage().contains("Failing action 3"));
+        }
+
+        List<Integer> undone = delayedActionHandler.undone;
+        assertEquals(2, undone.size());
+        assertEquals(Integer.valueOf(1), undone.get(0));
+        assertEquals(Integer.valueOf(2), undone.get(1));
+    }
+
+    @Test
+    public void queuedActionsAreSkippedAsSoonAsAnActionFailsOnRollback() throws ServiceException {
+        try {
+            dispatch.execute(new TestBatchAction(BatchAction.OnException.ROLLBACK,
+                    new DelayedAction(1, 300, false),
+                    new DelayedAction(2, 0, true),
+                    new DelayedAction(3, 0, false)));
+            fail();
+        } catch (ActionException e) {
+            assertTrue(e.getMessage().contains("Failing action 2"));
+        }
+
+        assertFalse(delayedActionHandler.executed.contains(3));
+        assertEquals(Collections.singletonList(1), delayedActionHandler.undone);
+    }
+}
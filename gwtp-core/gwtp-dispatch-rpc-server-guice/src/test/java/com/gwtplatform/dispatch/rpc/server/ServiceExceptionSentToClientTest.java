@@ -0,0 +1,78 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import javax.inject.Inject;
+
+import org.jukito.JukitoModule;
+import org.jukito.JukitoRunner;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.guice.DispatchServiceImpl;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+@RunWith(JukitoRunner.class)
+public class ServiceExceptionSentToClientTest {
+    public static class MyModule extends JukitoModule {
+        @Override
+        protected void configureTest() {
+            install(new ServiceModule(RejectingValidator.class));
+        }
+    }
+
+    public static class RejectingValidator implements ActionValidator {
+        @Override
+        public boolean isValid(Action<? extends Result> action) {
+            return false;
+        }
+    }
+
+    @Inject
+    DispatchServiceImpl service;
+
+    @Test
+    public void clientReceivesAPlainServiceException() throws ActionException {
+        ServiceException first = executeRejected();
+        ServiceException second = executeRejected();
+
+        assertEquals(ServiceException.class, first.getClass());
+        assertNull(first.getCause());
+        assertEquals(0, first.getStackTrace().length);
+        // Every rejection gets its own exception, callers may modify it
+        assertNotSame(first, second);
+    }
+
+    private ServiceException executeRejected() throws ActionException {
+        try {
+            service.execute("", new SomeAction());
+            fail();
+        } catch (ServiceException e) {
+            return e;
+        }
+        return null;
+    }
+}
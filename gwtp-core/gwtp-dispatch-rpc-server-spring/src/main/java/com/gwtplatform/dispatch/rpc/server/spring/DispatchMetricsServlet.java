@@ -0,0 +1,49 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.spring;
+
+import java.io.IOException;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.HttpRequestHandler;
+
+import com.gwtplatform.dispatch.rpc.server.metrics.AbstractDispatchMetricsServlet;
+import com.gwtplatform.dispatch.rpc.server.metrics.DefaultDispatchMetrics;
+
+/**
+ * Serves the {@link DefaultDispatchMetrics} as JSON. Declare a {@link DefaultDispatchMetrics} bean so that
+ * {@link DispatchModule} passes it to the dispatch, then expose this handler, for example through an
+ * {@link org.springframework.web.context.support.HttpRequestHandlerServlet HttpRequestHandlerServlet}.
+ */
+public class DispatchMetricsServlet extends AbstractDispatchMetricsServlet implements HttpRequestHandler {
+    private static final long serialVersionUID = 6208519374622910475L;
+
+    @Autowired
+    public DispatchMetricsServlet(DefaultDispatchMetrics dispatchMetrics) {
+        super(dispatchMetrics);
+    }
+
+    @Override
+    public void handleRequest(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        doGet(request, response);
+    }
+}
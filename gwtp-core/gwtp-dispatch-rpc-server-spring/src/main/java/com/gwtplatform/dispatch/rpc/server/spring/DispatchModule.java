@@ -17,23 +17,48 @@
 package com.gwtplatform.dispatch.rpc.server.spring;
 
 import java.util.List;
+import java.util.Map;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
+import org.springframework.context.ApplicationListener;
 import org.springframework.context.annotation.Bean;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.context.support.PropertySourcesPlaceholderConfigurer;
 
+import com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl;
+import com.gwtplatform.dispatch.rpc.server.AbstractDispatchServiceImpl;
+import com.gwtplatform.dispatch.rpc.server.ActionConcurrencyLimiter;
 import com.gwtplatform.dispatch.rpc.server.Dispatch;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractLazyActionHandlerValidatorRegistryImpl;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.LazyActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.cache.AbstractActionResultCache;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
 import com.gwtplatform.dispatch.rpc.server.spring.actionhandlervalidator.ActionHandlerValidatorLinker;
 import com.gwtplatform.dispatch.rpc.server.spring.actionhandlervalidator.LazyActionHandlerValidatorRegistryImpl;
 import com.gwtplatform.dispatch.rpc.server.spring.utils.SpringUtils;
 
-public class DispatchModule {
+/**
+ * Configures the {@link Dispatch} and {@link ActionHandlerValidatorRegistry} beans. Call
+ * {@link #setWarmUpLazyRegistry(boolean)} to instantiate the lazy handlers and validators in the background once the
+ * application context is refreshed, instead of on the first requests.
+ * <p/>
+ * If the context contains a single {@link DispatchMetrics} bean, for example a
+ * {@link com.gwtplatform.dispatch.rpc.server.metrics.DefaultDispatchMetrics DefaultDispatchMetrics}, it is passed to
+ * the {@link Dispatch}. Likewise, a single {@link AbstractActionResultCache} bean, for example an
+ * {@link ActionResultCacheImpl}, caches the results of actions annotated with
+ * {@link com.gwtplatform.dispatch.rpc.shared.ServerCached ServerCached}.
+ * <p/>
+ * Call {@link #setActionConcurrencyLimiter(ActionConcurrencyLimiter)} to limit the number of actions each client can
+ * have in progress in the {@link DispatchServiceImpl}.
+ */
+public class DispatchModule implements ApplicationListener<ContextRefreshedEvent> {
 
     private final Class<? extends Dispatch> dispatchClass;
     private final Class<? extends ActionHandlerValidatorRegistry> lazyActionHandlerValidatorRegistryClass;
+    private boolean warmUpLazyRegistry;
+    private ActionConcurrencyLimiter actionConcurrencyLimiter;
 
     @Autowired
     private ApplicationContext context;
@@ -60,6 +85,32 @@ public class DispatchModule {
         this.handlerModules = handlerModules;
     }
 
+    public void setWarmUpLazyRegistry(boolean warmUpLazyRegistry) {
+        this.warmUpLazyRegistry = warmUpLazyRegistry;
+    }
+
+    public void setActionConcurrencyLimiter(ActionConcurrencyLimiter actionConcurrencyLimiter) {
+        this.actionConcurrencyLimiter = actionConcurrencyLimiter;
+    }
+
+    @Override
+    public void onApplicationEvent(ContextRefreshedEvent event) {
+        if (actionConcurrencyLimiter != null) {
+            Map<String, AbstractDispatchServiceImpl> dispatchServices =
+                    context.getBeansOfType(AbstractDispatchServiceImpl.class);
+            for (AbstractDispatchServiceImpl dispatchService : dispatchServices.values()) {
+                dispatchService.setActionConcurrencyLimiter(actionConcurrencyLimiter);
+            }
+        }
+
+        if (warmUpLazyRegistry) {
+            ActionHandlerValidatorRegistry registry = context.getBean(ActionHandlerValidatorRegistry.class);
+            if (registry instanceof AbstractLazyActionHandlerValidatorRegistryImpl) {
+                ((AbstractLazyActionHandlerValidatorRegistryImpl) registry).warmUpInBackground();
+            }
+        }
+    }
+
     @Bean
     public ActionHandlerValidatorRegistry getActionHandlerValidatorRegistry() {
         for (HandlerModule handlerModule : handlerModules) {
@@ -85,6 +136,18 @@ public class DispatchModule {
     @Bean
     public Dispatch getDispatch() {
         Dispatch instance = SpringUtils.getOrCreate(context, dispatchClass);
+
+        Map<String, DispatchMetrics> dispatchMetrics = context.getBeansOfType(DispatchMetrics.class);
+        if (instance instanceof AbstractDispatchImpl && dispatchMetrics.size() == 1) {
+            ((AbstractDispatchImpl) instance).setDispatchMetrics(dispatchMetrics.values().iterator().next());
+        }
+
+        Map<String, AbstractActionResultCache> actionResultCaches =
+                context.getBeansOfType(AbstractActionResultCache.class);
+        if (instance instanceof AbstractDispatchImpl && actionResultCaches.size() == 1) {
+            ((AbstractDispatchImpl) instance).setActionResultCache(actionResultCaches.values().iterator().next());
+        }
+
         return instance;
     }
 }
@@ -21,14 +21,26 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+import org.springframework.beans.BeansException;
+import org.springframework.beans.factory.BeanFactoryUtils;
 import org.springframework.context.ApplicationContext;
 
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorLinkerHelper.BeanProvider;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorLinkerHelper.CommonBindingDescriptor;
-
 import com.gwtplatform.dispatch.rpc.server.spring.utils.SpringUtils;
 
+/**
+ * {@link BeanProvider} backed by an {@link ApplicationContext}. The bean name matching a class is resolved once and
+ * cached, later lookups go straight to {@link ApplicationContext#getBean(String, Class)}. The scope of the bean is
+ * still honoured: prototype-scoped handlers get a new instance on every call.
+ * <p/>
+ * Classes matching zero or several beans are not cached and are resolved by type every time, so the usual Spring
+ * errors are still reported. Use {@link #getHitCount()} and {@link #getMissCount()} to monitor the cache.
+ */
 public class SpringBeanProvider implements BeanProvider {
 
     /**
@@ -41,15 +53,56 @@ public class SpringBeanProvider implements BeanProvider {
         }
     }
 
-    private ApplicationContext applicationContext;
+    private final ApplicationContext applicationContext;
+    private final ConcurrentMap<Class<?>, String> beanNames;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
 
     public SpringBeanProvider(ApplicationContext applicationContext) {
         this.applicationContext = applicationContext;
+        this.beanNames = new ConcurrentHashMap<Class<?>, String>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
     }
 
     @Override
-    public <B> B getInstance(Class<B> clazz) {
-        return SpringUtils.getInstance(applicationContext, clazz);
+    public <B> B getInstance(Class<B> clazz) throws BeansException {
+        String beanName = beanNames.get(clazz);
+
+        if (beanName != null) {
+            hitCount.incrementAndGet();
+            return applicationContext.getBean(beanName, clazz);
+        }
+
+        missCount.incrementAndGet();
+        String[] candidates = BeanFactoryUtils.beanNamesForTypeIncludingAncestors(applicationContext, clazz);
+        if (candidates.length != 1) {
+            return SpringUtils.getInstance(applicationContext, clazz);
+        }
+
+        beanNames.putIfAbsent(clazz, candidates[0]);
+        return applicationContext.getBean(candidates[0], clazz);
+    }
+
+    /**
+     * Forgets the resolved bean names. Call this if beans are registered after the context is refreshed.
+     */
+    public void clearCache() {
+        beanNames.clear();
+    }
+
+    /**
+     * @return The number of lookups served from the bean name cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of lookups that had to resolve the bean name by type.
+     */
+    public long getMissCount() {
+        return missCount.get();
     }
 
     @Override
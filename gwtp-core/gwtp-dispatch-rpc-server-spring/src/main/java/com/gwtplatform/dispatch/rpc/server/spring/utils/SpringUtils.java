@@ -18,10 +18,10 @@ package com.gwtplatform.dispatch.rpc.server.spring.utils;
 
 import org.springframework.beans.BeansException;
 import org.springframework.beans.factory.BeanDefinitionStoreException;
+import org.springframework.beans.factory.config.AutowireCapableBeanFactory;
 import org.springframework.beans.factory.config.BeanDefinition;
 import org.springframework.beans.factory.config.ConfigurableListableBeanFactory;
 import org.springframework.beans.factory.support.AbstractBeanDefinition;
-import org.springframework.beans.factory.support.DefaultListableBeanFactory;
 import org.springframework.beans.factory.support.RootBeanDefinition;
 import org.springframework.context.ApplicationContext;
 import org.springframework.context.support.GenericApplicationContext;
@@ -43,10 +43,9 @@ public class SpringUtils {
     @SuppressWarnings("unchecked")
     public static <B> B instantiate(ApplicationContext applicationContext,
             Class<B> clazz) throws BeansException {
-        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory(
-                applicationContext);
+        AutowireCapableBeanFactory beanFactory = applicationContext.getAutowireCapableBeanFactory();
         return (B) beanFactory.createBean(clazz,
-                AbstractBeanDefinition.AUTOWIRE_CONSTRUCTOR, false);
+                AutowireCapableBeanFactory.AUTOWIRE_CONSTRUCTOR, false);
     }
 
     public static <B> void registerBean(ApplicationContext applicationContext,
@@ -65,9 +64,7 @@ public class SpringUtils {
 
     public static <B> B getInstance(ApplicationContext applicationContext,
             Class<B> clazz) throws BeansException {
-        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory(
-                applicationContext);
-        return beanFactory.getBean(clazz);
+        return applicationContext.getBean(clazz);
     }
 
     private static <B> RootBeanDefinition createBeanDefinition(B instance) {
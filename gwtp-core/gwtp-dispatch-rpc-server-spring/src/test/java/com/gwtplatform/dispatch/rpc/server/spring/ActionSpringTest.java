@@ -16,10 +16,16 @@
 
 package com.gwtplatform.dispatch.rpc.server.spring;
 
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
 import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.event.ContextRefreshedEvent;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.test.context.support.AnnotationConfigContextLoader;
@@ -27,6 +33,9 @@ import org.springframework.test.context.support.AnnotationConfigContextLoader;
 import com.gwtplatform.dispatch.rpc.server.ActionTestBase;
 import com.gwtplatform.dispatch.rpc.server.Dispatch;
 import com.gwtplatform.dispatch.rpc.server.actionhandler.TestAnnotatedActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.AbstractLazyActionHandlerValidatorRegistryImpl;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorMap;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
 import com.gwtplatform.dispatch.rpc.shared.ServiceException;
 import com.gwtplatform.dispatch.rpc.shared.action.TestAnnotatedAction;
 import com.gwtplatform.dispatch.rpc.shared.action.TestResult;
@@ -41,6 +50,12 @@ public class ActionSpringTest extends ActionTestBase {
 
     @Autowired
     private Dispatch dispatchService;
+    @Autowired
+    private ApplicationContext applicationContext;
+    @Autowired
+    private DispatchModule dispatchModule;
+    @Autowired
+    private ActionHandlerValidatorRegistry registry;
 
     @Test
     public void testAction() throws ActionException, ServiceException {
@@ -53,4 +68,49 @@ public class ActionSpringTest extends ActionTestBase {
         TestResult result = dispatchService.execute(action);
         Assert.assertTrue("Invalid action result! Processing error occured", result.getResult());
     }
+
+    @Test
+    public void testBeanProviderCachesBeanNames() {
+        SpringBeanProvider beanProvider = new SpringBeanProvider(applicationContext);
+
+        TestAnnotatedActionHandler first = beanProvider.getInstance(TestAnnotatedActionHandler.class);
+        TestAnnotatedActionHandler second = beanProvider.getInstance(TestAnnotatedActionHandler.class);
+
+        Assert.assertSame(first, second);
+        Assert.assertEquals(1, beanProvider.getMissCount());
+        Assert.assertEquals(1, beanProvider.getHitCount());
+    }
+
+    @Test
+    public void testWarmUpOnContextRefresh() throws InterruptedException {
+        AbstractLazyActionHandlerValidatorRegistryImpl lazyRegistry =
+                (AbstractLazyActionHandlerValidatorRegistryImpl) registry;
+        lazyRegistry.clearActionHandlerValidators();
+        long expectedCount = lazyRegistry.getInstantiationCount() + countHandlersAndValidators();
+
+        dispatchModule.setWarmUpLazyRegistry(true);
+        try {
+            dispatchModule.onApplicationEvent(new ContextRefreshedEvent(applicationContext));
+        } finally {
+            dispatchModule.setWarmUpLazyRegistry(false);
+        }
+
+        // Every registered handler and validator is instantiated in the background
+        long deadline = System.currentTimeMillis() + 5000;
+        while (lazyRegistry.getInstantiationCount() < expectedCount && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(expectedCount, lazyRegistry.getInstantiationCount());
+    }
+
+    private int countHandlersAndValidators() {
+        Collection<ActionHandlerValidatorMap> maps =
+                applicationContext.getBeansOfType(ActionHandlerValidatorMap.class).values();
+        Set<Class<?>> validatorClasses = new HashSet<Class<?>>();
+        for (ActionHandlerValidatorMap<?, ?> map : maps) {
+            validatorClasses.add(map.getActionHandlerValidatorClass().getActionValidatorClass());
+        }
+
+        return maps.size() + validatorClasses.size();
+    }
 }
@@ -16,14 +16,24 @@
 
 package com.gwtplatform.dispatch.rpc.server;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler;
 import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionResult;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandler.AsyncResult;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
 import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorRegistry;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.VersionedActionHandlerValidatorRegistry;
 import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.server.cache.AbstractActionResultCache;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics;
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics.Outcome;
+import com.gwtplatform.dispatch.rpc.server.metrics.NoOpDispatchMetrics;
 import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.BatchAction;
 import com.gwtplatform.dispatch.rpc.shared.Result;
 import com.gwtplatform.dispatch.rpc.shared.ServiceException;
 import com.gwtplatform.dispatch.rpc.shared.UnsupportedActionException;
@@ -46,6 +56,11 @@ import com.gwtplatform.dispatch.shared.ActionException;
  */
 public abstract class AbstractDispatchImpl implements Dispatch {
 
+    /**
+     * Logs executed actions so they can be rolled back. The log is synchronized since handlers such as
+     * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.ParallelBatchActionHandler} execute sub-actions from
+     * multiple threads; actions are logged in the order they complete.
+     */
     private static class DefaultExecutionContext implements ExecutionContext {
 
         private final List<ActionResult<?, ?>> actionResults;
@@ -53,12 +68,12 @@ public abstract class AbstractDispatchImpl implements Dispatch {
 
         private DefaultExecutionContext(AbstractDispatchImpl dispatch) {
             this.dispatch = dispatch;
-            this.actionResults = new java.util.ArrayList<ActionResult<?, ?>>();
+            this.actionResults = Collections.synchronizedList(new ArrayList<ActionResult<?, ?>>());
         }
 
         @Override
         public <A extends Action<R>, R extends Result> R execute(A action) throws ActionException, ServiceException {
-            R result = dispatch.doExecute(action, this);
+            R result = dispatch.doExecute(action, this, null);
             actionResults.add(new ActionResult<A, R>(action, result, true));
             return result;
         }
@@ -66,7 +81,7 @@ public abstract class AbstractDispatchImpl implements Dispatch {
         @Override
         public <A extends Action<R>, R extends Result> void undo(A action, R result) throws ActionException,
                 ServiceException {
-            dispatch.doExecute(action, this);
+            dispatch.doExecute(action, this, null);
             actionResults.add(new ActionResult<A, R>(action, result, false));
         }
 
@@ -78,9 +93,15 @@ public abstract class AbstractDispatchImpl implements Dispatch {
          */
         private void rollback() throws ActionException, ServiceException {
             DefaultExecutionContext ctx = new DefaultExecutionContext(dispatch);
-            for (int i = actionResults.size() - 1; i >= 0; i--) {
-                ActionResult<?, ?> actionResult = actionResults.get(i);
-                rollback(actionResult, ctx);
+            int actionCount = actionResults.size();
+            long start = System.nanoTime();
+            try {
+                for (int i = actionCount - 1; i >= 0; i--) {
+                    ActionResult<?, ?> actionResult = actionResults.get(i);
+                    rollback(actionResult, ctx);
+                }
+            } finally {
+                dispatch.dispatchMetrics.onRollback(actionCount, System.nanoTime() - start);
             }
         }
 
@@ -90,24 +111,56 @@ public abstract class AbstractDispatchImpl implements Dispatch {
             if (actionResult.isExecuted()) {
                 dispatch.doUndo(actionResult.getAction(), actionResult.getResult(), ctx);
             } else {
-                dispatch.doExecute(actionResult.getAction(), ctx);
+                dispatch.doExecute(actionResult.getAction(), ctx, null);
             }
         }
     }
 
-    private static final String actionValidatorMessage = " couldn't allow access to action : ";
-
     private final ActionHandlerValidatorRegistry actionHandlerValidatorRegistry;
+    /**
+     * Read on every execution and written once per action class and registry version, so plans are kept in an
+     * immutable table replaced on every change.
+     */
+    private volatile IdentityClassTable<ActionExecutionPlan> executionPlans;
+    private final Object executionPlansLock = new Object();
+    private volatile DispatchMetrics dispatchMetrics;
+    private volatile AbstractActionResultCache actionResultCache;
 
     protected AbstractDispatchImpl(ActionHandlerValidatorRegistry actionHandlerValidatorRegistry) {
         this.actionHandlerValidatorRegistry = actionHandlerValidatorRegistry;
+        this.executionPlans = new IdentityClassTable<ActionExecutionPlan>(
+                Collections.<Class<?>, ActionExecutionPlan>emptyMap());
+        this.dispatchMetrics = new NoOpDispatchMetrics();
+    }
+
+    /**
+     * Sets the listener notified around every execution, undo and rollback. Metrics are disabled by default.
+     *
+     * @param dispatchMetrics The {@link DispatchMetrics}, or {@code null} to disable metrics.
+     */
+    public void setDispatchMetrics(DispatchMetrics dispatchMetrics) {
+        this.dispatchMetrics = dispatchMetrics == null ? new NoOpDispatchMetrics() : dispatchMetrics;
+    }
+
+    /**
+     * Sets the cache used for the results of actions annotated with
+     * {@link com.gwtplatform.dispatch.rpc.shared.ServerCached ServerCached}. Only actions executed through
+     * {@link #execute(Action)} are cached, not the sub-actions they execute. Results are not cached by default.
+     * <p/>
+     * The {@link ActionValidator} of an action is called before its result is looked up, and results served from the
+     * cache are reported to the {@link DispatchMetrics} like any other execution.
+     *
+     * @param actionResultCache The {@link AbstractActionResultCache}, or {@code null} to disable caching.
+     */
+    public void setActionResultCache(AbstractActionResultCache actionResultCache) {
+        this.actionResultCache = actionResultCache;
     }
 
     @Override
     public <A extends Action<R>, R extends Result> R execute(A action) throws ActionException, ServiceException {
         DefaultExecutionContext ctx = new DefaultExecutionContext(this);
         try {
-            return doExecute(action, ctx);
+            return doExecute(action, ctx, actionResultCache);
         } catch (ActionException e) {
             ctx.rollback();
             throw e;
@@ -117,6 +170,59 @@ public abstract class AbstractDispatchImpl implements Dispatch {
         }
     }
 
+    /**
+     * Executes the specified action without waiting for {@link AsyncActionHandler}s to complete. Other handlers are
+     * executed synchronously and their outcome is returned as an already completed {@link AsyncResult}. The action is
+     * validated, and executed sub-actions are rolled back when the action fails, as with {@link #execute(Action)}.
+     * Actions whose results are cached always go through the cache: on a miss, their handler is executed
+     * synchronously.
+     * <p/>
+     * The dispatch services of GWTP process calls synchronously and use {@link #execute(Action)}. This method is meant
+     * for services that can complete a response later, such as a Servlet 3 service written by the application. Such a
+     * service is responsible for the security cookie checks done by {@link AbstractDispatchServiceImpl}.
+     * <p/>
+     * The returned result fails with an {@link ActionException} or a {@link ServiceException}.
+     *
+     * @param <A>    The {@link Action} type.
+     * @param <R>    The {@link Result} type.
+     * @param action The {@link Action}.
+     * @return The pending result of the action.
+     */
+    public <A extends Action<R>, R extends Result> AsyncResult<R> executeAsync(A action) {
+        final DefaultExecutionContext ctx = new DefaultExecutionContext(this);
+        final AsyncResult<R> dispatchResult = new AsyncResult<R>();
+
+        AsyncResult<R> handlerResult;
+        try {
+            handlerResult = doExecuteAsync(action, ctx);
+        } catch (ActionException e) {
+            handlerResult = AsyncResult.failed(e);
+        } catch (ServiceException e) {
+            handlerResult = AsyncResult.failed(e);
+        }
+
+        handlerResult.addListener(new AsyncResult.Listener<R>() {
+            @Override
+            public void onSuccess(R result) {
+                dispatchResult.complete(result);
+            }
+
+            @Override
+            public void onFailure(Throwable caught) {
+                try {
+                    ctx.rollback();
+                    dispatchResult.fail(caught);
+                } catch (ActionException e) {
+                    dispatchResult.fail(e);
+                } catch (ServiceException e) {
+                    dispatchResult.fail(e);
+                }
+            }
+        });
+
+        return dispatchResult;
+    }
+
     @Override
     public <A extends Action<R>, R extends Result> void undo(A action, R result) throws ActionException,
             ServiceException {
@@ -139,75 +245,179 @@ public abstract class AbstractDispatchImpl implements Dispatch {
      * @param <R>    Type of associated {@link Result} type.
      * @param action The {@link Action} to execute
      * @param ctx    The {@link ExecutionContext} associated with the {@link Action}
+     * @param cache  The cache of the results of valid actions, or {@code null} to always execute the handler
      * @return The {@link Result} to the client
      * @throws ActionException
      * @throws ServiceException
      */
-    private <A extends Action<R>, R extends Result> R doExecute(A action,
-            ExecutionContext ctx) throws ActionException, ServiceException {
-        ActionHandler<A, R> handler = findHandler(action);
+    private <A extends Action<R>, R extends Result> R doExecute(A action, ExecutionContext ctx,
+            AbstractActionResultCache cache) throws ActionException, ServiceException {
+        ActionExecutionPlan plan = findExecutionPlan(action);
+        ActionHandler<A, R> handler = plan.getActionHandler();
+        DispatchMetrics metrics = dispatchMetrics;
 
-        ActionValidator actionValidator = findActionValidator(action);
+        if (action instanceof BatchAction) {
+            metrics.onBatch(action.getClass(), ((BatchAction) action).getActions().length);
+        }
 
+        Outcome outcome = Outcome.FAILURE;
+        long start = System.nanoTime();
         try {
-            if (actionValidator.isValid(action)) {
-                return handler.execute(action, ctx);
+            if (plan.getActionValidator().isValid(action)) {
+                R result;
+                if (cache == null || !cache.isCached(action.getClass())) {
+                    result = handler.execute(action, ctx);
+                } else {
+                    result = executeCached(cache, handler, action, ctx);
+                }
+                outcome = Outcome.SUCCESS;
+                return result;
             } else {
-                throw new ServiceException(actionValidator.getClass().getName() + actionValidatorMessage + action
-                        .getClass().getName());
+                outcome = Outcome.REJECTED;
+                throw plan.createExecuteRejection();
             }
         } catch (ActionException e) {
             throw e;
+        } catch (LightweightServiceException e) {
+            // Only thrown by the dispatch itself, already in its final form
+            throw e;
         } catch (Exception e) {
-            String newMessage = "Service exception executing action \"" + action.getClass().getSimpleName() + "\", " +
-                    "" + e.toString();
-            ServiceException rethrown = new ServiceException(newMessage);
-            rethrown.initCause(e);
-            throw rethrown;
+            throw new LightweightServiceException(plan.getServiceExceptionPrefix() + e.toString(), e);
+        } finally {
+            metrics.onExecute(action.getClass(), outcome, System.nanoTime() - start);
         }
     }
 
-    private <A extends Action<R>, R extends Result> void doUndo(A action, R result,
+    private <A extends Action<R>, R extends Result> R executeCached(AbstractActionResultCache cache,
+            final ActionHandler<A, R> handler, final A action, final ExecutionContext ctx)
+            throws ActionException, ServiceException {
+        return cache.execute(action, new AbstractActionResultCache.Execution<R>() {
+            @Override
+            public R execute() throws ActionException {
+                return handler.execute(action, ctx);
+            }
+        });
+    }
+
+    private <A extends Action<R>, R extends Result> AsyncResult<R> doExecuteAsync(A action,
             ExecutionContext ctx) throws ActionException, ServiceException {
+        final ActionExecutionPlan plan = findExecutionPlan(action);
+        ActionHandler<A, R> handler = plan.getActionHandler();
+        AbstractActionResultCache cache = actionResultCache;
+
+        if (!(handler instanceof AsyncActionHandler) || (cache != null && cache.isCached(action.getClass()))) {
+            return AsyncResult.completed(doExecute(action, ctx, cache));
+        }
 
-        ActionValidator actionValidator = findActionValidator(action);
+        final Class<?> actionClass = action.getClass();
+        final DispatchMetrics metrics = dispatchMetrics;
+        final long start = System.nanoTime();
+        final AsyncResult<R> result = new AsyncResult<R>();
+        AsyncResult<R> handlerResult;
+        try {
+            if (!plan.getActionValidator().isValid(action)) {
+                metrics.onExecute(actionClass, Outcome.REJECTED, System.nanoTime() - start);
+                throw plan.createExecuteRejection();
+            }
+            handlerResult = ((AsyncActionHandler<A, R>) handler).executeAsync(action, ctx);
+        } catch (ServiceException e) {
+            throw e;
+        } catch (ActionException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            handlerResult = AsyncResult.failed(e);
+        }
+
+        handlerResult.addListener(new AsyncResult.Listener<R>() {
+            @Override
+            public void onSuccess(R handlerValue) {
+                metrics.onExecute(actionClass, Outcome.SUCCESS, System.nanoTime() - start);
+                result.complete(handlerValue);
+            }
+
+            @Override
+            public void onFailure(Throwable caught) {
+                metrics.onExecute(actionClass, Outcome.FAILURE, System.nanoTime() - start);
+                if (caught instanceof ActionException || caught instanceof ServiceException) {
+                    result.fail(caught);
+                } else {
+                    result.fail(new LightweightServiceException(plan.getServiceExceptionPrefix() + caught, caught));
+                }
+            }
+        });
+
+        return result;
+    }
+
+    private <A extends Action<R>, R extends Result> void doUndo(A action, R result,
+            ExecutionContext ctx) throws ActionException, ServiceException {
+        ActionExecutionPlan plan = findExecutionPlan(action);
+        ActionHandler<A, R> handler = plan.getActionHandler();
+        DispatchMetrics metrics = dispatchMetrics;
 
-        ActionHandler<A, R> handler = findHandler(action);
+        Outcome outcome = Outcome.FAILURE;
+        long start = System.nanoTime();
         try {
-            if (actionValidator.isValid(action)) {
+            if (plan.getActionValidator().isValid(action)) {
                 handler.undo(action, result, ctx);
+                outcome = Outcome.SUCCESS;
             } else {
-                throw new ServiceException(actionValidator.getClass().getName() + actionValidatorMessage + action
-                        .getClass().getName());
+                outcome = Outcome.REJECTED;
+                throw plan.createUndoRejection();
             }
         } catch (ActionException e) {
             throw e;
+        } catch (LightweightServiceException e) {
+            // Only thrown by the dispatch itself, already in its final form
+            throw e;
         } catch (Exception cause) {
-            throw new ServiceException(cause);
+            throw new LightweightServiceException(cause.getMessage(), cause);
+        } finally {
+            metrics.onUndo(action.getClass(), outcome, System.nanoTime() - start);
         }
     }
 
-    private <A extends Action<R>, R extends Result> ActionValidator findActionValidator(A action) throws
-            UnsupportedActionException {
+    /**
+     * Returns the plan of the action's class. Plans resolved from a {@link VersionedActionHandlerValidatorRegistry} are
+     * reused until the version of the registry changes. Other registries are queried every time, and the plan is only
+     * reused if the registry still returns the same handler and validator.
+     * <p/>
+     * A reused plan costs two volatile reads: the plan table and the version of the registry. Neither takes a lock.
+     */
+    private <A extends Action<R>, R extends Result> ActionExecutionPlan findExecutionPlan(A action)
+            throws UnsupportedActionException {
+        Class<?> actionClass = action.getClass();
+        ActionExecutionPlan plan = executionPlans.get(actionClass);
+
+        int registryVersion = 0;
+        if (actionHandlerValidatorRegistry instanceof VersionedActionHandlerValidatorRegistry) {
+            // Read the version before the registry, a concurrent change then invalidates the plan we create
+            registryVersion = ((VersionedActionHandlerValidatorRegistry) actionHandlerValidatorRegistry).getVersion();
+            if (plan != null && plan.getRegistryVersion() == registryVersion) {
+                return plan;
+            }
+        }
+
         ActionHandlerValidatorInstance handlerValidator =
                 actionHandlerValidatorRegistry.findActionHandlerValidator(action);
         if (handlerValidator == null) {
+            if (plan != null) {
+                putExecutionPlan(actionClass, null);
+            }
             throw new UnsupportedActionException(action);
         }
 
-        return handlerValidator.getActionValidator();
-    }
+        if (plan == null || plan.getRegistryVersion() != registryVersion || !plan.uses(handlerValidator)) {
+            plan = new ActionExecutionPlan(actionClass, handlerValidator, registryVersion);
+            putExecutionPlan(actionClass, plan);
+        }
 
-    @SuppressWarnings("unchecked")
-    private <A extends Action<R>, R extends Result> ActionHandler<A, R> findHandler(A action)
-            throws UnsupportedActionException {
-        ActionHandlerValidatorInstance handlerValidator =
-                actionHandlerValidatorRegistry.findActionHandlerValidator(action);
+        return plan;
+    }
 
-        if (handlerValidator == null) {
-            throw new UnsupportedActionException(action);
+    private void putExecutionPlan(Class<?> actionClass, ActionExecutionPlan plan) {
+        synchronized (executionPlansLock) {
+            executionPlans = executionPlans.with(actionClass, plan);
         }
-
-        return (ActionHandler<A, R>) handlerValidator.getActionHandler();
     }
 }
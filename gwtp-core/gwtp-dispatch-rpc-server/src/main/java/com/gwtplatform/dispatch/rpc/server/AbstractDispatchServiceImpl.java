@@ -21,9 +21,11 @@ import java.util.logging.Logger;
 
 import javax.servlet.http.Cookie;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
 
 import com.google.gwt.user.server.rpc.RemoteServiceServlet;
 import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.ActionThrottledException;
 import com.gwtplatform.dispatch.rpc.shared.DispatchService;
 import com.gwtplatform.dispatch.rpc.shared.Result;
 import com.gwtplatform.dispatch.rpc.shared.ServiceException;
@@ -51,9 +53,14 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
     private static final String xsrfAttackMessage = "Cookie provided by RPC doesn't match request cookie, " +
             "aborting action, possible XSRF attack. (Maybe you forgot to set " +
             "the security cookie?)";
+    private static final int MAX_LOGGED_FAILURES_PER_WINDOW = 10;
+    private static final long FAILURE_LOG_WINDOW_MILLIS = 60000;
     protected final Dispatch dispatch;
     protected final Logger logger;
     protected RequestProvider requestProvider;
+    private final FailureLogLimiter failureLogLimiter =
+            new FailureLogLimiter(MAX_LOGGED_FAILURES_PER_WINDOW, FAILURE_LOG_WINDOW_MILLIS);
+    private volatile ActionConcurrencyLimiter actionConcurrencyLimiter;
 
     protected AbstractDispatchServiceImpl(Logger logger,
                                           Dispatch dispatch,
@@ -67,49 +74,99 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
         return null;
     }
 
+    /**
+     * Limits the number of actions executed concurrently per client and per action class. Clients are identified by
+     * their HTTP session, or by their security cookie when they have no session. No limit is applied by default.
+     *
+     * @param actionConcurrencyLimiter The {@link ActionConcurrencyLimiter}, or {@code null} to disable the limits.
+     */
+    public void setActionConcurrencyLimiter(ActionConcurrencyLimiter actionConcurrencyLimiter) {
+        this.actionConcurrencyLimiter = actionConcurrencyLimiter;
+    }
+
     /**
      * {@link ActionException} and {@link ServiceException} will have their stacktraces (and stacktraces of their
      * causes) removed for security purposes.
+     * <p/>
+     * At most 10 failures are logged per action class and minute, the next logged failure reports how many were
+     * skipped.
+     * <p/>
+     * If an {@link ActionConcurrencyLimiter} is set, actions exceeding its limits fail with an
+     * {@link ActionThrottledException} without being executed.
      *
      * @see DispatchService DispatchService for further API docs
      */
     @Override
     public Result execute(String cookieSentByRPC, Action<?> action) throws ActionException, ServiceException {
+        checkSecurityCookie(cookieSentByRPC, action);
+
+        ActionConcurrencyLimiter limiter = actionConcurrencyLimiter;
+        if (limiter == null) {
+            return doExecute(action);
+        }
 
+        String clientKey = acquire(limiter, cookieSentByRPC, action);
+        try {
+            return doExecute(action);
+        } finally {
+            limiter.release(clientKey, action.getClass());
+        }
+    }
+
+    private void checkSecurityCookie(String cookieSentByRPC, Action<?> action) throws ServiceException {
         if (action.isSecured() && !cookieMatch(cookieSentByRPC)) {
             String message = xsrfAttackMessage + " While executing action: " + action.getClass().getName();
 
             logger.severe(message);
             throw new ServiceException(message);
         }
+    }
+
+    private String acquire(ActionConcurrencyLimiter limiter, String cookieSentByRPC, Action<?> action)
+            throws ActionThrottledException {
+        String clientKey = getClientKey(cookieSentByRPC);
+        try {
+            limiter.acquire(clientKey, action.getClass());
+        } catch (ActionThrottledException e) {
+            logFailure("Throttled ", action, e);
+            throw e;
+        }
 
+        return clientKey;
+    }
+
+    private Result doExecute(Action<?> action) throws ActionException, ServiceException {
         try {
             return dispatch.execute(action);
         } catch (ActionException e) {
-            if (logger.isLoggable(Level.WARNING)) {
-                String newMessage = "Action exception while executing " + action.getClass().getName() + ": " +
-                        e.getMessage();
-                logger.log(Level.WARNING, newMessage, e);
-            }
+            throw (ActionException) toClientFailure(action, e);
+        } catch (ServiceException e) {
+            throw (ServiceException) toClientFailure(action, e);
+        } catch (RuntimeException e) {
+            throw (ServiceException) toClientFailure(action, e);
+        }
+    }
 
-            removeStacktraces(e);
+    /**
+     * Logs a failure of {@code action} and returns the exception sent to the client: {@link ActionException}s without
+     * their stack traces, and {@link ServiceException}s for anything else.
+     */
+    private Exception toClientFailure(Action<?> action, Throwable caught) {
+        if (caught instanceof ActionException) {
+            logFailure("Action exception while executing ", action, caught);
 
-            throw e;
-        } catch (ServiceException e) {
-            if (logger.isLoggable(Level.WARNING)) {
-                logger.log(Level.WARNING, "Service exception while executing " + action.getClass().getName() + ": " +
-                        e.getMessage(), e);
-            }
+            removeStacktraces(caught);
 
-            throw new ServiceException(e.getMessage());
-        } catch (RuntimeException e) {
-            if (logger.isLoggable(Level.WARNING)) {
-                logger.log(Level.WARNING, "Unexpected exception while executing " + action.getClass().getName() + ": " +
-                        "" + e.getMessage(), e);
-            }
+            return (ActionException) caught;
+        } else if (caught instanceof ServiceException) {
+            logFailure("Service exception while executing ", action, caught);
 
-            throw new ServiceException(e.getMessage());
+            return toClientException((ServiceException) caught);
         }
+
+        logFailure("Unexpected exception while executing ", action, caught);
+
+        return new ServiceException(caught.getMessage());
     }
 
     @Override
@@ -126,15 +183,15 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
         try {
             dispatch.undo(action, result);
         } catch (ActionException e) {
-            logger.warning("Action exception while undoing " + action.getClass().getName() + ": " + e.getMessage());
+            logFailure("Action exception while undoing ", action, e);
 
             throw new ActionException(e.getMessage());
         } catch (ServiceException e) {
-            logger.warning("Service exception while undoing " + action.getClass().getName() + ": " + e.getMessage());
+            logFailure("Service exception while undoing ", action, e);
 
-            throw new ServiceException(e.getMessage());
+            throw toClientException(e);
         } catch (RuntimeException e) {
-            logger.warning("Unexpected exception while undoing " + action.getClass().getName() + ": " + e.getMessage());
+            logFailure("Unexpected exception while undoing ", action, e);
 
             throw new ServiceException(e.getMessage());
         }
@@ -183,6 +240,38 @@ public abstract class AbstractDispatchServiceImpl extends RemoteServiceServlet i
         return cookieInRequest.equals(cookieSentByRPC);
     }
 
+    private String getClientKey(String cookieSentByRPC) {
+        HttpSession session = requestProvider.getServletRequest().getSession(false);
+
+        return session == null ? cookieSentByRPC : session.getId();
+    }
+
+    private void logFailure(String prefix, Action<?> action, Throwable e) {
+        if (!logger.isLoggable(Level.WARNING)) {
+            return;
+        }
+
+        long suppressed = failureLogLimiter.tryAcquire(action.getClass());
+        if (suppressed >= 0) {
+            String message = prefix + action.getClass().getName() + ": " + e.getMessage();
+            if (suppressed > 0) {
+                message += " (" + suppressed + " similar failures were not logged)";
+            }
+            logger.log(Level.WARNING, message, e);
+        }
+    }
+
+    /**
+     * Creates the {@link ServiceException} sent to the client, without the cause or the stack trace of the original.
+     */
+    private ServiceException toClientException(ServiceException e) {
+        if (e instanceof LightweightServiceException) {
+            return ((LightweightServiceException) e).getClientException();
+        }
+
+        return new ServiceException(e.getMessage());
+    }
+
     /**
      * Recursively removes all stacktraces from a Throwable and its cause
      */
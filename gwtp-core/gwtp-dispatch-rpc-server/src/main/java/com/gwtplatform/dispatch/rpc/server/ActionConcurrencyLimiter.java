@@ -0,0 +1,147 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.gwtplatform.dispatch.rpc.shared.ActionThrottledException;
+
+/**
+ * Admission control for {@link AbstractDispatchServiceImpl}: limits how many actions are in progress per client and
+ * per action class. A call that exceeds a limit waits at most {@code maxWaitMillis} for a running action to complete,
+ * then fails with an {@link ActionThrottledException} without being executed.
+ * <p/>
+ * Clients are identified by a key, usually their HTTP session. Client keys are hashed onto a fixed number of striped
+ * semaphores, so that memory does not grow with the number of sessions; two clients sharing a stripe share its limit.
+ * Use enough stripes to make that unlikely among the clients active at the same time.
+ */
+public class ActionConcurrencyLimiter {
+    public static final int DEFAULT_STRIPES = 1024;
+
+    private final int maxActionsPerActionClass;
+    private final long maxWaitMillis;
+    private final Semaphore[] clientStripes;
+    private final ConcurrentMap<Class<?>, Semaphore> actionClassSemaphores;
+
+    /**
+     * @param maxActionsPerClient      The number of actions a client can have in progress, {@code 0} for no limit.
+     * @param maxActionsPerActionClass The number of actions of the same class in progress for all clients together,
+     *                                 {@code 0} for no limit.
+     * @param maxWaitMillis            How long a call exceeding a limit waits before being rejected.
+     */
+    public ActionConcurrencyLimiter(int maxActionsPerClient, int maxActionsPerActionClass, long maxWaitMillis) {
+        this(maxActionsPerClient, maxActionsPerActionClass, maxWaitMillis, DEFAULT_STRIPES);
+    }
+
+    public ActionConcurrencyLimiter(int maxActionsPerClient, int maxActionsPerActionClass, long maxWaitMillis,
+            int stripes) {
+        this.maxActionsPerActionClass = maxActionsPerActionClass;
+        this.maxWaitMillis = maxWaitMillis;
+        this.actionClassSemaphores = new ConcurrentHashMap<Class<?>, Semaphore>();
+
+        if (maxActionsPerClient > 0) {
+            clientStripes = new Semaphore[stripes];
+            for (int i = 0; i < stripes; i++) {
+                clientStripes[i] = new Semaphore(maxActionsPerClient);
+            }
+        } else {
+            clientStripes = null;
+        }
+    }
+
+    /**
+     * Waits until the action can be executed. Every successful call must be followed by a call to
+     * {@link #release(String, Class)} with the same arguments.
+     *
+     * @param clientKey   Identifies the client, or {@code null} if it is unknown. Unknown clients are only limited per
+     *                    action class.
+     * @param actionClass The class of the action to execute.
+     * @throws ActionThrottledException If a limit is still exceeded after waiting.
+     */
+    public void acquire(String clientKey, Class<?> actionClass) throws ActionThrottledException {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMillis);
+
+        Semaphore clientSemaphore = getClientSemaphore(clientKey);
+        if (clientSemaphore != null && !tryAcquire(clientSemaphore, deadline)) {
+            throw new ActionThrottledException("Too many actions in progress for this client, "
+                    + actionClass.getName() + " was not executed");
+        }
+
+        Semaphore actionClassSemaphore = getActionClassSemaphore(actionClass);
+        if (actionClassSemaphore != null && !tryAcquire(actionClassSemaphore, deadline)) {
+            if (clientSemaphore != null) {
+                clientSemaphore.release();
+            }
+            throw new ActionThrottledException("Too many " + actionClass.getName()
+                    + " actions in progress, the action was not executed");
+        }
+    }
+
+    public void release(String clientKey, Class<?> actionClass) {
+        Semaphore actionClassSemaphore = getActionClassSemaphore(actionClass);
+        if (actionClassSemaphore != null) {
+            actionClassSemaphore.release();
+        }
+
+        Semaphore clientSemaphore = getClientSemaphore(clientKey);
+        if (clientSemaphore != null) {
+            clientSemaphore.release();
+        }
+    }
+
+    private boolean tryAcquire(Semaphore semaphore, long deadline) {
+        if (semaphore.tryAcquire()) {
+            return true;
+        }
+
+        try {
+            return semaphore.tryAcquire(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private Semaphore getClientSemaphore(String clientKey) {
+        if (clientStripes == null || clientKey == null) {
+            return null;
+        }
+
+        int hash = clientKey.hashCode() * 0x9E3779B9;
+        return clientStripes[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % clientStripes.length];
+    }
+
+    private Semaphore getActionClassSemaphore(Class<?> actionClass) {
+        if (maxActionsPerActionClass <= 0) {
+            return null;
+        }
+
+        Semaphore semaphore = actionClassSemaphores.get(actionClass);
+        if (semaphore == null) {
+            semaphore = new Semaphore(maxActionsPerActionClass);
+            Semaphore existingSemaphore = actionClassSemaphores.putIfAbsent(actionClass, semaphore);
+            if (existingSemaphore != null) {
+                semaphore = existingSemaphore;
+            }
+        }
+
+        return semaphore;
+    }
+}
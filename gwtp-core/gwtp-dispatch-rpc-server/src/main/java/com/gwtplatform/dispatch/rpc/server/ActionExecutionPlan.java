@@ -0,0 +1,103 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionhandlervalidator.ActionHandlerValidatorInstance;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+
+/**
+ * The resolved {@link ActionHandler} and {@link ActionValidator} for a given {@link Action} class. Plans are immutable
+ * and cached by {@link AbstractDispatchImpl} until the registry they were resolved from changes. The messages used
+ * when the action fails are built once, when the plan is created. Validator rejections are reported with a new
+ * {@link LightweightServiceException} per call, which is cheap since it captures no stack trace.
+ */
+final class ActionExecutionPlan {
+    private static final String ACTION_VALIDATOR_MESSAGE = " couldn't allow access to action : ";
+
+    private final ActionHandler<?, ?> actionHandler;
+    private final ActionValidator actionValidator;
+    private final String serviceExceptionPrefix;
+    private final String executeRejectionMessage;
+    private final String undoRejectionMessage;
+    private final int registryVersion;
+
+    /**
+     * @param registryVersion The version of the registry {@code actionHandlerValidatorInstance} was read from, or
+     *                        {@code 0} if the registry is not versioned.
+     */
+    ActionExecutionPlan(Class<?> actionClass, ActionHandlerValidatorInstance actionHandlerValidatorInstance,
+            int registryVersion) {
+        this.actionHandler = actionHandlerValidatorInstance.getActionHandler();
+        this.actionValidator = actionHandlerValidatorInstance.getActionValidator();
+        this.serviceExceptionPrefix = "Service exception executing action \"" + actionClass.getSimpleName() + "\", ";
+
+        String validatorRejectionMessage = actionValidator.getClass().getName() + ACTION_VALIDATOR_MESSAGE
+                + actionClass.getName();
+        // Rejected executions used to be wrapped like any other failure, keep the message clients already see
+        this.executeRejectionMessage = serviceExceptionPrefix + ServiceException.class.getName() + ": "
+                + validatorRejectionMessage;
+        this.undoRejectionMessage = validatorRejectionMessage;
+        this.registryVersion = registryVersion;
+    }
+
+    int getRegistryVersion() {
+        return registryVersion;
+    }
+
+    /**
+     * @return {@code true} if this plan executes the handler and validator of {@code actionHandlerValidatorInstance}.
+     */
+    boolean uses(ActionHandlerValidatorInstance actionHandlerValidatorInstance) {
+        return actionHandler == actionHandlerValidatorInstance.getActionHandler()
+                && actionValidator == actionHandlerValidatorInstance.getActionValidator();
+    }
+
+    @SuppressWarnings("unchecked")
+    <A extends Action<R>, R extends Result> ActionHandler<A, R> getActionHandler() {
+        return (ActionHandler<A, R>) actionHandler;
+    }
+
+    ActionValidator getActionValidator() {
+        return actionValidator;
+    }
+
+    /**
+     * @return A new exception to throw when the {@link ActionValidator} doesn't allow the action to be executed.
+     */
+    LightweightServiceException createExecuteRejection() {
+        return new LightweightServiceException(executeRejectionMessage);
+    }
+
+    /**
+     * @return A new exception to throw when the {@link ActionValidator} doesn't allow the action to be undone.
+     */
+    LightweightServiceException createUndoRejection() {
+        return new LightweightServiceException(undoRejectionMessage);
+    }
+
+    /**
+     * @return The prefix of the message used when the handler fails with an exception other than an
+     *         {@link com.gwtplatform.dispatch.shared.ActionException ActionException}.
+     */
+    String getServiceExceptionPrefix() {
+        return serviceExceptionPrefix;
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how many failures are logged per action class in a time window, so that a failure storm does not spend its
+ * time building and writing log messages. The windows are approximate: concurrent failures may exceed the limit by a
+ * few entries when a window starts.
+ */
+class FailureLogLimiter {
+    private static class Window {
+        private final AtomicLong start = new AtomicLong(System.currentTimeMillis());
+        private final AtomicInteger count = new AtomicInteger();
+        private final AtomicLong suppressed = new AtomicLong();
+    }
+
+    private final int maxPerWindow;
+    private final long windowMillis;
+    private final ConcurrentMap<Class<?>, Window> windows;
+
+    FailureLogLimiter(int maxPerWindow, long windowMillis) {
+        this.maxPerWindow = maxPerWindow;
+        this.windowMillis = windowMillis;
+        this.windows = new ConcurrentHashMap<Class<?>, Window>();
+    }
+
+    /**
+     * @return {@code -1} if the failure must not be logged, otherwise the number of failures of that action class that
+     *         were not logged since the last logged one.
+     */
+    long tryAcquire(Class<?> actionClass) {
+        Window window = getWindow(actionClass);
+
+        long now = System.currentTimeMillis();
+        long start = window.start.get();
+        if (now - start >= windowMillis && window.start.compareAndSet(start, now)) {
+            window.count.set(0);
+        }
+
+        if (window.count.incrementAndGet() <= maxPerWindow) {
+            return window.suppressed.getAndSet(0);
+        }
+
+        window.suppressed.incrementAndGet();
+        return -1;
+    }
+
+    private Window getWindow(Class<?> actionClass) {
+        Window window = windows.get(actionClass);
+
+        if (window == null) {
+            window = new Window();
+            Window existingWindow = windows.putIfAbsent(actionClass, window);
+            if (existingWindow != null) {
+                window = existingWindow;
+            }
+        }
+
+        return window;
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * Immutable open-addressed table mapping classes to values, compared by identity. Lookups hash the class with
+ * {@link System#identityHashCode(Object)} and probe linearly in a table at most half full, so a lookup usually reads a
+ * single slot and never calls {@code equals}. All fields are final: a table can be shared between threads without
+ * synchronization. Tables are updated by copying them with {@link #with(Class, Object)}, which suits tables read on
+ * every request but rarely written.
+ *
+ * @param <V> The type of the values.
+ */
+final class IdentityClassTable<V> {
+    private static final int MIN_CAPACITY = 4;
+
+    private final Class<?>[] keys;
+    private final Object[] values;
+    private final int mask;
+
+    IdentityClassTable(Map<? extends Class<?>, ? extends V> entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries.size() * 2) {
+            capacity <<= 1;
+        }
+
+        keys = new Class<?>[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+
+        for (Entry<? extends Class<?>, ? extends V> entry : entries.entrySet()) {
+            int index = indexOf(entry.getKey());
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+
+            keys[index] = entry.getKey();
+            values[index] = entry.getValue();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Class<?> key) {
+        int index = indexOf(key);
+
+        Class<?> candidate;
+        while ((candidate = keys[index]) != null) {
+            if (candidate == key) {
+                return (V) values[index];
+            }
+            index = (index + 1) & mask;
+        }
+
+        return null;
+    }
+
+    /**
+     * @return A copy of this table where {@code key} is mapped to {@code value}, or not mapped if {@code value} is
+     *         {@code null}.
+     */
+    @SuppressWarnings("unchecked")
+    IdentityClassTable<V> with(Class<?> key, V value) {
+        Map<Class<?>, V> entries = new HashMap<Class<?>, V>();
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                entries.put(keys[i], (V) values[i]);
+            }
+        }
+
+        if (value == null) {
+            entries.remove(key);
+        } else {
+            entries.put(key, value);
+        }
+
+        return new IdentityClassTable<V>(entries);
+    }
+
+    private int indexOf(Class<?> key) {
+        int hash = System.identityHashCode(key) * 0x9E3779B9;
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+}
@@ -0,0 +1,62 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server;
+
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+
+/**
+ * A {@link ServiceException} created by the dispatch that does not capture a stack trace. The failure it reports is
+ * either a validator rejection, where the stack trace carries no information, or another exception kept as its cause
+ * with its own stack trace. Skipping {@link #fillInStackTrace()} keeps failure storms, such as a validator rejecting a
+ * flood of calls, from being dominated by stack walking.
+ * <p/>
+ * This class is not known by the client, {@link AbstractDispatchServiceImpl} sends {@link #getClientException()} to
+ * the client instead.
+ */
+public class LightweightServiceException extends ServiceException {
+    private static final long serialVersionUID = 5260128604658916434L;
+
+    private transient volatile ServiceException clientException;
+
+    public LightweightServiceException(String message) {
+        super(message);
+    }
+
+    public LightweightServiceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+        return this;
+    }
+
+    /**
+     * @return A plain {@link ServiceException} with the same message, without cause or stack trace, that can be sent
+     *         to the client. It is created once per instance.
+     */
+    public ServiceException getClientException() {
+        ServiceException exception = clientException;
+        if (exception == null) {
+            exception = new ServiceException(getMessage());
+            exception.setStackTrace(new StackTraceElement[0]);
+            clientException = exception;
+        }
+
+        return exception;
+    }
+}
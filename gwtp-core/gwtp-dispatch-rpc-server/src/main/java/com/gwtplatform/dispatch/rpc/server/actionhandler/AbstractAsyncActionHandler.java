@@ -0,0 +1,60 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandler;
+
+import java.util.concurrent.ExecutionException;
+
+import com.gwtplatform.dispatch.rpc.server.ExecutionContext;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Simple abstract super-class for {@link AsyncActionHandler} implementations. {@link #execute(Action,
+ * ExecutionContext)} blocks the calling thread until {@link #executeAsync(Action, ExecutionContext)} completes, so the
+ * handler can also be used by the synchronous dispatch.
+ *
+ * @param <A> The {@link Action} type.
+ * @param <R> The {@link Result} type.
+ */
+public abstract class AbstractAsyncActionHandler<A extends Action<R>, R extends Result>
+        extends AbstractActionHandler<A, R> implements AsyncActionHandler<A, R> {
+
+    public AbstractAsyncActionHandler(Class<A> actionType) {
+        super(actionType);
+    }
+
+    @Override
+    public R execute(A action, ExecutionContext context) throws ActionException {
+        try {
+            return executeAsync(action, context).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ActionException(e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof ActionException) {
+                throw (ActionException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new ActionException(cause);
+        }
+    }
+}
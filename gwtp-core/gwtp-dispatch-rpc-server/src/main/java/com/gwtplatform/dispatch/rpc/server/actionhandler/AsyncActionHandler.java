@@ -0,0 +1,46 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandler;
+
+import com.gwtplatform.dispatch.rpc.server.ExecutionContext;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+
+/**
+ * An {@link ActionHandler} that does not need to hold the calling thread while the action runs, for example because it
+ * waits on a remote service. The dispatch calls {@link #executeAsync(Action, ExecutionContext)} when executing through
+ * {@link com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl#executeAsync(Action)}.
+ * <p/>
+ * The dispatch services of GWTP process calls synchronously and use {@link #execute(Action, ExecutionContext)}, which
+ * in {@link AbstractAsyncActionHandler} waits for the asynchronous result: the request thread stays busy. Threads are
+ * only released by a service that completes responses later, such as a Servlet 3 service written by the application.
+ *
+ * @param <A> The type of the action extending {@link Action}.
+ * @param <R> The type of the result extending {@link Result}.
+ */
+public interface AsyncActionHandler<A extends Action<R>, R extends Result> extends ActionHandler<A, R> {
+    /**
+     * Starts handling the specified action and returns immediately. Failures should be reported through
+     * {@link AsyncResult#fail(Throwable)}, {@link com.gwtplatform.dispatch.shared.ActionException ActionException}s are
+     * passed to the client as-is.
+     *
+     * @param action  The action.
+     * @param context The {@link ExecutionContext}. It remains usable until the returned result is completed.
+     * @return The pending {@link Result}.
+     */
+    AsyncResult<R> executeAsync(A action, ExecutionContext context);
+}
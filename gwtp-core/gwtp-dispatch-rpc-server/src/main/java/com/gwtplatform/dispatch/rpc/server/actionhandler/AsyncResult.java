@@ -0,0 +1,184 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The pending outcome of an {@link AsyncActionHandler}. The handler completes it from any thread with
+ * {@link #complete(Object)} or {@link #fail(Throwable)}, only the first outcome is kept. Listeners registered with
+ * {@link #addListener(Listener)} are notified on the completing thread, or immediately if the outcome is already
+ * known.
+ * <p/>
+ * Cancellation is not supported: {@link #cancel(boolean)} always returns {@code false}.
+ *
+ * @param <R> The type of the result.
+ */
+public class AsyncResult<R> implements Future<R> {
+    /**
+     * Notified once the {@link AsyncResult} is completed.
+     *
+     * @param <R> The type of the result.
+     */
+    public interface Listener<R> {
+        void onSuccess(R result);
+
+        void onFailure(Throwable caught);
+    }
+
+    private static final Logger logger = Logger.getLogger(AsyncResult.class.getName());
+
+    private final CountDownLatch latch = new CountDownLatch(1);
+    private final List<Listener<? super R>> listeners = new ArrayList<Listener<? super R>>();
+    private boolean done;
+    private R result;
+    private Throwable failure;
+
+    /**
+     * @return An {@link AsyncResult} already completed with {@code result}.
+     */
+    public static <R> AsyncResult<R> completed(R result) {
+        AsyncResult<R> asyncResult = new AsyncResult<R>();
+        asyncResult.complete(result);
+        return asyncResult;
+    }
+
+    /**
+     * @return An {@link AsyncResult} that already failed with {@code caught}.
+     */
+    public static <R> AsyncResult<R> failed(Throwable caught) {
+        AsyncResult<R> asyncResult = new AsyncResult<R>();
+        asyncResult.fail(caught);
+        return asyncResult;
+    }
+
+    /**
+     * @return {@code true} if this call set the outcome, {@code false} if it was already set.
+     */
+    public boolean complete(R result) {
+        return setOutcome(result, null);
+    }
+
+    /**
+     * @return {@code true} if this call set the outcome, {@code false} if it was already set.
+     */
+    public boolean fail(Throwable caught) {
+        if (caught == null) {
+            throw new NullPointerException("caught");
+        }
+
+        return setOutcome(null, caught);
+    }
+
+    public void addListener(Listener<? super R> listener) {
+        synchronized (this) {
+            if (!done) {
+                listeners.add(listener);
+                return;
+            }
+        }
+
+        notifyListener(listener);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        return false;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return false;
+    }
+
+    @Override
+    public synchronized boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public R get() throws InterruptedException, ExecutionException {
+        latch.await();
+        return getOutcome();
+    }
+
+    @Override
+    public R get(long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
+        if (!latch.await(timeout, unit)) {
+            throw new TimeoutException();
+        }
+
+        return getOutcome();
+    }
+
+    private boolean setOutcome(R result, Throwable failure) {
+        List<Listener<? super R>> toNotify;
+        synchronized (this) {
+            if (done) {
+                return false;
+            }
+
+            this.done = true;
+            this.result = result;
+            this.failure = failure;
+            toNotify = new ArrayList<Listener<? super R>>(listeners);
+            listeners.clear();
+        }
+
+        latch.countDown();
+        for (Listener<? super R> listener : toNotify) {
+            notifyListener(listener);
+        }
+
+        return true;
+    }
+
+    private synchronized R getOutcome() throws ExecutionException {
+        if (failure != null) {
+            throw new ExecutionException(failure);
+        }
+
+        return result;
+    }
+
+    private void notifyListener(Listener<? super R> listener) {
+        R currentResult;
+        Throwable currentFailure;
+        synchronized (this) {
+            currentResult = result;
+            currentFailure = failure;
+        }
+
+        try {
+            if (currentFailure == null) {
+                listener.onSuccess(currentResult);
+            } else {
+                listener.onFailure(currentFailure);
+            }
+        } catch (RuntimeException e) {
+            logger.log(Level.WARNING, "Listener of an asynchronous action result failed", e);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import com.gwtplatform.dispatch.rpc.server.ExecutionContext;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.BatchAction;
+import com.gwtplatform.dispatch.rpc.shared.BatchAction.OnException;
+import com.gwtplatform.dispatch.rpc.shared.BatchResult;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * This handles {@link BatchAction} requests whose sub-actions do not depend on each other. Every sub-action is
+ * submitted to the provided {@link ExecutorService} so the batch takes about as long as its slowest action instead of
+ * the sum of all of them. The {@link BatchResult} still lists the results in the order of the original actions.
+ * <p/>
+ * When the batch is configured with {@link OnException#ROLLBACK}, sub-actions that have not started yet are skipped
+ * after the first failure, the handler waits for the running ones to complete and then rethrows the failure. The
+ * surrounding {@link ExecutionContext} then undoes the completed sub-actions in the reverse order of their completion.
+ * <p/>
+ * Bind your {@link BatchAction} subclass to a subclass of this handler that provides the executor, for example through
+ * an injected constructor.
+ */
+public class ParallelBatchActionHandler extends AbstractActionHandler<BatchAction, BatchResult> {
+    private static class SubActionCall implements Callable<Result> {
+        private final Action<?> action;
+        private final ExecutionContext context;
+        private final boolean rollback;
+        private final AtomicBoolean aborted;
+
+        SubActionCall(Action<?> action, ExecutionContext context, boolean rollback, AtomicBoolean aborted) {
+            this.action = action;
+            this.context = context;
+            this.rollback = rollback;
+            this.aborted = aborted;
+        }
+
+        @Override
+        public Result call() throws Exception {
+            if (aborted.get()) {
+                return null;
+            }
+
+            try {
+                return context.execute(action);
+            } catch (Exception e) {
+                abortOnRollback();
+                throw e;
+            } catch (Error e) {
+                abortOnRollback();
+                throw e;
+            }
+        }
+
+        /**
+         * Raised from the failing task itself so queued sub-actions are skipped right away, not only once the request
+         * thread reaches this failure while collecting the results in order.
+         */
+        private void abortOnRollback() {
+            if (rollback) {
+                aborted.set(true);
+            }
+        }
+    }
+
+    private final ExecutorService executorService;
+
+    public ParallelBatchActionHandler(ExecutorService executorService) {
+        super(BatchAction.class);
+
+        this.executorService = executorService;
+    }
+
+    @Override
+    public BatchResult execute(BatchAction action, ExecutionContext context) throws ActionException {
+        OnException onException = action.getOnException();
+        Action<?>[] actions = action.getActions();
+        boolean rollback = onException == OnException.ROLLBACK;
+        AtomicBoolean aborted = new AtomicBoolean();
+
+        List<Future<Result>> futures = new ArrayList<Future<Result>>(actions.length);
+        for (Action<?> a : actions) {
+            futures.add(executorService.submit(new SubActionCall(a, context, rollback, aborted)));
+        }
+
+        List<Result> results = new ArrayList<Result>(actions.length);
+        Throwable failure = null;
+        for (Future<Result> future : futures) {
+            Result result = null;
+            try {
+                result = getUninterruptibly(future);
+            } catch (ExecutionException e) {
+                if (rollback && failure == null) {
+                    failure = e.getCause();
+                }
+            }
+            results.add(result);
+        }
+
+        if (failure != null) {
+            rethrow(failure);
+        }
+
+        return new BatchResult(results);
+    }
+
+    @Override
+    public void undo(BatchAction action, BatchResult result, ExecutionContext context) throws ActionException {
+        // No action necessary - the sub actions should automatically rollback
+    }
+
+    /**
+     * Waits for the sub-action to complete even if the request thread is interrupted. Returning early would let running
+     * sub-actions log their results after the rollback already started.
+     */
+    private Result getUninterruptibly(Future<Result> future) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return future.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void rethrow(Throwable failure) throws ActionException {
+        if (failure instanceof ActionException) {
+            throw (ActionException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure instanceof Error) {
+            throw (Error) failure;
+        } else {
+            throw new ActionException(failure);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 
 package com.gwtplatform.dispatch.rpc.server.actionhandlervalidator;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -27,60 +28,114 @@ import com.gwtplatform.dispatch.rpc.shared.Result;
  * This is a eager-loading implementation of the registry. It will create action handlers and validators at startup. All
  * {@link com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler ActionHandler} and {@link ActionValidator}
  * implementations <b>must</b> have a public, default constructor.
+ * <p/>
+ * Registrations are published as an immutable snapshot: lookups read it without locking, while changes copy it under
+ * the registry lock. Handlers are normally all registered at startup, so copying is rare.
  */
-public abstract class AbstractEagerActionHandlerValidatorRegistryImpl implements EagerActionHandlerValidatorRegistry {
+public abstract class AbstractEagerActionHandlerValidatorRegistryImpl implements EagerActionHandlerValidatorRegistry,
+        VersionedActionHandlerValidatorRegistry {
 
-    private final Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance>
-            actionHandlerValidatorInstances;
-    private final Map<Class<? extends ActionValidator>, ActionValidator> validators;
+    /**
+     * Immutable state of the registry. A new snapshot is published on every change.
+     */
+    private static final class Snapshot {
+        private final Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance>
+                actionHandlerValidatorInstances;
+        private final Map<Class<? extends ActionValidator>, ActionValidator> validators;
+        private final int version;
+
+        private Snapshot(
+                Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance>
+                        actionHandlerValidatorInstances,
+                Map<Class<? extends ActionValidator>, ActionValidator> validators,
+                int version) {
+            this.actionHandlerValidatorInstances = Collections.unmodifiableMap(actionHandlerValidatorInstances);
+            this.validators = Collections.unmodifiableMap(validators);
+            this.version = version;
+        }
+    }
+
+    private volatile Snapshot snapshot;
 
     protected AbstractEagerActionHandlerValidatorRegistryImpl() {
-        actionHandlerValidatorInstances = new HashMap<Class<? extends Action<? extends Result>>,
-                ActionHandlerValidatorInstance>();
-        validators = new HashMap<Class<? extends ActionValidator>, ActionValidator>();
+        snapshot = new Snapshot(
+                new HashMap<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance>(),
+                new HashMap<Class<? extends ActionValidator>, ActionValidator>(), 0);
     }
 
     @Override
-    public <A extends Action<R>, R extends Result> void addActionHandlerValidator(Class<A> actionClass,
+    public synchronized <A extends Action<R>, R extends Result> void addActionHandlerValidator(Class<A> actionClass,
             ActionHandlerValidatorInstance actionHandlerValidatorInstance) {
-        actionHandlerValidatorInstances.put(actionClass, actionHandlerValidatorInstance);
+        Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance> instances = copyInstances();
+        Map<Class<? extends ActionValidator>, ActionValidator> validators = copyValidators();
+
+        instances.put(actionClass, actionHandlerValidatorInstance);
         validators.put(actionHandlerValidatorInstance.getActionValidator().getClass(),
                 actionHandlerValidatorInstance.getActionValidator());
+
+        publish(instances, validators);
     }
 
     @Override
-    public void clearActionHandlerValidators() {
-        actionHandlerValidatorInstances.clear();
-        validators.clear();
+    public synchronized void clearActionHandlerValidators() {
+        publish(new HashMap<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance>(),
+                new HashMap<Class<? extends ActionValidator>, ActionValidator>());
     }
 
     @Override
     public <A extends Action<R>, R extends Result> ActionHandlerValidatorInstance findActionHandlerValidator(A action) {
-        return actionHandlerValidatorInstances.get(action.getClass());
+        return snapshot.actionHandlerValidatorInstances.get(action.getClass());
     }
 
     @Override
     public ActionValidator findActionValidator(Class<? extends ActionValidator> actionValidatorClass) {
-        return validators.get(actionValidatorClass);
+        return snapshot.validators.get(actionValidatorClass);
     }
 
     @Override
-    public <A extends Action<R>, R extends Result> boolean removeActionHandlerValidator(Class<A> actionClass) {
-        ActionHandlerValidatorInstance instance = actionHandlerValidatorInstances.remove(actionClass);
-
-        if (instance != null) {
-            if (!containValidator(instance.getActionValidator())) {
-                return validators.remove(instance.getActionValidator().getClass()) != null;
-            }
-        } else {
+    public synchronized <A extends Action<R>, R extends Result> boolean removeActionHandlerValidator(
+            Class<A> actionClass) {
+        if (!snapshot.actionHandlerValidatorInstances.containsKey(actionClass)) {
             return false;
         }
 
-        return actionHandlerValidatorInstances.remove(actionClass) != null;
+        Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance> instances = copyInstances();
+        Map<Class<? extends ActionValidator>, ActionValidator> validators = copyValidators();
+
+        ActionHandlerValidatorInstance instance = instances.remove(actionClass);
+        boolean validatorRemoved = false;
+        if (instance != null && !containValidator(instances, instance.getActionValidator())) {
+            validatorRemoved = validators.remove(instance.getActionValidator().getClass()) != null;
+        }
+
+        publish(instances, validators);
+
+        return validatorRemoved;
+    }
+
+    @Override
+    public int getVersion() {
+        return snapshot.version;
+    }
+
+    private Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance> copyInstances() {
+        return new HashMap<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance>(
+                snapshot.actionHandlerValidatorInstances);
+    }
+
+    private Map<Class<? extends ActionValidator>, ActionValidator> copyValidators() {
+        return new HashMap<Class<? extends ActionValidator>, ActionValidator>(snapshot.validators);
+    }
+
+    private void publish(Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance> instances,
+            Map<Class<? extends ActionValidator>, ActionValidator> validators) {
+        snapshot = new Snapshot(instances, validators, snapshot.version + 1);
     }
 
-    private boolean containValidator(ActionValidator actionValidator) {
-        for (ActionHandlerValidatorInstance validator : actionHandlerValidatorInstances.values()) {
+    private boolean containValidator(
+            Map<Class<? extends Action<? extends Result>>, ActionHandlerValidatorInstance> instances,
+            ActionValidator actionValidator) {
+        for (ActionHandlerValidatorInstance validator : instances.values()) {
             if (validator.getActionValidator().getClass().equals(actionValidator.getClass())) {
                 return true;
             }
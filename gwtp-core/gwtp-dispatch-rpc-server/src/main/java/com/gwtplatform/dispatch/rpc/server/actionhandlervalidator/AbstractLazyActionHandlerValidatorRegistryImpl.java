@@ -0,0 +1,304 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandlervalidator;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.gwtplatform.dispatch.rpc.server.actionhandler.ActionHandler;
+import com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+
+/**
+ * Lazy-loading implementation of the registry shared by the Guice and Spring implementations. Action handlers and
+ * validators are only created when they are first used.
+ * <p/>
+ * Each handler and validator is instantiated exactly once, even when many threads request the same action class at
+ * the same time: the first thread creates the instance while the others wait for that key only. The number of
+ * instantiations and of threads that had to wait for another thread's instantiation are available through
+ * {@link #getInstantiationCount()} and {@link #getCollisionCount()}.
+ * <p/>
+ * To avoid paying the instantiation cost on the first requests after startup, call {@link #warmUp()} or
+ * {@link #warmUpInBackground()} once the registry is linked.
+ */
+public abstract class AbstractLazyActionHandlerValidatorRegistryImpl implements LazyActionHandlerValidatorRegistry,
+        VersionedActionHandlerValidatorRegistry {
+    private static final Logger logger =
+            Logger.getLogger(AbstractLazyActionHandlerValidatorRegistryImpl.class.getName());
+
+    private final ConcurrentMap<Class<? extends Action<?>>, ActionHandlerValidatorClass<? extends Action<?>,
+            ? extends Result>> actionHandlerValidatorClasses;
+    private final ConcurrentMap<Class<? extends Action<?>>, ActionHandlerValidatorInstance>
+            actionHandlerValidatorInstances;
+    private final ConcurrentMap<Class<? extends Action<?>>, FutureTask<ActionHandlerValidatorInstance>>
+            pendingActionHandlerValidatorInstances;
+    private final ConcurrentMap<Class<? extends ActionValidator>, ActionValidator> validators;
+    private final ConcurrentMap<Class<? extends ActionValidator>, FutureTask<ActionValidator>> pendingValidators;
+    private final AtomicInteger version;
+    private final AtomicLong instantiationCount;
+    private final AtomicLong collisionCount;
+
+    protected AbstractLazyActionHandlerValidatorRegistryImpl() {
+        actionHandlerValidatorClasses = new ConcurrentHashMap<Class<? extends Action<?>>,
+                ActionHandlerValidatorClass<? extends Action<?>, ? extends Result>>();
+        actionHandlerValidatorInstances = new ConcurrentHashMap<Class<? extends Action<?>>,
+                ActionHandlerValidatorInstance>();
+        pendingActionHandlerValidatorInstances = new ConcurrentHashMap<Class<? extends Action<?>>,
+                FutureTask<ActionHandlerValidatorInstance>>();
+        validators = new ConcurrentHashMap<Class<? extends ActionValidator>, ActionValidator>();
+        pendingValidators = new ConcurrentHashMap<Class<? extends ActionValidator>, FutureTask<ActionValidator>>();
+        version = new AtomicInteger();
+        instantiationCount = new AtomicLong();
+        collisionCount = new AtomicLong();
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> void addActionHandlerValidatorClass(Class<A> actionClass,
+            ActionHandlerValidatorClass<A, R> actionHandlerValidatorClass) {
+        actionHandlerValidatorClasses.put(actionClass, actionHandlerValidatorClass);
+        version.incrementAndGet();
+    }
+
+    @Override
+    public void clearActionHandlerValidators() {
+        actionHandlerValidatorInstances.clear();
+        validators.clear();
+        version.incrementAndGet();
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <A extends Action<R>, R extends Result> ActionHandlerValidatorInstance findActionHandlerValidator(A action) {
+        Class<? extends Action<?>> actionClass = (Class<? extends Action<?>>) action.getClass();
+        ActionHandlerValidatorInstance actionHandlerValidatorInstance =
+                actionHandlerValidatorInstances.get(actionClass);
+
+        if (actionHandlerValidatorInstance == null) {
+            actionHandlerValidatorInstance = createInstanceOnce(actionClass);
+        }
+
+        return actionHandlerValidatorInstance;
+    }
+
+    @Override
+    public ActionValidator findActionValidator(Class<? extends ActionValidator> actionValidatorClass) {
+        return validators.get(actionValidatorClass);
+    }
+
+    @Override
+    public <A extends Action<R>, R extends Result> void removeActionHandlerValidatorClass(Class<A> actionClass,
+            ActionHandlerValidatorClass<A, R> actionHandlerValidatorClass) {
+        ActionHandlerValidatorClass<?, ?> oldActionHandlerValidatorClass =
+                actionHandlerValidatorClasses.get(actionClass);
+
+        if (oldActionHandlerValidatorClass == actionHandlerValidatorClass) {
+            actionHandlerValidatorClasses.remove(actionClass);
+            ActionHandlerValidatorInstance instance;
+            synchronized (pendingActionHandlerValidatorInstances) {
+                // A handler being instantiated is not published once its task is no longer pending
+                pendingActionHandlerValidatorInstances.remove(actionClass);
+                instance = actionHandlerValidatorInstances.remove(actionClass);
+            }
+
+            if (instance != null && !containValidator(instance.getActionValidator())) {
+                validators.remove(instance.getActionValidator().getClass());
+            }
+            version.incrementAndGet();
+        }
+    }
+
+    @Override
+    public int getVersion() {
+        return version.get();
+    }
+
+    /**
+     * Instantiates the handlers and validators of every registered action class on the calling thread.
+     */
+    public void warmUp() {
+        for (Class<? extends Action<?>> actionClass : actionHandlerValidatorClasses.keySet()) {
+            if (!actionHandlerValidatorInstances.containsKey(actionClass)) {
+                try {
+                    createInstanceOnce(actionClass);
+                } catch (RuntimeException e) {
+                    logger.log(Level.WARNING, "Unable to warm up the handler of " + actionClass.getName(), e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Calls {@link #warmUp()} from a daemon thread, so that startup is not delayed.
+     */
+    public void warmUpInBackground() {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                warmUp();
+            }
+        }, "gwtp-action-handler-warm-up");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return The number of handlers and validators instantiated by this registry.
+     */
+    public long getInstantiationCount() {
+        return instantiationCount.get();
+    }
+
+    /**
+     * @return The number of times a thread waited for a handler or validator being instantiated by another thread.
+     */
+    public long getCollisionCount() {
+        return collisionCount.get();
+    }
+
+    /**
+     * Obtains an instance of the given handler or validator class from the underlying container.
+     *
+     * @param clazz The class to instantiate.
+     * @param <B>   The type of the class.
+     * @return The instance, or {@code null} if none is available.
+     */
+    protected abstract <B> B getInstance(Class<B> clazz);
+
+    private ActionHandlerValidatorInstance createInstanceOnce(final Class<? extends Action<?>> actionClass) {
+        final ActionHandlerValidatorClass<? extends Action<?>, ? extends Result> actionHandlerValidatorClass =
+                actionHandlerValidatorClasses.get(actionClass);
+        if (actionHandlerValidatorClass == null) {
+            return null;
+        }
+
+        ActionHandlerValidatorInstance instance = computeOnce(actionClass, actionHandlerValidatorInstances,
+                pendingActionHandlerValidatorInstances, new Callable<ActionHandlerValidatorInstance>() {
+            @Override
+            public ActionHandlerValidatorInstance call() {
+                return createInstance(actionHandlerValidatorClass);
+            }
+        });
+
+        return instance;
+    }
+
+    private ActionHandlerValidatorInstance createInstance(
+            ActionHandlerValidatorClass<? extends Action<?>, ? extends Result> actionHandlerValidatorClass) {
+        final Class<? extends ActionValidator> actionValidatorClass =
+                actionHandlerValidatorClass.getActionValidatorClass();
+        ActionValidator actionValidator = validators.get(actionValidatorClass);
+        if (actionValidator == null) {
+            actionValidator = computeOnce(actionValidatorClass, validators, pendingValidators,
+                    new Callable<ActionValidator>() {
+                @Override
+                public ActionValidator call() {
+                    instantiationCount.incrementAndGet();
+                    return getInstance(actionValidatorClass);
+                }
+            });
+        }
+
+        instantiationCount.incrementAndGet();
+        ActionHandler<?, ?> actionHandler = getInstance(actionHandlerValidatorClass.getActionHandlerClass());
+
+        if (actionHandler == null || actionValidator == null) {
+            return null;
+        }
+
+        return new ActionHandlerValidatorInstance(actionValidator, actionHandler);
+    }
+
+    /**
+     * Computes the value of {@code key} at most once at a time. Threads asking for a key being computed wait for that
+     * computation only. Values are published in {@code values} once computed, {@code null} values are not cached.
+     * <p/>
+     * A value is only published if its task is still pending once computed. Removing the task, while holding the lock
+     * of {@code pendingValues}, discards the value being computed.
+     */
+    private <K, V> V computeOnce(K key, ConcurrentMap<K, V> values, ConcurrentMap<K, FutureTask<V>> pendingValues,
+            Callable<V> callable) {
+        FutureTask<V> task = new FutureTask<V>(callable);
+        FutureTask<V> pendingTask = pendingValues.putIfAbsent(key, task);
+
+        if (pendingTask == null) {
+            try {
+                // Another thread may have published the value between our lookup and the registration of our task
+                V value = values.get(key);
+                if (value != null) {
+                    return value;
+                }
+
+                task.run();
+                value = getValue(task);
+                synchronized (pendingValues) {
+                    if (pendingValues.remove(key, task) && value != null) {
+                        values.put(key, value);
+                    }
+                }
+                return value;
+            } finally {
+                pendingValues.remove(key, task);
+            }
+        } else {
+            collisionCount.incrementAndGet();
+            return getValue(pendingTask);
+        }
+    }
+
+    private <V> V getValue(FutureTask<V> task) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private boolean containValidator(ActionValidator actionValidator) {
+        for (ActionHandlerValidatorInstance validator : actionHandlerValidatorInstances.values()) {
+            if (validator.getActionValidator().getClass().equals(actionValidator.getClass())) {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.actionhandlervalidator;
+
+/**
+ * An {@link ActionHandlerValidatorRegistry} that counts its modifications.
+ * {@link com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl AbstractDispatchImpl} reuses the handlers and
+ * validators it resolved from such a registry until its version changes. Other registries are queried on every
+ * execution.
+ */
+public interface VersionedActionHandlerValidatorRegistry extends ActionHandlerValidatorRegistry {
+    /**
+     * @return A number that changes every time the handler or validator registered for an action class may have
+     *         changed. It does not change when a lazy registry instantiates a registered handler.
+     */
+    int getVersion();
+}
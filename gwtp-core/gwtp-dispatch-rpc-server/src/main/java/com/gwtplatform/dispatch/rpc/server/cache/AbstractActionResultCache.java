@@ -0,0 +1,274 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import com.gwtplatform.dispatch.rpc.server.RequestProvider;
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+import com.gwtplatform.dispatch.rpc.shared.ServerCached;
+import com.gwtplatform.dispatch.rpc.shared.ServiceException;
+import com.gwtplatform.dispatch.shared.ActionException;
+
+/**
+ * Server-side cache of the results of actions annotated with {@link ServerCached}, shared by the Guice and Spring
+ * implementations. Unlike the client-side caching handlers, results are shared by every client: an identical read
+ * action sent by thousands of users is executed once per time to live.
+ * <p/>
+ * Each annotated action class gets its own bounded region, evicting the least recently used results first. Concurrent
+ * identical actions are coalesced: the first one is executed while the others wait for its result. Failures are
+ * passed to every waiting caller but never cached.
+ * <p/>
+ * Results of actions annotated with {@link ServerCached#perUser()} are keyed by HTTP session id. Such actions are
+ * executed without caching when no session exists.
+ * <p/>
+ * Handlers modifying the data behind cached results should inject the cache and call {@link #invalidate(Action)},
+ * {@link #invalidate(Class)} or {@link #invalidateAll()}. Results being computed during an invalidation are not
+ * stored.
+ */
+public abstract class AbstractActionResultCache {
+    /**
+     * Computes the result of an action when it is not cached.
+     *
+     * @param <R> The {@link Result} type.
+     */
+    public interface Execution<R extends Result> {
+        R execute() throws ActionException, ServiceException;
+    }
+
+    private static final ResultCacheRegion NOT_CACHED = new ResultCacheRegion(0, 1, false);
+
+    private final RequestProvider requestProvider;
+    private final ConcurrentMap<Class<?>, ResultCacheRegion> regions;
+    private final AtomicLong hitCount;
+    private final AtomicLong missCount;
+    private final AtomicLong coalescedCount;
+
+    protected AbstractActionResultCache(RequestProvider requestProvider) {
+        this.requestProvider = requestProvider;
+        this.regions = new ConcurrentHashMap<Class<?>, ResultCacheRegion>();
+        this.hitCount = new AtomicLong();
+        this.missCount = new AtomicLong();
+        this.coalescedCount = new AtomicLong();
+    }
+
+    /**
+     * @param actionClass The action class.
+     * @return {@code true} if results of {@code actionClass} are cached.
+     */
+    public boolean isCached(Class<?> actionClass) {
+        return getRegion(actionClass) != null;
+    }
+
+    /**
+     * Returns the cached result of {@code action}, or calls {@code execution} and caches its result. Actions that are
+     * not {@link #isCached(Class) cached} are always executed.
+     *
+     * @param <A>       The {@link Action} type.
+     * @param <R>       The {@link Result} type.
+     * @param action    The {@link Action}.
+     * @param execution Computes the result when it is not cached.
+     * @return The result.
+     * @throws ActionException  If the execution fails with an {@link ActionException}.
+     * @throws ServiceException If the execution fails with any other exception.
+     */
+    @SuppressWarnings("unchecked")
+    public <A extends Action<R>, R extends Result> R execute(A action, Execution<R> execution)
+            throws ActionException, ServiceException {
+        ResultCacheRegion region = getRegion(action.getClass());
+        if (region == null) {
+            return execution.execute();
+        }
+
+        String user = null;
+        if (region.isPerUser()) {
+            user = getUserKey();
+            if (user == null) {
+                return execution.execute();
+            }
+        }
+
+        return (R) load(region, region.createKey(action, user), execution);
+    }
+
+    /**
+     * Removes the cached results of {@code action}, for every user.
+     */
+    public void invalidate(Action<?> action) {
+        ResultCacheRegion region = getRegion(action.getClass());
+        if (region != null) {
+            region.invalidate(action);
+        }
+    }
+
+    /**
+     * Removes every cached result of {@code actionClass}.
+     */
+    public void invalidate(Class<? extends Action<?>> actionClass) {
+        ResultCacheRegion region = getRegion(actionClass);
+        if (region != null) {
+            region.invalidateAll();
+        }
+    }
+
+    /**
+     * Removes every cached result.
+     */
+    public void invalidateAll() {
+        for (ResultCacheRegion region : regions.values()) {
+            region.invalidateAll();
+        }
+    }
+
+    /**
+     * @return The number of results cached for {@code actionClass}, including the expired ones not evicted yet.
+     */
+    public int size(Class<? extends Action<?>> actionClass) {
+        ResultCacheRegion region = getRegion(actionClass);
+        return region == null ? 0 : region.size();
+    }
+
+    /**
+     * @return The number of actions answered from the cache.
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * @return The number of cacheable actions that had to be executed.
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The number of actions that waited for an identical action being executed by another thread.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.get();
+    }
+
+    /**
+     * @return The key identifying the current user, or {@code null} if the user is unknown. The default implementation
+     *         returns the id of the current HTTP session.
+     */
+    protected String getUserKey() {
+        HttpServletRequest request = requestProvider == null ? null : requestProvider.getServletRequest();
+        HttpSession session = request == null ? null : request.getSession(false);
+        return session == null ? null : session.getId();
+    }
+
+    private ResultCacheRegion getRegion(Class<?> actionClass) {
+        ResultCacheRegion region = regions.get(actionClass);
+
+        if (region == null) {
+            ServerCached serverCached = actionClass.getAnnotation(ServerCached.class);
+            if (serverCached == null || serverCached.maxEntries() <= 0 || serverCached.timeToLiveMillis() <= 0) {
+                region = NOT_CACHED;
+            } else {
+                region = new ResultCacheRegion(serverCached.timeToLiveMillis(), serverCached.maxEntries(),
+                        serverCached.perUser());
+            }
+
+            ResultCacheRegion existingRegion = regions.putIfAbsent(actionClass, region);
+            if (existingRegion != null) {
+                region = existingRegion;
+            }
+        }
+
+        return region == NOT_CACHED ? null : region;
+    }
+
+    private Result load(ResultCacheRegion region, Object key, final Execution<?> execution)
+            throws ActionException, ServiceException {
+        Result result = region.get(key);
+        if (result != null) {
+            hitCount.incrementAndGet();
+            return result;
+        }
+
+        FutureTask<Result> task = new FutureTask<Result>(new Callable<Result>() {
+            @Override
+            public Result call() throws Exception {
+                return execution.execute();
+            }
+        });
+        FutureTask<Result> pendingTask = region.putPendingIfAbsent(key, task);
+
+        if (pendingTask != null) {
+            coalescedCount.incrementAndGet();
+            return getResult(pendingTask);
+        }
+
+        try {
+            // Another thread may have stored the result between our lookup and the registration of our task
+            result = region.get(key);
+            if (result != null) {
+                hitCount.incrementAndGet();
+                return result;
+            }
+
+            missCount.incrementAndGet();
+            long generation = region.getGeneration();
+            task.run();
+            result = getResult(task);
+            region.put(key, result, generation);
+            return result;
+        } finally {
+            region.removePending(key, task);
+        }
+    }
+
+    private Result getResult(FutureTask<Result> task) throws ActionException, ServiceException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return task.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof ActionException) {
+                        throw (ActionException) cause;
+                    } else if (cause instanceof ServiceException) {
+                        throw (ServiceException) cause;
+                    } else if (cause instanceof RuntimeException) {
+                        throw (RuntimeException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new ServiceException(cause);
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,231 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gwtplatform.dispatch.rpc.shared.Action;
+import com.gwtplatform.dispatch.rpc.shared.Result;
+
+/**
+ * The cached results of a single action class. Entries are spread over up to {@value #MAX_SEGMENTS} segments, each one
+ * an access-ordered {@link LinkedHashMap} guarded by its own lock, so the region is bounded and evicts the least
+ * recently used entries of a segment without serializing every lookup on a single lock.
+ * <p/>
+ * Every invalidation increments the generation of the region. Results computed while an invalidation happened are
+ * returned to their callers but not stored, so a write handler never sees a stale result reappear after invalidating.
+ */
+final class ResultCacheRegion {
+    /**
+     * Key of the actions cached per user.
+     */
+    private static final class UserKey {
+        private final String user;
+        private final Action<?> action;
+
+        private UserKey(String user, Action<?> action) {
+            this.user = user;
+            this.action = action;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof UserKey)) {
+                return false;
+            }
+
+            UserKey other = (UserKey) obj;
+            return user.equals(other.user) && action.equals(other.action);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * user.hashCode() + action.hashCode();
+        }
+    }
+
+    private static final class Entry {
+        private final Result result;
+        private final long expiresAt;
+
+        private Entry(Result result, long expiresAt) {
+            this.result = result;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static final class Segment extends LinkedHashMap<Object, Entry> {
+        private final int capacity;
+
+        private Segment(int capacity) {
+            super(16, 0.75f, true);
+
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+
+    private final long timeToLiveNanos;
+    private final boolean perUser;
+    private final Segment[] segments;
+    private final ConcurrentMap<Object, FutureTask<Result>> pendingResults;
+    private final AtomicLong generation;
+
+    ResultCacheRegion(long timeToLiveMillis, int maxEntries, boolean perUser) {
+        this.timeToLiveNanos = TimeUnit.MILLISECONDS.toNanos(timeToLiveMillis);
+        this.perUser = perUser;
+        this.pendingResults = new ConcurrentHashMap<Object, FutureTask<Result>>();
+        this.generation = new AtomicLong();
+
+        int segmentCount = 1;
+        while (segmentCount < MAX_SEGMENTS && segmentCount * 2 <= maxEntries) {
+            segmentCount *= 2;
+        }
+
+        int capacity = (maxEntries + segmentCount - 1) / segmentCount;
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(capacity);
+        }
+    }
+
+    boolean isPerUser() {
+        return perUser;
+    }
+
+    /**
+     * @param action The action.
+     * @param user   The user executing the action, ignored unless the region is {@link #isPerUser() per user}.
+     * @return The key under which the result of {@code action} is cached.
+     */
+    Object createKey(Action<?> action, String user) {
+        return perUser ? new UserKey(user, action) : action;
+    }
+
+    /**
+     * @return The unexpired result cached for {@code key}, or {@code null}.
+     */
+    Result get(Object key) {
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            Entry entry = segment.get(key);
+            if (entry == null) {
+                return null;
+            }
+
+            if (entry.expiresAt - System.nanoTime() <= 0) {
+                segment.remove(key);
+                return null;
+            }
+
+            return entry.result;
+        }
+    }
+
+    /**
+     * Stores {@code result} unless the region was invalidated since {@code expectedGeneration} was read.
+     */
+    void put(Object key, Result result, long expectedGeneration) {
+        if (result == null) {
+            return;
+        }
+
+        Segment segment = segmentFor(key);
+        synchronized (segment) {
+            if (generation.get() == expectedGeneration) {
+                segment.put(key, new Entry(result, System.nanoTime() + timeToLiveNanos));
+            }
+        }
+    }
+
+    long getGeneration() {
+        return generation.get();
+    }
+
+    FutureTask<Result> putPendingIfAbsent(Object key, FutureTask<Result> task) {
+        return pendingResults.putIfAbsent(key, task);
+    }
+
+    void removePending(Object key, FutureTask<Result> task) {
+        pendingResults.remove(key, task);
+    }
+
+    /**
+     * Removes the results of {@code action}, for every user if the region is {@link #isPerUser() per user}.
+     */
+    void invalidate(Action<?> action) {
+        generation.incrementAndGet();
+
+        if (!perUser) {
+            Segment segment = segmentFor(action);
+            synchronized (segment) {
+                segment.remove(action);
+            }
+            return;
+        }
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                Iterator<Object> keys = segment.keySet().iterator();
+                while (keys.hasNext()) {
+                    if (((UserKey) keys.next()).action.equals(action)) {
+                        keys.remove();
+                    }
+                }
+            }
+        }
+    }
+
+    void invalidateAll() {
+        generation.incrementAndGet();
+
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(Object key) {
+        int hash = key.hashCode();
+        hash ^= hash >>> 16;
+        return segments[hash & (segments.length - 1)];
+    }
+}
@@ -0,0 +1,105 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+/**
+ * Serves the content of a {@link DefaultDispatchMetrics} as JSON on {@code GET}. Actions are listed from the most to
+ * the least time consuming. Map this servlet behind the same access control as the rest of your administration pages.
+ */
+public abstract class AbstractDispatchMetricsServlet extends HttpServlet {
+    private static final long serialVersionUID = 4390766423011862452L;
+
+    private final transient DefaultDispatchMetrics dispatchMetrics;
+
+    protected AbstractDispatchMetricsServlet(DefaultDispatchMetrics dispatchMetrics) {
+        this.dispatchMetrics = dispatchMetrics;
+    }
+
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Cache-Control", "no-cache");
+
+        PrintWriter writer = response.getWriter();
+        writer.write(toJson());
+        writer.flush();
+    }
+
+    String toJson() {
+        StringBuilder json = new StringBuilder();
+        json.append("{\"rollbackCount\":").append(dispatchMetrics.getRollbackCount());
+        json.append(",\"rolledBackActionCount\":").append(dispatchMetrics.getRolledBackActionCount());
+        json.append(",\"actions\":[");
+
+        boolean first = true;
+        for (ActionStatistics statistics : dispatchMetrics.getActionStatistics()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+
+            json.append("{\"actionClass\":");
+            appendString(json, statistics.getActionClass());
+            appendField(json, "successCount", statistics.getSuccessCount());
+            appendField(json, "failureCount", statistics.getFailureCount());
+            appendField(json, "rejectedCount", statistics.getRejectedCount());
+            appendField(json, "undoCount", statistics.getUndoCount());
+            appendField(json, "undoFailureCount", statistics.getUndoFailureCount());
+            appendField(json, "totalMicros", statistics.getTotalMicros());
+            appendField(json, "meanMicros", statistics.getMeanMicros());
+            appendField(json, "p50Micros", statistics.getP50Micros());
+            appendField(json, "p90Micros", statistics.getP90Micros());
+            appendField(json, "p99Micros", statistics.getP99Micros());
+            appendField(json, "maxMicros", statistics.getMaxMicros());
+            appendField(json, "batchCount", statistics.getBatchCount());
+            appendField(json, "meanBatchSize", statistics.getMeanBatchSize());
+            appendField(json, "maxBatchSize", statistics.getMaxBatchSize());
+            json.append('}');
+        }
+
+        return json.append("]}").toString();
+    }
+
+    private void appendField(StringBuilder json, String name, long value) {
+        json.append(",\"").append(name).append("\":").append(value);
+    }
+
+    private void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < ' ') {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.gwtplatform.dispatch.rpc.server.metrics.DispatchMetrics.Outcome;
+
+/**
+ * Counters and latency histograms of a single action class, recorded in microseconds.
+ */
+class ActionMetrics {
+    private final Class<?> actionClass;
+    private final LatencyHistogram executeLatency = new LatencyHistogram();
+    private final LatencyHistogram undoLatency = new LatencyHistogram();
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong undoFailureCount = new AtomicLong();
+    private final AtomicLong batchCount = new AtomicLong();
+    private final AtomicLong batchActionCount = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    ActionMetrics(Class<?> actionClass) {
+        this.actionClass = actionClass;
+    }
+
+    void recordExecute(Outcome outcome, long durationNanos) {
+        executeLatency.record(durationNanos / 1000);
+        count(outcome);
+    }
+
+    void recordUndo(Outcome outcome, long durationNanos) {
+        undoLatency.record(durationNanos / 1000);
+        if (outcome != Outcome.SUCCESS) {
+            undoFailureCount.incrementAndGet();
+        }
+    }
+
+    void recordBatch(int actionCount) {
+        batchCount.incrementAndGet();
+        batchActionCount.addAndGet(actionCount);
+
+        long currentMax = maxBatchSize.get();
+        while (actionCount > currentMax && !maxBatchSize.compareAndSet(currentMax, actionCount)) {
+            currentMax = maxBatchSize.get();
+        }
+    }
+
+    ActionStatistics getStatistics() {
+        long batches = batchCount.get();
+
+        return new ActionStatistics(actionClass.getName(),
+                successCount.get(),
+                failureCount.get(),
+                rejectedCount.get(),
+                undoLatency.getCount(),
+                undoFailureCount.get(),
+                executeLatency.getSum(),
+                executeLatency.getMean(),
+                executeLatency.getPercentile(50),
+                executeLatency.getPercentile(90),
+                executeLatency.getPercentile(99),
+                executeLatency.getMax(),
+                batches,
+                batches == 0 ? 0 : batchActionCount.get() / batches,
+                maxBatchSize.get());
+    }
+
+    private void count(Outcome outcome) {
+        switch (outcome) {
+            case SUCCESS:
+                successCount.incrementAndGet();
+                break;
+            case REJECTED:
+                rejectedCount.incrementAndGet();
+                break;
+            default:
+                failureCount.incrementAndGet();
+        }
+    }
+}
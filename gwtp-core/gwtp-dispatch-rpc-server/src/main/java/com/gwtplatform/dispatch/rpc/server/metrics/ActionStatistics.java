@@ -0,0 +1,139 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+/**
+ * Immutable snapshot of the metrics of a single action class. Times are in microseconds, percentiles are upper
+ * bounds with a relative error below 12.5%.
+ */
+public class ActionStatistics {
+    private final String actionClass;
+    private final long successCount;
+    private final long failureCount;
+    private final long rejectedCount;
+    private final long undoCount;
+    private final long undoFailureCount;
+    private final long totalMicros;
+    private final long meanMicros;
+    private final long p50Micros;
+    private final long p90Micros;
+    private final long p99Micros;
+    private final long maxMicros;
+    private final long batchCount;
+    private final long meanBatchSize;
+    private final long maxBatchSize;
+
+    public ActionStatistics(String actionClass,
+            long successCount,
+            long failureCount,
+            long rejectedCount,
+            long undoCount,
+            long undoFailureCount,
+            long totalMicros,
+            long meanMicros,
+            long p50Micros,
+            long p90Micros,
+            long p99Micros,
+            long maxMicros,
+            long batchCount,
+            long meanBatchSize,
+            long maxBatchSize) {
+        this.actionClass = actionClass;
+        this.successCount = successCount;
+        this.failureCount = failureCount;
+        this.rejectedCount = rejectedCount;
+        this.undoCount = undoCount;
+        this.undoFailureCount = undoFailureCount;
+        this.totalMicros = totalMicros;
+        this.meanMicros = meanMicros;
+        this.p50Micros = p50Micros;
+        this.p90Micros = p90Micros;
+        this.p99Micros = p99Micros;
+        this.maxMicros = maxMicros;
+        this.batchCount = batchCount;
+        this.meanBatchSize = meanBatchSize;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public String getActionClass() {
+        return actionClass;
+    }
+
+    public long getSuccessCount() {
+        return successCount;
+    }
+
+    public long getFailureCount() {
+        return failureCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    public long getUndoCount() {
+        return undoCount;
+    }
+
+    /**
+     * @return The number of undos, included in {@link #getUndoCount()}, that threw.
+     */
+    public long getUndoFailureCount() {
+        return undoFailureCount;
+    }
+
+    /**
+     * @return The time spent executing this action class, the best indicator of which actions dominate the server. The
+     * time of a {@link com.gwtplatform.dispatch.rpc.shared.BatchAction BatchAction} includes the time of its
+     * sub-actions, which is also counted under their own classes, so totals must not be added up across classes.
+     */
+    public long getTotalMicros() {
+        return totalMicros;
+    }
+
+    public long getMeanMicros() {
+        return meanMicros;
+    }
+
+    public long getP50Micros() {
+        return p50Micros;
+    }
+
+    public long getP90Micros() {
+        return p90Micros;
+    }
+
+    public long getP99Micros() {
+        return p99Micros;
+    }
+
+    public long getMaxMicros() {
+        return maxMicros;
+    }
+
+    public long getBatchCount() {
+        return batchCount;
+    }
+
+    public long getMeanBatchSize() {
+        return meanBatchSize;
+    }
+
+    public long getMaxBatchSize() {
+        return maxBatchSize;
+    }
+}
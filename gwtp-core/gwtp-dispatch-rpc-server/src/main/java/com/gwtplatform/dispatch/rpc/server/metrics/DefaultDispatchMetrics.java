@@ -0,0 +1,142 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * {@link DispatchMetrics} keeping, for every action class, success, failure and rejection counts, latency percentiles
+ * and batch sizes. Recording is lock-free, only the first execution of an action class allocates.
+ * <p/>
+ * The metrics can be read through {@link #getActionStatistics()}, exported to JMX with {@link #registerMBean()} or
+ * served as JSON by an {@link AbstractDispatchMetricsServlet}.
+ */
+public class DefaultDispatchMetrics implements DispatchMetrics, DispatchMetricsMXBean {
+    public static final String OBJECT_NAME = "com.gwtplatform.dispatch:type=DispatchMetrics";
+
+    private static final Comparator<ActionStatistics> BY_TOTAL_TIME = new Comparator<ActionStatistics>() {
+        @Override
+        public int compare(ActionStatistics left, ActionStatistics right) {
+            long difference = right.getTotalMicros() - left.getTotalMicros();
+            return difference < 0 ? -1 : (difference > 0 ? 1 : 0);
+        }
+    };
+
+    private final ConcurrentMap<Class<?>, ActionMetrics> actionMetrics;
+    private final AtomicLong rollbackCount;
+    private final AtomicLong rolledBackActionCount;
+
+    public DefaultDispatchMetrics() {
+        actionMetrics = new ConcurrentHashMap<Class<?>, ActionMetrics>();
+        rollbackCount = new AtomicLong();
+        rolledBackActionCount = new AtomicLong();
+    }
+
+    @Override
+    public void onExecute(Class<?> actionClass, Outcome outcome, long durationNanos) {
+        getActionMetrics(actionClass).recordExecute(outcome, durationNanos);
+    }
+
+    @Override
+    public void onUndo(Class<?> actionClass, Outcome outcome, long durationNanos) {
+        getActionMetrics(actionClass).recordUndo(outcome, durationNanos);
+    }
+
+    @Override
+    public void onRollback(int actionCount, long durationNanos) {
+        rollbackCount.incrementAndGet();
+        rolledBackActionCount.addAndGet(actionCount);
+    }
+
+    @Override
+    public void onBatch(Class<?> actionClass, int actionCount) {
+        getActionMetrics(actionClass).recordBatch(actionCount);
+    }
+
+    @Override
+    public List<ActionStatistics> getActionStatistics() {
+        List<ActionStatistics> statistics = new ArrayList<ActionStatistics>(actionMetrics.size());
+        for (ActionMetrics metrics : actionMetrics.values()) {
+            statistics.add(metrics.getStatistics());
+        }
+
+        Collections.sort(statistics, BY_TOTAL_TIME);
+        return statistics;
+    }
+
+    @Override
+    public long getRollbackCount() {
+        return rollbackCount.get();
+    }
+
+    @Override
+    public long getRolledBackActionCount() {
+        return rolledBackActionCount.get();
+    }
+
+    @Override
+    public void reset() {
+        actionMetrics.clear();
+        rollbackCount.set(0);
+        rolledBackActionCount.set(0);
+    }
+
+    /**
+     * Registers these metrics in the platform {@link MBeanServer} under {@link #OBJECT_NAME}.
+     *
+     * @throws JMException If the registration fails, for example if metrics are already registered under that name.
+     */
+    public void registerMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.registerMBean(this, new ObjectName(OBJECT_NAME));
+    }
+
+    /**
+     * Removes these metrics from the platform {@link MBeanServer}.
+     *
+     * @throws JMException If the metrics are not registered.
+     */
+    public void unregisterMBean() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.unregisterMBean(new ObjectName(OBJECT_NAME));
+    }
+
+    private ActionMetrics getActionMetrics(Class<?> actionClass) {
+        ActionMetrics metrics = actionMetrics.get(actionClass);
+
+        if (metrics == null) {
+            metrics = new ActionMetrics(actionClass);
+            ActionMetrics existingMetrics = actionMetrics.putIfAbsent(actionClass, metrics);
+            if (existingMetrics != null) {
+                metrics = existingMetrics;
+            }
+        }
+
+        return metrics;
+    }
+}
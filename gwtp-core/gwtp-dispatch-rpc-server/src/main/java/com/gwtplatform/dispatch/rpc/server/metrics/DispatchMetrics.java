@@ -0,0 +1,58 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+/**
+ * Listener notified by {@link com.gwtplatform.dispatch.rpc.server.AbstractDispatchImpl AbstractDispatchImpl} around
+ * every action it executes, undoes or rolls back, including the sub-actions executed through an
+ * {@link com.gwtplatform.dispatch.rpc.server.ExecutionContext ExecutionContext}. Implementations are called on the
+ * request threads and must be thread safe and cheap.
+ *
+ * @see DefaultDispatchMetrics
+ */
+public interface DispatchMetrics {
+    /**
+     * How an action execution or undo ended.
+     */
+    enum Outcome {
+        SUCCESS,
+        FAILURE,
+        /**
+         * The {@link com.gwtplatform.dispatch.rpc.server.actionvalidator.ActionValidator ActionValidator} did not allow
+         * the action.
+         */
+        REJECTED
+    }
+
+    void onExecute(Class<?> actionClass, Outcome outcome, long durationNanos);
+
+    void onUndo(Class<?> actionClass, Outcome outcome, long durationNanos);
+
+    /**
+     * @param actionCount   The number of executed actions that were rolled back.
+     * @param durationNanos The time taken by the rollback.
+     */
+    void onRollback(int actionCount, long durationNanos);
+
+    /**
+     * Called before a {@link com.gwtplatform.dispatch.rpc.shared.BatchAction BatchAction} is executed.
+     *
+     * @param actionClass The class of the batch action.
+     * @param actionCount The number of sub-actions in the batch.
+     */
+    void onBatch(Class<?> actionClass, int actionCount);
+}
@@ -0,0 +1,38 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.server.metrics;
+
+/**
+ * {@link DispatchMetrics} that ignores every event. This is the default when no metrics are configured.
+ */
+public class NoOpDispatchMetrics implements DispatchMetrics {
+    @Override
+    public void onExecute(Class<?> actionClass, Outcome outcome, long durationNanos) {
+    }
+
+    @Override
+    public void onUndo(Class<?> actionClass, Outcome outcome, long durationNanos) {
+    }
+
+    @Override
+    public void onRollback(int actionCount, long durationNanos) {
+    }
+
+    @Override
+    public void onBatch(Class<?> actionClass, int actionCount) {
+    }
+}
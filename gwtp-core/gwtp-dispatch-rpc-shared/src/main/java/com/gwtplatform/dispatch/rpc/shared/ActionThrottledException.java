@@ -0,0 +1,37 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.shared;
+
+/**
+ * Thrown when the server refuses to execute an action because the client, or every client together for that action
+ * type, already has too many actions in progress. The action was not executed and can be retried later.
+ */
+public class ActionThrottledException extends ServiceException {
+
+    private static final long serialVersionUID = 4425373960155203849L;
+
+    public ActionThrottledException(String message) {
+        super(message);
+    }
+
+    /**
+     * For serialization.
+     */
+    ActionThrottledException() {
+    }
+
+}
@@ -0,0 +1,55 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.dispatch.rpc.shared;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.TYPE;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * Marks an idempotent {@link Action} whose results may be cached on the server, so identical actions sent by many
+ * clients are only executed once per {@link #timeToLiveMillis()}. The annotation is only honored when the server-side
+ * dispatch is configured with an action result cache.
+ * <p/>
+ * Actions are used as cache keys, annotated classes must therefore implement {@link Object#equals(Object)} and
+ * {@link Object#hashCode()} based on their values. Cached results are shared by every client receiving them and must
+ * not be modified by the server once returned.
+ */
+@Documented
+@Target(TYPE)
+@Retention(RUNTIME)
+public @interface ServerCached {
+    /**
+     * @return The time, in milliseconds, a result stays in the cache after it is computed.
+     */
+    long timeToLiveMillis() default 60000;
+
+    /**
+     * @return The maximum number of results kept for the annotated action class. The least recently used results are
+     *         evicted first.
+     */
+    int maxEntries() default 1000;
+
+    /**
+     * @return {@code true} if results must only be shared by requests of the same HTTP session, for actions whose
+     *         result depends on the current user.
+     */
+    boolean perUser() default false;
+}
@@ -16,132 +16,146 @@
 
 package com.gwtplatform.crawlerservice.server;
 
-import com.gargoylesoftware.htmlunit.NicelyResynchronizingAjaxController;
-import com.gargoylesoftware.htmlunit.SilentCssErrorHandler;
-import com.gargoylesoftware.htmlunit.WebClient;
-import com.gargoylesoftware.htmlunit.WebRequest;
-import com.gargoylesoftware.htmlunit.html.HtmlPage;
 import com.google.common.base.Strings;
 import com.google.inject.Inject;
 import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.render.PageRenderer;
+import com.gwtplatform.crawlerservice.server.render.RenderRejectedException;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
 
-import javax.inject.Provider;
 import javax.inject.Singleton;
 import javax.servlet.http.HttpServlet;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.URLDecoder;
 import java.util.Date;
-import java.util.logging.Level;
+import java.util.Locale;
 import java.util.logging.Logger;
 
-import static com.googlecode.objectify.ObjectifyService.ofy;
-
 /**
  * Servlet that makes it possible to fetch an external page, renders it using HTMLUnit and returns the HTML page.
+ * <p/>
+ * Concurrent requests for the same URL share a single render. By default, requests arriving while the page is being
+ * rendered get {@code FETCH_IN_PROGRESS} and are expected to retry. Requests with a {@code wait} parameter long-poll
+ * instead: they wait up to that many milliseconds (at most {@link #MAX_WAIT_MILLIS}) for the shared render and only
+ * get {@code FETCH_IN_PROGRESS} if it does not complete in time.
+ * <p/>
+ * Pages are rendered by a bounded {@link com.gwtplatform.crawlerservice.server.render.RenderExecutor RenderExecutor}.
+ * When too many renders are queued, requests for pages that are not in the page store are answered with
+ * {@code 503 Service Unavailable} and a {@code Retry-After} header.
+ * <p/>
+ * Pages are answered with an {@code ETag} and a {@code Last-Modified} header so clients can revalidate them with
+ * conditional requests, and are sent gzipped to clients that accept it. Clients refusing gzip with a zero quality
+ * value, such as {@code gzip;q=0}, get the uncompressed page. The gzipped representation has its own {@code ETag},
+ * suffixed with {@code -gz}.
  */
 @Singleton
 public class CrawlServiceServlet extends HttpServlet {
 
-    private class SyncAllAjaxController extends NicelyResynchronizingAjaxController {
-        private static final long serialVersionUID = 1L;
-
-        @Override
-        public boolean processSynchron(HtmlPage page, WebRequest request, boolean async) {
-            return true;
-        }
-    }
+    /**
+     * The longest a request can wait for a render started by another request. Below the 60 seconds request deadline of
+     * App Engine.
+     */
+    public static final long MAX_WAIT_MILLIS = 50000;
 
     private static final String CHAR_ENCODING = "UTF-8";
+    private static final String FETCH_IN_PROGRESS = "FETCH_IN_PROGRESS";
+    private static final String GZIP_ETAG_SUFFIX = "-gz";
 
     private static final long serialVersionUID = -6129110224710383122L;
 
-    @Inject(optional = true)
-    @HtmlUnitTimeoutMillis
-    private long timeoutMillis = 12000;
-    private long jsTimeoutMillis = 1000;
-    private long pageWaitMillis = 200;
-    private int maxLoopChecks = 2;
-
     @Inject(optional = true)
     @CachedPageTimeoutSec
     public static long cachedPageTimeoutSec = 15 * 60;
 
     private final Logger log;
-    private final Provider<WebClient> webClientProvider;
+    private final PageRenderer pageRenderer;
+    private final CachedPageStore pageStore;
 
     private final String key;
 
 
     @Inject
-    CrawlServiceServlet(Provider<WebClient> webClientProvider, Logger log, @ServiceKey String key) {
-        this.webClientProvider = webClientProvider;
+    CrawlServiceServlet(PageRenderer pageRenderer, CachedPageStore pageStore, Logger log,
+            @ServiceKey String key) {
+        this.pageRenderer = pageRenderer;
+        this.pageStore = pageStore;
         this.log = log;
         this.key = key;
     }
 
     @Override
     protected void doGet(HttpServletRequest req, HttpServletResponse resp) {
-        PrintWriter out = null;
         try {
             boolean keyValid = validateKey(req, resp);
 
             if (keyValid) {
-                out = resp.getWriter();
-
                 String url = Strings.nullToEmpty(req.getParameter("url"));
                 //url is decoded after calling getParameter(), no need to decode again
                 //                url = URLDecoder.decode(url, CHAR_ENCODING);
 
                 if (!url.isEmpty()) {
-                    renderResponse(url, resp);
+                    renderResponse(url, parseWaitMillis(req.getParameter("wait")), req, resp);
                 }
             }
+        } catch (RenderRejectedException e) {
+            log.warning(e.getMessage());
+
+            resp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            resp.setHeader("Retry-After", String.valueOf(e.getRetryAfterSeconds()));
         } catch (IOException e) {
             e.printStackTrace();
 
             resp.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
-        } finally {
-            if (out != null) {
-                out.close();
-            }
         }
     }
 
     private boolean validateKey(HttpServletRequest request, HttpServletResponse response) throws IOException {
-        PrintWriter output = response.getWriter();
         String receivedKey = request.getParameter("key");
-        boolean keyIsValid = false;
+        String error = null;
 
         if (Strings.isNullOrEmpty(receivedKey)) {
-            output.println("No service key attached to the request.");
+            error = "No service key attached to the request.";
         } else {
             String decodedKey = URLDecoder.decode(receivedKey, CHAR_ENCODING);
 
             if (!key.equals(decodedKey)) {
-                output.println("The service key received does not match the desired key.");
-            } else {
-                keyIsValid = true;
+                error = "The service key received does not match the desired key.";
             }
         }
 
-        if (!keyIsValid) {
+        if (error != null) {
             response.setStatus(HttpServletResponse.SC_FORBIDDEN);
+            try (PrintWriter output = response.getWriter()) {
+                output.println(error);
+            }
         }
 
-        return keyIsValid;
+        return error == null;
     }
 
-    private void renderResponse(String url, HttpServletResponse response) throws IOException {
-        PrintWriter out = response.getWriter();
+    private long parseWaitMillis(String wait) {
+        if (Strings.isNullOrEmpty(wait)) {
+            return 0;
+        }
+
+        try {
+            return Math.max(0, Math.min(Long.parseLong(wait), MAX_WAIT_MILLIS));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
 
+    private void renderResponse(String url, long waitMillis, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
         response.setCharacterEncoding(CHAR_ENCODING);
         response.setHeader("Content-Type", "text/plain; charset=" + CHAR_ENCODING);
 
-        log.info("find existing page from datastore which url equals: " + url);
-        CachedPage fetchedPage = ofy().load().type(CachedPage.class).id(url).now();
+        log.info("find existing page from page store which url equals: " + url);
+        CachedPage fetchedPage = pageStore.load(url);
         log.info("fetched page: " + fetchedPage);
 
         Date currDate = new Date();
@@ -149,30 +163,140 @@ public class CrawlServiceServlet extends HttpServlet {
         if (!needToFetchPage2(fetchedPage, currDate)) {
             if (fetchedPage.isFetchInProgress()) {
                 log.info("no need to fetch page: fetch in progress.");
-                out.println("FETCH_IN_PROGRESS");
+                writeFetchInProgress(response);
             } else {
-                log.info("no need to fetch page: use page in datastore.");
-                out.println(fetchedPage.getContent());
+                log.info("no need to fetch page: use page in page store.");
+                writePage(fetchedPage, request, response);
             }
+        } else if (waitMillis == 0 && pageRenderer.isRendering(url)) {
+            log.info("no need to fetch page: fetch in progress.");
+            writeFetchInProgress(response);
         } else {
-            //fetch now!
-            log.info("about to fetch page!");
-            if (fetchedPage != null) {
-                log.info("delete expired page in datastore");
-                ofy().delete().entity(fetchedPage).now();
+            CachedPage renderedPage = pageRenderer.render(url, waitMillis);
+            if (renderedPage == null) {
+                writeFetchInProgress(response);
+            } else {
+                writePage(renderedPage, request, response);
             }
+        }
+    }
+
+    private void writeFetchInProgress(HttpServletResponse response) throws IOException {
+        try (PrintWriter out = response.getWriter()) {
+            out.println(FETCH_IN_PROGRESS);
+        }
+    }
+
+    /**
+     * Writes the page content, or answers {@code 304 Not Modified} if the client already has it. The content is sent
+     * as stored, without being decompressed, to clients that accept gzip.
+     */
+    private void writePage(CachedPage page, HttpServletRequest request, HttpServletResponse response)
+            throws IOException {
+        boolean gzip = acceptsGzip(request.getHeader("Accept-Encoding"));
+        String etag = "\"" + page.getContentHash() + (gzip ? GZIP_ETAG_SUFFIX : "") + "\"";
+        long lastModified = page.getFetchDate().getTime();
+
+        response.setHeader("ETag", etag);
+        response.setDateHeader("Last-Modified", lastModified);
+        response.setHeader("Vary", "Accept-Encoding");
+
+        if (isNotModified(etag, lastModified, request)) {
+            log.info("page not modified since the client fetched it.");
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        byte[] body;
+        if (gzip) {
+            response.setHeader("Content-Encoding", "gzip");
+            body = page.getCompressedContent();
+        } else {
+            body = page.getContentBytes();
+        }
 
-            log.info("save a new page to datastore and mark fetching is true");
-            CachedPage newPage = createPlaceholderPage(url, currDate);
-            //must store it in datastore to indicating next impatient Google Bot request that a fetch is in progress
-            ofy().save().entity(newPage).now();
-            String renderedHtml = fetchPage(url);
-            log.info("save the new page with page content to datastore");
-            saveFetchedPage(newPage, renderedHtml);
-            out.println(renderedHtml);
+        response.setContentLength(body.length);
+        try (OutputStream out = response.getOutputStream()) {
+            out.write(body);
         }
     }
 
+    /**
+     * @return {@code true} if {@code acceptEncoding} accepts gzip with a non-zero quality value, either explicitly or
+     *         through {@code *}. An explicit {@code gzip} entry takes precedence over {@code *}.
+     */
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+
+        double gzipQuality = -1;
+        double anyQuality = -1;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parameters = coding.split(";");
+            String name = parameters[0].trim().toLowerCase(Locale.ENGLISH);
+            if ("gzip".equals(name) || "x-gzip".equals(name)) {
+                gzipQuality = Math.max(gzipQuality, parseQuality(parameters));
+            } else if ("*".equals(name)) {
+                anyQuality = parseQuality(parameters);
+            }
+        }
+
+        return gzipQuality >= 0 ? gzipQuality > 0 : anyQuality > 0;
+    }
+
+    private double parseQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=") || parameter.startsWith("Q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    /**
+     * @return {@code true} if {@code ifNoneMatch} is {@code *} or lists {@code etag}. Tags are compared with the weak
+     *         comparison of {@code If-None-Match}: a {@code W/} prefix is ignored.
+     */
+    private boolean matchesEntityTag(String ifNoneMatch, String etag) {
+        if ("*".equals(ifNoneMatch.trim())) {
+            return true;
+        }
+
+        for (String tag : ifNoneMatch.split(",")) {
+            tag = tag.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isNotModified(String etag, long lastModified, HttpServletRequest request) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            return matchesEntityTag(ifNoneMatch, etag);
+        }
+
+        long ifModifiedSince;
+        try {
+            ifModifiedSince = request.getDateHeader("If-Modified-Since");
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+
+        // HTTP dates have a one second precision
+        return ifModifiedSince != -1 && ifModifiedSince >= lastModified / 1000 * 1000;
+    }
+
     private boolean isFetchingExpired(CachedPage fetchedPage, Date currDate) {
         //gae urlfetch deadline is 60 seconds
         // If fetch is in progress since more than 60 seconds, we consider something went wrong and fetch again.
@@ -185,12 +309,6 @@ public class CrawlServiceServlet extends HttpServlet {
         return currDate.getTime() > fetchedPage.getFetchDate().getTime() + cachedPageTimeoutSec * 1000;
     }
 
-    private void saveFetchedPage(CachedPage cachedPage, String stringBuilder) {
-        cachedPage.setContent(stringBuilder);
-        cachedPage.setFetchInProgress(false);
-        ofy().save().entity(cachedPage).now();
-    }
-
     private boolean needToFetchPage2(CachedPage fetchedPage, Date currDate) {
         if (fetchedPage == null) {
             return true;
@@ -213,60 +331,4 @@ public class CrawlServiceServlet extends HttpServlet {
             return false;
         }
     }
-
-    private CachedPage createPlaceholderPage(String url, Date currDate) {
-        CachedPage result = new CachedPage();
-        result.setUrl(url);
-        result.setFetchDate(currDate);
-        result.setFetchInProgress(true);
-        return result;
-    }
-
-    /**
-     * Fetches the page at {@code url} and renders the page in a {@link StringBuilder}. The rendered page is prefixed
-     * with a message indicating this is a non-interactive version.
-     *
-     * @param url The URL of the page to render.
-     * @return The rendered page, in a {@link StringBuilder}.
-     */
-    private String fetchPage(String url) throws IOException {
-        WebClient webClient = webClientProvider.get();
-
-        webClient.getCache().clear();
-        webClient.getOptions().setCssEnabled(false);
-        webClient.getOptions().setJavaScriptEnabled(true);
-        webClient.getOptions().setThrowExceptionOnScriptError(false);
-        webClient.getOptions().setRedirectEnabled(false);
-        webClient.setAjaxController(new SyncAllAjaxController());
-        webClient.setCssErrorHandler(new SilentCssErrorHandler());
-
-        HtmlPage page = webClient.getPage(url);
-        webClient.getJavaScriptEngine().pumpEventLoop(timeoutMillis);
-
-        int waitForBackgroundJavaScript = webClient.waitForBackgroundJavaScript(jsTimeoutMillis);
-        int loopCount = 0;
-
-        while (waitForBackgroundJavaScript > 0 && loopCount < maxLoopChecks) {
-            ++loopCount;
-            waitForBackgroundJavaScript = webClient.waitForBackgroundJavaScript(jsTimeoutMillis);
-
-            if (waitForBackgroundJavaScript == 0) {
-                log.fine("HtmlUnit exits background javascript at loop counter " + loopCount);
-                break;
-            }
-
-            synchronized (page) {
-                log.fine("HtmlUnit waits for background javascript at loop counter " + loopCount);
-                try {
-                    page.wait(pageWaitMillis);
-                } catch (InterruptedException e) {
-                    log.log(Level.SEVERE, "HtmlUnit ERROR on page.wait at loop counter " + loopCount, e);
-                }
-            }
-        }
-
-        webClient.closeAllWindows();
-
-        return page.asXml();
-    }
 }
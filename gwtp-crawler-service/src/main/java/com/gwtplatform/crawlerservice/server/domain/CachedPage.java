@@ -16,13 +16,28 @@
 
 package com.gwtplatform.crawlerservice.server.domain;
 
+import com.google.common.hash.Hashing;
 import com.googlecode.objectify.annotation.Entity;
 import com.googlecode.objectify.annotation.Id;
+import com.googlecode.objectify.annotation.Ignore;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.ref.SoftReference;
+import java.nio.charset.StandardCharsets;
 import java.util.Date;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
- * Stores a cached version of a page.
+ * Stores a cached version of a page. The content is stored gzip compressed, along with a hash of the uncompressed
+ * content that can be used as an entity tag. Pages stored uncompressed by previous versions are still readable.
+ * <p/>
+ * The uncompressed content is kept once decompressed, as long as memory allows, so pages served repeatedly to clients
+ * that don't accept gzip are not decompressed on every request.
  */
 @Entity
 public class CachedPage {
@@ -31,6 +46,10 @@ public class CachedPage {
     private Date fetchDate;
     private boolean fetchInProgress;
     private String content;
+    private byte[] compressedContent;
+    private String contentHash;
+    @Ignore
+    private volatile SoftReference<byte[]> contentBytes;
 
     @Override
     public String toString() {
@@ -65,11 +84,109 @@ public class CachedPage {
         return fetchInProgress;
     }
 
+    /**
+     * Compresses and stores {@code content}.
+     */
     public void setContent(String content) {
-        this.content = content;
+        this.content = null;
+
+        if (content == null) {
+            compressedContent = null;
+            contentHash = null;
+            contentBytes = null;
+        } else {
+            byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+            compressedContent = compress(bytes);
+            contentHash = Hashing.sha1().hashBytes(bytes).toString();
+            contentBytes = new SoftReference<>(bytes);
+        }
     }
 
+    /**
+     * @return The uncompressed content, or {@code null}.
+     */
     public String getContent() {
-        return content;
+        if (compressedContent == null) {
+            return content;
+        }
+        return new String(getContentBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return The UTF-8 encoded content, uncompressed, or {@code null}. The array is shared and must not be modified.
+     */
+    public byte[] getContentBytes() {
+        if (compressedContent == null) {
+            return content == null ? null : content.getBytes(StandardCharsets.UTF_8);
+        }
+
+        SoftReference<byte[]> reference = contentBytes;
+        byte[] bytes = reference == null ? null : reference.get();
+        if (bytes == null) {
+            bytes = decompress(compressedContent);
+            contentBytes = new SoftReference<>(bytes);
+        }
+        return bytes;
+    }
+
+    public boolean hasContent() {
+        return compressedContent != null || content != null;
+    }
+
+    /**
+     * @return The UTF-8 encoded content, gzip compressed, or {@code null}.
+     */
+    public byte[] getCompressedContent() {
+        if (compressedContent == null && content != null) {
+            setContent(content);
+        }
+        return compressedContent;
+    }
+
+    /**
+     * Stores content that is already compressed, as returned by {@link #getCompressedContent()}.
+     *
+     * @param compressedContent The UTF-8 encoded content, gzip compressed.
+     * @param contentHash       The hash of the content, as returned by {@link #getContentHash()}.
+     */
+    public void setCompressedContent(byte[] compressedContent, String contentHash) {
+        this.content = null;
+        this.compressedContent = compressedContent;
+        this.contentHash = contentHash;
+        this.contentBytes = null;
+    }
+
+    /**
+     * @return A hash of the content, or {@code null}.
+     */
+    public String getContentHash() {
+        if (contentHash == null && content != null) {
+            setContent(content);
+        }
+        return contentHash;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 4 + 64);
+        try (OutputStream out = new GZIPOutputStream(buffer)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private static byte[] decompress(byte[] bytes) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length * 4);
+        byte[] chunk = new byte[8192];
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            int length;
+            while ((length = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, length);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Corrupted page content", e);
+        }
+        return buffer.toByteArray();
     }
 }
@@ -23,32 +23,70 @@ import com.google.inject.servlet.ServletModule;
 import com.googlecode.objectify.ObjectifyFilter;
 import com.gwtplatform.crawlerservice.server.ClearPage;
 import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.PersistentPageStore;
 import com.gwtplatform.crawlerservice.server.domain.CachedPage;
-
-import javax.inject.Singleton;
+import com.gwtplatform.crawlerservice.server.render.WebClientPool;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
+import com.gwtplatform.crawlerservice.server.store.FileCachedPageStore;
+import com.gwtplatform.crawlerservice.server.store.ObjectifyCachedPageStore;
+import com.gwtplatform.crawlerservice.server.store.TieredCachedPageStore;
 
 import static com.googlecode.objectify.ObjectifyService.factory;
 
 /**
+ * Configures the crawl service. Rendered pages are cached in memory in front of the persistent page store, which is
+ * the App Engine datastore unless another {@link CachedPageStore} is passed to the constructor. To run the crawl
+ * service on another servlet container, pass {@link FileCachedPageStore} and bind
+ * {@link com.gwtplatform.crawlerservice.server.PageStoreDirectory PageStoreDirectory}. Objectify is only set up when
+ * pages are stored in the datastore.
+ * <p/>
+ * Pages are rendered with the HtmlUnit clients of a {@link WebClientPool}, bind
+ * {@link com.gwtplatform.crawlerservice.server.WebClientPoolSize WebClientPoolSize} and
+ * {@link com.gwtplatform.crawlerservice.server.WebClientMaxReuse WebClientMaxReuse} to configure it. Renders run on
+ * the threads of the {@link com.gwtplatform.crawlerservice.server.render.RenderExecutor RenderExecutor}, bind
+ * {@link com.gwtplatform.crawlerservice.server.RenderThreads RenderThreads} and
+ * {@link com.gwtplatform.crawlerservice.server.RenderQueueCapacity RenderQueueCapacity} to configure it.
+ * <p/>
+ * To render known pages before crawlers ask for them, inject the
+ * {@link com.gwtplatform.crawlerservice.server.render.PrerenderScheduler PrerenderScheduler} and schedule their URLs.
+ *
  * @author Philippe Beaudoin
  */
 public class CrawlServiceModule extends ServletModule {
+    private final Class<? extends CachedPageStore> persistentPageStoreClass;
+
+    public CrawlServiceModule() {
+        this(ObjectifyCachedPageStore.class);
+    }
+
+    public CrawlServiceModule(Class<? extends CachedPageStore> persistentPageStoreClass) {
+        this.persistentPageStoreClass = persistentPageStoreClass;
+    }
 
     @Override
     public void configureServlets() {
-        factory().register(CachedPage.class);
+        bind(CachedPageStore.class).annotatedWith(PersistentPageStore.class).to(persistentPageStoreClass);
+        bind(CachedPageStore.class).to(TieredCachedPageStore.class);
+
+        if (persistentPageStoreClass == ObjectifyCachedPageStore.class) {
+            factory().register(CachedPage.class);
 
-        bind(ObjectifyFilter.class).in(com.google.inject.Singleton.class);
-        filter("/*").through(ObjectifyFilter.class);
+            bind(ObjectifyFilter.class).in(com.google.inject.Singleton.class);
+            filter("/*").through(ObjectifyFilter.class);
+        }
         serve("*").with(CrawlServiceServlet.class);
-        serve("/cron/delpages").with(ClearPage.class);
+        if (persistentPageStoreClass == ObjectifyCachedPageStore.class) {
+            serve("/cron/delpages").with(ClearPage.class);
+        }
         //exclude the local admin modu
         //below should work but actully not, so use Salomon BRYS method to solave this:
         //http://stackoverflow.com/questions/2857279/google-guice-on-google-appengine-mapping-with-working-ah
 //        serveRegex("/(?!_ah).*").with(CrawlServiceServlet.class);
     }
 
-    @Singleton
+    /**
+     * Creates the clients of the {@link WebClientPool}, which configures and reuses them.
+     */
     @Provides
     WebClient getWebClient() {
         return new WebClient(BrowserVersion.FIREFOX_17);
@@ -0,0 +1,46 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gargoylesoftware.htmlunit.NicelyResynchronizingAjaxController;
+import com.gargoylesoftware.htmlunit.WebRequest;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs every XMLHttpRequest synchronously, within the JavaScript job that sends it, and counts them so renders can
+ * tell whether the page is still loading data.
+ */
+public class ActivityTrackingAjaxController extends NicelyResynchronizingAjaxController {
+    private static final long serialVersionUID = 1L;
+
+    private final AtomicLong requestCount = new AtomicLong();
+
+    @Override
+    public boolean processSynchron(HtmlPage page, WebRequest request, boolean async) {
+        requestCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @return The number of requests sent since this controller was created.
+     */
+    public long getRequestCount() {
+        return requestCount.get();
+    }
+}
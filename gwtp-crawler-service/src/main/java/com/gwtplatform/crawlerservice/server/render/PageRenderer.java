@@ -0,0 +1,220 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.google.inject.Inject;
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.HtmlUnitTimeoutMillis;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor.Priority;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor.RenderTask;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
+
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.Date;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Logger;
+
+/**
+ * Renders pages with HtmlUnit and saves them to the {@link CachedPageStore}. Pages are rendered by the threads of the
+ * {@link RenderExecutor}, concurrent renders of the same URL are shared: callers asking for a page being rendered wait
+ * for that render.
+ */
+@Singleton
+public class PageRenderer {
+    @Inject(optional = true)
+    @HtmlUnitTimeoutMillis
+    private long timeoutMillis = 12000;
+    @Inject(optional = true)
+    private SettleBudgets settleBudgets = new SettleBudgets();
+
+    private final Logger log;
+    private final WebClientPool webClientPool;
+    private final CachedPageStore pageStore;
+    private final RenderExecutor renderExecutor;
+    private final ConcurrentMap<String, RenderTask> rendersInProgress = new ConcurrentHashMap<>();
+    private final SettleTimeHistogram settleTimes = new SettleTimeHistogram();
+
+    @Inject
+    PageRenderer(WebClientPool webClientPool, RenderExecutor renderExecutor, CachedPageStore pageStore, Logger log) {
+        this.webClientPool = webClientPool;
+        this.renderExecutor = renderExecutor;
+        this.pageStore = pageStore;
+        this.log = log;
+    }
+
+    /**
+     * Renders the page at {@code url} for a crawler and saves it.
+     *
+     * @see #render(String, long, Priority)
+     */
+    public CachedPage render(String url, long waitMillis) throws IOException {
+        return render(url, waitMillis, Priority.CACHE_MISS);
+    }
+
+    /**
+     * Renders the page at {@code url} and saves it, unless it is already being rendered. In that case, waits for the
+     * render in progress for up to {@code waitMillis}. The caller starting the render waits for it for at least
+     * {@link CrawlServiceServlet#MAX_WAIT_MILLIS}.
+     *
+     * @param url        The URL of the page to render.
+     * @param waitMillis How long to wait for a render started by another caller.
+     * @param priority   The priority of the render in the {@link RenderExecutor} queue.
+     * @return The rendered page, or {@code null} if it is still being rendered after the wait.
+     * @throws RenderRejectedException If too many renders are queued.
+     * @throws IOException             If the page can't be rendered.
+     */
+    public CachedPage render(String url, long waitMillis, Priority priority) throws IOException {
+        RenderTask render = createRender(url, new Date(), priority);
+        RenderTask renderInProgress = rendersInProgress.putIfAbsent(url, render);
+
+        if (renderInProgress != null) {
+            log.info("wait for the page being fetched by another request.");
+            renderExecutor.join(renderInProgress, priority);
+            return waitForRenderedPage(renderInProgress, waitMillis);
+        }
+
+        //fetch now!
+        log.info("about to fetch page!");
+        renderExecutor.execute(render);
+        return waitForRenderedPage(render, Math.max(waitMillis, CrawlServiceServlet.MAX_WAIT_MILLIS));
+    }
+
+    /**
+     * @return {@code true} if the page at {@code url} is being rendered.
+     */
+    public boolean isRendering(String url) {
+        return rendersInProgress.containsKey(url);
+    }
+
+    /**
+     * @return The distribution of the time renders waited for pages to settle.
+     */
+    public SettleTimeHistogram getSettleTimes() {
+        return settleTimes;
+    }
+
+    private RenderTask createRender(final String url, final Date fetchDate, Priority priority) {
+        return renderExecutor.newTask(new Callable<CachedPage>() {
+            @Override
+            public CachedPage call() throws IOException {
+                CachedPage page = createPage(url, fetchDate, fetchPage(url));
+                log.info("save the new page with page content to page store");
+                pageStore.save(page);
+                return page;
+            }
+        }, priority, new Runnable() {
+            @Override
+            public void run() {
+                // Only renders registered in rendersInProgress are executed, so this one is still registered
+                rendersInProgress.remove(url);
+            }
+        });
+    }
+
+    /**
+     * @return The rendered page, or {@code null} if it is not rendered after {@code waitMillis}.
+     */
+    private CachedPage waitForRenderedPage(RenderTask render, long waitMillis) throws IOException {
+        try {
+            return render.get(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | CancellationException e) {
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } catch (ExecutionException e) {
+            throw toIOException(e.getCause());
+        }
+    }
+
+    private IOException toIOException(Throwable cause) {
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+        }
+        if (cause instanceof Error) {
+            throw (Error) cause;
+        }
+        return new IOException(cause);
+    }
+
+    private CachedPage createPage(String url, Date fetchDate, String content) {
+        CachedPage result = new CachedPage();
+        result.setUrl(url);
+        result.setFetchDate(fetchDate);
+        result.setContent(content);
+        return result;
+    }
+
+    /**
+     * Fetches the page at {@code url} with a {@link WebClient} borrowed from the pool and renders it.
+     *
+     * @param url The URL of the page to render.
+     * @return The rendered page.
+     */
+    private String fetchPage(String url) throws IOException {
+        WebClientPool.Lease lease = webClientPool.acquire();
+        boolean healthy = false;
+        try {
+            String renderedPage = fetchPage(lease.getWebClient(), url);
+            healthy = true;
+            return renderedPage;
+        } finally {
+            webClientPool.release(lease, healthy);
+        }
+    }
+
+    /**
+     * Loads the page and waits for its JavaScript to settle, for at most the {@link SettleBudgets budget} of the URL.
+     * Defaults to {@link HtmlUnitTimeoutMillis}.
+     */
+    private String fetchPage(WebClient webClient, String url) throws IOException {
+        long start = System.currentTimeMillis();
+        HtmlPage page = webClient.getPage(url);
+
+        boolean settled;
+        try {
+            settled = new SettleDetector(webClient, page).awaitSettled(
+                    settleBudgets.getBudgetMillis(url, timeoutMillis));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while rendering " + url, e);
+        }
+
+        long settleMillis = System.currentTimeMillis() - start;
+        settleTimes.record(settleMillis, !settled);
+        if (settled) {
+            log.fine("HtmlUnit page settled after " + settleMillis + " ms");
+        } else {
+            log.warning("HtmlUnit page did not settle within its budget: " + url);
+        }
+
+        return page.asXml();
+    }
+}
@@ -0,0 +1,227 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.google.inject.Inject;
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.PrerenderThreads;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor.Priority;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
+
+import javax.inject.Singleton;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders known pages in the background, so crawlers find them in the page store instead of waiting for a render.
+ * Pages are rendered by {@link PrerenderThreads} threads, two by default, and rendered again once
+ * {@value #REFRESH_RATIO} of {@link CrawlServiceServlet#cachedPageTimeoutSec} elapsed, before they expire.
+ * Refreshes are slightly randomized so renders of pages scheduled together spread out over time. They are queued in
+ * the {@link RenderExecutor} behind the pages crawlers are waiting for.
+ * <p/>
+ * Pages can be scheduled from a list of URLs, from a sitemap file or from the place tokens of the application, as
+ * returned by {@code PlaceTokenRegistry.getAllPlaceTokens()}. Each URL is scheduled once, scheduling it again is
+ * ignored since it is already kept fresh.
+ */
+@Singleton
+public class PrerenderScheduler {
+    private class Refresh implements Runnable {
+        private final String url;
+
+        Refresh(String url) {
+            this.url = url;
+        }
+
+        @Override
+        public void run() {
+            long delayMillis;
+            try {
+                delayMillis = refresh(url);
+            } catch (IOException | RuntimeException e) {
+                failureCount.incrementAndGet();
+                log.log(Level.WARNING, "Unable to pre-render " + url, e);
+                delayMillis = RETRY_DELAY_MILLIS;
+            }
+
+            ScheduledExecutorService executor = getExecutor();
+            if (!executor.isShutdown()) {
+                executor.schedule(this, jitter(delayMillis), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    public static final double REFRESH_RATIO = 0.8;
+
+    private static final long RETRY_DELAY_MILLIS = 60000;
+    private static final double JITTER_RATIO = 0.1;
+    private static final Pattern SITEMAP_LOCATION = Pattern.compile("<loc>\\s*(.*?)\\s*</loc>", Pattern.DOTALL);
+
+    private final Logger log;
+    private final PageRenderer pageRenderer;
+    private final CachedPageStore pageStore;
+    private final Random random = new Random();
+    private final Set<String> scheduledUrls = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+    private final AtomicLong scheduledCount = new AtomicLong();
+    private final AtomicLong renderCount = new AtomicLong();
+    private final AtomicLong failureCount = new AtomicLong();
+    private int threadCount = 2;
+    private ScheduledExecutorService executor;
+
+    @Inject
+    PrerenderScheduler(PageRenderer pageRenderer, CachedPageStore pageStore, Logger log) {
+        this.pageRenderer = pageRenderer;
+        this.pageStore = pageStore;
+        this.log = log;
+    }
+
+    @Inject(optional = true)
+    void setThreadCount(@PrerenderThreads int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    /**
+     * Pre-renders the given pages and keeps them fresh. Pages already scheduled are skipped.
+     *
+     * @param urls The URLs of the pages.
+     */
+    public void schedule(Collection<String> urls) {
+        ScheduledExecutorService executor = getExecutor();
+        for (String url : urls) {
+            if (scheduledUrls.add(url)) {
+                scheduledCount.incrementAndGet();
+                executor.execute(new Refresh(url));
+            }
+        }
+    }
+
+    /**
+     * Pre-renders the pages listed in a sitemap file and keeps them fresh.
+     *
+     * @param sitemap The sitemap, in the sitemaps.org XML format.
+     * @throws IOException If the sitemap can't be read.
+     */
+    public void scheduleSitemap(File sitemap) throws IOException {
+        String content = new String(Files.readAllBytes(sitemap.toPath()), StandardCharsets.UTF_8);
+
+        List<String> urls = new ArrayList<>();
+        Matcher matcher = SITEMAP_LOCATION.matcher(content);
+        while (matcher.find()) {
+            urls.add(matcher.group(1).replace("&amp;", "&"));
+        }
+
+        schedule(urls);
+    }
+
+    /**
+     * Pre-renders the pages of the given place tokens and keeps them fresh. Tokens with route parameters are ignored.
+     *
+     * @param baseUrl     The URL of the application host page, without hash fragment.
+     * @param placeTokens The place tokens, as returned by {@code PlaceTokenRegistry.getAllPlaceTokens()}.
+     */
+    public void schedulePlaceTokens(String baseUrl, Collection<String> placeTokens) {
+        List<String> urls = new ArrayList<>();
+        for (String placeToken : placeTokens) {
+            if (!placeToken.contains("{")) {
+                urls.add(baseUrl + "#!" + placeToken);
+            }
+        }
+
+        schedule(urls);
+    }
+
+    /**
+     * Stops pre-rendering pages. Renders in progress complete.
+     */
+    public void shutdown() {
+        getExecutor().shutdown();
+    }
+
+    public long getScheduledCount() {
+        return scheduledCount.get();
+    }
+
+    public long getRenderCount() {
+        return renderCount.get();
+    }
+
+    public long getFailureCount() {
+        return failureCount.get();
+    }
+
+    /**
+     * Renders the page at {@code url} unless the stored page is still fresh.
+     *
+     * @return The delay before the page must be refreshed, in milliseconds.
+     */
+    private long refresh(String url) throws IOException {
+        long refreshAfterMillis = (long) (CrawlServiceServlet.cachedPageTimeoutSec * 1000 * REFRESH_RATIO);
+
+        CachedPage page = pageStore.load(url);
+        if (page != null && !page.isFetchInProgress() && page.hasContent()) {
+            long ageMillis = System.currentTimeMillis() - page.getFetchDate().getTime();
+            if (ageMillis < refreshAfterMillis) {
+                return refreshAfterMillis - ageMillis;
+            }
+        }
+
+        if (pageRenderer.render(url, CrawlServiceServlet.MAX_WAIT_MILLIS, Priority.REFRESH) != null) {
+            renderCount.incrementAndGet();
+        }
+        return refreshAfterMillis;
+    }
+
+    private long jitter(long delayMillis) {
+        synchronized (random) {
+            return (long) (delayMillis * (1 - JITTER_RATIO * random.nextDouble()));
+        }
+    }
+
+    private synchronized ScheduledExecutorService getExecutor() {
+        if (executor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ScheduledThreadPoolExecutor(threadCount, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "crawl-prerender-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,266 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.google.inject.Inject;
+import com.gwtplatform.crawlerservice.server.RenderQueueCapacity;
+import com.gwtplatform.crawlerservice.server.RenderThreads;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+import javax.inject.Singleton;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders pages on a bounded number of {@link RenderThreads} threads, so a burst of crawler requests can't tie up every
+ * container thread in HtmlUnit. Renders wait in a priority queue: pages requested by crawlers go before background
+ * refreshes, and among them pages requested by the most callers go first.
+ * <p/>
+ * The queue holds at most {@link RenderQueueCapacity} renders, more are rejected with a
+ * {@link RenderRejectedException}. Refreshes are rejected once the queue is half full, so they never take the room of
+ * pages crawlers are waiting for. The queue depth and the time renders wait in it are available for monitoring.
+ */
+@Singleton
+public class RenderExecutor {
+    public enum Priority {
+        /**
+         * A crawler is waiting for the page.
+         */
+        CACHE_MISS,
+        /**
+         * The page is rendered in the background, before it expires.
+         */
+        REFRESH
+    }
+
+    /**
+     * A render waiting in, or taken from, the queue of the {@link RenderExecutor}.
+     */
+    public class RenderTask extends FutureTask<CachedPage> implements Comparable<RenderTask> {
+        private final long sequence = sequenceNumber.incrementAndGet();
+        private final Runnable onDone;
+        private Priority priority;
+        private int callerCount = 1;
+        private long queuedAtNanos;
+
+        private RenderTask(Callable<CachedPage> render, Priority priority, Runnable onDone) {
+            super(render);
+
+            this.priority = priority;
+            this.onDone = onDone;
+        }
+
+        @Override
+        public void run() {
+            long startNanos = System.nanoTime();
+            recordQueueWait(startNanos - queuedAtNanos);
+            try {
+                super.run();
+            } finally {
+                totalRenderNanos.addAndGet(System.nanoTime() - startNanos);
+                renderCount.incrementAndGet();
+            }
+        }
+
+        @Override
+        public int compareTo(RenderTask other) {
+            if (priority != other.priority) {
+                return priority.compareTo(other.priority);
+            }
+            if (callerCount != other.callerCount) {
+                return callerCount > other.callerCount ? -1 : 1;
+            }
+            return Long.compare(sequence, other.sequence);
+        }
+
+        @Override
+        protected void done() {
+            onDone.run();
+        }
+    }
+
+    private static final int DEFAULT_QUEUE_CAPACITY = 50;
+    private static final long MAX_RETRY_AFTER_SECONDS = 60;
+
+    private final PriorityBlockingQueue<Runnable> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequenceNumber = new AtomicLong();
+    private final AtomicLong submittedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong renderCount = new AtomicLong();
+    private final AtomicLong totalRenderNanos = new AtomicLong();
+    private final AtomicLong totalQueueWaitNanos = new AtomicLong();
+    private final AtomicLong maxQueueWaitNanos = new AtomicLong();
+    private int threadCount = Runtime.getRuntime().availableProcessors();
+    private int queueCapacity = DEFAULT_QUEUE_CAPACITY;
+    private ThreadPoolExecutor executor;
+
+    @Inject
+    RenderExecutor() {
+    }
+
+    @Inject(optional = true)
+    void setThreadCount(@RenderThreads int threadCount) {
+        this.threadCount = threadCount;
+    }
+
+    @Inject(optional = true)
+    void setQueueCapacity(@RenderQueueCapacity int queueCapacity) {
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Creates a render that can be queued with {@link #execute(RenderTask)}.
+     *
+     * @param render   Renders and saves the page.
+     * @param priority The priority of the render.
+     * @param onDone   Called once the render completed, failed or was rejected.
+     */
+    public RenderTask newTask(Callable<CachedPage> render, Priority priority, Runnable onDone) {
+        return new RenderTask(render, priority, onDone);
+    }
+
+    /**
+     * Queues a render.
+     *
+     * @throws RenderRejectedException If the queue is full. The render is cancelled.
+     */
+    public synchronized void execute(RenderTask task) throws RenderRejectedException {
+        int limit = task.priority == Priority.REFRESH ? queueCapacity / 2 : queueCapacity;
+        if (queue.size() >= limit) {
+            rejectedCount.incrementAndGet();
+            task.cancel(false);
+            throw new RenderRejectedException("The render queue is full, " + queue.size() + " pages are waiting",
+                    estimateRetryAfterSeconds());
+        }
+
+        submittedCount.incrementAndGet();
+        task.queuedAtNanos = System.nanoTime();
+        getExecutor().execute(task);
+    }
+
+    /**
+     * Records that another caller waits for a render, which moves it ahead of the renders fewer callers wait for.
+     *
+     * @param priority The priority of the caller. The render gets the highest priority of its callers.
+     */
+    public synchronized void join(RenderTask task, Priority priority) {
+        // Tasks must not change while they are in the queue, as it would break its ordering
+        boolean queued = queue.remove(task);
+
+        task.callerCount++;
+        if (priority.compareTo(task.priority) < 0) {
+            task.priority = priority;
+        }
+
+        if (queued) {
+            queue.offer(task);
+        }
+    }
+
+    /**
+     * Stops rendering pages. Queued renders complete.
+     */
+    public synchronized void shutdown() {
+        if (executor != null) {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * @return The number of renders waiting for a thread.
+     */
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public long getSubmittedCount() {
+        return submittedCount.get();
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    /**
+     * @return The number of renders that ran to completion, successfully or not.
+     */
+    public long getRenderCount() {
+        return renderCount.get();
+    }
+
+    /**
+     * @return The average time renders waited in the queue, in milliseconds.
+     */
+    public double getAverageQueueWaitMillis() {
+        long renders = renderCount.get();
+        return renders == 0 ? 0 : totalQueueWaitNanos.get() / 1e6 / renders;
+    }
+
+    /**
+     * @return The longest time a render waited in the queue, in milliseconds.
+     */
+    public double getMaxQueueWaitMillis() {
+        return maxQueueWaitNanos.get() / 1e6;
+    }
+
+    /**
+     * @return The average time renders took once taken from the queue, in milliseconds.
+     */
+    public double getAverageRenderMillis() {
+        long renders = renderCount.get();
+        return renders == 0 ? 0 : totalRenderNanos.get() / 1e6 / renders;
+    }
+
+    /**
+     * Estimates how long it takes for the threads to go through the current queue.
+     */
+    private long estimateRetryAfterSeconds() {
+        double queueMillis = (queue.size() / (double) threadCount + 1) * getAverageRenderMillis();
+        return Math.max(1, Math.min((long) Math.ceil(queueMillis / 1000), MAX_RETRY_AFTER_SECONDS));
+    }
+
+    private void recordQueueWait(long waitNanos) {
+        totalQueueWaitNanos.addAndGet(waitNanos);
+
+        long max = maxQueueWaitNanos.get();
+        while (waitNanos > max && !maxQueueWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxQueueWaitNanos.get();
+        }
+    }
+
+    private ThreadPoolExecutor getExecutor() {
+        if (executor == null) {
+            final AtomicInteger threadNumber = new AtomicInteger();
+            executor = new ThreadPoolExecutor(threadCount, threadCount, 0, TimeUnit.MILLISECONDS, queue,
+                    new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "crawl-render-" + threadNumber.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+        }
+        return executor;
+    }
+}
@@ -0,0 +1,63 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * The longest time renders wait for the JavaScript of a page to settle, per URL pattern. Pages usually settle much
+ * sooner, this only bounds the pages that never do, for example because they poll the server. For example:
+ * <pre>bind(SettleBudgets.class).toInstance(new SettleBudgets().add(".*#!report.*", 20000));
+ * </pre>
+ */
+public class SettleBudgets {
+    private static class Budget {
+        private final Pattern pattern;
+        private final long millis;
+
+        Budget(Pattern pattern, long millis) {
+            this.pattern = pattern;
+            this.millis = millis;
+        }
+    }
+
+    private final List<Budget> budgets = new ArrayList<>();
+
+    /**
+     * Sets the budget of the URLs matching {@code regex}. Patterns are tried in the order they are added.
+     *
+     * @return This instance.
+     */
+    public SettleBudgets add(String regex, long millis) {
+        budgets.add(new Budget(Pattern.compile(regex), millis));
+        return this;
+    }
+
+    /**
+     * @return The budget of the first pattern matching {@code url}, or {@code defaultMillis}.
+     */
+    public long getBudgetMillis(String url, long defaultMillis) {
+        for (Budget budget : budgets) {
+            if (budget.pattern.matcher(url).matches()) {
+                return budget.millis;
+            }
+        }
+        return defaultMillis;
+    }
+}
@@ -0,0 +1,134 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gargoylesoftware.htmlunit.AjaxController;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.DomChangeEvent;
+import com.gargoylesoftware.htmlunit.html.DomChangeListener;
+import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeEvent;
+import com.gargoylesoftware.htmlunit.html.HtmlAttributeChangeListener;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJob;
+import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJobManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the JavaScript of a page until it settles. The page is considered settled once its DOM and the number of
+ * requests it sent did not change for {@link #QUIET_MILLIS} and no timer is due within that window. Pages with
+ * recurring timers settle once nothing changed for {@link #STABLE_MILLIS}, whatever their timers.
+ */
+final class SettleDetector implements DomChangeListener, HtmlAttributeChangeListener {
+    private static final long serialVersionUID = 1L;
+
+    static final long QUIET_MILLIS = 250;
+    static final long STABLE_MILLIS = 1000;
+
+    private static final long POLL_MILLIS = 50;
+
+    private final WebClient webClient;
+    private final HtmlPage page;
+    private final AtomicLong mutationCount = new AtomicLong();
+
+    SettleDetector(WebClient webClient, HtmlPage page) {
+        this.webClient = webClient;
+        this.page = page;
+    }
+
+    /**
+     * Runs the JavaScript jobs of the page until it settles or {@code budgetMillis} elapsed.
+     *
+     * @return {@code true} if the page settled, {@code false} if the budget was exhausted.
+     */
+    boolean awaitSettled(long budgetMillis) throws InterruptedException {
+        JavaScriptJobManager jobManager = page.getEnclosingWindow().getJobManager();
+        long deadline = System.currentTimeMillis() + budgetMillis;
+
+        page.addDomChangeListener(this);
+        page.addHtmlAttributeChangeListener(this);
+        try {
+            long lastActivity = getActivity();
+            long quietSince = System.currentTimeMillis();
+
+            while (true) {
+                long pollStart = System.currentTimeMillis();
+                if (pollStart >= deadline) {
+                    return false;
+                }
+
+                jobManager.waitForJobsStartingBefore(POLL_MILLIS);
+
+                long now = System.currentTimeMillis();
+                long activity = getActivity();
+                if (activity != lastActivity) {
+                    lastActivity = activity;
+                    quietSince = now;
+                } else if (now - quietSince >= STABLE_MILLIS
+                        || (now - quietSince >= QUIET_MILLIS && !isJobDueBefore(jobManager, now + QUIET_MILLIS))) {
+                    return true;
+                }
+
+                // Nothing was due during this poll, don't spin
+                long elapsed = now - pollStart;
+                if (elapsed < POLL_MILLIS) {
+                    Thread.sleep(Math.min(POLL_MILLIS - elapsed, Math.max(0, deadline - now)));
+                }
+            }
+        } finally {
+            page.removeDomChangeListener(this);
+            page.removeHtmlAttributeChangeListener(this);
+        }
+    }
+
+    @Override
+    public void nodeAdded(DomChangeEvent event) {
+        mutationCount.incrementAndGet();
+    }
+
+    @Override
+    public void nodeDeleted(DomChangeEvent event) {
+        mutationCount.incrementAndGet();
+    }
+
+    @Override
+    public void attributeAdded(HtmlAttributeChangeEvent event) {
+        mutationCount.incrementAndGet();
+    }
+
+    @Override
+    public void attributeRemoved(HtmlAttributeChangeEvent event) {
+        mutationCount.incrementAndGet();
+    }
+
+    @Override
+    public void attributeReplaced(HtmlAttributeChangeEvent event) {
+        mutationCount.incrementAndGet();
+    }
+
+    private long getActivity() {
+        AjaxController ajaxController = webClient.getAjaxController();
+        long requestCount = ajaxController instanceof ActivityTrackingAjaxController
+                ? ((ActivityTrackingAjaxController) ajaxController).getRequestCount() : 0;
+        return mutationCount.get() + requestCount;
+    }
+
+    private boolean isJobDueBefore(JavaScriptJobManager jobManager, long time) {
+        JavaScriptJob job = jobManager.getEarliestJob();
+        return job != null && job.getTargetExecutionTime() < time;
+    }
+}
@@ -0,0 +1,223 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gargoylesoftware.htmlunit.SilentCssErrorHandler;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.google.inject.Inject;
+import com.gwtplatform.crawlerservice.server.WebClientMaxReuse;
+import com.gwtplatform.crawlerservice.server.WebClientPoolSize;
+
+import javax.inject.Provider;
+import javax.inject.Singleton;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Bounded pool of configured HtmlUnit {@link WebClient}s. Starting a {@link WebClient} and its JavaScript engine is
+ * expensive, so clients are reset and reused between renders instead of being recreated. A client is closed and
+ * replaced when a render fails, when it can't be reset, or once it rendered {@link WebClientMaxReuse} pages.
+ * <p/>
+ * The pool size bounds the number of concurrent renders, callers wait for a free client for at most
+ * {@link #MAX_WAIT_MILLIS}. The time spent waiting is available for monitoring.
+ */
+@Singleton
+public class WebClientPool {
+    /**
+     * A {@link WebClient} borrowed from the pool. Must be given back with
+     * {@link WebClientPool#release(Lease, boolean)}.
+     */
+    public static final class Lease {
+        private final WebClient webClient;
+        private int useCount;
+
+        private Lease(WebClient webClient) {
+            this.webClient = webClient;
+        }
+
+        public WebClient getWebClient() {
+            return webClient;
+        }
+    }
+
+    public static final long MAX_WAIT_MILLIS = 30000;
+
+    private static final int DEFAULT_MAX_REUSE = 50;
+
+    private final Logger log;
+    private final Provider<WebClient> webClientProvider;
+    private final ConcurrentLinkedQueue<Lease> idleLeases = new ConcurrentLinkedQueue<>();
+    private final AtomicLong acquireCount = new AtomicLong();
+    private final AtomicLong createCount = new AtomicLong();
+    private final AtomicLong discardCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private Semaphore permits = new Semaphore(Runtime.getRuntime().availableProcessors(), true);
+    private int maxReuse = DEFAULT_MAX_REUSE;
+
+    @Inject
+    WebClientPool(Provider<WebClient> webClientProvider, Logger log) {
+        this.webClientProvider = webClientProvider;
+        this.log = log;
+    }
+
+    @Inject(optional = true)
+    void setPoolSize(@WebClientPoolSize int poolSize) {
+        permits = new Semaphore(poolSize, true);
+    }
+
+    @Inject(optional = true)
+    void setMaxReuse(@WebClientMaxReuse int maxReuse) {
+        this.maxReuse = maxReuse;
+    }
+
+    /**
+     * Borrows a client, waiting up to {@link #MAX_WAIT_MILLIS} for one to be released.
+     *
+     * @return The borrowed client.
+     * @throws IOException If no client is available in time.
+     */
+    public Lease acquire() throws IOException {
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(MAX_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for a WebClient", e);
+        }
+
+        if (!acquired) {
+            throw new IOException("No WebClient available after " + MAX_WAIT_MILLIS + " ms");
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            Lease lease = idleLeases.poll();
+            if (lease == null) {
+                lease = new Lease(createWebClient());
+            }
+            lease.useCount++;
+            acquireCount.incrementAndGet();
+            return lease;
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Gives a client back to the pool. Healthy clients are reset and kept for the next render, other ones are closed.
+     *
+     * @param lease   The borrowed client.
+     * @param healthy {@code false} if the render failed and the client should not be reused.
+     */
+    public void release(Lease lease, boolean healthy) {
+        try {
+            if (healthy && lease.useCount < maxReuse && reset(lease.webClient)) {
+                idleLeases.offer(lease);
+            } else {
+                discard(lease.webClient);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    public long getAcquireCount() {
+        return acquireCount.get();
+    }
+
+    public long getCreateCount() {
+        return createCount.get();
+    }
+
+    public long getDiscardCount() {
+        return discardCount.get();
+    }
+
+    /**
+     * @return The average time callers waited for a client, in milliseconds.
+     */
+    public double getAverageWaitMillis() {
+        long acquires = acquireCount.get();
+        return acquires == 0 ? 0 : totalWaitNanos.get() / 1e6 / acquires;
+    }
+
+    /**
+     * @return The longest time a caller waited for a client, in milliseconds.
+     */
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    /**
+     * @return The number of renders waiting for a client.
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    private WebClient createWebClient() {
+        WebClient webClient = webClientProvider.get();
+        createCount.incrementAndGet();
+
+        webClient.getOptions().setCssEnabled(false);
+        webClient.getOptions().setJavaScriptEnabled(true);
+        webClient.getOptions().setThrowExceptionOnScriptError(false);
+        webClient.getOptions().setRedirectEnabled(false);
+        webClient.setAjaxController(new ActivityTrackingAjaxController());
+        webClient.setCssErrorHandler(new SilentCssErrorHandler());
+
+        return webClient;
+    }
+
+    private boolean reset(WebClient webClient) {
+        try {
+            webClient.closeAllWindows();
+            webClient.getCache().clear();
+            webClient.getCookieManager().clearCookies();
+            return webClient.getJavaScriptEngine() != null;
+        } catch (RuntimeException e) {
+            log.log(Level.WARNING, "Unable to reset WebClient, it will be replaced", e);
+            return false;
+        }
+    }
+
+    private void discard(WebClient webClient) {
+        discardCount.incrementAndGet();
+        try {
+            webClient.closeAllWindows();
+        } catch (RuntimeException e) {
+            log.log(Level.FINE, "Unable to close discarded WebClient", e);
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        totalWaitNanos.addAndGet(waitNanos);
+
+        long max = maxWaitNanos.get();
+        while (waitNanos > max && !maxWaitNanos.compareAndSet(max, waitNanos)) {
+            max = maxWaitNanos.get();
+        }
+    }
+}
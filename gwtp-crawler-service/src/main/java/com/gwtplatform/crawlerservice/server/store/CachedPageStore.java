@@ -0,0 +1,34 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.store;
+
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+/**
+ * Persists the rendered pages served by {@link com.gwtplatform.crawlerservice.server.CrawlServiceServlet}.
+ */
+public interface CachedPageStore {
+    /**
+     * @param url The URL of the page.
+     * @return The stored page, or {@code null} if none is stored for {@code url}.
+     */
+    CachedPage load(String url);
+
+    void save(CachedPage page);
+
+    void delete(CachedPage page);
+}
@@ -0,0 +1,503 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.store;
+
+import com.google.inject.Inject;
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.PageStoreDirectory;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+import javax.inject.Singleton;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+/**
+ * Stores pages in local files, for deployments without the App Engine datastore. Saved and deleted pages are appended
+ * to segment files in the {@link PageStoreDirectory}, an in-memory index points to the latest record of every URL so a
+ * load takes a single read. The index is rebuilt from the segments when the store is created. Records are checksummed,
+ * a record only partially written to the last segment before a crash is dropped. Older segments are never truncated: a
+ * corrupted record there is reported and the rest of that segment is skipped, the file is left for inspection until
+ * the next compaction.
+ * <p/>
+ * Once a segment reaches {@value #SEGMENT_MAX_BYTES} bytes, a new one is started. When more than half of the stored
+ * bytes belong to overwritten or deleted pages, the store is compacted: the live pages are copied to a new segment,
+ * pages that expired after {@link CrawlServiceServlet#cachedPageTimeoutSec} are dropped and the old segments are
+ * deleted. Call {@link #compact()} to compact the store on a schedule instead. Writes and compactions block loads.
+ * <p/>
+ * The segment files are flushed and closed by {@link #close()}, or by a shutdown hook when the JVM exits.
+ */
+@Singleton
+public class FileCachedPageStore implements CachedPageStore {
+    private static class Segment {
+        private final long id;
+        private final File file;
+        private final FileChannel channel;
+        private long size;
+        private long liveBytes;
+
+        Segment(long id, File file) throws IOException {
+            this.id = id;
+            this.file = file;
+            this.channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            this.size = channel.size();
+        }
+    }
+
+    private static class Entry {
+        private final Segment segment;
+        private final long offset;
+        private final int length;
+        private final long fetchDate;
+
+        Entry(Segment segment, long offset, int length, long fetchDate) {
+            this.segment = segment;
+            this.offset = offset;
+            this.length = length;
+            this.fetchDate = fetchDate;
+        }
+    }
+
+    public static final long SEGMENT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final double COMPACTION_DEAD_RATIO = 0.5;
+    private static final int HEADER_BYTES = 8;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d+)\\.log");
+
+    private final Logger log;
+    private final File directory;
+    private final ConcurrentMap<String, Entry> index = new ConcurrentHashMap<>();
+    private final TreeMap<Long, Segment> segments = new TreeMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicLong compactionCount = new AtomicLong();
+    private final Thread shutdownHook = new Thread("page-store-shutdown") {
+        @Override
+        public void run() {
+            try {
+                close();
+            } catch (IOException e) {
+                log.log(Level.WARNING, "Unable to close the page store in " + directory, e);
+            }
+        }
+    };
+    private Segment activeSegment;
+    private boolean closed;
+
+    @Inject
+    FileCachedPageStore(@PageStoreDirectory String directory, Logger log) throws IOException {
+        this.directory = new File(directory);
+        this.log = log;
+
+        if (!this.directory.isDirectory() && !this.directory.mkdirs()) {
+            throw new IOException("Unable to create the page store directory " + directory);
+        }
+        recover();
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    @Override
+    public CachedPage load(String url) {
+        lock.readLock().lock();
+        try {
+            Entry entry = index.get(url);
+            if (entry == null) {
+                return null;
+            }
+
+            byte[] record = readRecord(entry.segment, entry.offset);
+            if (record == null) {
+                throw new IllegalStateException("Corrupted page store record for " + url);
+            }
+            return decodePage(record);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to load " + url, e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void save(CachedPage page) {
+        byte[] record = encodePage(page);
+        long fetchDate = page.getFetchDate() == null ? 0 : page.getFetchDate().getTime();
+
+        lock.writeLock().lock();
+        try {
+            Segment segment = activeSegment;
+            long offset = append(record);
+            putEntry(page.getUrl(), new Entry(segment, offset, HEADER_BYTES + record.length, fetchDate));
+            rollIfFull();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to save " + page.getUrl(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void delete(CachedPage page) {
+        byte[] record = encodeDelete(page.getUrl());
+
+        lock.writeLock().lock();
+        try {
+            append(record);
+            removeEntry(page.getUrl());
+            rollIfFull();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to delete " + page.getUrl(), e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the live pages to a new segment and deletes the previous segments. Expired pages are dropped.
+     */
+    public void compact() {
+        lock.writeLock().lock();
+        try {
+            compactSegments();
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to compact the page store", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes the segment files. The store can't be used anymore.
+     */
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (Thread.currentThread() != shutdownHook) {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            }
+            activeSegment.channel.force(false);
+            for (Segment segment : segments.values()) {
+                segment.channel.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getPageCount() {
+        return index.size();
+    }
+
+    public long getCompactionCount() {
+        return compactionCount.get();
+    }
+
+    /**
+     * @return The size of the segment files, in bytes.
+     */
+    public long getDiskBytes() {
+        lock.readLock().lock();
+        try {
+            long size = 0;
+            for (Segment segment : segments.values()) {
+                size += segment.size;
+            }
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void recover() throws IOException {
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+                if (matcher.matches()) {
+                    long id = Long.parseLong(matcher.group(1));
+                    segments.put(id, new Segment(id, file));
+                }
+            }
+        }
+
+        for (Segment segment : segments.values()) {
+            replay(segment, segment.id == segments.lastKey());
+        }
+        log.info("Loaded " + index.size() + " pages from " + segments.size() + " segments in " + directory);
+
+        if (segments.isEmpty()) {
+            activeSegment = newSegment();
+        } else {
+            activeSegment = segments.lastEntry().getValue();
+            rollIfFull();
+        }
+    }
+
+    /**
+     * Indexes the records of a segment. Only the last segment can end with a record interrupted by a crash, which is
+     * truncated so new records are appended right after the last complete one.
+     */
+    private void replay(Segment segment, boolean last) throws IOException {
+        long position = 0;
+        while (position < segment.size) {
+            byte[] record = readRecord(segment, position);
+            if (record == null) {
+                if (last) {
+                    log.warning("Dropping the corrupted end of " + segment.file + " from position " + position);
+                    segment.channel.truncate(position);
+                    segment.size = position;
+                } else {
+                    log.severe("Corrupted record in " + segment.file + " at position " + position
+                            + ", the rest of the segment is skipped");
+                }
+                break;
+            }
+
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+            byte type = in.readByte();
+            String url = in.readUTF();
+            if (type == PUT) {
+                putEntry(url, new Entry(segment, position, HEADER_BYTES + record.length, in.readLong()));
+            } else {
+                removeEntry(url);
+            }
+            position += HEADER_BYTES + record.length;
+        }
+    }
+
+    /**
+     * Copies the live pages of every segment to a new segment. Writes are blocked, so the pages copied are the latest
+     * ones and all the pages appended later are in the new segments.
+     */
+    private void compactSegments() throws IOException {
+        List<Segment> oldSegments = new ArrayList<>(segments.values());
+        activeSegment = newSegment();
+
+        long expiredBefore = System.currentTimeMillis() - CrawlServiceServlet.cachedPageTimeoutSec * 1000;
+        int expiredCount = 0;
+        for (Map.Entry<String, Entry> indexEntry : index.entrySet()) {
+            Entry entry = indexEntry.getValue();
+            if (entry.fetchDate < expiredBefore) {
+                removeEntry(indexEntry.getKey());
+                expiredCount++;
+                continue;
+            }
+
+            byte[] record = readRecord(entry.segment, entry.offset);
+            if (record == null) {
+                log.warning("Dropping the corrupted page " + indexEntry.getKey());
+                removeEntry(indexEntry.getKey());
+                continue;
+            }
+
+            Segment segment = activeSegment;
+            long offset = append(record);
+            putEntry(indexEntry.getKey(), new Entry(segment, offset, entry.length, entry.fetchDate));
+            if (activeSegment.size >= SEGMENT_MAX_BYTES) {
+                activeSegment = newSegment();
+            }
+        }
+
+        for (Segment segment : oldSegments) {
+            segments.remove(segment.id);
+            segment.channel.close();
+            if (!segment.file.delete()) {
+                log.warning("Unable to delete the compacted segment " + segment.file);
+            }
+        }
+
+        compactionCount.incrementAndGet();
+        log.info("Compacted the page store, " + index.size() + " pages kept and " + expiredCount + " expired");
+    }
+
+    private void rollIfFull() throws IOException {
+        if (activeSegment.size < SEGMENT_MAX_BYTES) {
+            return;
+        }
+
+        activeSegment.channel.force(false);
+        activeSegment = newSegment();
+
+        long size = 0;
+        long liveBytes = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.size;
+            liveBytes += segment.liveBytes;
+        }
+        if (size - liveBytes > size * COMPACTION_DEAD_RATIO) {
+            compactSegments();
+        }
+    }
+
+    private Segment newSegment() throws IOException {
+        long id = segments.isEmpty() ? 1 : segments.lastKey() + 1;
+        Segment segment = new Segment(id, new File(directory, String.format("segment-%010d.log", id)));
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void putEntry(String url, Entry entry) {
+        Entry previous = index.put(url, entry);
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.length;
+        }
+        entry.segment.liveBytes += entry.length;
+    }
+
+    private void removeEntry(String url) {
+        Entry previous = index.remove(url);
+        if (previous != null) {
+            previous.segment.liveBytes -= previous.length;
+        }
+    }
+
+    /**
+     * Appends a record to the active segment.
+     *
+     * @return The position of the record in the segment.
+     */
+    private long append(byte[] record) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(record);
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + record.length);
+        buffer.putInt(record.length);
+        buffer.putInt((int) crc.getValue());
+        buffer.put(record);
+        buffer.flip();
+
+        long offset = activeSegment.size;
+        while (buffer.hasRemaining()) {
+            activeSegment.channel.write(buffer, offset + buffer.position());
+        }
+        activeSegment.size += buffer.limit();
+        return offset;
+    }
+
+    /**
+     * @return The record at {@code position}, or {@code null} if it is incomplete or corrupted.
+     */
+    private byte[] readRecord(Segment segment, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        if (!readFully(segment.channel, header, position)) {
+            return null;
+        }
+        header.flip();
+        int length = header.getInt();
+        int checksum = header.getInt();
+        if (length < 0 || position + HEADER_BYTES + length > segment.size) {
+            return null;
+        }
+
+        ByteBuffer record = ByteBuffer.allocate(length);
+        if (!readFully(segment.channel, record, position + HEADER_BYTES)) {
+            return null;
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(record.array());
+        return (int) crc.getValue() == checksum ? record.array() : null;
+    }
+
+    private boolean readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private byte[] encodePage(CachedPage page) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(PUT);
+            out.writeUTF(page.getUrl());
+            out.writeLong(page.getFetchDate() == null ? 0 : page.getFetchDate().getTime());
+            out.writeBoolean(page.isFetchInProgress());
+            if (page.hasContent()) {
+                byte[] content = page.getCompressedContent();
+                out.writeUTF(page.getContentHash());
+                out.writeInt(content.length);
+                out.write(content);
+            } else {
+                out.writeUTF("");
+                out.writeInt(-1);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private byte[] encodeDelete(String url) {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(buffer)) {
+            out.writeByte(DELETE);
+            out.writeUTF(url);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private CachedPage decodePage(byte[] record) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        in.readByte();
+
+        CachedPage page = new CachedPage();
+        page.setUrl(in.readUTF());
+        page.setFetchDate(new Date(in.readLong()));
+        page.setFetchInProgress(in.readBoolean());
+
+        String contentHash = in.readUTF();
+        int length = in.readInt();
+        if (length >= 0) {
+            byte[] content = new byte[length];
+            in.readFully(content);
+            page.setCompressedContent(content, contentHash);
+        }
+        return page;
+    }
+}
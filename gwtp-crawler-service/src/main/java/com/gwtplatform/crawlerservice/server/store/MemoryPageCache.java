@@ -0,0 +1,96 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.store;
+
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded in-process cache of completed pages. The size of the cache is limited by the approximate number of bytes used
+ * by the compressed page contents, the least recently used pages are evicted first. Pages expire
+ * {@code timeToLiveMillis} after their fetch date.
+ */
+class MemoryPageCache {
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+
+    private static class Entry {
+        private final CachedPage page;
+        private final long sizeBytes;
+        private final long expiresAt;
+
+        Entry(CachedPage page, long sizeBytes, long expiresAt) {
+            this.page = page;
+            this.sizeBytes = sizeBytes;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private final long maxBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long sizeBytes;
+
+    MemoryPageCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    synchronized CachedPage get(String url, long now) {
+        Entry entry = entries.get(url);
+        if (entry == null) {
+            return null;
+        }
+
+        if (now >= entry.expiresAt) {
+            remove(url);
+            return null;
+        }
+
+        return entry.page;
+    }
+
+    synchronized void put(CachedPage page, long timeToLiveMillis) {
+        remove(page.getUrl());
+
+        byte[] content = page.getCompressedContent();
+        long entrySize = ENTRY_OVERHEAD_BYTES + 2L * page.getUrl().length() + (content == null ? 0 : content.length);
+        if (entrySize > maxBytes) {
+            return;
+        }
+
+        entries.put(page.getUrl(), new Entry(page, entrySize, page.getFetchDate().getTime() + timeToLiveMillis));
+        sizeBytes += entrySize;
+
+        Iterator<Map.Entry<String, Entry>> eldest = entries.entrySet().iterator();
+        while (sizeBytes > maxBytes && eldest.hasNext()) {
+            sizeBytes -= eldest.next().getValue().sizeBytes;
+            eldest.remove();
+        }
+    }
+
+    synchronized void remove(String url) {
+        Entry entry = entries.remove(url);
+        if (entry != null) {
+            sizeBytes -= entry.sizeBytes;
+        }
+    }
+
+    synchronized long getSizeBytes() {
+        return sizeBytes;
+    }
+}
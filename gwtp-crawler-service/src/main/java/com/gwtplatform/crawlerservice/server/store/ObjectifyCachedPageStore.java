@@ -0,0 +1,44 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.store;
+
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+import javax.inject.Singleton;
+
+import static com.googlecode.objectify.ObjectifyService.ofy;
+
+/**
+ * Stores pages in the App Engine datastore with Objectify.
+ */
+@Singleton
+public class ObjectifyCachedPageStore implements CachedPageStore {
+    @Override
+    public CachedPage load(String url) {
+        return ofy().load().type(CachedPage.class).id(url).now();
+    }
+
+    @Override
+    public void save(CachedPage page) {
+        ofy().save().entity(page).now();
+    }
+
+    @Override
+    public void delete(CachedPage page) {
+        ofy().delete().entity(page).now();
+    }
+}
@@ -0,0 +1,140 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.store;
+
+import com.google.inject.Inject;
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.PageCacheMaxBytes;
+import com.gwtplatform.crawlerservice.server.PersistentPageStore;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+
+import javax.inject.Singleton;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Two-tier page store: completed pages are kept in a bounded in-memory cache consulted before the
+ * {@link PersistentPageStore persistent store}, so hot URLs do not cost a datastore round-trip on every crawler
+ * request. Pages are written through to both tiers, pages still being fetched only go to the persistent store.
+ * <p/>
+ * Pages stay in memory at most {@link CrawlServiceServlet#cachedPageTimeoutSec} after their fetch date, like in the
+ * persistent store. The hit counts of both tiers are available for monitoring.
+ */
+@Singleton
+public class TieredCachedPageStore implements CachedPageStore {
+    private static final long DEFAULT_MAX_BYTES = 32L * 1024 * 1024;
+
+    private final CachedPageStore persistentStore;
+    private final AtomicLong memoryHitCount = new AtomicLong();
+    private final AtomicLong persistentHitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private MemoryPageCache memoryCache = new MemoryPageCache(DEFAULT_MAX_BYTES);
+
+    @Inject
+    TieredCachedPageStore(@PersistentPageStore CachedPageStore persistentStore) {
+        this.persistentStore = persistentStore;
+    }
+
+    @Inject(optional = true)
+    void setMaxBytes(@PageCacheMaxBytes long maxBytes) {
+        memoryCache = maxBytes > 0 ? new MemoryPageCache(maxBytes) : null;
+    }
+
+    @Override
+    public CachedPage load(String url) {
+        if (memoryCache != null) {
+            CachedPage page = memoryCache.get(url, System.currentTimeMillis());
+            if (page != null) {
+                memoryHitCount.incrementAndGet();
+                return page;
+            }
+        }
+
+        CachedPage page = persistentStore.load(url);
+        if (page == null) {
+            missCount.incrementAndGet();
+        } else {
+            persistentHitCount.incrementAndGet();
+            cache(page);
+        }
+
+        return page;
+    }
+
+    @Override
+    public void save(CachedPage page) {
+        persistentStore.save(page);
+        cache(page);
+    }
+
+    @Override
+    public void delete(CachedPage page) {
+        if (memoryCache != null) {
+            memoryCache.remove(page.getUrl());
+        }
+        persistentStore.delete(page);
+    }
+
+    public long getMemoryHitCount() {
+        return memoryHitCount.get();
+    }
+
+    public long getPersistentHitCount() {
+        return persistentHitCount.get();
+    }
+
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * @return The ratio of loads answered by the in-memory cache.
+     */
+    public double getMemoryHitRatio() {
+        long memoryHits = memoryHitCount.get();
+        long total = memoryHits + persistentHitCount.get() + missCount.get();
+        return total == 0 ? 0 : (double) memoryHits / total;
+    }
+
+    /**
+     * @return The ratio of loads answered by the persistent store.
+     */
+    public double getPersistentHitRatio() {
+        long persistentHits = persistentHitCount.get();
+        long total = memoryHitCount.get() + persistentHits + missCount.get();
+        return total == 0 ? 0 : (double) persistentHits / total;
+    }
+
+    /**
+     * @return The approximate number of bytes used by the in-memory cache.
+     */
+    public long getMemorySizeBytes() {
+        return memoryCache == null ? 0 : memoryCache.getSizeBytes();
+    }
+
+    private void cache(CachedPage page) {
+        if (memoryCache == null) {
+            return;
+        }
+
+        if (page.isFetchInProgress() || !page.hasContent()) {
+            // Placeholders must be read from the persistent store, where the page will be completed
+            memoryCache.remove(page.getUrl());
+        } else {
+            memoryCache.put(page, CrawlServiceServlet.cachedPageTimeoutSec * 1000);
+        }
+    }
+}
@@ -0,0 +1,252 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.benchmark;
+
+import com.gargoylesoftware.htmlunit.BrowserVersion;
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.google.inject.AbstractModule;
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Provides;
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.PageStoreDirectory;
+import com.gwtplatform.crawlerservice.server.PersistentPageStore;
+import com.gwtplatform.crawlerservice.server.ServiceKey;
+import com.gwtplatform.crawlerservice.server.render.PageRenderer;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor;
+import com.gwtplatform.crawlerservice.server.render.WebClientPool;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
+import com.gwtplatform.crawlerservice.server.store.FileCachedPageStore;
+import com.gwtplatform.crawlerservice.server.store.TieredCachedPageStore;
+
+import javax.servlet.http.HttpServletResponse;
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Measures the throughput and latency of the crawl service. The {@link CrawlServiceServlet} is called in-process by
+ * {@code concurrency} threads for pages of a local {@link FixtureServer fixture application}, with a skewed
+ * distribution so popular pages are requested more often, like crawlers do. Reports renders per second, the latency
+ * percentiles of the requests, the page cache hit ratios and the heap usage.
+ * <p/>
+ * Configured with system properties, for example:
+ * <pre>
+ * mvn test-compile exec:java -Dexec.classpathScope=test \
+ *     -Dexec.mainClass=com.gwtplatform.crawlerservice.benchmark.CrawlServiceBenchmark \
+ *     -Dbenchmark.requests=500 -Dbenchmark.concurrency=16
+ * </pre>
+ * <ul>
+ * <li>{@code benchmark.requests}: the number of measured requests, 200 by default.</li>
+ * <li>{@code benchmark.concurrency}: the number of threads sending requests, 8 by default.</li>
+ * <li>{@code benchmark.pages}: the number of distinct pages, 20 by default.</li>
+ * <li>{@code benchmark.xhrDelayMillis}: how long the fixture takes to answer the page XHR, 100 by default.</li>
+ * <li>{@code benchmark.rows}: the number of table rows of the fixture pages, 200 by default.</li>
+ * <li>{@code benchmark.gzip}: {@code true} to request gzipped pages, like {@code CrawlFilter} does.</li>
+ * </ul>
+ */
+public class CrawlServiceBenchmark {
+    private static final String SERVICE_KEY = "benchmark";
+
+    private final int requestCount = Integer.getInteger("benchmark.requests", 200);
+    private final int concurrency = Integer.getInteger("benchmark.concurrency", 8);
+    private final int pageCount = Integer.getInteger("benchmark.pages", 20);
+    private final long xhrDelayMillis = Long.getLong("benchmark.xhrDelayMillis", 100);
+    private final int rowCount = Integer.getInteger("benchmark.rows", 200);
+    private final boolean gzip = Boolean.getBoolean("benchmark.gzip");
+
+    private final long[] latenciesNanos = new long[requestCount];
+    private final AtomicInteger nextRequest = new AtomicInteger();
+    private final AtomicInteger pageResponses = new AtomicInteger();
+    private final AtomicInteger inProgressResponses = new AtomicInteger();
+    private final AtomicInteger rejectedResponses = new AtomicInteger();
+    private final AtomicInteger failedResponses = new AtomicInteger();
+    private final AtomicLong responseBytes = new AtomicLong();
+    private final AtomicLong peakHeapBytes = new AtomicLong();
+
+    public static void main(String[] args) throws Exception {
+        Logger.getLogger("").setLevel(Level.WARNING);
+        Logger.getLogger("com.gargoylesoftware").setLevel(Level.OFF);
+
+        new CrawlServiceBenchmark().run();
+        System.exit(0);
+    }
+
+    private void run() throws Exception {
+        final File pageStoreDirectory = Files.createTempDirectory("crawl-benchmark").toFile();
+        FixtureServer fixtureServer = new FixtureServer(xhrDelayMillis, rowCount);
+        fixtureServer.start();
+
+        Injector injector = Guice.createInjector(new AbstractModule() {
+            @Override
+            protected void configure() {
+                bind(CachedPageStore.class).annotatedWith(PersistentPageStore.class).to(FileCachedPageStore.class);
+                bind(CachedPageStore.class).to(TieredCachedPageStore.class);
+                bindConstant().annotatedWith(ServiceKey.class).to(SERVICE_KEY);
+                bindConstant().annotatedWith(PageStoreDirectory.class).to(pageStoreDirectory.getPath());
+            }
+
+            @Provides
+            WebClient getWebClient() {
+                return new WebClient(BrowserVersion.FIREFOX_17);
+            }
+        });
+        CrawlServiceServlet servlet = injector.getInstance(CrawlServiceServlet.class);
+
+        Thread heapSampler = startHeapSampler();
+        long start = System.nanoTime();
+        runClients(servlet, fixtureServer);
+        long elapsedNanos = System.nanoTime() - start;
+        heapSampler.interrupt();
+
+        report(injector, elapsedNanos);
+        fixtureServer.stop();
+    }
+
+    private void runClients(final CrawlServiceServlet servlet, final FixtureServer fixtureServer)
+            throws InterruptedException {
+        final CountDownLatch done = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            final Random random = new Random(i);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        int request;
+                        while ((request = nextRequest.getAndIncrement()) < requestCount) {
+                            // Squaring favors the first pages, which get most of the requests
+                            double skew = random.nextDouble();
+                            String url = fixtureServer.getPageUrl("page" + (int) (pageCount * skew * skew));
+                            latenciesNanos[request] = call(servlet, url);
+                        }
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "benchmark-client-" + i).start();
+        }
+        done.await();
+    }
+
+    private long call(CrawlServiceServlet servlet, String url) {
+        ServletCall call = new ServletCall()
+                .parameter("key", SERVICE_KEY)
+                .parameter("url", url)
+                .parameter("wait", String.valueOf(CrawlServiceServlet.MAX_WAIT_MILLIS));
+        if (gzip) {
+            call.header("Accept-Encoding", "gzip");
+        }
+
+        long start = System.nanoTime();
+        try {
+            call.execute(servlet);
+        } catch (Exception e) {
+            failedResponses.incrementAndGet();
+        }
+        long latencyNanos = System.nanoTime() - start;
+
+        if (call.getStatus() == HttpServletResponse.SC_SERVICE_UNAVAILABLE) {
+            rejectedResponses.incrementAndGet();
+        } else if (call.getStatus() != HttpServletResponse.SC_OK) {
+            failedResponses.incrementAndGet();
+        } else if (call.isFetchInProgress()) {
+            inProgressResponses.incrementAndGet();
+        } else {
+            pageResponses.incrementAndGet();
+            responseBytes.addAndGet(call.getBodyLength());
+        }
+        return latencyNanos;
+    }
+
+    private Thread startHeapSampler() {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        Thread sampler = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                while (!Thread.currentThread().isInterrupted()) {
+                    long used = memory.getHeapMemoryUsage().getUsed();
+                    if (used > peakHeapBytes.get()) {
+                        peakHeapBytes.set(used);
+                    }
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                }
+            }
+        }, "benchmark-heap-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+        return sampler;
+    }
+
+    private void report(Injector injector, long elapsedNanos) {
+        RenderExecutor renderExecutor = injector.getInstance(RenderExecutor.class);
+        TieredCachedPageStore pageStore = injector.getInstance(TieredCachedPageStore.class);
+        WebClientPool webClientPool = injector.getInstance(WebClientPool.class);
+        PageRenderer pageRenderer = injector.getInstance(PageRenderer.class);
+
+        double seconds = elapsedNanos / 1e9;
+        long[] latencies = latenciesNanos.clone();
+        Arrays.sort(latencies);
+
+        System.gc();
+        long heapAfterGc = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+
+        print("Requests", "%d in %.1f s with %d threads, %.1f requests/s", requestCount, seconds, concurrency,
+                requestCount / seconds);
+        print("Responses", "%d pages (%d KB), %d in progress, %d rejected, %d failed", pageResponses.get(),
+                responseBytes.get() / 1024, inProgressResponses.get(), rejectedResponses.get(),
+                failedResponses.get());
+        print("Renders", "%d submitted, %d completed, %.2f renders/s, %.0f ms on average, %.0f ms queued on average",
+                renderExecutor.getSubmittedCount(), renderExecutor.getRenderCount(),
+                renderExecutor.getRenderCount() / seconds,
+                renderExecutor.getAverageRenderMillis(), renderExecutor.getAverageQueueWaitMillis());
+        print("Latency", "p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms", percentileMillis(latencies, 0.5),
+                percentileMillis(latencies, 0.9), percentileMillis(latencies, 0.99),
+                latencies[latencies.length - 1] / 1e6);
+        print("Settle time", "p50 %d ms, p99 %d ms, %d budgets exhausted",
+                pageRenderer.getSettleTimes().getPercentileMillis(50),
+                pageRenderer.getSettleTimes().getPercentileMillis(99),
+                pageRenderer.getSettleTimes().getBudgetExhaustedCount());
+        print("Page cache", "%.1f%% memory hits, %.1f%% persistent hits, %d misses",
+                pageStore.getMemoryHitRatio() * 100, pageStore.getPersistentHitRatio() * 100,
+                pageStore.getMissCount());
+        print("WebClients", "%d created, %d discarded, %.1f ms wait on average", webClientPool.getCreateCount(),
+                webClientPool.getDiscardCount(), webClientPool.getAverageWaitMillis());
+        print("Heap", "%d MB peak, %d MB after GC", peakHeapBytes.get() >> 20, heapAfterGc >> 20);
+    }
+
+    private double percentileMillis(long[] sortedLatencies, double percentile) {
+        int index = (int) Math.ceil(percentile * sortedLatencies.length) - 1;
+        return sortedLatencies[Math.max(0, index)] / 1e6;
+    }
+
+    private void print(String label, String format, Object... args) {
+        System.out.printf(Locale.ROOT, "%-13s%s%n", label + ":", String.format(Locale.ROOT, format, args));
+    }
+}
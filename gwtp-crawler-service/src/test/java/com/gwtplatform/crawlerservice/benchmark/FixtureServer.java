@@ -0,0 +1,112 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.benchmark;
+
+import com.google.common.io.ByteStreams;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves the fixture application rendered by the benchmark: {@code /app.html} loads the content of its place token
+ * from {@code /data/<token>}, which answers after {@code xhrDelayMillis} like a slow RPC.
+ */
+class FixtureServer {
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final byte[] appPage;
+    private final long xhrDelayMillis;
+    private final int rowCount;
+
+    FixtureServer(long xhrDelayMillis, int rowCount) throws IOException {
+        this.xhrDelayMillis = xhrDelayMillis;
+        this.rowCount = rowCount;
+
+        try (InputStream in = FixtureServer.class.getResourceAsStream("app.html")) {
+            appPage = ByteStreams.toByteArray(in);
+        }
+
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/app.html", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                send(exchange, "text/html; charset=UTF-8", appPage);
+            }
+        });
+        server.createContext("/data/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                sleep(FixtureServer.this.xhrDelayMillis);
+                String token = exchange.getRequestURI().getPath().substring("/data/".length());
+                send(exchange, "application/json; charset=UTF-8", createData(token));
+            }
+        });
+    }
+
+    void start() {
+        server.start();
+    }
+
+    void stop() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The URL of the page of {@code placeToken}.
+     */
+    String getPageUrl(String placeToken) {
+        return "http://localhost:" + server.getAddress().getPort() + "/app.html#!" + placeToken;
+    }
+
+    private byte[] createData(String token) {
+        StringBuilder json = new StringBuilder("{\"title\": \"Place " + token + "\", \"rows\": [");
+        for (int i = 0; i < rowCount; i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append("[\"").append(token).append("\", \"row ").append(i).append("\", \"")
+                    .append(Integer.toHexString((token + i).hashCode())).append("\"]");
+        }
+        return json.append("]}").toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void send(HttpExchange exchange, String contentType, byte[] body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.benchmark;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Calls a servlet in-process with a {@code GET} request, without a servlet container. Only the parts of the servlet API
+ * used by the crawl service are implemented, the response body is counted and discarded.
+ */
+class ServletCall {
+    private static class CountingOutputStream extends ServletOutputStream {
+        private long count;
+
+        @Override
+        public void write(int b) {
+            count++;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) {
+            count += length;
+        }
+    }
+
+    private final Map<String, String> parameters = new HashMap<>();
+    private final Map<String, String> requestHeaders = new HashMap<>();
+    private final Map<String, String> responseHeaders = new HashMap<>();
+    private final CountingOutputStream body = new CountingOutputStream();
+    private int status = HttpServletResponse.SC_OK;
+    private boolean fetchInProgress;
+
+    ServletCall parameter(String name, String value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    ServletCall header(String name, String value) {
+        requestHeaders.put(name, value);
+        return this;
+    }
+
+    void execute(HttpServlet servlet) throws Exception {
+        servlet.service(createRequest(), createResponse());
+    }
+
+    int getStatus() {
+        return status;
+    }
+
+    String getResponseHeader(String name) {
+        return responseHeaders.get(name);
+    }
+
+    long getBodyLength() {
+        return body.count;
+    }
+
+    /**
+     * @return {@code true} if the servlet answered {@code FETCH_IN_PROGRESS}.
+     */
+    boolean isFetchInProgress() {
+        return fetchInProgress;
+    }
+
+    private HttpServletRequest createRequest() {
+        return proxy(HttpServletRequest.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "getMethod":
+                        return "GET";
+                    case "getProtocol":
+                        return "HTTP/1.1";
+                    case "getParameter":
+                        return parameters.get(args[0]);
+                    case "getHeader":
+                        return requestHeaders.get(args[0]);
+                    case "getDateHeader":
+                        return -1L;
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            }
+        });
+    }
+
+    private HttpServletResponse createResponse() {
+        return proxy(HttpServletResponse.class, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                switch (method.getName()) {
+                    case "setStatus":
+                        status = (Integer) args[0];
+                        return null;
+                    case "setHeader":
+                    case "addHeader":
+                        responseHeaders.put((String) args[0], String.valueOf(args[1]));
+                        return null;
+                    case "getOutputStream":
+                        return body;
+                    case "getWriter":
+                        return createWriter();
+                    default:
+                        return defaultValue(method.getReturnType());
+                }
+            }
+        });
+    }
+
+    private PrintWriter createWriter() {
+        return new PrintWriter(new OutputStreamWriter(body, StandardCharsets.UTF_8)) {
+            @Override
+            public void println(String line) {
+                fetchInProgress |= "FETCH_IN_PROGRESS".equals(line);
+                super.println(line);
+            }
+        };
+    }
+
+    private <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(ServletCall.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        } else if (type == int.class) {
+            return 0;
+        } else if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+}
@@ -0,0 +1,192 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server;
+
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.render.PageRenderer;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Date;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class CrawlServiceServletTest {
+    private static class BufferOutputStream extends ServletOutputStream {
+        private final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+
+        @Override
+        public void write(int b) {
+            buffer.write(b);
+        }
+    }
+
+    private static final String URL = "http://example.com/#!home";
+    private static final String KEY = "secret";
+    private static final String CONTENT = "<html><body>H\u00e9llo</body></html>";
+
+    private final BufferOutputStream output = new BufferOutputStream();
+
+    private CachedPage page;
+    private HttpServletRequest request;
+    private HttpServletResponse response;
+    private CrawlServiceServlet servlet;
+
+    @Before
+    public void setUp() throws IOException {
+        page = new CachedPage();
+        page.setUrl(URL);
+        page.setFetchDate(new Date());
+        page.setContent(CONTENT);
+
+        CachedPageStore pageStore = mock(CachedPageStore.class);
+        when(pageStore.load(URL)).thenReturn(page);
+
+        request = mock(HttpServletRequest.class);
+        when(request.getParameter("url")).thenReturn(URL);
+        when(request.getParameter("key")).thenReturn(KEY);
+        when(request.getDateHeader(anyString())).thenReturn(-1L);
+
+        response = mock(HttpServletResponse.class);
+        when(response.getOutputStream()).thenReturn(output);
+
+        servlet = new CrawlServiceServlet(mock(PageRenderer.class), pageStore, Logger.getAnonymousLogger(), KEY);
+    }
+
+    @Test
+    public void pagesAreSentGzippedToClientsAcceptingGzip() {
+        assertGzipped("gzip, deflate");
+        assertGzipped("deflate;q=1.0, gzip;q=0.5");
+        assertGzipped("*");
+        assertGzipped("gzip;q=0.5, *;q=0");
+    }
+
+    @Test
+    public void pagesAreSentUncompressedToOtherClients() {
+        assertNotGzipped(null);
+        assertNotGzipped("identity");
+        assertNotGzipped("gzip;q=0");
+        assertNotGzipped("deflate, gzip; q=0.0");
+        assertNotGzipped("gzip;q=0, *");
+        assertNotGzipped("*;q=0");
+        assertNotGzipped("gzipper");
+    }
+
+    @Test
+    public void pagesAreSentWithTheirEntityTag() {
+        get(null);
+
+        verify(response).setHeader("ETag", "\"" + page.getContentHash() + "\"");
+        verify(response).setHeader("Vary", "Accept-Encoding");
+        verify(response).setDateHeader("Last-Modified", page.getFetchDate().getTime());
+    }
+
+    @Test
+    public void matchingEntityTagsAreNotModified() {
+        when(request.getHeader("If-None-Match")).thenReturn("\"" + page.getContentHash() + "-gz\"");
+
+        get("gzip");
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        verify(response, never()).setContentLength(anyInt());
+        assertEquals(0, output.buffer.size());
+    }
+
+    @Test
+    public void gzippedPagesHaveTheirOwnEntityTag() {
+        get("gzip");
+
+        verify(response).setHeader("ETag", "\"" + page.getContentHash() + "-gz\"");
+    }
+
+    @Test
+    public void entityTagsAreMatchedPerEncoding() {
+        when(request.getHeader("If-None-Match")).thenReturn("\"" + page.getContentHash() + "\"");
+
+        get("gzip");
+
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertArrayEquals(page.getCompressedContent(), output.buffer.toByteArray());
+    }
+
+    @Test
+    public void entityTagListsAreMatchedTagByTag() {
+        when(request.getHeader("If-None-Match"))
+                .thenReturn("\"outdated\", W/\"" + page.getContentHash() + "-gz\" , \"other\"");
+
+        get("gzip");
+
+        verify(response).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+    }
+
+    @Test
+    public void otherEntityTagsAreSentThePage() {
+        when(request.getHeader("If-None-Match")).thenReturn("\"outdated\"");
+
+        get(null);
+
+        verify(response, never()).setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), output.buffer.toByteArray());
+    }
+
+    private void assertGzipped(String acceptEncoding) {
+        setUpResponse();
+        get(acceptEncoding);
+
+        verify(response).setHeader("Content-Encoding", "gzip");
+        assertArrayEquals(acceptEncoding, page.getCompressedContent(), output.buffer.toByteArray());
+    }
+
+    private void assertNotGzipped(String acceptEncoding) {
+        setUpResponse();
+        get(acceptEncoding);
+
+        verify(response, never()).setHeader(eq("Content-Encoding"), anyString());
+        assertArrayEquals(acceptEncoding, CONTENT.getBytes(StandardCharsets.UTF_8), output.buffer.toByteArray());
+    }
+
+    private void setUpResponse() {
+        output.buffer.reset();
+        response = mock(HttpServletResponse.class);
+        try {
+            when(response.getOutputStream()).thenReturn(output);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private void get(String acceptEncoding) {
+        when(request.getHeader("Accept-Encoding")).thenReturn(acceptEncoding);
+        servlet.doGet(request, response);
+    }
+}
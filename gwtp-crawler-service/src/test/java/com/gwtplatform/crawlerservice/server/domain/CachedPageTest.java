@@ -0,0 +1,119 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.domain;
+
+import com.google.common.hash.Hashing;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class CachedPageTest {
+    private static final String CONTENT = "<html><body>H\u00e9llo</body></html>";
+
+    @Test
+    public void contentIsStoredGzipped() throws IOException {
+        CachedPage page = new CachedPage();
+        page.setContent(CONTENT);
+
+        assertTrue(page.hasContent());
+        assertEquals(CONTENT, page.getContent());
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), gunzip(page.getCompressedContent()));
+    }
+
+    @Test
+    public void contentHashIsTheHashOfTheUncompressedContent() {
+        CachedPage page = new CachedPage();
+        page.setContent(CONTENT);
+
+        assertEquals(Hashing.sha1().hashBytes(CONTENT.getBytes(StandardCharsets.UTF_8)).toString(),
+                page.getContentHash());
+    }
+
+    @Test
+    public void compressedContentIsReadBack() {
+        CachedPage original = new CachedPage();
+        original.setContent(CONTENT);
+
+        CachedPage page = new CachedPage();
+        page.setCompressedContent(original.getCompressedContent(), original.getContentHash());
+
+        assertEquals(CONTENT, page.getContent());
+        assertEquals(original.getContentHash(), page.getContentHash());
+    }
+
+    @Test
+    public void contentIsDecompressedOnce() {
+        CachedPage original = new CachedPage();
+        original.setContent(CONTENT);
+        CachedPage page = new CachedPage();
+        page.setCompressedContent(original.getCompressedContent(), original.getContentHash());
+
+        byte[] bytes = page.getContentBytes();
+
+        assertArrayEquals(CONTENT.getBytes(StandardCharsets.UTF_8), bytes);
+        assertSame(bytes, page.getContentBytes());
+    }
+
+    @Test
+    public void replacingTheContentDropsTheDecompressedContent() {
+        CachedPage page = new CachedPage();
+        page.setContent(CONTENT);
+        page.getContentBytes();
+
+        CachedPage other = new CachedPage();
+        other.setContent("<html/>");
+        page.setCompressedContent(other.getCompressedContent(), other.getContentHash());
+
+        assertEquals("<html/>", page.getContent());
+    }
+
+    @Test
+    public void pagesWithoutContent() {
+        CachedPage page = new CachedPage();
+        page.setContent(null);
+
+        assertFalse(page.hasContent());
+        assertNull(page.getContent());
+        assertNull(page.getContentBytes());
+        assertNull(page.getCompressedContent());
+        assertNull(page.getContentHash());
+    }
+
+    private static byte[] gunzip(byte[] bytes) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+            byte[] chunk = new byte[1024];
+            int length;
+            while ((length = in.read(chunk)) != -1) {
+                buffer.write(chunk, 0, length);
+            }
+        }
+        return buffer.toByteArray();
+    }
+}
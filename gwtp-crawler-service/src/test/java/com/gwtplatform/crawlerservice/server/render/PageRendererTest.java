@@ -0,0 +1,191 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import javax.inject.Provider;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PageRendererTest {
+    private static final String URL = "http://example.com/#!home";
+
+    private final CountDownLatch renderStarted = new CountDownLatch(1);
+    private final CountDownLatch pageLoaded = new CountDownLatch(1);
+    private final AtomicInteger pageLoadCount = new AtomicInteger();
+
+    private CachedPageStore pageStore;
+    private RenderExecutor renderExecutor;
+    private PageRenderer pageRenderer;
+    private ExecutorService callers;
+    private IOException loadFailure;
+
+    @Before
+    public void setUp() {
+        Logger log = Logger.getAnonymousLogger();
+        pageStore = mock(CachedPageStore.class);
+        renderExecutor = new RenderExecutor();
+        renderExecutor.setThreadCount(2);
+        callers = Executors.newCachedThreadPool();
+
+        WebClientPool webClientPool = new WebClientPool(new Provider<WebClient>() {
+            @Override
+            public WebClient get() {
+                return createWebClient();
+            }
+        }, log);
+        pageRenderer = new PageRenderer(webClientPool, renderExecutor, pageStore, log);
+    }
+
+    @After
+    public void tearDown() {
+        pageLoaded.countDown();
+        callers.shutdownNow();
+        renderExecutor.shutdown();
+    }
+
+    @Test
+    public void concurrentCallersShareASingleRender() throws Exception {
+        Future<CachedPage> first = renderInBackground(0);
+        assertTrue(renderStarted.await(5, TimeUnit.SECONDS));
+        Future<CachedPage> second = renderInBackground(5000);
+
+        assertTrue(pageRenderer.isRendering(URL));
+        pageLoaded.countDown();
+
+        CachedPage page = first.get(5, TimeUnit.SECONDS);
+        assertNotNull(page);
+        assertSame(page, second.get(5, TimeUnit.SECONDS));
+        assertEquals(1, pageLoadCount.get());
+        verify(pageStore, times(1)).save(any(CachedPage.class));
+    }
+
+    @Test
+    public void waitingCallersGiveUpAfterTheirWait() throws Exception {
+        Future<CachedPage> first = renderInBackground(0);
+        assertTrue(renderStarted.await(5, TimeUnit.SECONDS));
+
+        assertNull(pageRenderer.render(URL, 50));
+
+        pageLoaded.countDown();
+        assertNotNull(first.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void completedRendersAreNoLongerInProgress() throws Exception {
+        pageLoaded.countDown();
+
+        pageRenderer.render(URL, 0);
+
+        awaitRenderDone();
+        pageRenderer.render(URL, 0);
+        assertEquals(2, pageLoadCount.get());
+    }
+
+    @Test
+    public void failedRendersAreNoLongerInProgress() throws Exception {
+        loadFailure = new IOException("Unreachable");
+        pageLoaded.countDown();
+
+        try {
+            pageRenderer.render(URL, 0);
+            fail();
+        } catch (IOException e) {
+            assertSame(loadFailure, e);
+        }
+
+        awaitRenderDone();
+    }
+
+    private Future<CachedPage> renderInBackground(final long waitMillis) {
+        return callers.submit(new Callable<CachedPage>() {
+            @Override
+            public CachedPage call() throws IOException {
+                return pageRenderer.render(URL, waitMillis);
+            }
+        });
+    }
+
+    /**
+     * Waits for the render to be unregistered, which happens right after its callers are notified.
+     */
+    private void awaitRenderDone() throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (pageRenderer.isRendering(URL) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertFalse(pageRenderer.isRendering(URL));
+    }
+
+    /**
+     * Creates a client loading a page without JavaScript once {@link #pageLoaded} is released.
+     */
+    private WebClient createWebClient() {
+        final HtmlPage page = mock(HtmlPage.class, RETURNS_DEEP_STUBS);
+        when(page.getEnclosingWindow().getJobManager().getEarliestJob()).thenReturn(null);
+        when(page.asXml()).thenReturn("<html/>");
+
+        WebClient webClient = mock(WebClient.class, RETURNS_DEEP_STUBS);
+        try {
+            when(webClient.getPage(URL)).thenAnswer(new Answer<HtmlPage>() {
+                @Override
+                public HtmlPage answer(InvocationOnMock invocation) throws Exception {
+                    pageLoadCount.incrementAndGet();
+                    renderStarted.countDown();
+                    pageLoaded.await();
+                    if (loadFailure != null) {
+                        throw loadFailure;
+                    }
+                    return page;
+                }
+            });
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return webClient;
+    }
+}
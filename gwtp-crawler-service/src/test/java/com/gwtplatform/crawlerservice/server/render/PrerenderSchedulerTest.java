@@ -0,0 +1,156 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor.Priority;
+import com.gwtplatform.crawlerservice.server.store.CachedPageStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class PrerenderSchedulerTest {
+    private static final String URL = "http://example.com/#!home";
+    private static final int TIMEOUT_MILLIS = 5000;
+
+    private PageRenderer pageRenderer;
+    private CachedPageStore pageStore;
+    private PrerenderScheduler scheduler;
+
+    @Before
+    public void setUp() {
+        pageRenderer = mock(PageRenderer.class);
+        pageStore = mock(CachedPageStore.class);
+        scheduler = new PrerenderScheduler(pageRenderer, pageStore, Logger.getAnonymousLogger());
+        scheduler.setThreadCount(1);
+    }
+
+    @After
+    public void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    public void missingPagesAreRenderedBehindCacheMisses() throws Exception {
+        when(pageRenderer.render(URL, CrawlServiceServlet.MAX_WAIT_MILLIS, Priority.REFRESH))
+                .thenReturn(new CachedPage());
+
+        scheduler.schedule(Arrays.asList(URL));
+
+        verify(pageRenderer, timeout(TIMEOUT_MILLIS)).render(URL, CrawlServiceServlet.MAX_WAIT_MILLIS,
+                Priority.REFRESH);
+        awaitRenderCount(1);
+    }
+
+    @Test
+    public void freshPagesAreNotRenderedAgain() throws Exception {
+        CachedPage page = new CachedPage();
+        page.setFetchDate(new Date());
+        page.setContent("<html/>");
+        when(pageStore.load(URL)).thenReturn(page);
+
+        scheduler.schedule(Arrays.asList(URL));
+
+        verify(pageStore, timeout(TIMEOUT_MILLIS)).load(URL);
+        Thread.sleep(100);
+        verify(pageRenderer, never()).render(anyString(), anyLong(), eq(Priority.REFRESH));
+    }
+
+    @Test
+    public void pagesAlreadyScheduledAreSkipped() throws Exception {
+        scheduler.schedule(Arrays.asList(URL, URL));
+        scheduler.schedule(Arrays.asList(URL));
+
+        verify(pageRenderer, timeout(TIMEOUT_MILLIS)).render(URL, CrawlServiceServlet.MAX_WAIT_MILLIS,
+                Priority.REFRESH);
+        Thread.sleep(100);
+        verify(pageRenderer).render(anyString(), anyLong(), eq(Priority.REFRESH));
+        assertEquals(1, scheduler.getScheduledCount());
+    }
+
+    @Test
+    public void failedRendersAreCounted() throws Exception {
+        when(pageRenderer.render(URL, CrawlServiceServlet.MAX_WAIT_MILLIS, Priority.REFRESH))
+                .thenThrow(new IOException("Unreachable"));
+
+        scheduler.schedule(Arrays.asList(URL));
+
+        awaitFailureCount(1);
+        assertEquals(0, scheduler.getRenderCount());
+    }
+
+    @Test
+    public void sitemapLocationsAreScheduled() throws Exception {
+        File sitemap = File.createTempFile("sitemap", ".xml");
+        sitemap.deleteOnExit();
+        Files.write(sitemap.toPath(), ("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                + "<urlset xmlns=\"http://www.sitemaps.org/schemas/sitemap/0.9\">\n"
+                + "  <url><loc>http://example.com/#!home</loc></url>\n"
+                + "  <url>\n    <loc>\n      http://example.com/?a=1&amp;b=2#!about\n    </loc>\n  </url>\n"
+                + "</urlset>\n").getBytes(StandardCharsets.UTF_8));
+
+        scheduler.scheduleSitemap(sitemap);
+
+        assertEquals(2, scheduler.getScheduledCount());
+        verify(pageStore, timeout(TIMEOUT_MILLIS)).load(URL);
+        verify(pageStore, timeout(TIMEOUT_MILLIS)).load("http://example.com/?a=1&b=2#!about");
+    }
+
+    @Test
+    public void placeTokensWithParametersAreIgnored() throws Exception {
+        scheduler.schedulePlaceTokens("http://example.com/", Arrays.asList("home", "user/{id}", "about"));
+
+        assertEquals(2, scheduler.getScheduledCount());
+        verify(pageStore, timeout(TIMEOUT_MILLIS)).load(URL);
+        verify(pageStore, timeout(TIMEOUT_MILLIS)).load("http://example.com/#!about");
+    }
+
+    private void awaitRenderCount(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (scheduler.getRenderCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, scheduler.getRenderCount());
+    }
+
+    private void awaitFailureCount(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+        while (scheduler.getFailureCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, scheduler.getFailureCount());
+    }
+}
@@ -0,0 +1,187 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor.Priority;
+import com.gwtplatform.crawlerservice.server.render.RenderExecutor.RenderTask;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RenderExecutorTest {
+    private final List<String> rendered = Collections.synchronizedList(new ArrayList<String>());
+    private final CountDownLatch threadReleased = new CountDownLatch(1);
+    private final AtomicInteger doneCount = new AtomicInteger();
+
+    private RenderExecutor renderExecutor;
+
+    @Before
+    public void setUp() {
+        renderExecutor = new RenderExecutor();
+        renderExecutor.setThreadCount(1);
+    }
+
+    @After
+    public void tearDown() {
+        threadReleased.countDown();
+        renderExecutor.shutdown();
+    }
+
+    @Test
+    public void rendersOfTheSamePriorityRunInOrder() throws Exception {
+        occupyThread();
+        queue("a", Priority.CACHE_MISS);
+        queue("b", Priority.CACHE_MISS);
+        RenderTask last = queue("c", Priority.CACHE_MISS);
+
+        assertEquals(3, renderExecutor.getQueueDepth());
+        assertRenderOrder(last, "a", "b", "c");
+    }
+
+    @Test
+    public void cacheMissesGoBeforeRefreshes() throws Exception {
+        occupyThread();
+        RenderTask last = queue("refresh", Priority.REFRESH);
+        queue("miss", Priority.CACHE_MISS);
+
+        assertRenderOrder(last, "miss", "refresh");
+    }
+
+    @Test
+    public void rendersWithMoreCallersGoFirst() throws Exception {
+        occupyThread();
+        RenderTask last = queue("a", Priority.CACHE_MISS);
+        RenderTask joined = queue("b", Priority.CACHE_MISS);
+
+        renderExecutor.join(joined, Priority.CACHE_MISS);
+
+        assertRenderOrder(last, "b", "a");
+    }
+
+    @Test
+    public void joiningCacheMissesRaiseThePriorityOfRefreshes() throws Exception {
+        occupyThread();
+        RenderTask last = queue("refresh", Priority.REFRESH);
+        queue("miss", Priority.CACHE_MISS);
+        RenderTask joined = queue("joined refresh", Priority.REFRESH);
+
+        renderExecutor.join(joined, Priority.CACHE_MISS);
+
+        assertRenderOrder(last, "joined refresh", "miss", "refresh");
+    }
+
+    @Test
+    public void rendersAreRejectedOnceTheQueueIsFull() throws Exception {
+        renderExecutor.setQueueCapacity(2);
+        occupyThread();
+        queue("a", Priority.CACHE_MISS);
+        queue("b", Priority.CACHE_MISS);
+
+        RenderTask rejected = renderExecutor.newTask(render("c"), Priority.CACHE_MISS, countDone());
+        try {
+            renderExecutor.execute(rejected);
+            fail();
+        } catch (RenderRejectedException e) {
+            assertTrue(e.getRetryAfterSeconds() >= 1);
+        }
+
+        assertTrue(rejected.isCancelled());
+        assertEquals(1, doneCount.get());
+        assertEquals(1, renderExecutor.getRejectedCount());
+        assertEquals(2, renderExecutor.getQueueDepth());
+    }
+
+    @Test
+    public void refreshesAreRejectedOnceTheQueueIsHalfFull() throws Exception {
+        renderExecutor.setQueueCapacity(4);
+        occupyThread();
+        queue("a", Priority.CACHE_MISS);
+        queue("b", Priority.CACHE_MISS);
+
+        try {
+            queue("refresh", Priority.REFRESH);
+            fail();
+        } catch (RenderRejectedException e) {
+            // expected
+        }
+
+        RenderTask last = queue("c", Priority.CACHE_MISS);
+        assertRenderOrder(last, "a", "b", "c");
+    }
+
+    /**
+     * Keeps the single render thread busy until {@link #threadReleased} is released, so the next renders are queued.
+     */
+    private void occupyThread() throws RenderRejectedException {
+        renderExecutor.execute(renderExecutor.newTask(new Callable<CachedPage>() {
+            @Override
+            public CachedPage call() throws InterruptedException {
+                threadReleased.await();
+                return null;
+            }
+        }, Priority.CACHE_MISS, countDone()));
+    }
+
+    private RenderTask queue(String name, Priority priority) throws RenderRejectedException {
+        RenderTask task = renderExecutor.newTask(render(name), priority, countDone());
+        renderExecutor.execute(task);
+        return task;
+    }
+
+    private Callable<CachedPage> render(final String name) {
+        return new Callable<CachedPage>() {
+            @Override
+            public CachedPage call() {
+                rendered.add(name);
+                return null;
+            }
+        };
+    }
+
+    private Runnable countDone() {
+        return new Runnable() {
+            @Override
+            public void run() {
+                doneCount.incrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Releases the render thread and checks the order in which the queued renders ran, {@code last} being the last one.
+     */
+    private void assertRenderOrder(RenderTask last, String... names) throws Exception {
+        threadReleased.countDown();
+        last.get(5, TimeUnit.SECONDS);
+
+        assertEquals(Arrays.asList(names), rendered);
+    }
+}
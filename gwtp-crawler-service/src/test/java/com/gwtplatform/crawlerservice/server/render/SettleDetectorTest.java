@@ -0,0 +1,126 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import com.gargoylesoftware.htmlunit.html.HtmlPage;
+import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJob;
+import com.gargoylesoftware.htmlunit.javascript.background.JavaScriptJobManager;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SettleDetectorTest {
+    private HtmlPage page;
+    private JavaScriptJobManager jobManager;
+    private ActivityTrackingAjaxController ajaxController;
+    private SettleDetector settleDetector;
+
+    @Before
+    public void setUp() {
+        page = mock(HtmlPage.class, RETURNS_DEEP_STUBS);
+        jobManager = mock(JavaScriptJobManager.class);
+        when(page.getEnclosingWindow().getJobManager()).thenReturn(jobManager);
+
+        ajaxController = new ActivityTrackingAjaxController();
+        WebClient webClient = mock(WebClient.class);
+        when(webClient.getAjaxController()).thenReturn(ajaxController);
+
+        settleDetector = new SettleDetector(webClient, page);
+    }
+
+    @Test
+    public void idlePagesSettleOnceQuiet() throws Exception {
+        long start = System.currentTimeMillis();
+        assertTrue(settleDetector.awaitSettled(5000));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed >= SettleDetector.QUIET_MILLIS);
+        assertTrue(elapsed < SettleDetector.STABLE_MILLIS);
+        verify(page).removeDomChangeListener(settleDetector);
+        verify(page).removeHtmlAttributeChangeListener(settleDetector);
+    }
+
+    @Test
+    public void pagesWithRecurringTimersSettleOnceStable() throws Exception {
+        when(jobManager.getEarliestJob()).thenAnswer(new Answer<JavaScriptJob>() {
+            @Override
+            public JavaScriptJob answer(InvocationOnMock invocation) {
+                JavaScriptJob job = mock(JavaScriptJob.class);
+                when(job.getTargetExecutionTime()).thenReturn(System.currentTimeMillis() + 10);
+                return job;
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        assertTrue(settleDetector.awaitSettled(5000));
+
+        assertTrue(System.currentTimeMillis() - start >= SettleDetector.STABLE_MILLIS);
+    }
+
+    @Test
+    public void requestsDelaySettling() throws Exception {
+        final long requestsUntil = System.currentTimeMillis() + 400;
+        final AtomicLong lastRequest = new AtomicLong();
+        when(jobManager.waitForJobsStartingBefore(anyLong())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                if (System.currentTimeMillis() < requestsUntil) {
+                    ajaxController.processSynchron(page, null, true);
+                    lastRequest.set(System.currentTimeMillis());
+                }
+                return 0;
+            }
+        });
+
+        assertTrue(settleDetector.awaitSettled(5000));
+
+        // Without a request, the quiet period would be measured from the epoch and always pass
+        assertTrue(lastRequest.get() > 0);
+        assertTrue(System.currentTimeMillis() - lastRequest.get() >= SettleDetector.QUIET_MILLIS);
+    }
+
+    @Test
+    public void pagesChangingForeverExhaustTheBudget() throws Exception {
+        when(jobManager.waitForJobsStartingBefore(anyLong())).thenAnswer(new Answer<Integer>() {
+            @Override
+            public Integer answer(InvocationOnMock invocation) {
+                settleDetector.nodeAdded(null);
+                return 1;
+            }
+        });
+
+        long start = System.currentTimeMillis();
+        assertFalse(settleDetector.awaitSettled(600));
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertTrue(elapsed >= 600);
+        assertTrue(elapsed < SettleDetector.STABLE_MILLIS);
+        verify(page).removeDomChangeListener(settleDetector);
+    }
+}
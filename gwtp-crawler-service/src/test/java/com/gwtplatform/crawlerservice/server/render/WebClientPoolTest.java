@@ -0,0 +1,131 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.render;
+
+import com.gargoylesoftware.htmlunit.WebClient;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.inject.Provider;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.RETURNS_DEEP_STUBS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class WebClientPoolTest {
+    private WebClientPool pool;
+
+    @Before
+    public void setUp() {
+        pool = new WebClientPool(new Provider<WebClient>() {
+            @Override
+            public WebClient get() {
+                return mock(WebClient.class, RETURNS_DEEP_STUBS);
+            }
+        }, Logger.getAnonymousLogger());
+    }
+
+    @Test
+    public void healthyClientsAreReused() throws Exception {
+        WebClientPool.Lease lease = pool.acquire();
+        WebClient webClient = lease.getWebClient();
+        pool.release(lease, true);
+
+        assertSame(webClient, pool.acquire().getWebClient());
+        assertEquals(1, pool.getCreateCount());
+        assertEquals(2, pool.getAcquireCount());
+        verify(webClient.getCookieManager()).clearCookies();
+    }
+
+    @Test
+    public void failedClientsAreReplaced() throws Exception {
+        WebClientPool.Lease lease = pool.acquire();
+        WebClient webClient = lease.getWebClient();
+        pool.release(lease, false);
+
+        assertNotSame(webClient, pool.acquire().getWebClient());
+        assertEquals(2, pool.getCreateCount());
+        assertEquals(1, pool.getDiscardCount());
+        verify(webClient).closeAllWindows();
+    }
+
+    @Test
+    public void clientsThatCannotBeResetAreReplaced() throws Exception {
+        WebClientPool.Lease lease = pool.acquire();
+        WebClient webClient = lease.getWebClient();
+        when(webClient.getCache()).thenThrow(new IllegalStateException());
+        pool.release(lease, true);
+
+        assertNotSame(webClient, pool.acquire().getWebClient());
+        assertEquals(1, pool.getDiscardCount());
+    }
+
+    @Test
+    public void clientsAreReplacedAfterTheirMaximumReuse() throws Exception {
+        pool.setMaxReuse(2);
+
+        WebClientPool.Lease lease = pool.acquire();
+        WebClient webClient = lease.getWebClient();
+        pool.release(lease, true);
+        lease = pool.acquire();
+        assertSame(webClient, lease.getWebClient());
+        pool.release(lease, true);
+
+        assertNotSame(webClient, pool.acquire().getWebClient());
+        assertEquals(1, pool.getDiscardCount());
+    }
+
+    @Test
+    public void poolSizeBoundsConcurrentLeases() throws Exception {
+        pool.setPoolSize(1);
+        final WebClientPool.Lease lease = pool.acquire();
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<WebClientPool.Lease> waiting = executor.submit(new Callable<WebClientPool.Lease>() {
+                @Override
+                public WebClientPool.Lease call() throws Exception {
+                    return pool.acquire();
+                }
+            });
+
+            long deadline = System.currentTimeMillis() + 5000;
+            while (pool.getWaitingCount() == 0 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(1, pool.getWaitingCount());
+            assertFalse(waiting.isDone());
+
+            pool.release(lease, true);
+
+            assertSame(lease, waiting.get());
+            assertEquals(1, pool.getCreateCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,258 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.store;
+
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FileCachedPageStoreTest {
+    private static final String URL = "http://example.com/#!home";
+    private static final String OTHER_URL = "http://example.com/#!about";
+
+    private File directory;
+    private FileCachedPageStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("page-store").toFile();
+        store = open(directory);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        store.close();
+        delete(directory);
+    }
+
+    @Test
+    public void savedPagesAreLoaded() {
+        CachedPage page = createPage(URL, new Date(), "<html>home</html>");
+        page.setFetchInProgress(true);
+
+        store.save(page);
+
+        CachedPage loaded = store.load(URL);
+        assertEquals(URL, loaded.getUrl());
+        assertEquals(page.getFetchDate(), loaded.getFetchDate());
+        assertTrue(loaded.isFetchInProgress());
+        assertEquals("<html>home</html>", loaded.getContent());
+        assertEquals(page.getContentHash(), loaded.getContentHash());
+    }
+
+    @Test
+    public void pagesWithoutContentAreLoaded() {
+        store.save(createPage(URL, new Date(), null));
+
+        assertFalse(store.load(URL).hasContent());
+    }
+
+    @Test
+    public void deletedPagesAreNotLoaded() {
+        CachedPage page = createPage(URL, new Date(), "<html/>");
+        store.save(page);
+
+        store.delete(page);
+
+        assertNull(store.load(URL));
+        assertEquals(0, store.getPageCount());
+    }
+
+    @Test
+    public void latestPagesAreLoadedAfterReopening() throws IOException {
+        store.save(createPage(URL, new Date(), "<html>first</html>"));
+        store.save(createPage(URL, new Date(), "<html>second</html>"));
+        store.save(createPage(OTHER_URL, new Date(), "<html>about</html>"));
+        store.delete(createPage(OTHER_URL, new Date(), null));
+
+        reopen();
+
+        assertEquals(1, store.getPageCount());
+        assertEquals("<html>second</html>", store.load(URL).getContent());
+        assertNull(store.load(OTHER_URL));
+    }
+
+    @Test
+    public void truncatedTailRecordIsDropped() throws IOException {
+        store.save(createPage(URL, new Date(), "<html>home</html>"));
+        long completeBytes = store.getDiskBytes();
+        store.save(createPage(OTHER_URL, new Date(), "<html>about</html>"));
+        store.close();
+
+        File segment = getSegmentFile(1);
+        setLength(segment, segment.length() - 3);
+        store = open(directory);
+
+        assertEquals("<html>home</html>", store.load(URL).getContent());
+        assertNull(store.load(OTHER_URL));
+        assertEquals(completeBytes, segment.length());
+    }
+
+    @Test
+    public void corruptedTailRecordIsDropped() throws IOException {
+        store.save(createPage(URL, new Date(), "<html>home</html>"));
+        long completeBytes = store.getDiskBytes();
+        store.save(createPage(OTHER_URL, new Date(), "<html>about</html>"));
+        store.close();
+
+        File segment = getSegmentFile(1);
+        flipLastByte(segment);
+        store = open(directory);
+
+        assertNotNull(store.load(URL));
+        assertNull(store.load(OTHER_URL));
+        assertEquals(completeBytes, segment.length());
+    }
+
+    @Test
+    public void pagesSavedAfterRecoveryFollowTheLastCompleteRecord() throws IOException {
+        store.save(createPage(URL, new Date(), "<html>home</html>"));
+        store.save(createPage(OTHER_URL, new Date(), "<html>about</html>"));
+        store.close();
+        File segment = getSegmentFile(1);
+        setLength(segment, segment.length() - 3);
+        store = open(directory);
+
+        store.save(createPage(OTHER_URL, new Date(), "<html>about again</html>"));
+        reopen();
+
+        assertEquals("<html>home</html>", store.load(URL).getContent());
+        assertEquals("<html>about again</html>", store.load(OTHER_URL).getContent());
+    }
+
+    @Test
+    public void corruptedRecordsOfOlderSegmentsAreNotTruncated() throws IOException {
+        store.save(createPage(URL, new Date(), "<html>home</html>"));
+        store.save(createPage(OTHER_URL, new Date(), "<html>about</html>"));
+        store.close();
+
+        // Writes a second segment with another store and moves it after the first one
+        File otherDirectory = Files.createTempDirectory("page-store").toFile();
+        FileCachedPageStore otherStore = open(otherDirectory);
+        otherStore.save(createPage("http://example.com/#!contact", new Date(), "<html>contact</html>"));
+        otherStore.close();
+        Files.move(new File(otherDirectory, "segment-0000000001.log").toPath(), getSegmentFile(2).toPath());
+        delete(otherDirectory);
+
+        File segment = getSegmentFile(1);
+        flipLastByte(segment);
+        long corruptedBytes = segment.length();
+        store = open(directory);
+
+        assertNotNull(store.load(URL));
+        assertNull(store.load(OTHER_URL));
+        assertNotNull(store.load("http://example.com/#!contact"));
+        assertEquals(corruptedBytes, segment.length());
+    }
+
+    @Test
+    public void compactionKeepsLivePagesAndDropsExpiredOnes() {
+        long expiredMillis = System.currentTimeMillis() - CrawlServiceServlet.cachedPageTimeoutSec * 1000 - 1000;
+        for (int i = 0; i < 10; i++) {
+            store.save(createPage(URL, new Date(), "<html>version " + i + "</html>"));
+        }
+        store.save(createPage(OTHER_URL, new Date(expiredMillis), "<html>about</html>"));
+        store.save(createPage("http://example.com/#!contact", new Date(), "<html>contact</html>"));
+        store.delete(createPage("http://example.com/#!contact", new Date(), null));
+        long diskBytes = store.getDiskBytes();
+
+        store.compact();
+
+        assertEquals(1, store.getCompactionCount());
+        assertEquals(1, store.getPageCount());
+        assertEquals("<html>version 9</html>", store.load(URL).getContent());
+        assertNull(store.load(OTHER_URL));
+        assertTrue(store.getDiskBytes() < diskBytes);
+        assertFalse(getSegmentFile(1).exists());
+        assertTrue(getSegmentFile(2).exists());
+    }
+
+    @Test
+    public void compactedStoreIsReopened() throws IOException {
+        store.save(createPage(URL, new Date(), "<html>first</html>"));
+        store.save(createPage(URL, new Date(), "<html>second</html>"));
+        store.compact();
+        store.save(createPage(OTHER_URL, new Date(), "<html>about</html>"));
+
+        reopen();
+
+        assertEquals(2, store.getPageCount());
+        assertEquals("<html>second</html>", store.load(URL).getContent());
+        assertEquals("<html>about</html>", store.load(OTHER_URL).getContent());
+    }
+
+    private FileCachedPageStore open(File storeDirectory) throws IOException {
+        return new FileCachedPageStore(storeDirectory.getPath(), Logger.getAnonymousLogger());
+    }
+
+    private void reopen() throws IOException {
+        store.close();
+        store = open(directory);
+    }
+
+    private File getSegmentFile(long id) {
+        return new File(directory, String.format("segment-%010d.log", id));
+    }
+
+    private void setLength(File file, long length) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(length);
+        }
+    }
+
+    private void flipLastByte(File file) throws IOException {
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.seek(file.length() - 1);
+            int value = out.read();
+            out.seek(file.length() - 1);
+            out.write(value ^ 0xff);
+        }
+    }
+
+    private void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private CachedPage createPage(String url, Date fetchDate, String content) {
+        CachedPage page = new CachedPage();
+        page.setUrl(url);
+        page.setFetchDate(fetchDate);
+        page.setContent(content);
+        return page;
+    }
+}
@@ -0,0 +1,161 @@
+/**
+ * Copyright 2014 ArcBees Inc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not
+ * use this file except in compliance with the License. You may obtain a copy of
+ * the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations under
+ * the License.
+ */
+
+package com.gwtplatform.crawlerservice.server.store;
+
+import com.gwtplatform.crawlerservice.server.CrawlServiceServlet;
+import com.gwtplatform.crawlerservice.server.domain.CachedPage;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Date;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class TieredCachedPageStoreTest {
+    private static final String URL = "http://example.com/#!home";
+
+    private CachedPageStore persistentStore;
+    private TieredCachedPageStore store;
+
+    @Before
+    public void setUp() {
+        persistentStore = mock(CachedPageStore.class);
+        store = new TieredCachedPageStore(persistentStore);
+    }
+
+    @Test
+    public void loadedPagesAreServedFromMemory() {
+        CachedPage page = createPage(new Date(), "<html/>");
+        when(persistentStore.load(URL)).thenReturn(page);
+
+        assertSame(page, store.load(URL));
+        assertSame(page, store.load(URL));
+
+        verify(persistentStore, times(1)).load(URL);
+        assertEquals(1, store.getPersistentHitCount());
+        assertEquals(1, store.getMemoryHitCount());
+        assertEquals(0.5, store.getMemoryHitRatio(), 0);
+    }
+
+    @Test
+    public void savedPagesAreWrittenThroughToBothTiers() {
+        CachedPage page = createPage(new Date(), "<html/>");
+
+        store.save(page);
+
+        verify(persistentStore).save(page);
+        assertSame(page, store.load(URL));
+        verify(persistentStore, times(0)).load(URL);
+    }
+
+    @Test
+    public void pagesBeingFetchedAreReadFromThePersistentStore() {
+        CachedPage placeholder = createPage(new Date(), null);
+        placeholder.setFetchInProgress(true);
+
+        store.save(placeholder);
+        store.load(URL);
+
+        verify(persistentStore).load(URL);
+        assertEquals(0, store.getMemorySizeBytes());
+    }
+
+    @Test
+    public void expiredPagesAreNotServedFromMemory() {
+        long expiredMillis = (CrawlServiceServlet.cachedPageTimeoutSec + 1) * 1000;
+        store.save(createPage(new Date(System.currentTimeMillis() - expiredMillis), "<html/>"));
+
+        assertNull(store.load(URL));
+
+        verify(persistentStore).load(URL);
+        assertEquals(1, store.getMissCount());
+    }
+
+    @Test
+    public void deletedPagesAreRemovedFromBothTiers() {
+        CachedPage page = createPage(new Date(), "<html/>");
+        store.save(page);
+
+        store.delete(page);
+
+        verify(persistentStore).delete(page);
+        assertNull(store.load(URL));
+        assertEquals(0, store.getMemorySizeBytes());
+    }
+
+    @Test
+    public void memoryTierCanBeDisabled() {
+        store.setMaxBytes(0);
+        CachedPage page = createPage(new Date(), "<html/>");
+        when(persistentStore.load(URL)).thenReturn(page);
+
+        store.save(page);
+        store.load(URL);
+        store.load(URL);
+
+        verify(persistentStore, times(2)).load(URL);
+        assertEquals(0, store.getMemoryHitCount());
+    }
+
+    @Test
+    public void leastRecentlyUsedPagesAreEvictedFirst() {
+        MemoryPageCache cache = new MemoryPageCache(1024);
+        long now = System.currentTimeMillis();
+        CachedPage first = createPage("http://example.com/#!first", new Date(now), "first");
+        CachedPage second = createPage("http://example.com/#!second", new Date(now), "second");
+        cache.put(first, 60000);
+        cache.put(second, 60000);
+        cache.get(first.getUrl(), now);
+
+        // Too big to share the cache with both pages
+        cache.put(createPage("http://example.com/#!third", new Date(now), randomContent(600)), 60000);
+
+        assertSame(first, cache.get(first.getUrl(), now));
+        assertNull(cache.get(second.getUrl(), now));
+    }
+
+    private CachedPage createPage(Date fetchDate, String content) {
+        return createPage(URL, fetchDate, content);
+    }
+
+    private CachedPage createPage(String url, Date fetchDate, String content) {
+        CachedPage page = new CachedPage();
+        page.setUrl(url);
+        page.setFetchDate(fetchDate);
+        page.setContent(content);
+        return page;
+    }
+
+    /**
+     * @return Content that does not compress, so it has a predictable size in the cache.
+     */
+    private String randomContent(int length) {
+        StringBuilder content = new StringBuilder(length);
+        Random random = new Random(42);
+        for (int i = 0; i < length; i++) {
+            content.append((char) ('!' + random.nextInt(90)));
+        }
+        return content.toString();
+    }
+}